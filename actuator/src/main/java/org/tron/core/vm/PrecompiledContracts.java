@@ -68,6 +68,7 @@ import org.tron.common.zksnark.JLibrustzcash;
 import org.tron.common.zksnark.LibrustzcashParam;
 import org.tron.core.capsule.AccountCapsule;
 import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.db2.core.Speculation;
 import org.tron.core.exception.ZksnarkException;
 import org.tron.core.vm.config.VMConfig;
 import org.tron.core.vm.program.Program;
@@ -130,6 +131,15 @@ public class PrecompiledContracts {
       "0000000000000000000000000000000000000000000000000000000001000004");
 
   public static PrecompiledContract getContractForAddress(DataWord address) {
+    PrecompiledContract contract = lookup(address);
+    if (contract != null) {
+      // the contracts are shared by all threads and keep the state of the call they run
+      Speculation.markUnsafe("precompiled contract");
+    }
+    return contract;
+  }
+
+  private static PrecompiledContract lookup(DataWord address) {
 
     if (address == null) {
       return identity;
@@ -0,0 +1,10 @@
+package org.tron.common.storage;
+
+/**
+ * Receives the rows of one write batch, a null value deletes the key.
+ */
+@FunctionalInterface
+public interface BatchWriter {
+
+  void put(byte[] key, byte[] value);
+}
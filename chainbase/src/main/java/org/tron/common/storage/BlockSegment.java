@@ -0,0 +1,267 @@
+package org.tron.common.storage;
+
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import lombok.Getter;
+import org.tron.core.db.common.iterator.DBIterator;
+
+/**
+ * An immutable file of the rows of a range of blocks, sorted by key and read through a memory
+ * mapping. Every {@value #INDEX_INTERVAL}th key is kept on the heap in a sparse index, so a get
+ * costs a binary search of the index and a scan of at most one interval of the file.
+ *
+ * Layout: the rows as {int keyLength, key, int valueLength, value}, the sparse index as
+ * {int keyLength, key, long offset}, then the footer.
+ */
+public class BlockSegment {
+
+  public static final String SUFFIX = ".seg";
+  private static final int INDEX_INTERVAL = 64;
+  private static final int MAGIC = 0x5e6b10c5;
+  // {long indexOffset, int indexCount, int count, long first, long last, int magic}
+  private static final int FOOTER_SIZE = 36;
+  private static final Comparator<byte[]> ORDER = UnsignedBytes.lexicographicalComparator();
+
+  @Getter
+  private final Path path;
+  private final MappedByteBuffer buffer;
+  private final long end;
+  private final byte[][] indexKeys;
+  private final long[] indexOffsets;
+  @Getter
+  private final int count;
+  @Getter
+  private final long first;
+  @Getter
+  private final long last;
+
+  private BlockSegment(Path path) throws IOException {
+    this.path = path;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    int footer = buffer.capacity() - FOOTER_SIZE;
+    if (footer < 0 || buffer.getInt(footer + 32) != MAGIC) {
+      throw new IOException("not a block segment: " + path);
+    }
+    end = buffer.getLong(footer);
+    int indexCount = buffer.getInt(footer + 8);
+    count = buffer.getInt(footer + 12);
+    first = buffer.getLong(footer + 16);
+    last = buffer.getLong(footer + 24);
+
+    indexKeys = new byte[indexCount][];
+    indexOffsets = new long[indexCount];
+    int position = (int) end;
+    for (int i = 0; i < indexCount; i++) {
+      indexKeys[i] = read(position);
+      position += 4 + indexKeys[i].length;
+      indexOffsets[i] = buffer.getLong(position);
+      position += 8;
+    }
+  }
+
+  public static BlockSegment open(Path path) throws IOException {
+    return new BlockSegment(path);
+  }
+
+  /**
+   * @return the block number the key of a row starts with.
+   */
+  public static long number(byte[] key) {
+    return Longs.fromBytes(key[0], key[1], key[2], key[3], key[4], key[5], key[6], key[7]);
+  }
+
+  /**
+   * Write {@code rows} into {@code path}, the file only appears once complete.
+   *
+   * @param rows at least one row, in key order.
+   */
+  public static BlockSegment write(Path path, Iterator<Map.Entry<byte[], byte[]>> rows)
+      throws IOException {
+    Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    List<byte[]> indexKeys = new ArrayList<>();
+    List<Long> indexOffsets = new ArrayList<>();
+    int count = 0;
+    long first = -1;
+    long last = -1;
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+      while (rows.hasNext()) {
+        Map.Entry<byte[], byte[]> row = rows.next();
+        last = number(row.getKey());
+        if (count == 0) {
+          first = last;
+        }
+        if (count++ % INDEX_INTERVAL == 0) {
+          indexKeys.add(row.getKey());
+          indexOffsets.add((long) out.size());
+        }
+        write(out, row.getKey());
+        write(out, row.getValue());
+      }
+
+      long indexOffset = out.size();
+      for (int i = 0; i < indexKeys.size(); i++) {
+        write(out, indexKeys.get(i));
+        out.writeLong(indexOffsets.get(i));
+      }
+      out.writeLong(indexOffset);
+      out.writeInt(indexKeys.size());
+      out.writeInt(count);
+      out.writeLong(first);
+      out.writeLong(last);
+      out.writeInt(MAGIC);
+    }
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+    return open(path);
+  }
+
+  private static void write(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private byte[] read(int position) {
+    byte[] bytes = new byte[buffer.getInt(position)];
+    ByteBuffer view = buffer.duplicate();
+    view.position(position + 4);
+    view.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * @return the index interval holding {@code key}, -1 if the key is before the first one.
+   */
+  private int interval(byte[] key) {
+    int found = Arrays.binarySearch(indexKeys, key, ORDER);
+    return found >= 0 ? found : -(found + 1) - 1;
+  }
+
+  private long intervalEnd(int interval) {
+    return interval + 1 < indexOffsets.length ? indexOffsets[interval + 1] : end;
+  }
+
+  public byte[] get(byte[] key) {
+    int interval = interval(key);
+    if (interval < 0) {
+      return null;
+    }
+    int position = (int) indexOffsets[interval];
+    int limit = (int) intervalEnd(interval);
+    while (position < limit) {
+      byte[] k = read(position);
+      position += 4 + k.length;
+      int valueLength = buffer.getInt(position);
+      int c = ORDER.compare(k, key);
+      if (c == 0) {
+        return read(position);
+      }
+      if (c > 0) {
+        return null;
+      }
+      position += 4 + valueLength;
+    }
+    return null;
+  }
+
+  /**
+   * @return the rows from the first key not less than {@code start}, or from the first row.
+   */
+  public DBIterator iterator(byte[] start) {
+    int interval = start == null ? 0 : Math.max(0, interval(start));
+    return new Rows(interval, start, false);
+  }
+
+  /**
+   * @return the rows from the last to the first.
+   */
+  public DBIterator reverseIterator() {
+    return new Rows(indexOffsets.length - 1, null, true);
+  }
+
+  /**
+   * Reads the rows one index interval at a time.
+   */
+  private class Rows implements DBIterator {
+
+    private final boolean reverse;
+    private final byte[] start;
+    private int interval;
+    private List<Map.Entry<byte[], byte[]>> rows = new ArrayList<>();
+    private int next;
+
+    Rows(int interval, byte[] start, boolean reverse) {
+      this.interval = interval;
+      this.start = start;
+      this.reverse = reverse;
+    }
+
+    private void load() {
+      rows = new ArrayList<>(INDEX_INTERVAL);
+      next = 0;
+      if (interval < 0 || interval >= indexOffsets.length) {
+        return;
+      }
+      int position = (int) indexOffsets[interval];
+      int limit = (int) intervalEnd(interval);
+      while (position < limit) {
+        byte[] key = read(position);
+        position += 4 + key.length;
+        byte[] value = read(position);
+        position += 4 + value.length;
+        if (start == null || ORDER.compare(key, start) >= 0) {
+          rows.add(Maps.immutableEntry(key, value));
+        }
+      }
+      if (reverse) {
+        Collections.reverse(rows);
+      }
+      interval += reverse ? -1 : 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next >= rows.size() && interval >= 0 && interval < indexOffsets.length) {
+        load();
+      }
+      return next < rows.size();
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return rows.get(next++);
+    }
+
+    @Override
+    public void close() {
+      rows = new ArrayList<>();
+      interval = -1;
+    }
+  }
+}
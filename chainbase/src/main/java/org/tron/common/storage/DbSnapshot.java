@@ -0,0 +1,13 @@
+package org.tron.common.storage;
+
+/**
+ * A consistent point-in-time view of one db, later writes are not visible through it. It holds
+ * native resources until closed.
+ */
+public interface DbSnapshot extends AutoCloseable {
+
+  byte[] get(byte[] key);
+
+  @Override
+  void close();
+}
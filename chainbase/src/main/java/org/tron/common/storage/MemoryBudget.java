@@ -0,0 +1,137 @@
+package org.tron.common.storage;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.tron.common.parameter.CommonParameter;
+
+/**
+ * The native memory all LevelDB and RocksDB stores may take, see storage.memoryBudget. A store
+ * reserves its block cache and write buffers from the budget when it opens and returns them when
+ * it closes, so the caches of all stores together stay within the budget however many stores
+ * are open.
+ *
+ * The caches can not be shared across the stores by the leveldbjni and rocksdbjni versions in
+ * use, so the budget is split instead: a quarter for write buffers, the rest for block caches,
+ * weighted towards the stores read the most. A store opened when the budget is spent gets the
+ * minimum sizes.
+ */
+@Slf4j(topic = "DB")
+public class MemoryBudget {
+
+  private static final double WRITE_BUFFER_SHARE = 0.25;
+  private static final long MIN_BLOCK_CACHE = 1024 * 1024;
+  private static final long MIN_WRITE_BUFFER = 1024 * 1024;
+  private static final Map<String, Integer> WEIGHTS = ImmutableMap.<String, Integer>builder()
+      .put("account", 8)
+      .put("storage-row", 8)
+      .put("code", 4)
+      .put("contract", 2)
+      .put("block", 2)
+      .put("trans", 2)
+      .put("transactionRetStore", 2)
+      .put("transactionHistoryStore", 2)
+      .build();
+  // the stores not weighted count 1, about this many of them are opened by a node
+  private static final int OTHER_STORES = 32;
+  private static final int TOTAL_WEIGHT =
+      WEIGHTS.values().stream().mapToInt(Integer::intValue).sum() + OTHER_STORES;
+
+  // by data source or column family, a name may be opened more than once
+  private static final Map<Object, Share> SHARES = new HashMap<>();
+
+  private MemoryBudget() {
+  }
+
+  private static long budget() {
+    return CommonParameter.getInstance().getStorage().getMemoryBudget();
+  }
+
+  /**
+   * Reserve the caches of {@code store}, released again by {@link #release(Object)}.
+   *
+   * @param usage the native memory the store takes, -1 where unknown.
+   * @return the sizes of the caches of the store, null if there is no budget.
+   */
+  public static synchronized Share reserve(Object store, String name, LongSupplier usage) {
+    long budget = budget();
+    if (budget <= 0) {
+      return null;
+    }
+    release(store);
+
+    long reserved = 0;
+    for (Share share : SHARES.values()) {
+      reserved += share.getBlockCacheSize() + share.getWriteBufferSize();
+    }
+    int weight = WEIGHTS.getOrDefault(name, 1);
+    long fair = budget * weight / TOTAL_WEIGHT;
+    long available = Math.min(fair, Math.max(0, budget - reserved));
+    long writeBuffer = Math.max(MIN_WRITE_BUFFER, (long) (available * WRITE_BUFFER_SHARE));
+    long blockCache = Math.max(MIN_BLOCK_CACHE, available - writeBuffer);
+    if (available < fair) {
+      logger.warn("storage.memoryBudget of {} bytes is spent, {} gets {} bytes", budget, name,
+          blockCache + writeBuffer);
+    }
+    Share share = new Share(name, blockCache, writeBuffer, usage);
+    SHARES.put(store, share);
+    return share;
+  }
+
+  public static synchronized void release(Object store) {
+    SHARES.remove(store);
+  }
+
+  /**
+   * @return the shares of the open stores.
+   */
+  public static synchronized List<Share> getShares() {
+    return new ArrayList<>(SHARES.values());
+  }
+
+  public static long getBudget() {
+    return budget();
+  }
+
+  /**
+   * @return the part of the budget all write buffers together may take, 0 if there is none.
+   */
+  public static long getWriteBufferBudget() {
+    return (long) (Math.max(0, budget()) * WRITE_BUFFER_SHARE);
+  }
+
+  public static class Share {
+
+    @Getter
+    private final String name;
+    @Getter
+    private final long blockCacheSize;
+    // the memtables of the store together
+    @Getter
+    private final long writeBufferSize;
+    private final LongSupplier usage;
+
+    Share(String name, long blockCacheSize, long writeBufferSize, LongSupplier usage) {
+      this.name = name;
+      this.blockCacheSize = blockCacheSize;
+      this.writeBufferSize = writeBufferSize;
+      this.usage = usage;
+    }
+
+    /**
+     * @return the native memory the store takes now, -1 where unknown.
+     */
+    public long getUsage() {
+      try {
+        return usage.getAsLong();
+      } catch (RuntimeException e) {
+        return -1;
+      }
+    }
+  }
+}
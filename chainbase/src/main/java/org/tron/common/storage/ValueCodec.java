@@ -0,0 +1,246 @@
+package org.tron.common.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import lombok.extern.slf4j.Slf4j;
+import org.tron.core.db2.common.WrappedByteArray;
+
+/**
+ * Compresses the values of a store on their way to disk, see storage.properties
+ * valueCompressionLevel and valueDictionarySize. Values are deflated, optionally with a preset
+ * dictionary trained on the newest values of the store, so that the many small protobuf messages
+ * of a store share the strings they have in common.
+ *
+ * An encoded value starts with a 0 byte, which no protobuf message starts with, so the values
+ * written before the codec was enabled are still read as they are. Values that do not get
+ * smaller are stored raw. The codec must therefore only be enabled for stores of protobuf
+ * messages.
+ *
+ * The dictionary is kept in {name}.dict next to the store and must not be lost, the values
+ * written with it can not be read without it. Backups of the store carry a copy of it.
+ */
+@Slf4j(topic = "DB")
+public class ValueCodec {
+
+  public static final String DICTIONARY_SUFFIX = ".dict";
+  // the deflate window, longer dictionaries are not used
+  public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+  private static final byte MARKER = 0;
+  private static final byte FORMAT_DEFLATE = 1;
+  private static final int HEADER_SIZE = 6;
+  // values are sampled for a dictionary until there are this many times its size
+  private static final int MIN_SAMPLE_RATIO = 8;
+  private static final int MAX_SAMPLE_BYTES = 4 * 1024 * 1024;
+  // the strings the dictionary is built from
+  private static final int GRAM_SIZE = 16;
+  private static final int GRAM_STEP = 4;
+
+  private final int level;
+  private final byte[] dictionary;
+  private final int dictionaryId;
+  private final ThreadLocal<Deflater> deflaters;
+  private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+  public ValueCodec(int level, byte[] dictionary) {
+    this.level = level;
+    this.dictionary = dictionary == null || dictionary.length == 0 ? null : dictionary;
+    this.dictionaryId = this.dictionary == null ? 0 : adler32(this.dictionary);
+    this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+  }
+
+  /**
+   * Open the codec of a store, the dictionary is loaded from {@code dictionaryPath}. If there is
+   * none yet, it is trained on {@code samples} and saved once they are enough, until then the
+   * values are compressed without a dictionary.
+   *
+   * @param dictionarySize 0 to compress without a dictionary.
+   * @param samples the newest values of the store, as they are stored.
+   */
+  public static ValueCodec open(int level, int dictionarySize, Path dictionaryPath,
+      Supplier<List<byte[]>> samples) {
+    if (dictionarySize <= 0) {
+      return new ValueCodec(level, null);
+    }
+
+    try {
+      if (Files.exists(dictionaryPath)) {
+        return new ValueCodec(level, Files.readAllBytes(dictionaryPath));
+      }
+
+      ValueCodec plain = new ValueCodec(level, null);
+      List<byte[]> values = new ArrayList<>();
+      long total = 0;
+      for (byte[] sample : samples.get()) {
+        byte[] value = plain.decode(sample);
+        values.add(value);
+        total += value.length;
+      }
+      int size = Math.min(dictionarySize, MAX_DICTIONARY_SIZE);
+      if (total < (long) size * MIN_SAMPLE_RATIO) {
+        logger.info("not enough values to train a dictionary for {}, {} bytes", dictionaryPath,
+            total);
+        return plain;
+      }
+
+      ValueCodec codec = new ValueCodec(level, train(values, size));
+      codec.saveDictionary(dictionaryPath);
+      logger.info("train dictionary {}, {} bytes from {} values", dictionaryPath,
+          codec.getDictionarySize(), values.size());
+      return codec;
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to open dictionary " + dictionaryPath, e);
+    }
+  }
+
+  /**
+   * Build a preset dictionary from the strings shared by most of the {@code samples}. The
+   * strings are ordered by the number of samples holding them, the most common last, where
+   * deflate finds them at the shortest distance.
+   */
+  public static byte[] train(List<byte[]> samples, int size) {
+    Map<WrappedByteArray, int[]> grams = new HashMap<>();
+    long read = 0;
+    for (int s = 0; s < samples.size() && read < MAX_SAMPLE_BYTES; s++) {
+      byte[] sample = samples.get(s);
+      read += sample.length;
+      for (int i = 0; i + GRAM_SIZE <= sample.length; i += GRAM_STEP) {
+        byte[] gram = new byte[GRAM_SIZE];
+        System.arraycopy(sample, i, gram, 0, GRAM_SIZE);
+        // {samples holding the gram, last sample counted}
+        int[] count = grams.computeIfAbsent(WrappedByteArray.of(gram), k -> new int[]{0, -1});
+        if (count[1] != s) {
+          count[0]++;
+          count[1] = s;
+        }
+      }
+    }
+
+    List<Map.Entry<WrappedByteArray, int[]>> common = new ArrayList<>();
+    for (Map.Entry<WrappedByteArray, int[]> e : grams.entrySet()) {
+      if (e.getValue()[0] > 1) {
+        common.add(e);
+      }
+    }
+    common.sort((e1, e2) -> Integer.compare(e2.getValue()[0], e1.getValue()[0]));
+    int count = Math.min(common.size(), size / GRAM_SIZE);
+    ByteBuffer dictionary = ByteBuffer.allocate(count * GRAM_SIZE);
+    for (int i = count - 1; i >= 0; i--) {
+      dictionary.put(common.get(i).getKey().getBytes());
+    }
+    return dictionary.array();
+  }
+
+  /**
+   * @return {@code value} as it is stored, null for null.
+   */
+  public byte[] encode(byte[] value) {
+    if (value == null || value.length == 0) {
+      return value;
+    }
+
+    Deflater deflater = deflaters.get();
+    deflater.reset();
+    if (dictionary != null) {
+      deflater.setDictionary(dictionary);
+    }
+    deflater.setInput(value);
+    deflater.finish();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(value.length / 2 + HEADER_SIZE);
+    out.write(MARKER);
+    out.write(FORMAT_DEFLATE);
+    out.write(value.length >>> 24);
+    out.write(value.length >>> 16);
+    out.write(value.length >>> 8);
+    out.write(value.length);
+    byte[] buffer = new byte[Math.max(64, value.length / 2)];
+    while (!deflater.finished()) {
+      out.write(buffer, 0, deflater.deflate(buffer));
+    }
+    if (out.size() >= value.length && value[0] != MARKER) {
+      return value;
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * @return the value stored as {@code stored}, null for null.
+   */
+  public byte[] decode(byte[] stored) {
+    if (stored == null || stored.length == 0 || stored[0] != MARKER) {
+      return stored;
+    }
+    if (stored.length < HEADER_SIZE || stored[1] != FORMAT_DEFLATE) {
+      throw new IllegalStateException("unknown value format");
+    }
+
+    int length = ByteBuffer.wrap(stored, 2, 4).getInt();
+    Inflater inflater = inflaters.get();
+    inflater.reset();
+    inflater.setInput(stored, HEADER_SIZE, stored.length - HEADER_SIZE);
+    byte[] value = new byte[length];
+    try {
+      int read = inflater.inflate(value);
+      if (inflater.needsDictionary()) {
+        if (dictionary == null || inflater.getAdler() != dictionaryId) {
+          throw new IllegalStateException("value written with an unknown dictionary "
+              + Integer.toHexString(inflater.getAdler()));
+        }
+        inflater.setDictionary(dictionary);
+        read += inflater.inflate(value, read, length - read);
+      }
+      if (read != length) {
+        throw new IllegalStateException("truncated value, " + read + " of " + length + " bytes");
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalStateException(e);
+    }
+    return value;
+  }
+
+  /**
+   * Write the dictionary to {@code target}, where the store it belongs to is to be opened with
+   * it, e.g. next to a backup of the store.
+   *
+   * @return false if there is no dictionary to write.
+   */
+  public boolean saveDictionary(Path target) throws IOException {
+    if (dictionary == null) {
+      return false;
+    }
+    Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+    Files.createDirectories(target.toAbsolutePath().getParent());
+    Files.write(tmp, dictionary);
+    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+    return true;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * @return the length of the dictionary, 0 without one.
+   */
+  public int getDictionarySize() {
+    return dictionary == null ? 0 : dictionary.length;
+  }
+
+  private static int adler32(byte[] data) {
+    Adler32 adler = new Adler32();
+    adler.update(data);
+    return (int) adler.getValue();
+  }
+}
@@ -18,12 +18,14 @@ package org.tron.common.storage.leveldb;
 import static org.fusesource.leveldbjni.JniDBFactory.factory;
 
 import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -33,6 +35,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import lombok.NoArgsConstructor;
@@ -42,13 +45,19 @@ import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBException;
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
 import org.iq80.leveldb.WriteBatch;
 import org.iq80.leveldb.WriteOptions;
 import org.tron.common.parameter.CommonParameter;
+import org.tron.common.storage.BatchWriter;
+import org.tron.common.storage.DbSnapshot;
+import org.tron.common.storage.MemoryBudget;
 import org.tron.common.storage.WriteOptionsWrapper;
 import org.tron.common.utils.FileUtil;
 import org.tron.common.utils.StorageUtils;
 import org.tron.core.db.common.DbSourceInter;
+import org.tron.core.db.common.iterator.ReverseStoreIterator;
 import org.tron.core.db.common.iterator.StoreIterator;
 import org.tron.core.db2.common.Instance;
 
@@ -124,6 +133,12 @@ public class LevelDbDataSourceImpl implements DbSourceInter<byte[]>,
     if (!Files.isSymbolicLink(dbPath.getParent())) {
       Files.createDirectories(dbPath.getParent());
     }
+    MemoryBudget.Share share = MemoryBudget.reserve(this, dataBaseName, this::getMemoryUsage);
+    if (share != null) {
+      dbOptions.cacheSize(share.getBlockCacheSize());
+      // the memtable and the one being compacted
+      dbOptions.writeBufferSize((int) Math.min(Integer.MAX_VALUE, share.getWriteBufferSize() / 2));
+    }
     try {
       database = factory.open(dbPath.toFile(), dbOptions);
     } catch (IOException e) {
@@ -154,6 +169,22 @@ public class LevelDbDataSourceImpl implements DbSourceInter<byte[]>,
     return Paths.get(parentPath, dataBaseName);
   }
 
+  /**
+   * @return the bytes of native memory the db takes, -1 where unknown.
+   */
+  public long getMemoryUsage() {
+    resetDbLock.readLock().lock();
+    try {
+      if (!isAlive()) {
+        return -1;
+      }
+      String usage = database.getProperty("leveldb.approximate-memory-usage");
+      return usage == null || usage.trim().isEmpty() ? -1 : Long.parseLong(usage.trim());
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
   /**
    * reset database.
    */
@@ -209,6 +240,85 @@ public class LevelDbDataSourceImpl implements DbSourceInter<byte[]>,
     return null;
   }
 
+  /**
+   * Look the keys up in order on one iterator, so neighbouring keys share the blocks read.
+   */
+  @Override
+  public List<byte[]> getMany(List<byte[]> keys) {
+    List<byte[]> values = new ArrayList<>(Collections.nCopies(keys.size(), null));
+    if (keys.isEmpty()) {
+      return values;
+    }
+    if (options.comparator() != null) {
+      // keys a custom comparator finds equal are only found by get
+      for (int i = 0; i < keys.size(); i++) {
+        values.set(i, getData(keys.get(i)));
+      }
+      return values;
+    }
+
+    Integer[] order = new Integer[keys.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (i, j) ->
+        UnsignedBytes.lexicographicalComparator().compare(keys.get(i), keys.get(j)));
+    resetDbLock.readLock().lock();
+    try (DBIterator iterator = database.iterator()) {
+      for (int i : order) {
+        byte[] key = keys.get(i);
+        iterator.seek(key);
+        if (iterator.hasNext()) {
+          Entry<byte[], byte[]> entry = iterator.peekNext();
+          if (Arrays.equals(entry.getKey(), key)) {
+            values.set(i, entry.getValue());
+          }
+        }
+      }
+      return values;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Pin the current content of the db, the returned snapshot must be closed.
+   */
+  public DbSnapshot getSnapshot() {
+    resetDbLock.readLock().lock();
+    try {
+      Snapshot snapshot = database.getSnapshot();
+      ReadOptions options = new ReadOptions().snapshot(snapshot);
+      return new DbSnapshot() {
+        @Override
+        public byte[] get(byte[] key) {
+          resetDbLock.readLock().lock();
+          try {
+            return database.get(key, options);
+          } catch (DBException e) {
+            logger.debug(e.getMessage(), e);
+          } finally {
+            resetDbLock.readLock().unlock();
+          }
+          return null;
+        }
+
+        @Override
+        public void close() {
+          try {
+            snapshot.close();
+          } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+          }
+        }
+      };
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
   @Override
   public void putData(byte[] key, byte[] value) {
     resetDbLock.readLock().lock();
@@ -427,6 +537,39 @@ public class LevelDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
   }
 
+  private void updateByBatchInner(Consumer<BatchWriter> rows, WriteOptions options)
+      throws Exception {
+    try (WriteBatch batch = database.createWriteBatch()) {
+      rows.accept((key, value) -> {
+        if (value == null) {
+          batch.delete(key);
+        } else {
+          batch.put(key, value);
+        }
+      });
+      database.write(batch, options);
+    }
+  }
+
+  /**
+   * Write the rows produced by {@code rows} straight into one WriteBatch, without collecting
+   * them into a map first.
+   */
+  public void updateByBatch(Consumer<BatchWriter> rows, WriteOptionsWrapper options) {
+    resetDbLock.readLock().lock();
+    try {
+      updateByBatchInner(rows, options.level);
+    } catch (Exception e) {
+      try {
+        updateByBatchInner(rows, options.level);
+      } catch (Exception e1) {
+        throw new RuntimeException(e);
+      }
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
   @Override
   public void updateByBatch(Map<byte[], byte[]> rows) {
     resetDbLock.readLock().lock();
@@ -457,6 +600,7 @@ public class LevelDbDataSourceImpl implements DbSourceInter<byte[]>,
       }
       database.close();
       alive = false;
+      MemoryBudget.release(this);
     } catch (IOException e) {
       logger.error("Failed to find the dbStore file on the closeDB: {} ", dataBaseName);
     } finally {
@@ -469,6 +613,20 @@ public class LevelDbDataSourceImpl implements DbSourceInter<byte[]>,
     return new StoreIterator(database.iterator());
   }
 
+  /**
+   * @return an iterator from the first key not less than {@code start}.
+   */
+  public org.tron.core.db.common.iterator.DBIterator iterator(byte[] start) {
+    return new StoreIterator(database.iterator(), start);
+  }
+
+  /**
+   * @return an iterator from the last key to the first.
+   */
+  public org.tron.core.db.common.iterator.DBIterator reverseIterator() {
+    return new ReverseStoreIterator(database.iterator());
+  }
+
   public Stream<Entry<byte[], byte[]>> stream() {
     return StreamSupport.stream(spliterator(), false);
   }
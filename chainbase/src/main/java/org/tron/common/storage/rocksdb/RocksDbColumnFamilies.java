@@ -0,0 +1,395 @@
+package org.tron.common.storage.rocksdb;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Checkpoint;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.ComparatorOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.DirectComparator;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.Statistics;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.tron.common.setting.RocksDbSettings;
+import org.tron.common.storage.BatchWriter;
+import org.tron.common.storage.MemoryBudget;
+import org.tron.common.storage.WriteOptionsWrapper;
+import org.tron.common.utils.MarketOrderPriceComparatorForRockDB;
+import org.tron.common.utils.StorageUtils;
+
+/**
+ * One RocksDB holding the stores as column families, see storage.db.columnFamilies. Rows of
+ * several stores can then be written in one atomic {@link Batch}. The database is opened by the
+ * first store and closed with the last one.
+ *
+ * A store kept in its own directory before is copied into its column family when the family is
+ * opened, the directory is renamed to {name}.migrated afterwards. The copy is repeated until the
+ * rename, so an interrupted migration is resumed on the next start.
+ */
+@Slf4j(topic = "DB")
+public class RocksDbColumnFamilies {
+
+  public static final String DIRECTORY = "chainbase";
+  public static final String MIGRATED_SUFFIX = ".migrated";
+  private static final int MIGRATE_BATCH_SIZE = 10_000;
+  private static final long DEFAULT_BLOCK_CACHE_SIZE = 32 * 1024 * 1024;
+
+  // every column family on disk is opened with the database, so the comparators of the stores
+  // must be known before the stores are created
+  private static final Map<String, Supplier<DirectComparator>> COMPARATORS = ImmutableMap.of(
+      "market_pair_price_to_order",
+      () -> new MarketOrderPriceComparatorForRockDB(new ComparatorOptions()));
+
+  private static final Map<String, RocksDbColumnFamilies> OPENED = new HashMap<>();
+
+  @Getter
+  private final String parentPath;
+  @Getter
+  private final Path path;
+  private final RocksDbSettings settings;
+  @Getter
+  private RocksDB database;
+  private final Map<String, ColumnFamilyHandle> handles = new HashMap<>();
+  // options and comparators of the families, released with the database
+  private final List<AutoCloseable> resources = new ArrayList<>();
+  private int refCount;
+
+  private RocksDbColumnFamilies(String parentPath, RocksDbSettings settings) {
+    this.parentPath = parentPath;
+    this.path = Paths.get(parentPath, DIRECTORY);
+    this.settings = settings;
+  }
+
+  /**
+   * @return the shared database under {@code parentPath}, opened if it is not open yet.
+   */
+  public static RocksDbColumnFamilies open(String parentPath, RocksDbSettings settings) {
+    synchronized (OPENED) {
+      RocksDbColumnFamilies families = OPENED.get(parentPath);
+      if (families == null) {
+        families = new RocksDbColumnFamilies(parentPath, settings);
+        families.open();
+        OPENED.put(parentPath, families);
+      }
+      return families;
+    }
+  }
+
+  private void open() {
+    DBOptions options = new DBOptions();
+    resources.add(options);
+    if (settings.isEnableStatistics()) {
+      options.setStatistics(new Statistics());
+      options.setStatsDumpPeriodSec(60);
+    }
+    options.setCreateIfMissing(true);
+    options.setCreateMissingColumnFamilies(true);
+    options.setIncreaseParallelism(Math.max(1, settings.getCompactThreads()));
+    options.setMaxBackgroundCompactions(settings.getCompactThreads());
+    options.setMaxOpenFiles(settings.getMaxOpenFiles());
+    // one limit on the memtables of all families
+    if (MemoryBudget.getWriteBufferBudget() > 0) {
+      options.setDbWriteBufferSize(MemoryBudget.getWriteBufferBudget());
+    }
+
+    try {
+      Files.createDirectories(path);
+      List<byte[]> names = new ArrayList<>();
+      if (Files.exists(path.resolve("CURRENT"))) {
+        try (Options listOptions = new Options()) {
+          names.addAll(RocksDB.listColumnFamilies(listOptions, path.toString()));
+        }
+      }
+      if (names.isEmpty()) {
+        names.add(RocksDB.DEFAULT_COLUMN_FAMILY);
+      }
+
+      List<ColumnFamilyDescriptor> descriptors = new ArrayList<>(names.size());
+      for (byte[] name : names) {
+        descriptors.add(new ColumnFamilyDescriptor(name,
+            columnFamilyOptions(new String(name, StandardCharsets.UTF_8))));
+      }
+      List<ColumnFamilyHandle> opened = new ArrayList<>(names.size());
+      database = RocksDB.open(options, path.toString(), descriptors, opened);
+      for (int i = 0; i < names.size(); i++) {
+        handles.put(new String(names.get(i), StandardCharsets.UTF_8), opened.get(i));
+      }
+      logger.info("open {} with {} column families", path, names.size());
+    } catch (IOException | RocksDBException e) {
+      logger.error(e.getMessage(), e);
+      throw new RuntimeException("Failed to initialize database " + path, e);
+    }
+  }
+
+  /**
+   * The per-store options of storage.properties apply to blockSize, writeBufferSize, cacheSize
+   * and the table options, see {@link RocksDbTableOptions}; the rest follows the rocksdb
+   * settings.
+   */
+  private ColumnFamilyOptions columnFamilyOptions(String name) {
+    ColumnFamilyOptions options = new ColumnFamilyOptions();
+    resources.add(options);
+    options.setLevelCompactionDynamicLevelBytes(true);
+    options.setNumLevels(settings.getLevelNumber());
+    options.setMaxBytesForLevelMultiplier(settings.getMaxBytesForLevelMultiplier());
+    options.setMaxBytesForLevelBase(settings.getMaxBytesForLevelBase());
+    options.setLevel0FileNumCompactionTrigger(settings.getLevel0FileNumCompactionTrigger());
+    options.setTargetFileSizeMultiplier(settings.getTargetFileSizeMultiplier());
+    options.setTargetFileSizeBase(settings.getTargetFileSizeBase());
+    DirectComparator comparator = comparator(name);
+    if (comparator != null) {
+      resources.add(comparator);
+      options.setComparator(comparator);
+    }
+
+    org.iq80.leveldb.Options custom = StorageUtils.getCustomOptionsByDbName(name);
+    RocksDbTableOptions tableOptions = RocksDbTableOptions.of(name);
+    BlockBasedTableConfig tableCfg = new BlockBasedTableConfig();
+    BloomFilter filter = tableOptions.apply(tableCfg,
+        custom == null ? settings.getBlockSize() : custom.blockSize(),
+        custom == null ? DEFAULT_BLOCK_CACHE_SIZE : custom.cacheSize());
+    if (filter != null) {
+      resources.add(filter);
+    }
+    if (tableOptions.hasPrefix()) {
+      options.useFixedLengthPrefixExtractor(tableOptions.getPrefixLength());
+      options.setMemtablePrefixBloomSizeRatio(tableOptions.getMemtablePrefixBloomRatio());
+    }
+    if (custom != null) {
+      options.setWriteBufferSize(custom.writeBufferSize());
+    }
+    MemoryBudget.Share share = MemoryBudget.reserve(budgetKey(name), name, () -> {
+      synchronized (OPENED) {
+        ColumnFamilyHandle handle = handles.get(name);
+        return database == null || handle == null ? -1 : memoryUsage(database, handle);
+      }
+    });
+    if (share != null) {
+      tableCfg.setBlockCacheSize(share.getBlockCacheSize());
+      options.setWriteBufferSize(share.getWriteBufferSize() / 2);
+      options.setMaxWriteBufferNumber(2);
+    }
+    options.setTableFormatConfig(tableCfg);
+    return options;
+  }
+
+  private String budgetKey(String name) {
+    return path.resolve(name).toString();
+  }
+
+  /**
+   * @return the bytes of native memory of {@code family}, or of the default family if null.
+   */
+  static long memoryUsage(RocksDB database, ColumnFamilyHandle family) {
+    long usage = 0;
+    for (String property : new String[]{"rocksdb.block-cache-usage",
+        "rocksdb.cur-size-all-mem-tables", "rocksdb.estimate-table-readers-mem"}) {
+      try {
+        usage += family == null ? database.getLongProperty(property)
+            : database.getLongProperty(family, property);
+      } catch (RocksDBException e) {
+        return -1;
+      }
+    }
+    return usage;
+  }
+
+  private static DirectComparator comparator(String name) {
+    Supplier<DirectComparator> comparator = COMPARATORS.get(name);
+    return comparator == null ? null : comparator.get();
+  }
+
+  /**
+   * Open the column family of a store, created and filled from {@code legacyPath} if needed.
+   */
+  ColumnFamilyHandle acquire(String name, Path legacyPath) {
+    synchronized (OPENED) {
+      if (database == null) {
+        throw new IllegalStateException(path + " is closed");
+      }
+      try {
+        ColumnFamilyHandle handle = handles.get(name);
+        if (handle == null) {
+          handle = create(name);
+        }
+        if (legacyPath != null && Files.exists(legacyPath.resolve("CURRENT"))) {
+          migrate(name, handle, legacyPath);
+        }
+        ++refCount;
+        return handle;
+      } catch (IOException | RocksDBException e) {
+        logger.error(e.getMessage(), e);
+        throw new RuntimeException("Failed to open column family " + name, e);
+      }
+    }
+  }
+
+  private ColumnFamilyHandle create(String name) throws RocksDBException {
+    ColumnFamilyHandle handle = database.createColumnFamily(new ColumnFamilyDescriptor(
+        name.getBytes(StandardCharsets.UTF_8), columnFamilyOptions(name)));
+    handles.put(name, handle);
+    return handle;
+  }
+
+  private void migrate(String name, ColumnFamilyHandle handle, Path legacyPath)
+      throws IOException, RocksDBException {
+    long start = System.currentTimeMillis();
+    long count = 0;
+    DirectComparator comparator = comparator(name);
+    try (Options options = new Options();
+        WriteOptions writeOptions = new WriteOptions().setSync(true)) {
+      if (comparator != null) {
+        options.setComparator(comparator);
+      }
+      try (RocksDB legacy = RocksDB.openReadOnly(options, legacyPath.toString());
+          RocksIterator iterator = legacy.newIterator()) {
+        WriteBatch batch = new WriteBatch();
+        try {
+          for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+            batch.put(handle, iterator.key(), iterator.value());
+            if (++count % MIGRATE_BATCH_SIZE == 0) {
+              database.write(writeOptions, batch);
+              batch.close();
+              batch = new WriteBatch();
+            }
+          }
+          database.write(writeOptions, batch);
+        } finally {
+          batch.close();
+        }
+      }
+    } finally {
+      if (comparator != null) {
+        comparator.close();
+      }
+    }
+
+    Files.move(legacyPath, legacyPath.resolveSibling(legacyPath.getFileName() + MIGRATED_SUFFIX));
+    logger.info("migrate {} into column family {}, {} entries, cost {} ms", legacyPath, name,
+        count, System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Drop all entries of a store, the returned handle replaces the one of the store.
+   */
+  ColumnFamilyHandle reset(String name) {
+    synchronized (OPENED) {
+      try {
+        ColumnFamilyHandle handle = handles.remove(name);
+        if (handle != null) {
+          database.dropColumnFamily(handle);
+          handle.close();
+        }
+        return create(name);
+      } catch (RocksDBException e) {
+        throw new RuntimeException("Failed to reset column family " + name, e);
+      }
+    }
+  }
+
+  /**
+   * Close a store, the database is closed with the last one.
+   */
+  void release() {
+    synchronized (OPENED) {
+      if (--refCount > 0) {
+        return;
+      }
+
+      handles.values().forEach(ColumnFamilyHandle::close);
+      handles.keySet().forEach(name -> MemoryBudget.release(budgetKey(name)));
+      handles.clear();
+      database.close();
+      database = null;
+      for (AutoCloseable resource : resources) {
+        try {
+          resource.close();
+        } catch (Exception e) {
+          logger.warn("close {} failed", resource, e);
+        }
+      }
+      resources.clear();
+      OPENED.values().remove(this);
+      logger.info("close {}", path);
+    }
+  }
+
+  /**
+   * Checkpoint the whole database to {dir}chainbase, once for all of its stores.
+   */
+  void backup(String dir) throws RocksDBException {
+    synchronized (OPENED) {
+      if (Files.exists(Paths.get(dir + DIRECTORY))) {
+        return;
+      }
+      try (Checkpoint cp = Checkpoint.create(database)) {
+        cp.createCheckpoint(dir + DIRECTORY);
+      }
+    }
+  }
+
+  public Batch newBatch() {
+    return new Batch();
+  }
+
+  /**
+   * Rows of several stores of this database, written in one atomic WriteBatch.
+   */
+  public class Batch implements AutoCloseable {
+
+    private final WriteBatch batch = new WriteBatch();
+
+    private Batch() {
+    }
+
+    /**
+     * @return a writer putting the rows of {@code source} into this batch.
+     */
+    public BatchWriter writer(RocksDbDataSourceImpl source) {
+      ColumnFamilyHandle handle = source.getColumnFamily();
+      return (key, value) -> {
+        try {
+          if (value == null) {
+            batch.delete(handle, key);
+          } else {
+            batch.put(handle, key, value);
+          }
+        } catch (RocksDBException e) {
+          throw new RuntimeException(e);
+        }
+      };
+    }
+
+    public void write(WriteOptionsWrapper options) {
+      try {
+        database.write(options.rocks, batch);
+      } catch (RocksDBException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void close() {
+      batch.close();
+    }
+  }
+}
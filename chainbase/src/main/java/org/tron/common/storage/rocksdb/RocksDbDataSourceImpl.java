@@ -15,25 +15,31 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.rocksdb.BlockBasedTableConfig;
-import org.rocksdb.BloomFilter;
 import org.rocksdb.Checkpoint;
+import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.DirectComparator;
 import org.rocksdb.Options;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Snapshot;
 import org.rocksdb.Statistics;
 import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 import org.tron.common.setting.RocksDbSettings;
+import org.tron.common.storage.BatchWriter;
+import org.tron.common.storage.DbSnapshot;
+import org.tron.common.storage.MemoryBudget;
 import org.tron.common.storage.WriteOptionsWrapper;
 import org.tron.common.utils.FileUtil;
 import org.tron.common.utils.PropUtil;
 import org.tron.core.db.common.DbSourceInter;
+import org.tron.core.db.common.iterator.ReverseRockStoreIterator;
 import org.tron.core.db.common.iterator.RockStoreIterator;
 import org.tron.core.db2.common.Instance;
 
@@ -53,6 +59,11 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
   private static final String KEY_ENGINE = "ENGINE";
   private static final String ROCKSDB = "ROCKSDB";
   private DirectComparator comparator;
+  // set when the db is a column family of a shared database
+  private RocksDbColumnFamilies families;
+  private ColumnFamilyHandle columnFamily;
+  // the iterators seek in total order when the filters only hold key prefixes
+  private ReadOptions iteratorOptions;
 
   public RocksDbDataSourceImpl(String parentPath, String name, RocksDbSettings settings,
       DirectComparator comparator) {
@@ -75,8 +86,30 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     this.dataBaseName = name;
   }
 
+  /**
+   * A db kept as a column family of {@code families}. A db of the same name found under
+   * {@code parentPath} is migrated into the column family.
+   */
+  public RocksDbDataSourceImpl(RocksDbColumnFamilies families, String parentPath, String name) {
+    this.families = families;
+    this.parentPath = parentPath;
+    this.dataBaseName = name;
+    initDB();
+  }
+
   public Path getDbPath() {
-    return Paths.get(parentPath, dataBaseName);
+    return families == null ? Paths.get(parentPath, dataBaseName) : families.getPath();
+  }
+
+  /**
+   * @return the shared database the db is a column family of, or null.
+   */
+  public RocksDbColumnFamilies getColumnFamilies() {
+    return families;
+  }
+
+  ColumnFamilyHandle getColumnFamily() {
+    return columnFamily;
   }
 
   public RocksDB getDatabase() {
@@ -87,6 +120,23 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     return alive;
   }
 
+  /**
+   * @return the bytes of native memory the db takes: its block cache, memtables and table
+   *     readers, -1 where unknown.
+   */
+  public long getMemoryUsage() {
+    resetDbLock.readLock().lock();
+    try {
+      if (!isAlive()) {
+        return -1;
+      }
+      return families == null ? RocksDbColumnFamilies.memoryUsage(database, null)
+          : RocksDbColumnFamilies.memoryUsage(database, columnFamily);
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
   @Override
   public void closeDB() {
     resetDbLock.writeLock().lock();
@@ -94,7 +144,13 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
       if (!isAlive()) {
         return;
       }
-      database.close();
+      if (families == null) {
+        database.close();
+        MemoryBudget.release(this);
+      } else {
+        families.release();
+        columnFamily = null;
+      }
       alive = false;
     } catch (Exception e) {
     } finally {
@@ -104,6 +160,16 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
 
   @Override
   public void resetDb() {
+    if (families != null) {
+      resetDbLock.writeLock().lock();
+      try {
+        columnFamily = families.reset(dataBaseName);
+      } finally {
+        resetDbLock.writeLock().unlock();
+      }
+      return;
+    }
+
     closeDB();
     FileUtil.recursiveDelete(getDbPath().toString());
     initDB();
@@ -123,7 +189,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
     resetDbLock.readLock().lock();
     Set<byte[]> result = Sets.newHashSet();
-    try (final RocksIterator iter = database.newIterator()) {
+    try (final RocksIterator iter = newIterator()) {
       for (iter.seekToFirst(); iter.isValid(); iter.next()) {
         result.add(iter.key());
       }
@@ -192,6 +258,16 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
         throw new NullPointerException("no name set to the dbStore");
       }
 
+      if (families != null) {
+        columnFamily = families.acquire(dataBaseName, Paths.get(parentPath, dataBaseName));
+        database = families.getDatabase();
+        readOpts = new ReadOptions().setPrefixSameAsStart(true).setVerifyChecksums(false);
+        iteratorOptions = new ReadOptions()
+            .setTotalOrderSeek(RocksDbTableOptions.of(dataBaseName).hasPrefix());
+        alive = true;
+        return;
+      }
+
       try (Options options = new Options()) {
 
         // most of these options are suggested by https://github.com/facebook/rocksdb/wiki/Set-Up-Options
@@ -221,11 +297,21 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
         // table options
         final BlockBasedTableConfig tableCfg;
         options.setTableFormatConfig(tableCfg = new BlockBasedTableConfig());
-        tableCfg.setBlockSize(settings.getBlockSize());
-        tableCfg.setBlockCacheSize(32 * 1024 * 1024);
-        tableCfg.setCacheIndexAndFilterBlocks(true);
-        tableCfg.setPinL0FilterAndIndexBlocksInCache(true);
-        tableCfg.setFilter(new BloomFilter(10, false));
+        RocksDbTableOptions tableOptions = RocksDbTableOptions.of(dataBaseName);
+        tableOptions.apply(tableCfg, settings.getBlockSize(), 32 * 1024 * 1024);
+        if (tableOptions.hasPrefix()) {
+          options.useFixedLengthPrefixExtractor(tableOptions.getPrefixLength());
+          options.setMemtablePrefixBloomSizeRatio(tableOptions.getMemtablePrefixBloomRatio());
+        }
+        iteratorOptions = new ReadOptions().setTotalOrderSeek(tableOptions.hasPrefix());
+        MemoryBudget.Share share = MemoryBudget.reserve(this, dataBaseName,
+            this::getMemoryUsage);
+        if (share != null) {
+          tableCfg.setBlockCacheSize(share.getBlockCacheSize());
+          // the memtable and the one being flushed
+          options.setWriteBufferSize(share.getWriteBufferSize() / 2);
+          options.setMaxWriteBufferNumber(2);
+        }
 
         // read options
         readOpts = new ReadOptions();
@@ -268,7 +354,11 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
     resetDbLock.readLock().lock();
     try {
-      database.put(key, value);
+      if (columnFamily == null) {
+        database.put(key, value);
+      } else {
+        database.put(columnFamily, key, value);
+      }
     } catch (RocksDBException e) {
       logger.error("RocksDBException:{}", e);
     } finally {
@@ -283,7 +373,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
     resetDbLock.readLock().lock();
     try {
-      return database.get(key);
+      return columnFamily == null ? database.get(key) : database.get(columnFamily, key);
     } catch (RocksDBException e) {
       logger.error("RocksDBException: {}", e);
     } finally {
@@ -292,6 +382,72 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     return null;
   }
 
+  @Override
+  public List<byte[]> getMany(List<byte[]> keys) {
+    List<byte[]> values = new ArrayList<>(keys.size());
+    if (quitIfNotAlive() || keys.isEmpty()) {
+      keys.forEach(key -> values.add(null));
+      return values;
+    }
+    resetDbLock.readLock().lock();
+    try {
+      // the values are keyed by the very key arrays passed in
+      Map<byte[], byte[]> found = columnFamily == null ? database.multiGet(keys)
+          : database.multiGet(Collections.nCopies(keys.size(), columnFamily), keys);
+      keys.forEach(key -> values.add(found.get(key)));
+      return values;
+    } catch (RocksDBException e) {
+      logger.error("RocksDBException: {}", e);
+      throw new RuntimeException(e);
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Pin the current content of the db, the returned snapshot must be closed.
+   */
+  public DbSnapshot getSnapshot() {
+    resetDbLock.readLock().lock();
+    try {
+      Snapshot snapshot = database.getSnapshot();
+      ReadOptions options = new ReadOptions().setSnapshot(snapshot);
+      return new DbSnapshot() {
+        @Override
+        public byte[] get(byte[] key) {
+          if (quitIfNotAlive()) {
+            return null;
+          }
+          resetDbLock.readLock().lock();
+          try {
+            return columnFamily == null ? database.get(options, key)
+                : database.get(columnFamily, options, key);
+          } catch (RocksDBException e) {
+            logger.error("RocksDBException: {}", e);
+          } finally {
+            resetDbLock.readLock().unlock();
+          }
+          return null;
+        }
+
+        @Override
+        public void close() {
+          resetDbLock.readLock().lock();
+          try {
+            options.close();
+            if (isAlive()) {
+              database.releaseSnapshot(snapshot);
+            }
+          } finally {
+            resetDbLock.readLock().unlock();
+          }
+        }
+      };
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
   @Override
   public void deleteData(byte[] key) {
     if (quitIfNotAlive()) {
@@ -299,7 +455,11 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
     resetDbLock.readLock().lock();
     try {
-      database.delete(key);
+      if (columnFamily == null) {
+        database.delete(key);
+      } else {
+        database.delete(columnFamily, key);
+      }
     } catch (RocksDBException e) {
       logger.error("RocksDBException:{}", e);
     } finally {
@@ -312,9 +472,42 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     return false;
   }
 
+  private RocksIterator newIterator() {
+    return columnFamily == null ? database.newIterator(iteratorOptions)
+        : database.newIterator(columnFamily, iteratorOptions);
+  }
+
+  private void write(WriteBatch batch, byte[] key, byte[] value) throws RocksDBException {
+    if (value == null) {
+      if (columnFamily == null) {
+        batch.delete(key);
+      } else {
+        batch.delete(columnFamily, key);
+      }
+    } else if (columnFamily == null) {
+      batch.put(key, value);
+    } else {
+      batch.put(columnFamily, key, value);
+    }
+  }
+
   @Override
   public org.tron.core.db.common.iterator.DBIterator iterator() {
-    return new RockStoreIterator(database.newIterator());
+    return new RockStoreIterator(newIterator());
+  }
+
+  /**
+   * @return an iterator from the first key not less than {@code start}.
+   */
+  public org.tron.core.db.common.iterator.DBIterator iterator(byte[] start) {
+    return new RockStoreIterator(newIterator(), start);
+  }
+
+  /**
+   * @return an iterator from the last key to the first.
+   */
+  public org.tron.core.db.common.iterator.DBIterator reverseIterator() {
+    return new ReverseRockStoreIterator(newIterator());
   }
 
   private void updateByBatchInner(Map<byte[], byte[]> rows) throws Exception {
@@ -323,11 +516,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
     try (WriteBatch batch = new WriteBatch()) {
       for (Map.Entry<byte[], byte[]> entry : rows.entrySet()) {
-        if (entry.getValue() == null) {
-          batch.delete(entry.getKey());
-        } else {
-          batch.put(entry.getKey(), entry.getValue());
-        }
+        write(batch, entry.getKey(), entry.getValue());
       }
       database.write(new WriteOptions(), batch);
     }
@@ -340,11 +529,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
     try (WriteBatch batch = new WriteBatch()) {
       for (Map.Entry<byte[], byte[]> entry : rows.entrySet()) {
-        if (entry.getValue() == null) {
-          batch.delete(entry.getKey());
-        } else {
-          batch.put(entry.getKey(), entry.getValue());
-        }
+        write(batch, entry.getKey(), entry.getValue());
       }
       database.write(options, batch);
     }
@@ -369,6 +554,45 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     }
   }
 
+  private void updateByBatchInner(Consumer<BatchWriter> rows, WriteOptions options)
+      throws Exception {
+    if (quitIfNotAlive()) {
+      return;
+    }
+    try (WriteBatch batch = new WriteBatch()) {
+      rows.accept((key, value) -> {
+        try {
+          write(batch, key, value);
+        } catch (RocksDBException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      database.write(options, batch);
+    }
+  }
+
+  /**
+   * Write the rows produced by {@code rows} straight into one WriteBatch, without collecting
+   * them into a map first.
+   */
+  public void updateByBatch(Consumer<BatchWriter> rows, WriteOptionsWrapper optionsWrapper) {
+    if (quitIfNotAlive()) {
+      return;
+    }
+    resetDbLock.readLock().lock();
+    try {
+      updateByBatchInner(rows, optionsWrapper.rocks);
+    } catch (Exception e) {
+      try {
+        updateByBatchInner(rows, optionsWrapper.rocks);
+      } catch (Exception e1) {
+        throw new RuntimeException(e);
+      }
+    } finally {
+      resetDbLock.readLock().unlock();
+    }
+  }
+
   @Override
   public void updateByBatch(Map<byte[], byte[]> rows) {
     if (quitIfNotAlive()) {
@@ -396,7 +620,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
       return new ArrayList<>();
     }
     resetDbLock.readLock().lock();
-    try (RocksIterator iter = database.newIterator()) {
+    try (RocksIterator iter = newIterator()) {
       List<byte[]> result = new ArrayList<>();
       long i = 0;
       for (iter.seek(key); iter.isValid() && i < limit; iter.next(), i++) {
@@ -416,7 +640,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
       return Collections.emptyMap();
     }
     resetDbLock.readLock().lock();
-    try (RocksIterator iter = database.newIterator()) {
+    try (RocksIterator iter = newIterator()) {
       Map<byte[], byte[]> result = new HashMap<>();
       long i = 0;
       for (iter.seek(key); iter.isValid() && i < limit; iter.next(), i++) {
@@ -436,7 +660,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
       return Sets.newHashSet();
     }
     resetDbLock.readLock().lock();
-    try (RocksIterator iter = database.newIterator()) {
+    try (RocksIterator iter = newIterator()) {
       Set<byte[]> result = Sets.newHashSet();
       long i = 0;
       for (iter.seekToLast(); iter.isValid() && i < limit; iter.prev(), i++) {
@@ -456,7 +680,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
       return Sets.newHashSet();
     }
     resetDbLock.readLock().lock();
-    try (RocksIterator iter = database.newIterator()) {
+    try (RocksIterator iter = newIterator()) {
       Set<byte[]> result = Sets.newHashSet();
       long i = 0;
       byte[] data = getData(key);
@@ -481,7 +705,7 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
       return Sets.newHashSet();
     }
     resetDbLock.readLock().lock();
-    try (RocksIterator iter = database.newIterator()) {
+    try (RocksIterator iter = newIterator()) {
       Set<byte[]> result = Sets.newHashSet();
       long i = 0;
       for (iter.seek(key); iter.isValid() && i < limit; iter.next(), i++) {
@@ -494,16 +718,25 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
   }
 
   public void backup(String dir) throws RocksDBException {
+    if (families != null) {
+      families.backup(dir);
+      return;
+    }
     Checkpoint cp = Checkpoint.create(database);
     cp.createCheckpoint(dir + this.getDBName());
   }
 
   public boolean deleteDbBakPath(String dir) {
-    return FileUtil.deleteDir(new File(dir + this.getDBName()));
+    String name = families == null ? this.getDBName() : RocksDbColumnFamilies.DIRECTORY;
+    return FileUtil.deleteDir(new File(dir + name));
   }
 
   @Override
   public RocksDbDataSourceImpl newInstance() {
+    if (families != null) {
+      return new RocksDbDataSourceImpl(RocksDbColumnFamilies.open(families.getParentPath(),
+          RocksDbSettings.getSettings()), parentPath, dataBaseName);
+    }
     return new RocksDbDataSourceImpl(parentPath, dataBaseName, RocksDbSettings.getSettings());
   }
 }
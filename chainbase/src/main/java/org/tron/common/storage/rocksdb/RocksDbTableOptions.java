@@ -0,0 +1,117 @@
+package org.tron.common.storage.rocksdb;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import lombok.Getter;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.tron.common.utils.Property;
+import org.tron.common.utils.StorageUtils;
+
+/**
+ * The table options of one rocksdb store, see storage.properties tablePreset, prefixLength,
+ * bloomBitsPerKey, wholeKeyFiltering and pointLookup. Without any of them a store keeps the
+ * options every store had before.
+ *
+ * The presets fit the stores read the most by contracts: storage-row is keyed by the 16 byte
+ * address hash of the contract followed by the slot, so its filters and memtable bloom also
+ * hold the prefix; account and code are read by exact key only, so their index and filter
+ * blocks stay on the heap and their data blocks are small.
+ */
+public class RocksDbTableOptions {
+
+  public static final RocksDbTableOptions DEFAULT =
+      new RocksDbTableOptions(0, 10, true, false, 0, -1);
+
+  private static final Map<String, RocksDbTableOptions> PRESETS = ImmutableMap.of(
+      "storage-row", new RocksDbTableOptions(16, 10, true, false, 128L * 1024 * 1024, 6),
+      "account", new RocksDbTableOptions(0, 14, true, true, 128L * 1024 * 1024, 6),
+      "code", new RocksDbTableOptions(0, 10, true, true, 64L * 1024 * 1024, -1));
+
+  private static final int POINT_LOOKUP_BLOCK_SIZE = 4 * 1024;
+  private static final double MEMTABLE_PREFIX_BLOOM_RATIO = 0.02;
+
+  // the length of the key prefix kept in the filters, 0 for none
+  @Getter
+  private final int prefixLength;
+  // 0 for no bloom filter
+  @Getter
+  private final int bloomBitsPerKey;
+  @Getter
+  private final boolean wholeKeyFiltering;
+  @Getter
+  private final boolean pointLookup;
+  // 0 for the size the store had before
+  @Getter
+  private final long blockCacheSize;
+  // -1 for the rocksdb default
+  @Getter
+  private final int cacheShardBits;
+
+  private RocksDbTableOptions(int prefixLength, int bloomBitsPerKey, boolean wholeKeyFiltering,
+      boolean pointLookup, long blockCacheSize, int cacheShardBits) {
+    this.prefixLength = prefixLength;
+    this.bloomBitsPerKey = bloomBitsPerKey;
+    this.wholeKeyFiltering = wholeKeyFiltering;
+    this.pointLookup = pointLookup;
+    this.blockCacheSize = blockCacheSize;
+    this.cacheShardBits = cacheShardBits;
+  }
+
+  /**
+   * @return the options of {@code dbName}: its preset if tablePreset is set, then the options
+   *     set for it in storage.properties.
+   */
+  public static RocksDbTableOptions of(String dbName) {
+    Property property = StorageUtils.getPropertyByDbName(dbName);
+    if (property == null) {
+      return DEFAULT;
+    }
+
+    RocksDbTableOptions base = property.isTablePreset()
+        ? PRESETS.getOrDefault(dbName, DEFAULT) : DEFAULT;
+    return new RocksDbTableOptions(
+        property.getPrefixLength() != null ? property.getPrefixLength() : base.prefixLength,
+        property.getBloomBitsPerKey() != null
+            ? property.getBloomBitsPerKey() : base.bloomBitsPerKey,
+        property.getWholeKeyFiltering() != null
+            ? property.getWholeKeyFiltering() : base.wholeKeyFiltering,
+        property.getPointLookup() != null ? property.getPointLookup() : base.pointLookup,
+        base.blockCacheSize, base.cacheShardBits);
+  }
+
+  public boolean hasPrefix() {
+    return prefixLength > 0;
+  }
+
+  /**
+   * @return the ratio of the write buffer spent on a prefix bloom of the memtable, 0 for none.
+   */
+  public double getMemtablePrefixBloomRatio() {
+    return hasPrefix() && bloomBitsPerKey > 0 ? MEMTABLE_PREFIX_BLOOM_RATIO : 0;
+  }
+
+  /**
+   * Set the block cache, filter and index options on {@code tableCfg}, starting from the block
+   * and cache size the store had before.
+   *
+   * @return the filter set, to be closed with the database, or null.
+   */
+  public BloomFilter apply(BlockBasedTableConfig tableCfg, long blockSize, long cacheSize) {
+    tableCfg.setBlockSize(pointLookup ? Math.min(blockSize, POINT_LOOKUP_BLOCK_SIZE) : blockSize);
+    tableCfg.setBlockCacheSize(blockCacheSize > 0 ? blockCacheSize : cacheSize);
+    if (cacheShardBits >= 0) {
+      tableCfg.setCacheNumShardBits(cacheShardBits);
+    }
+    // a point lookup then never waits for an evicted index or filter block
+    tableCfg.setCacheIndexAndFilterBlocks(!pointLookup);
+    tableCfg.setPinL0FilterAndIndexBlocksInCache(!pointLookup);
+    tableCfg.setWholeKeyFiltering(wholeKeyFiltering || !hasPrefix());
+    if (bloomBitsPerKey <= 0) {
+      return null;
+    }
+    BloomFilter filter = new BloomFilter(bloomBitsPerKey, false);
+    tableCfg.setFilter(filter);
+    return filter;
+  }
+}
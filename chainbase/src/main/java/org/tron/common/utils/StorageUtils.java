@@ -4,6 +4,7 @@ import static org.tron.common.parameter.CommonParameter.ENERGY_LIMIT_HARD_FORK;
 import static org.tron.common.utils.DbOptionalsUtils.createDefaultDbOptions;
 
 import java.io.File;
+import java.nio.file.Paths;
 import org.apache.commons.lang3.StringUtils;
 import org.iq80.leveldb.Options;
 import org.tron.common.parameter.CommonParameter;
@@ -52,6 +53,53 @@ public class StorageUtils {
     return CommonParameter.getInstance().getOutputDirectory();
   }
 
+  /**
+   * @return the directory of the database holding the rocksdb stores as column families.
+   */
+  public static String getColumnFamiliesParentPath() {
+    return Paths.get(getOutputDirectory(),
+        CommonParameter.getInstance().getStorage().getDbDirectory()).toString();
+  }
+
+  public static boolean isLatestValueIndexEnabled(String dbName) {
+    return hasProperty(dbName) && getProperty(dbName).isLatestValueIndex();
+  }
+
+  /**
+   * @return the number of decoded capsules cached for the store, 0 if the cache is disabled.
+   */
+  public static long getCapsuleCacheSize(String dbName) {
+    return hasProperty(dbName) ? getProperty(dbName).getCapsuleCacheSize() : 0;
+  }
+
+  /**
+   * @return the deflate level of the values of the store, 0 if they are stored raw.
+   */
+  public static int getValueCompressionLevel(String dbName) {
+    return hasProperty(dbName) ? getProperty(dbName).getValueCompressionLevel() : 0;
+  }
+
+  /**
+   * @return the size of the dictionary the values of the store are compressed with, 0 for none.
+   */
+  public static int getValueDictionarySize(String dbName) {
+    return hasProperty(dbName) ? getProperty(dbName).getValueDictionarySize() : 0;
+  }
+
+  /**
+   * @return the entry of the store in storage.properties, or null.
+   */
+  public static Property getPropertyByDbName(String dbName) {
+    return hasProperty(dbName) ? getProperty(dbName) : null;
+  }
+
+  /**
+   * @return the options set for the store in storage.properties, or null.
+   */
+  public static Options getCustomOptionsByDbName(String dbName) {
+    return hasProperty(dbName) ? getProperty(dbName).getDbOptions() : null;
+  }
+
   public static Options getOptionsByDbName(String dbName) {
     if (hasProperty(dbName)) {
       return getProperty(dbName).getDbOptions();
@@ -32,6 +32,7 @@ import org.tron.core.db.common.SourceInter;
 import org.tron.core.db2.ISession;
 import org.tron.core.db2.common.IRevokingDB;
 import org.tron.core.db2.core.Chainbase;
+import org.tron.core.db2.core.ReadView;
 import org.tron.core.db2.core.RevokingDBWithCachingOldValue;
 import org.tron.core.exception.RevokingStoreIllegalStateException;
 
@@ -84,6 +85,11 @@ public abstract class AbstractRevokingStore implements RevokingDatabase {
 
   }
 
+  @Override
+  public ReadView createReadView(Chainbase.Cursor cursor, long offset) {
+    throw new UnsupportedOperationException("read views need the snapshot based store");
+  }
+
   @Override
   public synchronized void check() {
     LevelDbDataSourceImpl check =
@@ -0,0 +1,75 @@
+package org.tron.core.db;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.AllArgsConstructor;
+import org.tron.core.db2.common.WrappedByteArray;
+import org.tron.core.metrics.MetricsKey;
+import org.tron.core.metrics.MetricsUtil;
+
+/**
+ * A size bounded cache of the capsules decoded by one store, so hot keys are not looked up and
+ * parsed again for every read at the head. An entry holds the decoded protobuf message, which
+ * is immutable, and is only valid for the chainbase revision it was read at; put and delete drop
+ * the key, and so do committed speculations and revoked snapshots through the change listener
+ * of the chainbase.
+ */
+class CapsuleCache {
+
+  private final String hitKey;
+  private final String missKey;
+  private final Cache<WrappedByteArray, Entry> cache;
+  // written under the lock, moves on with every invalidation so that a value read concurrently
+  // with a write is not cached after the write dropped the key
+  private volatile long modCount;
+
+  CapsuleCache(String dbName, long maximumSize) {
+    hitKey = MetricsKey.DB_CAPSULE_CACHE_HIT + dbName;
+    missKey = MetricsKey.DB_CAPSULE_CACHE_MISS + dbName;
+    cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+  }
+
+  /**
+   * @return the cached message of {@code key}, or null on a miss.
+   */
+  Object get(byte[] key, long revision) {
+    Entry entry = cache.getIfPresent(WrappedByteArray.of(key));
+    if (entry != null && entry.revision == revision) {
+      MetricsUtil.meterMark(hitKey);
+      return entry.instance;
+    }
+
+    MetricsUtil.meterMark(missKey);
+    return null;
+  }
+
+  long getModCount() {
+    return modCount;
+  }
+
+  /**
+   * Cache {@code instance} unless the cache was invalidated since {@code modCount} was taken.
+   */
+  synchronized void put(byte[] key, long revision, long modCount, Object instance) {
+    if (this.modCount == modCount) {
+      cache.put(WrappedByteArray.copyOf(key), new Entry(revision, instance));
+    }
+  }
+
+  synchronized void invalidate(byte[] key) {
+    ++modCount;
+    cache.invalidate(WrappedByteArray.of(key));
+  }
+
+  synchronized void invalidateAll() {
+    ++modCount;
+    cache.invalidateAll();
+  }
+
+  @AllArgsConstructor
+  private static class Entry {
+
+    private final long revision;
+    private final Object instance;
+  }
+}
@@ -4,6 +4,7 @@ import com.google.protobuf.ByteString;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -180,10 +181,14 @@ public class DelegationService {
 
   private long computeReward(long cycle, AccountCapsule accountCapsule) {
     long reward = 0;
-    for (Vote vote : accountCapsule.getVotesList()) {
+    List<Vote> votes = accountCapsule.getVotesList();
+    List<long[]> rewardAndVote = delegationStore.getRewardAndVote(cycle, votes.stream()
+        .map(vote -> vote.getVoteAddress().toByteArray()).collect(Collectors.toList()));
+    for (int i = 0; i < votes.size(); i++) {
+      Vote vote = votes.get(i);
       byte[] srAddress = vote.getVoteAddress().toByteArray();
-      long totalReward = delegationStore.getReward(cycle, srAddress);
-      long totalVote = delegationStore.getWitnessVote(cycle, srAddress);
+      long totalReward = rewardAndVote.get(i)[0];
+      long totalVote = rewardAndVote.get(i)[1];
       if (totalVote == DelegationStore.REMARK || totalVote == 0) {
         continue;
       }
@@ -3,6 +3,7 @@ package org.tron.core.db;
 import org.tron.core.db2.ISession;
 import org.tron.core.db2.common.IRevokingDB;
 import org.tron.core.db2.core.Chainbase;
+import org.tron.core.db2.core.ReadView;
 import org.tron.core.exception.RevokingStoreIllegalStateException;
 
 public interface RevokingDatabase {
@@ -15,6 +16,11 @@ public interface RevokingDatabase {
 
   void setCursor(Chainbase.Cursor cursor, long offset);
 
+  /**
+   * Pin the state seen at {@code cursor} in a read view, the caller closes it.
+   */
+  ReadView createReadView(Chainbase.Cursor cursor, long offset);
+
   void add(IRevokingDB revokingDB);
 
   void merge() throws RevokingStoreIllegalStateException;
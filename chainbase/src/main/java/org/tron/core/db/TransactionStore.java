@@ -35,6 +35,7 @@ public class TransactionStore extends TronStoreWithRevoking<TransactionCapsule>
       super.put(key, item);
     } else {
       revokingDB.put(key, ByteArray.fromLong(item.getBlockNum()));
+      invalidateCapsuleCache(key);
     }
   }
 
@@ -25,6 +25,8 @@ import org.tron.core.capsule.BlockCapsule;
 import org.tron.core.capsule.ContractCapsule;
 import org.tron.core.capsule.ReceiptCapsule;
 import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.db2.core.AccessSet;
+import org.tron.core.db2.core.PendingWrites;
 import org.tron.core.exception.BalanceInsufficientException;
 import org.tron.core.exception.ContractExeException;
 import org.tron.core.exception.ContractValidateException;
@@ -73,6 +75,14 @@ public class TransactionTrace {
   @Getter
   @Setter
   private TimeResultType timeResultType = TimeResultType.NORMAL;
+  // the keys the transaction read and wrote, null unless node.recordAccessSet is on
+  @Getter
+  @Setter
+  private AccessSet accessSet;
+  // the values written into the pending session, null unless node.incrementalPending is on
+  @Getter
+  @Setter
+  private PendingWrites pendingWrites;
 
   public TransactionTrace(TransactionCapsule trx, StoreFactory storeFactory,
       Runtime runtime) {
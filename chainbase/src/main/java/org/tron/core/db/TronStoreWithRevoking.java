@@ -6,26 +6,35 @@ import com.google.common.collect.Streams;
 import com.google.common.reflect.TypeToken;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import javax.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ArrayUtils;
 import org.iq80.leveldb.Options;
 import org.iq80.leveldb.WriteOptions;
 import org.rocksdb.DirectComparator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.tron.common.parameter.CommonParameter;
+import org.tron.common.storage.ValueCodec;
 import org.tron.common.storage.leveldb.LevelDbDataSourceImpl;
+import org.tron.common.storage.rocksdb.RocksDbColumnFamilies;
 import org.tron.common.storage.rocksdb.RocksDbDataSourceImpl;
 import org.tron.common.utils.StorageUtils;
 import org.tron.core.capsule.ProtoCapsule;
+import org.tron.core.config.args.Storage;
 import org.tron.core.db2.common.DB;
 import org.tron.core.db2.common.IRevokingDB;
 import org.tron.core.db2.common.LevelDB;
 import org.tron.core.db2.common.RocksDB;
+import org.tron.core.db2.common.TieredDB;
 import org.tron.core.db2.core.Chainbase;
 import org.tron.core.db2.core.ITronChainBase;
 import org.tron.core.db2.core.RevokingDBWithCachingOldValue;
@@ -37,6 +46,9 @@ import org.tron.core.exception.ItemNotFoundException;
 @Slf4j(topic = "DB")
 public abstract class TronStoreWithRevoking<T extends ProtoCapsule> implements ITronChainBase<T> {
 
+  // the newest values of a store a value dictionary is trained on
+  private static final int DICTIONARY_SAMPLES = 1024;
+
   @Getter // only for unit test
   protected IRevokingDB revokingDB;
   private TypeToken<T> token = new TypeToken<T>(getClass()) {
@@ -45,6 +57,12 @@ public abstract class TronStoreWithRevoking<T extends ProtoCapsule> implements I
   @Autowired
   private RevokingDatabase revokingDatabase;
 
+  // optional, decoded capsules read at the head, see StorageUtils.getCapsuleCacheSize
+  private CapsuleCache capsuleCache;
+  // builds a capsule from a cached protobuf message
+  private volatile Constructor<?> instanceConstructor;
+  private volatile Constructor<?> dataConstructor;
+
   protected TronStoreWithRevoking(String dbName) {
     int dbVersion = CommonParameter.getInstance().getStorage().getDbVersion();
     String dbEngine = CommonParameter.getInstance().getStorage().getDbEngine();
@@ -53,7 +71,7 @@ public abstract class TronStoreWithRevoking<T extends ProtoCapsule> implements I
           getOptionsByDbNameForLevelDB(dbName));
     } else if (dbVersion == 2) {
       if ("LEVELDB".equals(dbEngine.toUpperCase())) {
-        this.revokingDB = new Chainbase(new SnapshotRoot(
+        this.revokingDB = new Chainbase(newRoot(dbName,
             new LevelDB(
                 new LevelDbDataSourceImpl(StorageUtils.getOutputDirectoryByDbName(dbName),
                     dbName,
@@ -65,15 +83,57 @@ public abstract class TronStoreWithRevoking<T extends ProtoCapsule> implements I
             .get(StorageUtils.getOutputDirectoryByDbName(dbName), CommonParameter
                 .getInstance().getStorage().getDbDirectory()).toString();
 
-        this.revokingDB = new Chainbase(new SnapshotRoot(
-            new RocksDB(
-                new RocksDbDataSourceImpl(parentPath,
-                    dbName, CommonParameter.getInstance()
-                    .getRocksDBCustomSettings(), getDirectComparator()))));
+        RocksDbDataSourceImpl dataSource;
+        if (CommonParameter.getInstance().getStorage().isDbColumnFamilies()) {
+          dataSource = new RocksDbDataSourceImpl(RocksDbColumnFamilies.open(
+              StorageUtils.getColumnFamiliesParentPath(),
+              CommonParameter.getInstance().getRocksDBCustomSettings()), parentPath, dbName);
+        } else {
+          dataSource = new RocksDbDataSourceImpl(parentPath, dbName,
+              CommonParameter.getInstance().getRocksDBCustomSettings(), getDirectComparator());
+        }
+        this.revokingDB = new Chainbase(newRoot(dbName, new RocksDB(dataSource)));
       }
     } else {
       throw new RuntimeException("db version is error.");
     }
+
+    if (revokingDB instanceof Chainbase && StorageUtils.isLatestValueIndexEnabled(dbName)) {
+      ((Chainbase) revokingDB).enableLatestValueIndex();
+    }
+
+    long capsuleCacheSize = StorageUtils.getCapsuleCacheSize(dbName);
+    if (revokingDB instanceof Chainbase && capsuleCacheSize > 0) {
+      capsuleCache = new CapsuleCache(dbName, capsuleCacheSize);
+      ((Chainbase) revokingDB).setChangeListener(this::invalidateCapsuleCache);
+    }
+  }
+
+  /**
+   * @return the root of the store, tiered if set in storage.tiered and compressing its values if
+   *     set in storage.properties.
+   */
+  private static SnapshotRoot newRoot(String dbName, DB<byte[], byte[]> db) {
+    Storage storage = CommonParameter.getInstance().getStorage();
+    if (storage.isTieredEnable() && TieredDB.STORES.contains(dbName)) {
+      db = new TieredDB(db, Paths.get(StorageUtils.getOutputDirectoryByDbName(dbName),
+          storage.getDbDirectory(), dbName + TieredDB.DIRECTORY_SUFFIX),
+          storage.getTieredHotBlocks(), storage.getTieredSegmentBlocks());
+    }
+
+    int level = StorageUtils.getValueCompressionLevel(dbName);
+    if (level <= 0) {
+      return new SnapshotRoot(db);
+    }
+
+    Path dictionary = Paths.get(StorageUtils.getOutputDirectoryByDbName(dbName),
+        CommonParameter.getInstance().getStorage().getDbDirectory(),
+        dbName + ValueCodec.DICTIONARY_SUFFIX);
+    ValueCodec codec = ValueCodec.open(level, StorageUtils.getValueDictionarySize(dbName),
+        dictionary, () -> SnapshotRoot.newestValues(db, DICTIONARY_SAMPLES));
+    logger.info("compress the values of {}, level {}, dictionary {} bytes", dbName, level,
+        codec.getDictionarySize());
+    return new SnapshotRoot(db, codec);
   }
 
   protected org.iq80.leveldb.Options getOptionsByDbNameForLevelDB(String dbName) {
@@ -123,32 +183,174 @@ public abstract class TronStoreWithRevoking<T extends ProtoCapsule> implements I
     }
 
     revokingDB.put(key, item.getData());
+    invalidateCapsuleCache(key);
   }
 
   @Override
   public void delete(byte[] key) {
     revokingDB.delete(key);
+    invalidateCapsuleCache(key);
+  }
+
+  /**
+   * Drop the cached capsule of {@code key}, for subclasses writing to the revokingDB directly.
+   */
+  protected void invalidateCapsuleCache(byte[] key) {
+    if (capsuleCache != null) {
+      capsuleCache.invalidate(key);
+    }
   }
 
   @Override
   public T get(byte[] key) throws ItemNotFoundException, BadItemException {
-    return of(revokingDB.get(key));
+    if (!useCapsuleCache()) {
+      return of(revokingDB.get(key));
+    }
+
+    T item = getCached(key, false);
+    if (item == null) {
+      throw new ItemNotFoundException();
+    }
+    return item;
   }
 
   @Override
   public T getUnchecked(byte[] key) {
-    byte[] value = revokingDB.getUnchecked(key);
+    try {
+      if (useCapsuleCache()) {
+        T item = getCached(key, false);
+        return item != null ? item : of(null);
+      }
+      return of(revokingDB.getUnchecked(key));
+    } catch (BadItemException e) {
+      return null;
+    }
+  }
 
+  /**
+   * @return the capsule of {@code key}, or null if the key does not exist or its value is empty.
+   */
+  protected T getOrNull(byte[] key) {
     try {
-      return of(value);
+      if (useCapsuleCache()) {
+        return getCached(key, true);
+      }
+      byte[] value = revokingDB.getUnchecked(key);
+      return ArrayUtils.isEmpty(value) ? null : of(value);
     } catch (BadItemException e) {
       return null;
     }
   }
 
+  /**
+   * @return the capsules of {@code keys} in the same order, null for a key that does not exist
+   *     or whose value is empty. The keys not in the capsule cache are read in one call.
+   */
+  public List<T> getMany(List<byte[]> keys) {
+    List<T> items = new ArrayList<>(Collections.nCopies(keys.size(), null));
+    List<Integer> pending = new ArrayList<>();
+    List<byte[]> pendingKeys = new ArrayList<>();
+    boolean cached = useCapsuleCache();
+    long revision = cached ? ((Chainbase) revokingDB).getRevision() : 0;
+    for (int i = 0; i < keys.size(); i++) {
+      Object instance = cached ? capsuleCache.get(keys.get(i), revision) : null;
+      if (instance == null) {
+        pending.add(i);
+        pendingKeys.add(keys.get(i));
+        continue;
+      }
+      ((Chainbase) revokingDB).recordRead(keys.get(i));
+      try {
+        items.set(i, fromCached(instance));
+      } catch (BadItemException e) {
+        logger.warn(e.getMessage());
+      }
+    }
+
+    if (!pendingKeys.isEmpty()) {
+      List<byte[]> values = revokingDB.getMany(pendingKeys);
+      for (int i = 0; i < pending.size(); i++) {
+        byte[] value = values.get(i);
+        try {
+          items.set(pending.get(i), ArrayUtils.isEmpty(value) ? null : of(value));
+        } catch (BadItemException e) {
+          logger.warn(e.getMessage());
+        }
+      }
+    }
+    return items;
+  }
+
+  private boolean useCapsuleCache() {
+    return capsuleCache != null && ((Chainbase) revokingDB).isHeadRead();
+  }
+
+  /**
+   * @return the capsule of {@code key}, or null if the key does not exist, or if its value is
+   *     empty and {@code emptyAsMissing} is set.
+   */
+  private T getCached(byte[] key, boolean emptyAsMissing) throws BadItemException {
+    // taken before the read, a concurrent write or revoke then keeps the value out of the cache
+    long revision = ((Chainbase) revokingDB).getRevision();
+    long modCount = capsuleCache.getModCount();
+    Object cached = capsuleCache.get(key, revision);
+    if (cached != null) {
+      ((Chainbase) revokingDB).recordRead(key);
+      return fromCached(cached);
+    }
+
+    byte[] value = revokingDB.getUnchecked(key);
+    if (value == null || (emptyAsMissing && value.length == 0)) {
+      return null;
+    }
+
+    T item = of(value);
+    Object instance = item.getInstance();
+    if (value.length == 0) {
+      return item;
+    } else if (instance != null && getInstanceConstructor(instance.getClass()) != null) {
+      capsuleCache.put(key, revision, modCount, instance);
+    } else {
+      // capsules without a message constructor, like BytesCapsule, are cached as bytes
+      capsuleCache.put(key, revision, modCount, value.clone());
+    }
+    return item;
+  }
+
+  private T fromCached(Object cached) throws BadItemException {
+    if (cached instanceof byte[]) {
+      return of(((byte[]) cached).clone());
+    }
+
+    try {
+      @SuppressWarnings("unchecked")
+      T t = (T) getInstanceConstructor(cached.getClass()).newInstance(cached);
+      return t;
+    } catch (IllegalAccessException | InstantiationException | InvocationTargetException e) {
+      throw new BadItemException(e.getMessage());
+    }
+  }
+
+  private Constructor<?> getInstanceConstructor(Class<?> type) {
+    Constructor<?> constructor = instanceConstructor;
+    if (constructor == null || constructor.getParameterTypes()[0] != type) {
+      try {
+        constructor = token.getRawType().getConstructor(type);
+      } catch (NoSuchMethodException e) {
+        return null;
+      }
+      instanceConstructor = constructor;
+    }
+    return constructor;
+  }
+
   public T of(byte[] value) throws BadItemException {
     try {
-      Constructor constructor = token.getRawType().getConstructor(byte[].class);
+      Constructor<?> constructor = dataConstructor;
+      if (constructor == null) {
+        constructor = token.getRawType().getConstructor(byte[].class);
+        dataConstructor = constructor;
+      }
       @SuppressWarnings("unchecked")
       T t = (T) constructor.newInstance((Object) value);
       return t;
@@ -175,6 +377,9 @@ public abstract class TronStoreWithRevoking<T extends ProtoCapsule> implements I
   @Override
   public void reset() {
     revokingDB.reset();
+    if (capsuleCache != null) {
+      capsuleCache.invalidateAll();
+    }
   }
 
   @Override
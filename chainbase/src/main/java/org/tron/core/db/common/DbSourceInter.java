@@ -17,6 +17,7 @@
  */
 package org.tron.core.db.common;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -36,6 +37,11 @@ public interface DbSourceInter<V> extends BatchSourceInter<byte[], V>,
 
   void resetDb();
 
+  /**
+   * @return the values of {@code keys} in the same order, null for a missing key.
+   */
+  List<byte[]> getMany(List<byte[]> keys);
+
   Set<byte[]> allKeys() throws RuntimeException;
 
   Set<byte[]> allValues() throws RuntimeException;
@@ -0,0 +1,63 @@
+package org.tron.core.db.common.iterator;
+
+import com.google.common.collect.Maps;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import lombok.extern.slf4j.Slf4j;
+import org.rocksdb.RocksIterator;
+
+/**
+ * Iterates a RocksDB database from the last key to the first.
+ */
+@Slf4j(topic = "DB")
+public final class ReverseRockStoreIterator implements DBIterator {
+
+  private RocksIterator dbIterator;
+  private boolean first = true;
+  private boolean closed = false;
+
+  public ReverseRockStoreIterator(RocksIterator dbIterator) {
+    this.dbIterator = dbIterator;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      dbIterator.close();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (closed) {
+      return false;
+    }
+
+    boolean hasNext = false;
+    try {
+      if (first) {
+        dbIterator.seekToLast();
+        first = false;
+      }
+      if (!(hasNext = dbIterator.isValid())) {
+        close();
+      }
+    } catch (Exception e) {
+      logger.debug(e.getMessage(), e);
+    }
+    return hasNext;
+  }
+
+  @Override
+  public Entry<byte[], byte[]> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Map.Entry<byte[], byte[]> entry = Maps.immutableEntry(dbIterator.key(), dbIterator.value());
+    dbIterator.prev();
+    return entry;
+  }
+}
@@ -0,0 +1,71 @@
+package org.tron.core.db.common.iterator;
+
+import java.io.IOException;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import lombok.extern.slf4j.Slf4j;
+import org.iq80.leveldb.DBIterator;
+
+/**
+ * Iterates a LevelDB database from the last key to the first.
+ */
+@Slf4j(topic = "DB")
+public final class ReverseStoreIterator implements org.tron.core.db.common.iterator.DBIterator {
+
+  private DBIterator dbIterator;
+  private boolean first = true;
+  private boolean closed = false;
+  private Entry<byte[], byte[]> next;
+
+  public ReverseStoreIterator(DBIterator dbIterator) {
+    this.dbIterator = dbIterator;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      dbIterator.close();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (closed) {
+      return false;
+    }
+
+    try {
+      if (first) {
+        first = false;
+        dbIterator.seekToLast();
+        next = dbIterator.hasNext() ? dbIterator.peekNext() : null;
+      }
+      if (next == null) {
+        close();
+      }
+    } catch (Exception e) {
+      logger.debug(e.getMessage(), e);
+      next = null;
+    }
+
+    return next != null;
+  }
+
+  @Override
+  public Entry<byte[], byte[]> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    Entry<byte[], byte[]> entry = next;
+    // prev() moves to the previous entry and returns it
+    next = dbIterator.hasPrev() ? dbIterator.prev() : null;
+    return entry;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+}
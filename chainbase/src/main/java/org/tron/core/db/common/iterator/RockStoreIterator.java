@@ -12,32 +12,51 @@ public final class RockStoreIterator implements DBIterator {
 
   private RocksIterator dbIterator;
   private boolean first = true;
+  private boolean closed = false;
+  // first key to seek to, null for the first entry
+  private byte[] start;
 
   public RockStoreIterator(RocksIterator dbIterator) {
     this.dbIterator = dbIterator;
   }
 
+  public RockStoreIterator(RocksIterator dbIterator, byte[] start) {
+    this.dbIterator = dbIterator;
+    this.start = start;
+  }
+
   @Override
   public void close() throws IOException {
-    dbIterator.close();
+    if (!closed) {
+      closed = true;
+      dbIterator.close();
+    }
   }
 
   @Override
   public boolean hasNext() {
+    if (closed) {
+      return false;
+    }
+
     boolean hasNext = false;
     // true is first item
     try {
       if (first) {
-        dbIterator.seekToFirst();
+        if (start == null) {
+          dbIterator.seekToFirst();
+        } else {
+          dbIterator.seek(start);
+        }
         first = false;
       }
       if (!(hasNext = dbIterator.isValid())) { // false is last item
-        dbIterator.close();
+        close();
       }
     } catch (Exception e) {
       System.out.println("e:" + e);
       try {
-        dbIterator.close();
+        close();
       } catch (Exception e1) {
         System.out.println("e1:" + e1);
       }
@@ -10,28 +10,48 @@ public final class StoreIterator implements org.tron.core.db.common.iterator.DBI
 
   private DBIterator dbIterator;
   private boolean first = true;
+  private boolean closed = false;
+  // first key to seek to, null for the first entry
+  private byte[] start;
 
   public StoreIterator(DBIterator dbIterator) {
     this.dbIterator = dbIterator;
   }
 
+  public StoreIterator(DBIterator dbIterator, byte[] start) {
+    this.dbIterator = dbIterator;
+    this.start = start;
+  }
+
   @Override
   public void close() throws IOException {
-    dbIterator.close();
+    // closed once it is exhausted, the native iterator must not be closed twice
+    if (!closed) {
+      closed = true;
+      dbIterator.close();
+    }
   }
 
   @Override
   public boolean hasNext() {
+    if (closed) {
+      return false;
+    }
+
     boolean hasNext = false;
     // true is first item
     try {
       if (first) {
-        dbIterator.seekToFirst();
+        if (start == null) {
+          dbIterator.seekToFirst();
+        } else {
+          dbIterator.seek(start);
+        }
         first = false;
       }
 
       if (!(hasNext = dbIterator.hasNext())) { // false is last item
-        dbIterator.close();
+        close();
       }
     } catch (Exception e) {
       logger.debug(e.getMessage(), e);
@@ -1,11 +1,25 @@
 package org.tron.core.db2.common;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
+import org.tron.common.storage.BatchWriter;
 
 public interface Flusher {
 
   void flush(Map<WrappedByteArray, WrappedByteArray> batch);
 
+  /**
+   * Write the rows produced by {@code rows} as one batch. The on-disk stores write them straight
+   * into a native WriteBatch, {@code rows} may be run again if the write is retried.
+   */
+  default void flush(Consumer<BatchWriter> rows) {
+    Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
+    rows.accept((key, value) -> batch.put(WrappedByteArray.copyOf(key),
+        WrappedByteArray.copyOf(value)));
+    flush(batch);
+  }
+
   void close();
 
   void reset();
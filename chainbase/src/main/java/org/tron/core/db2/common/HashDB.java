@@ -1,12 +1,16 @@
 package org.tron.core.db2.common;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Backed by a ConcurrentHashMap so that a snapshot layer can be read while the block processing
+ * thread writes to it.
+ */
 public class HashDB implements DB<Key, Value> {
 
-  private Map<Key, Value> db = new HashMap<>();
+  private Map<Key, Value> db = new ConcurrentHashMap<>();
   private String name;
 
   public HashDB(String name) {
@@ -18,6 +18,11 @@ public interface IRevokingDB extends Iterable<Map.Entry<byte[], byte[]>> {
 
   byte[] getUnchecked(byte[] key);
 
+  /**
+   * @return the values of {@code keys} in the same order, null for a missing key.
+   */
+  List<byte[]> getMany(List<byte[]> keys);
+
   void close();
 
   void reset();
@@ -20,6 +20,16 @@ public final class Key {
     return new Key(WrappedByteArray.of(bytes));
   }
 
+  // the backing bytes without a copy, callers must not modify them
+  public byte[] getRawBytes() {
+    return data.getBytes();
+  }
+
+  public int getSize() {
+    byte[] key = data.getBytes();
+    return key == null ? 0 : key.length;
+  }
+
   public byte[] getBytes() {
     byte[] key = data.getBytes();
     if (key == null) {
@@ -3,8 +3,10 @@ package org.tron.core.db2.common;
 import com.google.common.collect.Maps;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 import lombok.Getter;
 import org.tron.common.parameter.CommonParameter;
+import org.tron.common.storage.BatchWriter;
 import org.tron.common.storage.WriteOptionsWrapper;
 import org.tron.common.storage.leveldb.LevelDbDataSourceImpl;
 import org.tron.core.db.common.iterator.DBIterator;
@@ -63,6 +65,11 @@ public class LevelDB implements DB<byte[], byte[]>, Flusher {
     db.updateByBatch(rows, writeOptions);
   }
 
+  @Override
+  public void flush(Consumer<BatchWriter> rows) {
+    db.updateByBatch(rows, writeOptions);
+  }
+
   @Override
   public void close() {
     db.closeDB();
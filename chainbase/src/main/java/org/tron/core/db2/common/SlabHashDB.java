@@ -0,0 +1,325 @@
+package org.tron.core.db2.common;
+
+import com.google.common.collect.Maps;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An open addressing hash map for snapshot layers. Keys and values are packed into one byte
+ * slab and every entry is a row of primitive columns with its hash cached, so a put copies the
+ * bytes once and allocates nothing per entry. Key and Value objects are only created when an
+ * entry is read back.
+ *
+ * Entries are never moved: an overwrite reuses the value bytes in place when the new value
+ * fits, a remove only marks the entry, and the iteration follows the insertion order. The bytes
+ * of the values moved out of their place are dead; once they are half of the slab, the slab is
+ * compacted instead of grown.
+ */
+public class SlabHashDB implements DB<Key, Value> {
+
+  private static final int INITIAL_ENTRIES = 16;
+  private static final int INITIAL_SLAB_SIZE = 1024;
+
+  private String name;
+
+  // entry index + 1 per slot, 0 marks a free slot
+  private int[] table;
+  private int[] hashes;
+  private int[] keyOffsets;
+  private int[] keyLengths;
+  private int[] valueOffsets;
+  // -1 for a null value
+  private int[] valueLengths;
+  // the bytes reserved for the value in the slab, at least its length
+  private int[] valueCapacities;
+  private byte[] operators;
+  private boolean[] removed;
+  private int entries;
+  private int size;
+
+  private byte[] slab;
+  private int slabSize;
+  // the bytes of the slab no entry uses anymore
+  private int deadBytes;
+
+  public SlabHashDB(String name) {
+    this.name = name;
+    clear();
+  }
+
+  private static int hash(byte[] key) {
+    int h = 1;
+    for (byte b : key) {
+      h = 31 * h + b;
+    }
+    return h ^ (h >>> 16);
+  }
+
+  @Override
+  public Value get(Key key) {
+    byte[] k = key.getRawBytes();
+    int entry = find(k, hash(k));
+    if (entry < 0 || removed[entry]) {
+      return null;
+    }
+
+    return Value.of(Value.Operator.valueOf(operators[entry]), copyValue(entry));
+  }
+
+  @Override
+  public void put(Key key, Value value) {
+    byte[] k = key.getRawBytes();
+    int h = hash(k);
+    int entry = find(k, h);
+    if (entry >= 0) {
+      if (removed[entry]) {
+        removed[entry] = false;
+        ++size;
+      }
+      writeValue(entry, value, false);
+      return;
+    }
+
+    int slot = -(entry + 1);
+    ensureEntryCapacity();
+    entry = entries++;
+    hashes[entry] = h;
+    keyOffsets[entry] = append(k);
+    keyLengths[entry] = k.length;
+    removed[entry] = false;
+    writeValue(entry, value, true);
+    table[slot] = entry + 1;
+    ++size;
+
+    if (entries * 2 > table.length) {
+      rehash(table.length * 2);
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public void remove(Key key) {
+    byte[] k = key.getRawBytes();
+    int entry = find(k, hash(k));
+    if (entry >= 0 && !removed[entry]) {
+      removed[entry] = true;
+      --size;
+    }
+  }
+
+  /**
+   * @return the bytes allocated for the keys and values.
+   */
+  public int getSlabCapacity() {
+    return slab.length;
+  }
+
+  @Override
+  public String getDbName() {
+    return name;
+  }
+
+  @Override
+  public Iterator<Map.Entry<Key, Value>> iterator() {
+    return new Iterator<Map.Entry<Key, Value>>() {
+
+      private int cursor = skipRemoved(0);
+
+      @Override
+      public boolean hasNext() {
+        return cursor < entries;
+      }
+
+      @Override
+      public Map.Entry<Key, Value> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        int entry = cursor;
+        cursor = skipRemoved(entry + 1);
+        return Maps.immutableEntry(Key.of(copyKey(entry)),
+            Value.of(Value.Operator.valueOf(operators[entry]), copyValue(entry)));
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    clear();
+  }
+
+  @Override
+  public SlabHashDB newInstance() {
+    return new SlabHashDB(name);
+  }
+
+  private void clear() {
+    table = new int[INITIAL_ENTRIES * 2];
+    hashes = new int[INITIAL_ENTRIES];
+    keyOffsets = new int[INITIAL_ENTRIES];
+    keyLengths = new int[INITIAL_ENTRIES];
+    valueOffsets = new int[INITIAL_ENTRIES];
+    valueLengths = new int[INITIAL_ENTRIES];
+    valueCapacities = new int[INITIAL_ENTRIES];
+    operators = new byte[INITIAL_ENTRIES];
+    removed = new boolean[INITIAL_ENTRIES];
+    entries = 0;
+    size = 0;
+    slab = new byte[INITIAL_SLAB_SIZE];
+    slabSize = 0;
+    deadBytes = 0;
+  }
+
+  /**
+   * @return the entry index of the key, or -(free slot + 1) if the key is absent.
+   */
+  private int find(byte[] key, int h) {
+    int mask = table.length - 1;
+    int slot = h & mask;
+    while (true) {
+      int entry = table[slot] - 1;
+      if (entry < 0) {
+        return -(slot + 1);
+      }
+      if (hashes[entry] == h && keyEquals(entry, key)) {
+        return entry;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private boolean keyEquals(int entry, byte[] key) {
+    if (keyLengths[entry] != key.length) {
+      return false;
+    }
+
+    int offset = keyOffsets[entry];
+    for (int i = 0; i < key.length; i++) {
+      if (slab[offset + i] != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void writeValue(int entry, Value value, boolean fresh) {
+    operators[entry] = value.getOperator().getValue();
+    byte[] v = value.getRawBytes();
+    if (v == null) {
+      valueLengths[entry] = -1;
+      return;
+    }
+
+    if (!fresh && v.length <= valueCapacities[entry]) {
+      System.arraycopy(v, 0, slab, valueOffsets[entry], v.length);
+      valueLengths[entry] = v.length;
+      return;
+    }
+
+    // the old bytes are dead, and must not be kept if append compacts the slab
+    deadBytes += valueCapacities[entry];
+    valueLengths[entry] = -1;
+    valueCapacities[entry] = 0;
+    valueOffsets[entry] = append(v);
+    valueLengths[entry] = v.length;
+    valueCapacities[entry] = v.length;
+  }
+
+  private int append(byte[] bytes) {
+    if (slabSize + bytes.length > slab.length && deadBytes * 2 >= slabSize) {
+      compact();
+    }
+    if (slabSize + bytes.length > slab.length) {
+      int capacity = slab.length;
+      while (slabSize + bytes.length > capacity) {
+        capacity *= 2;
+      }
+      slab = Arrays.copyOf(slab, capacity);
+    }
+
+    int offset = slabSize;
+    System.arraycopy(bytes, 0, slab, offset, bytes.length);
+    slabSize += bytes.length;
+    return offset;
+  }
+
+  /**
+   * Copy the keys and values of all entries into a new slab of the same size, without the dead
+   * bytes and the spare capacity of the values.
+   */
+  private void compact() {
+    byte[] old = slab;
+    slab = new byte[old.length];
+    slabSize = 0;
+    for (int entry = 0; entry < entries; entry++) {
+      System.arraycopy(old, keyOffsets[entry], slab, slabSize, keyLengths[entry]);
+      keyOffsets[entry] = slabSize;
+      slabSize += keyLengths[entry];
+      int length = Math.max(valueLengths[entry], 0);
+      System.arraycopy(old, valueOffsets[entry], slab, slabSize, length);
+      valueOffsets[entry] = slabSize;
+      valueCapacities[entry] = length;
+      slabSize += length;
+    }
+    deadBytes = 0;
+  }
+
+  private byte[] copyKey(int entry) {
+    return Arrays.copyOfRange(slab, keyOffsets[entry], keyOffsets[entry] + keyLengths[entry]);
+  }
+
+  private byte[] copyValue(int entry) {
+    if (valueLengths[entry] < 0) {
+      return null;
+    }
+    return Arrays.copyOfRange(slab, valueOffsets[entry],
+        valueOffsets[entry] + valueLengths[entry]);
+  }
+
+  private int skipRemoved(int entry) {
+    while (entry < entries && removed[entry]) {
+      ++entry;
+    }
+    return entry;
+  }
+
+  private void ensureEntryCapacity() {
+    if (entries < hashes.length) {
+      return;
+    }
+
+    int capacity = hashes.length * 2;
+    hashes = Arrays.copyOf(hashes, capacity);
+    keyOffsets = Arrays.copyOf(keyOffsets, capacity);
+    keyLengths = Arrays.copyOf(keyLengths, capacity);
+    valueOffsets = Arrays.copyOf(valueOffsets, capacity);
+    valueLengths = Arrays.copyOf(valueLengths, capacity);
+    valueCapacities = Arrays.copyOf(valueCapacities, capacity);
+    operators = Arrays.copyOf(operators, capacity);
+    removed = Arrays.copyOf(removed, capacity);
+  }
+
+  private void rehash(int capacity) {
+    table = new int[capacity];
+    int mask = capacity - 1;
+    for (int entry = 0; entry < entries; entry++) {
+      int slot = hashes[entry] & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = entry + 1;
+    }
+  }
+}
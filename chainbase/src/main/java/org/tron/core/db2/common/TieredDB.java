@@ -0,0 +1,425 @@
+package org.tron.core.db2.common;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.tron.common.storage.BatchWriter;
+import org.tron.common.storage.BlockSegment;
+import org.tron.common.storage.DbSnapshot;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.db.common.iterator.DBIterator;
+
+/**
+ * A store of rows keyed by block number split into two tiers, see storage.tiered. The newest
+ * hotBlocks blocks stay in the LevelDB or RocksDB of the store, older ones are moved in the
+ * background into immutable {@link BlockSegment} files of segmentBlocks blocks each, so the LSM
+ * only holds the recent rows and compacts them cheaply.
+ *
+ * The key of every row starts with the 8 byte block number, reads are routed by it. A segment
+ * is written before its rows are deleted from the LSM, so a row is always found in one of the
+ * tiers; rows left in the LSM by a crash in between are dropped by the next move. Archived rows
+ * are immutable, removing one fails.
+ */
+@Slf4j(topic = "DB")
+public class TieredDB implements DB<byte[], byte[]>, Flusher {
+
+  // the stores keyed by block number
+  public static final Set<String> STORES = ImmutableSet.of("block", "block-index",
+      "transactionRetStore");
+  public static final String DIRECTORY_SUFFIX = ".archive";
+  // a segment is closed early at this size, it is mapped as one buffer
+  private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+  @Getter
+  private final DB<byte[], byte[]> hot;
+  private final Path directory;
+  private final long hotBlocks;
+  private final long segmentBlocks;
+  // ordered by block number, copied on write
+  private volatile List<BlockSegment> segments;
+  private final ExecutorService mover;
+  private final AtomicBoolean moving = new AtomicBoolean();
+
+  public TieredDB(DB<byte[], byte[]> hot, Path directory, long hotBlocks, long segmentBlocks) {
+    if (hot.getClass() != LevelDB.class && hot.getClass() != RocksDB.class) {
+      throw new IllegalArgumentException("only LevelDB or RocksDB can be tiered");
+    }
+    this.hot = hot;
+    this.directory = directory;
+    this.hotBlocks = hotBlocks;
+    this.segmentBlocks = segmentBlocks;
+    this.segments = open(directory);
+    this.mover = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat(hot.getDbName() + "-tier-%d").setDaemon(true)
+            .build());
+  }
+
+  private static List<BlockSegment> open(Path directory) {
+    List<BlockSegment> segments = new ArrayList<>();
+    try {
+      Files.createDirectories(directory);
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+          "*" + BlockSegment.SUFFIX)) {
+        for (Path file : files) {
+          segments.add(BlockSegment.open(file));
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to open segments of " + directory, e);
+    }
+    segments.sort((s1, s2) -> Long.compare(s1.getFirst(), s2.getFirst()));
+    return Collections.unmodifiableList(segments);
+  }
+
+  /**
+   * @return the block number of {@code key}, -1 if the key is too short to hold one.
+   */
+  static long number(byte[] key) {
+    return key.length < Long.BYTES ? -1 : BlockSegment.number(key);
+  }
+
+  private static long archived(List<BlockSegment> segments) {
+    return segments.isEmpty() ? -1 : segments.get(segments.size() - 1).getLast();
+  }
+
+  private static BlockSegment segment(List<BlockSegment> segments, long number) {
+    int low = 0;
+    int high = segments.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      BlockSegment segment = segments.get(mid);
+      if (number < segment.getFirst()) {
+        high = mid - 1;
+      } else if (number > segment.getLast()) {
+        low = mid + 1;
+      } else {
+        return segment;
+      }
+    }
+    return null;
+  }
+
+  private static byte[] archivedGet(List<BlockSegment> segments, byte[] key) {
+    BlockSegment segment = segment(segments, number(key));
+    return segment == null ? null : segment.get(key);
+  }
+
+  @Override
+  public byte[] get(byte[] key) {
+    // the LSM first, a row is deleted from it only after its segment is published
+    byte[] value = hot.get(key);
+    return value != null ? value : archivedGet(segments, key);
+  }
+
+  @Override
+  public void put(byte[] key, byte[] value) {
+    hot.put(key, value);
+  }
+
+  @Override
+  public void remove(byte[] key) {
+    checkRemovable(key);
+    hot.remove(key);
+  }
+
+  private void checkRemovable(byte[] key) {
+    long number = number(key);
+    if (number >= 0 && number <= archived(segments)) {
+      throw new UnsupportedOperationException(getDbName() + ": row of block " + number
+          + " is archived and can not be removed");
+    }
+  }
+
+  @Override
+  public long size() {
+    return hot.size() + segments.stream().mapToLong(BlockSegment::getCount).sum();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public String getDbName() {
+    return hot.getDbName();
+  }
+
+  @Override
+  public void flush(Map<WrappedByteArray, WrappedByteArray> batch) {
+    batch.forEach((key, value) -> {
+      if (value.getBytes() == null) {
+        checkRemovable(key.getBytes());
+      }
+    });
+    ((Flusher) hot).flush(batch);
+    moveLater();
+  }
+
+  @Override
+  public void flush(Consumer<BatchWriter> rows) {
+    ((Flusher) hot).flush(writer -> rows.accept((key, value) -> {
+      if (value == null) {
+        checkRemovable(key);
+      }
+      writer.put(key, value);
+    }));
+    moveLater();
+  }
+
+  private void moveLater() {
+    if (moving.compareAndSet(false, true)) {
+      mover.submit(() -> {
+        try {
+          while (moveOne()) {
+            // move until the LSM is back to hotBlocks blocks
+          }
+        } catch (IOException | RuntimeException e) {
+          logger.error("{}: move to segments failed", getDbName(), e);
+        } finally {
+          moving.set(false);
+        }
+      });
+    }
+  }
+
+  /**
+   * Move the oldest segmentBlocks blocks out of the LSM if it holds more than hotBlocks blocks.
+   *
+   * @return true if a segment was written.
+   */
+  boolean moveOne() throws IOException {
+    long archived = archived(segments);
+    long first = -1;
+    long last = -1;
+    try (DBIterator iterator = hotIterator(null, false)) {
+      List<byte[]> leftovers = new ArrayList<>();
+      while (iterator.hasNext()) {
+        byte[] key = iterator.next().getKey();
+        long number = number(key);
+        if (number > archived) {
+          first = number;
+          break;
+        }
+        if (number >= 0) {
+          leftovers.add(key);
+        }
+      }
+      if (!leftovers.isEmpty()) {
+        ((Flusher) hot).flush(writer -> leftovers.forEach(key -> writer.put(key, null)));
+      }
+    }
+    try (DBIterator iterator = hotIterator(null, true)) {
+      if (iterator.hasNext()) {
+        last = number(iterator.next().getKey());
+      }
+    }
+    if (first < 0 || last - first + 1 < hotBlocks + segmentBlocks) {
+      return false;
+    }
+
+    long start = System.currentTimeMillis();
+    List<byte[]> moved = new ArrayList<>();
+    BlockSegment segment;
+    try (DBIterator iterator = hotIterator(Longs.toByteArray(first), false)) {
+      segment = BlockSegment.write(
+          directory.resolve(String.format("%020d", first) + BlockSegment.SUFFIX),
+          new Range(Iterators.peekingIterator(iterator), first + segmentBlocks - 1, moved));
+    }
+    List<BlockSegment> published = new ArrayList<>(segments);
+    published.add(segment);
+    segments = Collections.unmodifiableList(published);
+    ((Flusher) hot).flush(writer -> moved.forEach(key -> writer.put(key, null)));
+    logger.info("{}: move blocks {} to {} into {}, {} rows, cost {} ms", getDbName(),
+        segment.getFirst(), segment.getLast(), segment.getPath(), moved.size(),
+        System.currentTimeMillis() - start);
+    return true;
+  }
+
+  /**
+   * The rows of the LSM up to block {@code end}, closed early at a block boundary once they
+   * exceed MAX_SEGMENT_BYTES. Records the keys it returns.
+   */
+  private static class Range implements Iterator<Map.Entry<byte[], byte[]>> {
+
+    private final PeekingIterator<Map.Entry<byte[], byte[]>> rows;
+    private final long end;
+    private final List<byte[]> moved;
+    private long bytes;
+    private long last = -1;
+
+    Range(PeekingIterator<Map.Entry<byte[], byte[]>> rows, long end, List<byte[]> moved) {
+      this.rows = rows;
+      this.end = end;
+      this.moved = moved;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (!rows.hasNext()) {
+        return false;
+      }
+      long number = number(rows.peek().getKey());
+      return number <= end && (bytes <= MAX_SEGMENT_BYTES || number == last);
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<byte[], byte[]> row = rows.next();
+      bytes += row.getKey().length + row.getValue().length;
+      last = number(row.getKey());
+      moved.add(row.getKey());
+      return row;
+    }
+  }
+
+  private DBIterator hotIterator(byte[] start, boolean reverse) {
+    if (hot.getClass() == LevelDB.class) {
+      return reverse ? ((LevelDB) hot).getDb().reverseIterator()
+          : ((LevelDB) hot).getDb().iterator(start);
+    }
+    return reverse ? ((RocksDB) hot).getDb().reverseIterator()
+        : ((RocksDB) hot).getDb().iterator(start);
+  }
+
+  /**
+   * Link the segments into {@code target}, they are immutable. Called after the LSM is backed
+   * up, a row moved in between is then found in both rather than in none.
+   */
+  public void backupSegments(Path target) throws IOException {
+    Files.createDirectories(target);
+    for (BlockSegment segment : segments) {
+      Path file = target.resolve(segment.getPath().getFileName());
+      try {
+        Files.createLink(file, segment.getPath());
+      } catch (IOException | UnsupportedOperationException e) {
+        Files.copy(segment.getPath(), file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+  }
+
+  @Override
+  public Iterator<Map.Entry<byte[], byte[]>> iterator() {
+    return iterator(null, false);
+  }
+
+  /**
+   * @return the rows of both tiers in key order, from the first key not less than {@code start}
+   *     or from the last key backwards.
+   */
+  public DBIterator iterator(byte[] start, boolean reverse) {
+    // the LSM is read first, rows moved meanwhile are then found in the segments
+    DBIterator lsm = hotIterator(start, reverse);
+    List<BlockSegment> archive = segments;
+    long archived = archived(archive);
+    Iterator<Map.Entry<byte[], byte[]>> recent = Iterators.filter(lsm, e -> {
+      long number = number(e.getKey());
+      return number < 0 || number > archived;
+    });
+
+    List<DBIterator> sources = new ArrayList<>();
+    if (reverse) {
+      for (int i = archive.size() - 1; i >= 0; i--) {
+        sources.add(archive.get(i).reverseIterator());
+      }
+    } else {
+      long from = start == null ? Long.MIN_VALUE : number(start);
+      for (BlockSegment segment : archive) {
+        if (segment.getLast() >= from) {
+          sources.add(segment.iterator(start));
+        }
+      }
+    }
+    Iterator<Map.Entry<byte[], byte[]>> old = Iterators.concat(sources.iterator());
+    Iterator<Map.Entry<byte[], byte[]>> rows = reverse ? Iterators.concat(recent, old)
+        : Iterators.concat(old, recent);
+    return new DBIterator() {
+      @Override
+      public boolean hasNext() {
+        return rows.hasNext();
+      }
+
+      @Override
+      public Map.Entry<byte[], byte[]> next() {
+        return rows.next();
+      }
+
+      @Override
+      public void close() throws IOException {
+        lsm.close();
+      }
+    };
+  }
+
+  /**
+   * Pin the LSM, the segments are immutable. Later flushes are not visible through the returned
+   * snapshot.
+   */
+  public DbSnapshot pin() {
+    DbSnapshot lsm = hot.getClass() == LevelDB.class ? ((LevelDB) hot).getDb().getSnapshot()
+        : ((RocksDB) hot).getDb().getSnapshot();
+    List<BlockSegment> archive = segments;
+    return new DbSnapshot() {
+      @Override
+      public byte[] get(byte[] key) {
+        byte[] value = lsm.get(key);
+        return value != null ? value : archivedGet(archive, key);
+      }
+
+      @Override
+      public void close() {
+        lsm.close();
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    mover.shutdown();
+    try {
+      if (!mover.awaitTermination(1, TimeUnit.MINUTES)) {
+        logger.warn("{}: move to segments still running", getDbName());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    hot.close();
+  }
+
+  @Override
+  public void reset() {
+    ((Flusher) hot).reset();
+    segments = Collections.emptyList();
+    FileUtil.deleteDir(directory.toFile());
+    segments = open(directory);
+  }
+
+  @Override
+  public TieredDB newInstance() {
+    return new TieredDB(hot.newInstance(), directory, hotBlocks, segmentBlocks);
+  }
+}
@@ -1,21 +1,30 @@
 package org.tron.core.db2.common;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
 import java.nio.file.Paths;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.extern.slf4j.Slf4j;
 import org.iq80.leveldb.WriteOptions;
 import org.tron.common.parameter.CommonParameter;
 import org.tron.common.storage.leveldb.LevelDbDataSourceImpl;
+import org.tron.common.storage.rocksdb.RocksDbColumnFamilies;
 import org.tron.common.storage.rocksdb.RocksDbDataSourceImpl;
 import org.tron.common.utils.StorageUtils;
 import org.tron.core.db.common.iterator.DBIterator;
@@ -25,17 +34,40 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
 
   // > 65_536(= 2^16) blocks, that is the number of the reference block
   private final int BLOCK_COUNT = 70_000;
+  // bytes per transaction id in a block bucket, the key length and the key
+  private static final int BUCKET_ENTRY_SIZE = 1 + TxDedupTable.MAX_KEY_SIZE;
+  private static final int INITIAL_BUCKET_ENTRIES = 16;
+  // key ranges per warm-up thread, by the first byte of the transaction id
+  private static final int PARTITIONS_PER_THREAD = 4;
+  // entries read from the persistent store before they are recorded under the lock
+  private static final int LOAD_CHUNK_SIZE = 1024;
 
-  private Map<Key, Long> db = new WeakHashMap<>();
-  private Multimap<Long, Key> blockNumMap = ArrayListMultimap.create();
+  // transaction id to block number, off-heap
+  private TxDedupTable db = new TxDedupTable();
+  // ring of block buckets indexed by block number % BLOCK_COUNT, a bucket holds the transaction
+  // ids of its block packed into one array and is expired when a newer block takes its place
+  private long[] bucketBlocks = new long[BLOCK_COUNT];
+  private byte[][] bucketKeys = new byte[BLOCK_COUNT][];
+  private int[] bucketSizes = new int[BLOCK_COUNT];
   private String name;
 
   // add a persistent storage, the store name is: trans-cache
   // when fullnode startup, transactionCache initializes transactions from this store
   private DB<byte[], byte[]> persistentStore;
 
+  // 0 loads the persistent store in the constructor
+  private final int warmUpThreads;
+  // the persistent store is loaded into the table
+  private CompletableFuture<Void> loaded;
+  // loaded and the recent blocks replayed, see warmUp
+  private volatile CompletableFuture<Void> ready;
+  // the replay of the warm-up, run again on the calling thread if the warm-up fails
+  private Runnable replay;
+  private final long startTime = System.currentTimeMillis();
+
   public TxCacheDB(String name) {
     this.name = name;
+    this.warmUpThreads = CommonParameter.getInstance().getStorage().getTxCacheWarmUpThreads();
 
     int dbVersion = CommonParameter.getInstance().getStorage().getDbVersion();
     String dbEngine = CommonParameter.getInstance().getStorage().getDbEngine();
@@ -51,10 +83,18 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
                 .get(StorageUtils.getOutputDirectoryByDbName(name), CommonParameter
                         .getInstance().getStorage().getDbDirectory()).toString();
 
-        this.persistentStore = new RocksDB(
-                        new RocksDbDataSourceImpl(parentPath,
-                                name, CommonParameter.getInstance()
-                                .getRocksDBCustomSettings()));
+        if (CommonParameter.getInstance().getStorage().isDbColumnFamilies()) {
+          this.persistentStore = new RocksDB(
+                  new RocksDbDataSourceImpl(RocksDbColumnFamilies.open(
+                          StorageUtils.getColumnFamiliesParentPath(),
+                          CommonParameter.getInstance().getRocksDBCustomSettings()),
+                          parentPath, name));
+        } else {
+          this.persistentStore = new RocksDB(
+                          new RocksDbDataSourceImpl(parentPath,
+                                  name, CommonParameter.getInstance()
+                                  .getRocksDBCustomSettings()));
+        }
       } else {
         throw new RuntimeException("db type is not supported.");
       }
@@ -62,32 +102,203 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
       throw new RuntimeException("db version is not supported.");
     }
     // init cache from persistent store
-    init();
+    Arrays.fill(bucketBlocks, TxDedupTable.ABSENT);
+    if (warmUpThreads > 0) {
+      loaded = CompletableFuture.runAsync(() -> init(warmUpThreads),
+          r -> new Thread(r, name + "-warm-up").start());
+    } else {
+      init(1);
+      loaded = CompletableFuture.completedFuture(null);
+    }
+    ready = loaded;
+  }
+
+  /**
+   * this method only used for init, load trans-cache into the table. The store is split into
+   * ranges of the first key byte that are scanned in parallel, the entries are recorded under
+   * the lock in chunks.
+   */
+  private void init(int threads) {
+    long start = System.currentTimeMillis();
+    int partitions = threads == 1 ? 1 : Math.min(256, threads * PARTITIONS_PER_THREAD);
+    Map<WrappedByteArray, WrappedByteArray> expired = new HashMap<>();
+    AtomicLong scanned = new AtomicLong();
+    if (partitions == 1) {
+      scanned.addAndGet(load(0, 256, expired));
+    } else {
+      ExecutorService service = Executors.newFixedThreadPool(threads,
+          new ThreadFactoryBuilder().setNameFormat(name + "-warm-up-%d").build());
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+          int from = i * 256 / partitions;
+          int to = (i + 1) * 256 / partitions;
+          futures.add(service.submit(() -> scanned.addAndGet(load(from, to, expired))));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("load " + name + " interrupted", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("load " + name + " failed", e.getCause());
+      } finally {
+        service.shutdownNow();
+      }
+    }
+    long scanTime = System.currentTimeMillis() - start;
+    if (!expired.isEmpty()) {
+      ((Flusher) persistentStore).flush(expired);
+    }
+    logger.info("load {} transactions from {}, scanned {}, expired {}, partitions {}, "
+            + "scan cost {} ms, expire cost {} ms", db.size(), name, scanned.get(),
+        expired.size(), partitions, scanTime, System.currentTimeMillis() - start - scanTime);
+  }
+
+  /**
+   * Load the keys whose first byte is in [from, to).
+   *
+   * @return the number of entries read.
+   */
+  private long load(int from, int to, Map<WrappedByteArray, WrappedByteArray> expired) {
+    long count = 0;
+    List<Entry<byte[], byte[]>> chunk = new ArrayList<>(LOAD_CHUNK_SIZE);
+    DBIterator iterator = iterator(new byte[] {(byte) from});
+    // the iterator closes itself once it is exhausted
+    boolean open = iterator.hasNext();
+    try {
+      while (open) {
+        Entry<byte[], byte[]> entry = iterator.next();
+        byte[] key = entry.getKey();
+        if (key == null || entry.getValue() == null
+            || (key.length > 0 && (key[0] & 0xff) >= to)) {
+          break;
+        }
+        chunk.add(entry);
+        ++count;
+        if (chunk.size() == LOAD_CHUNK_SIZE) {
+          track(chunk, expired);
+          chunk.clear();
+        }
+        open = iterator.hasNext();
+      }
+      track(chunk, expired);
+    } finally {
+      if (open) {
+        try {
+          iterator.close();
+        } catch (IOException e) {
+          logger.warn("close iterator of {} failed", name, e);
+        }
+      }
+    }
+    return count;
+  }
+
+  private DBIterator iterator(byte[] start) {
+    if (persistentStore instanceof LevelDB) {
+      return ((LevelDB) persistentStore).getDb().iterator(start);
+    }
+    return ((RocksDB) persistentStore).getDb().iterator(start);
+  }
+
+  private synchronized void track(List<Entry<byte[], byte[]>> chunk,
+      Map<WrappedByteArray, WrappedByteArray> expired) {
+    for (Entry<byte[], byte[]> entry : chunk) {
+      if (!track(entry.getKey(), Longs.fromByteArray(entry.getValue()), expired)) {
+        expired.put(WrappedByteArray.copyOf(entry.getKey()), WrappedByteArray.of(null));
+      }
+    }
+  }
+
+  /**
+   * Complete the warm-up with {@code replay}, which records the transactions of the recent
+   * blocks with {@link #record}. Without warm-up threads it runs right away, otherwise in the
+   * background once the persistent store is loaded. Must be called before the cache is used.
+   */
+  public void warmUp(Runnable replay) {
+    if (warmUpThreads <= 0) {
+      replay.run();
+      return;
+    }
+
+    this.replay = replay;
+    ready = loaded.thenRunAsync(() -> {
+      long start = System.currentTimeMillis();
+      replay.run();
+      logger.info("warm-up of {} done, load cost {} ms, replay cost {} ms, {} transactions",
+          name, start - startTime, System.currentTimeMillis() - start, db.size());
+    }, r -> new Thread(r, name + "-warm-up").start());
+    ready.whenComplete((v, e) -> {
+      if (e != null) {
+        logger.error("warm-up of {} failed", name, e);
+      }
+    });
+  }
+
+  /**
+   * @return whether the warm-up is done, until then reads and writes wait for it.
+   */
+  public boolean isReady() {
+    return ready.isDone() && !ready.isCompletedExceptionally();
+  }
+
+  private void awaitReady() {
+    CompletableFuture<Void> current = ready;
+    if (!current.isDone()) {
+      logger.info("wait for the warm-up of {}", name);
+    }
+    try {
+      current.join();
+    } catch (CompletionException e) {
+      warmUpInPlace(current);
+    }
   }
 
   /**
-   * this method only used for init, put all data in tran-cache into the two maps.
+   * The background warm-up failed, load the persistent store and replay the recent blocks on
+   * this thread as is done without warm-up threads. A failure here is thrown to the caller and
+   * the next call tries again.
    */
-  private void init() {
-    DBIterator iterator = (DBIterator) persistentStore.iterator();
-    while (iterator.hasNext()) {
-      Entry<byte[], byte[]> entry = iterator.next();
-      byte[] key = entry.getKey();
-      byte[] value = entry.getValue();
-      if (key == null || value == null) {
-        return;
+  private synchronized void warmUpInPlace(CompletableFuture<Void> failed) {
+    if (ready != failed) {
+      // warmed up by another thread in the meantime
+      return;
+    }
+
+    logger.warn("warm-up of {} failed, load it on {}", name, Thread.currentThread().getName());
+    clear();
+    try {
+      init(1);
+      if (replay != null) {
+        replay.run();
       }
-      Key k = Key.copyOf(key);
-      Long v = Longs.fromByteArray(value);
-      blockNumMap.put(v, k);
-      db.put(k, v);
+    } catch (RuntimeException e) {
+      clear();
+      throw new IllegalStateException("load " + name + " failed, the transaction cache is "
+          + "needed to reject duplicated transactions", e);
+    }
+    ready = CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * Record the transactions of block {@code blockNum} while warming up.
+   */
+  public synchronized void record(long blockNum, List<byte[]> keys) {
+    Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
+    byte[] value = Longs.toByteArray(blockNum);
+    keys.forEach(key -> put(key, value, batch));
+    if (!batch.isEmpty()) {
+      ((Flusher) persistentStore).flush(batch);
     }
   }
 
   @Override
   public byte[] get(byte[] key) {
-    Long v = db.get(Key.of(key));
-    return v == null ? null : Longs.toByteArray(v);
+    awaitReady();
+    long v = db.get(key);
+    return v == TxDedupTable.ABSENT ? null : Longs.toByteArray(v);
   }
 
   @Override
@@ -96,31 +307,80 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
       return;
     }
 
-    Key k = Key.copyOf(key);
-    Long v = Longs.fromByteArray(value);
-    blockNumMap.put(v, k);
-    db.put(k, v);
-    // put the data into persistent storage
-    persistentStore.put(key, value);
-    removeEldest();
+    awaitReady();
+    synchronized (this) {
+      Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
+      put(key, value, batch);
+      // put the data into persistent storage
+      ((Flusher) persistentStore).flush(batch);
+    }
   }
 
-  private void removeEldest() {
-    Set<Long> keys = blockNumMap.keySet();
-    if (keys.size() > BLOCK_COUNT) {
-      keys.stream()
-          .min(Long::compareTo)
-          .ifPresent(k -> {
-            Collection<Key> trxHashs = blockNumMap.get(k);
-            // remove transaction from persistentStore,
-            // if foreach is inefficient, change remove-foreach to remove-batch
-            trxHashs.forEach(key -> persistentStore.remove(key.getBytes()));
-            blockNumMap.removeAll(k);
-            logger.debug("******removeEldest block number:{}, block count:{}", k, keys.size());
-          });
+  /**
+   * Add the transaction to the table, the rows to write to the persistent store are added to
+   * {@code batch}, together with the transactions of the blocks it expires.
+   */
+  private void put(byte[] key, byte[] value, Map<WrappedByteArray, WrappedByteArray> batch) {
+    if (track(key, Longs.fromByteArray(value), batch)) {
+      batch.put(WrappedByteArray.copyOf(key), WrappedByteArray.copyOf(value));
     }
   }
 
+  /**
+   * Record the transaction in the table and in the bucket of its block. A block older than the
+   * ring is already expired and is not recorded.
+   *
+   * @return whether the transaction was recorded.
+   */
+  private boolean track(byte[] key, long blockNum, Map<WrappedByteArray, WrappedByteArray> batch) {
+    int bucket = (int) Math.floorMod(blockNum, (long) BLOCK_COUNT);
+    if (bucketBlocks[bucket] != blockNum) {
+      if (bucketBlocks[bucket] > blockNum) {
+        return false;
+      }
+      expire(bucket, batch);
+      bucketBlocks[bucket] = blockNum;
+    }
+
+    if (db.put(key, blockNum) == blockNum) {
+      return true;
+    }
+    byte[] keys = bucketKeys[bucket];
+    int offset = bucketSizes[bucket] * BUCKET_ENTRY_SIZE;
+    if (keys == null || offset + BUCKET_ENTRY_SIZE > keys.length) {
+      keys = Arrays.copyOf(keys == null ? new byte[0] : keys,
+          Math.max(INITIAL_BUCKET_ENTRIES * BUCKET_ENTRY_SIZE,
+              keys == null ? 0 : keys.length * 2));
+      bucketKeys[bucket] = keys;
+    }
+    keys[offset] = (byte) key.length;
+    System.arraycopy(key, 0, keys, offset + 1, key.length);
+    ++bucketSizes[bucket];
+    return true;
+  }
+
+  /**
+   * Drop the transactions of the block in {@code bucket} from the table and the persistent
+   * store, unless a newer block recorded them again.
+   */
+  private void expire(int bucket, Map<WrappedByteArray, WrappedByteArray> batch) {
+    long blockNum = bucketBlocks[bucket];
+    byte[] keys = bucketKeys[bucket];
+    for (int i = 0; i < bucketSizes[bucket]; i++) {
+      int offset = i * BUCKET_ENTRY_SIZE;
+      byte[] key = Arrays.copyOfRange(keys, offset + 1, offset + 1 + keys[offset]);
+      if (db.remove(key, blockNum)) {
+        batch.put(WrappedByteArray.of(key), WrappedByteArray.of(null));
+      }
+    }
+    if (bucketSizes[bucket] > 0) {
+      logger.debug("******expire block number:{}, transactions:{}", blockNum,
+          bucketSizes[bucket]);
+    }
+    bucketSizes[bucket] = 0;
+    bucketBlocks[bucket] = TxDedupTable.ABSENT;
+  }
+
   @Override
   public long size() {
     return db.size();
@@ -128,13 +388,16 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
 
   @Override
   public boolean isEmpty() {
-    return db.isEmpty();
+    return db.size() == 0;
   }
 
   @Override
   public void remove(byte[] key) {
     if (key != null) {
-      db.remove(Key.of(key));
+      awaitReady();
+      synchronized (this) {
+        db.remove(key);
+      }
     }
   }
 
@@ -145,27 +408,54 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
 
   @Override
   public Iterator<Entry<byte[], byte[]>> iterator() {
-    return Iterators.transform(db.entrySet().iterator(),
-        e -> Maps.immutableEntry(e.getKey().getBytes(), Longs.toByteArray(e.getValue())));
+    return Iterators.transform(db.iterator(),
+        e -> Maps.immutableEntry(e.getKey(), Longs.toByteArray(e.getValue())));
   }
 
+  /**
+   * Records the whole batch and writes it, with the transactions it expires, to the persistent
+   * store in one write.
+   */
   @Override
   public void flush(Map<WrappedByteArray, WrappedByteArray> batch) {
-    batch.forEach((k, v) -> this.put(k.getBytes(), v.getBytes()));
+    awaitReady();
+    flushRows(batch);
+  }
+
+  private synchronized void flushRows(Map<WrappedByteArray, WrappedByteArray> batch) {
+    Map<WrappedByteArray, WrappedByteArray> rows = new HashMap<>();
+    batch.forEach((k, v) -> {
+      if (k.getBytes() != null && v.getBytes() != null) {
+        put(k.getBytes(), v.getBytes(), rows);
+      }
+    });
+    if (!rows.isEmpty()) {
+      ((Flusher) persistentStore).flush(rows);
+    }
   }
 
   @Override
   public void close() {
-    reset();
-    db = null;
-    blockNumMap = null;
+    try {
+      ready.join();
+    } catch (CompletionException e) {
+      // the warm-up failed, logged already
+    }
+    clear();
     persistentStore.close();
   }
 
   @Override
   public void reset() {
+    awaitReady();
+    clear();
+  }
+
+  private synchronized void clear() {
     db.clear();
-    blockNumMap.clear();
+    Arrays.fill(bucketBlocks, TxDedupTable.ABSENT);
+    Arrays.fill(bucketKeys, null);
+    Arrays.fill(bucketSizes, 0);
   }
 
   @Override
@@ -0,0 +1,328 @@
+package org.tron.core.db2.common;
+
+import com.google.common.collect.Maps;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An open addressing hash table from transaction ids to block numbers kept off-heap. Every
+ * entry is one fixed-width slot of a direct buffer, so the table costs 45 bytes per slot and no
+ * objects per transaction. The table is split into segments that grow independently, which keeps
+ * every buffer well below the 2 GB limit and a resize short.
+ *
+ * Slot layout: block number (8 bytes), hash (4 bytes), key length (1 byte, 0 marks a free slot),
+ * key (up to 32 bytes). Removals shift the following slots back, there are no tombstones.
+ */
+public class TxDedupTable {
+
+  public static final int MAX_KEY_SIZE = 32;
+  public static final long ABSENT = -1;
+
+  private static final int SLOT_SIZE = 8 + 4 + 1 + MAX_KEY_SIZE;
+  private static final int HASH_OFFSET = 8;
+  private static final int LENGTH_OFFSET = 12;
+  private static final int KEY_OFFSET = 13;
+  private static final int SEGMENT_BITS = 6;
+  private static final int INITIAL_SEGMENT_SLOTS = 1024;
+
+  private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  public TxDedupTable() {
+    clear();
+  }
+
+  private static int hash(byte[] key) {
+    int h = 1;
+    for (byte b : key) {
+      h = 31 * h + b;
+    }
+    return h ^ (h >>> 16);
+  }
+
+  private Segment segment(int h) {
+    return segments[h >>> (32 - SEGMENT_BITS)];
+  }
+
+  private static void checkKey(byte[] key) {
+    if (key.length == 0 || key.length > MAX_KEY_SIZE) {
+      throw new IllegalArgumentException("key size must be in [1, " + MAX_KEY_SIZE + "]");
+    }
+  }
+
+  /**
+   * @return the block number of {@code key}, or {@link #ABSENT}.
+   */
+  public long get(byte[] key) {
+    if (key.length == 0 || key.length > MAX_KEY_SIZE) {
+      return ABSENT;
+    }
+
+    int h = hash(key);
+    lock.readLock().lock();
+    try {
+      return segment(h).get(key, h);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the previous block number of {@code key}, or {@link #ABSENT}.
+   */
+  public long put(byte[] key, long blockNum) {
+    checkKey(key);
+    int h = hash(key);
+    lock.writeLock().lock();
+    try {
+      return segment(h).put(key, h, blockNum);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove {@code key} if it still maps to {@code blockNum}.
+   *
+   * @return whether the key was removed.
+   */
+  public boolean remove(byte[] key, long blockNum) {
+    if (key.length == 0 || key.length > MAX_KEY_SIZE) {
+      return false;
+    }
+
+    int h = hash(key);
+    lock.writeLock().lock();
+    try {
+      return segment(h).remove(key, h, blockNum);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean remove(byte[] key) {
+    return remove(key, ABSENT);
+  }
+
+  public long size() {
+    lock.readLock().lock();
+    try {
+      long size = 0;
+      for (Segment segment : segments) {
+        size += segment.size;
+      }
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      for (int i = 0; i < segments.length; i++) {
+        segments[i] = new Segment(INITIAL_SEGMENT_SLOTS);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Weakly consistent, entries written while iterating may or may not be seen.
+   */
+  public Iterator<Map.Entry<byte[], Long>> iterator() {
+    return new Iterator<Map.Entry<byte[], Long>>() {
+
+      private int segment = 0;
+      private int slot = -1;
+      private Map.Entry<byte[], Long> next = advance();
+
+      private Map.Entry<byte[], Long> advance() {
+        lock.readLock().lock();
+        try {
+          while (segment < segments.length) {
+            Segment s = segments[segment];
+            while (++slot < s.capacity) {
+              if (!s.isFree(slot)) {
+                return Maps.immutableEntry(s.key(slot), s.blockNum(slot));
+              }
+            }
+            ++segment;
+            slot = -1;
+          }
+          return null;
+        } finally {
+          lock.readLock().unlock();
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Map.Entry<byte[], Long> next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        Map.Entry<byte[], Long> entry = next;
+        next = advance();
+        return entry;
+      }
+    };
+  }
+
+  private static class Segment {
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int mask;
+    private int size;
+
+    Segment(int capacity) {
+      this.capacity = capacity;
+      mask = capacity - 1;
+      slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+    }
+
+    long get(byte[] key, int h) {
+      int slot = find(key, h);
+      return slot < 0 ? ABSENT : blockNum(slot);
+    }
+
+    long put(byte[] key, int h, long blockNum) {
+      int slot = find(key, h);
+      if (slot >= 0) {
+        long old = blockNum(slot);
+        slots.putLong(slot * SLOT_SIZE, blockNum);
+        return old;
+      }
+
+      write(-(slot + 1), key, h, blockNum);
+      if (++size * 4 > capacity * 3) {
+        resize(capacity * 2);
+      }
+      return ABSENT;
+    }
+
+    boolean remove(byte[] key, int h, long blockNum) {
+      int slot = find(key, h);
+      if (slot < 0 || (blockNum != ABSENT && blockNum(slot) != blockNum)) {
+        return false;
+      }
+
+      // shift back the following slots whose home is not in (slot, next]
+      int free = slot;
+      int next = slot;
+      while (true) {
+        next = (next + 1) & mask;
+        if (isFree(next)) {
+          break;
+        }
+        int home = hash(next) & mask;
+        boolean between = free <= next ? free < home && home <= next
+            : free < home || home <= next;
+        if (!between) {
+          copy(next, free);
+          free = next;
+        }
+      }
+      slots.put(free * SLOT_SIZE + LENGTH_OFFSET, (byte) 0);
+      --size;
+      return true;
+    }
+
+    /**
+     * @return the slot of the key, or -(free slot + 1) if the key is absent.
+     */
+    private int find(byte[] key, int h) {
+      int slot = h & mask;
+      while (true) {
+        if (isFree(slot)) {
+          return -(slot + 1);
+        }
+        if (hash(slot) == h && keyEquals(slot, key)) {
+          return slot;
+        }
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    private boolean keyEquals(int slot, byte[] key) {
+      int offset = slot * SLOT_SIZE;
+      if (slots.get(offset + LENGTH_OFFSET) != key.length) {
+        return false;
+      }
+      for (int i = 0; i < key.length; i++) {
+        if (slots.get(offset + KEY_OFFSET + i) != key[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean isFree(int slot) {
+      return slots.get(slot * SLOT_SIZE + LENGTH_OFFSET) == 0;
+    }
+
+    private long blockNum(int slot) {
+      return slots.getLong(slot * SLOT_SIZE);
+    }
+
+    private int hash(int slot) {
+      return slots.getInt(slot * SLOT_SIZE + HASH_OFFSET);
+    }
+
+    private byte[] key(int slot) {
+      int offset = slot * SLOT_SIZE;
+      byte[] key = new byte[slots.get(offset + LENGTH_OFFSET)];
+      for (int i = 0; i < key.length; i++) {
+        key[i] = slots.get(offset + KEY_OFFSET + i);
+      }
+      return key;
+    }
+
+    private void write(int slot, byte[] key, int h, long blockNum) {
+      int offset = slot * SLOT_SIZE;
+      slots.putLong(offset, blockNum);
+      slots.putInt(offset + HASH_OFFSET, h);
+      slots.put(offset + LENGTH_OFFSET, (byte) key.length);
+      for (int i = 0; i < key.length; i++) {
+        slots.put(offset + KEY_OFFSET + i, key[i]);
+      }
+    }
+
+    private void copy(int from, int to) {
+      for (int i = 0; i < SLOT_SIZE; i++) {
+        slots.put(to * SLOT_SIZE + i, slots.get(from * SLOT_SIZE + i));
+      }
+    }
+
+    private void resize(int newCapacity) {
+      ByteBuffer old = slots;
+      int oldCapacity = capacity;
+      capacity = newCapacity;
+      mask = newCapacity - 1;
+      slots = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+      for (int slot = 0; slot < oldCapacity; slot++) {
+        int offset = slot * SLOT_SIZE;
+        if (old.get(offset + LENGTH_OFFSET) == 0) {
+          continue;
+        }
+        int to = old.getInt(offset + HASH_OFFSET) & mask;
+        while (!isFree(to)) {
+          to = (to + 1) & mask;
+        }
+        for (int i = 0; i < SLOT_SIZE; i++) {
+          slots.put(to * SLOT_SIZE + i, old.get(offset + i));
+        }
+      }
+    }
+  }
+}
@@ -44,6 +44,16 @@ public final class Value {
     return r;
   }
 
+  // the backing bytes without a copy, callers must not modify them
+  public byte[] getRawBytes() {
+    return data.getBytes();
+  }
+
+  public int getSize() {
+    byte[] value = data.getBytes();
+    return value == null ? 0 : value.length;
+  }
+
   public byte[] getBytes() {
     byte[] value = data.getBytes();
     if (value == null) {
@@ -9,11 +9,12 @@ public abstract class AbstractSnapshot<K, V> implements Snapshot {
 
   @Getter
   protected DB<K, V> db;
+  // volatile, the chain is walked by readers without the chainbase lock
   @Getter
   @Setter
-  protected Snapshot previous;
+  protected volatile Snapshot previous;
 
-  protected WeakReference<Snapshot> next;
+  protected volatile WeakReference<Snapshot> next;
 
   @Override
   public Snapshot advance() {
@@ -0,0 +1,198 @@
+package org.tron.core.db2.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.tron.common.parameter.CommonParameter;
+
+/**
+ * Records the keys the stores read and write on one thread, see node.recordAccessSet. Between
+ * {@link #start} and {@link #stop} the chainbases report every point read, put and delete of
+ * the thread, including the reads served by the capsule cache and the mirror of the dynamic
+ * properties; iterators and range queries are not recorded.
+ *
+ * A recorder is pooled per thread and its sets are open addressing tables of primitive
+ * fingerprints, so recording allocates little more than the copies of the keys seen for the
+ * first time. While no recorder is started the chainbases pay one volatile read per access.
+ */
+public final class AccessRecorder {
+
+  private static final int INITIAL_CAPACITY = 64;
+  // larger tables are dropped rather than cleared for the next transaction
+  private static final int MAX_POOLED_CAPACITY = 16 * 1024;
+
+  private static final ThreadLocal<AccessRecorder> POOL =
+      ThreadLocal.withInitial(AccessRecorder::new);
+  private static final ThreadLocal<AccessRecorder> CURRENT = new ThreadLocal<>();
+  // the recorders started on any thread
+  private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+  private final LongSet readSet = new LongSet();
+  private final LongSet writeSet = new LongSet();
+  private final Accesses reads = new Accesses();
+  private final Accesses writes = new Accesses();
+
+  private AccessRecorder() {
+  }
+
+  /**
+   * Start recording the accesses of this thread.
+   *
+   * @return the recorder to stop, null if node.recordAccessSet is off or a recorder is already
+   *     started on this thread, which then records the accesses.
+   */
+  public static AccessRecorder start() {
+    if (!CommonParameter.getInstance().isRecordAccessSet()) {
+      return null;
+    }
+    return open();
+  }
+
+  /**
+   * Start recording the accesses of this thread whether node.recordAccessSet is on or not.
+   *
+   * @return the recorder to stop, null if a recorder is already started on this thread.
+   */
+  public static AccessRecorder open() {
+    if (CURRENT.get() != null) {
+      return null;
+    }
+    AccessRecorder recorder = POOL.get();
+    CURRENT.set(recorder);
+    ACTIVE.incrementAndGet();
+    return recorder;
+  }
+
+  /**
+   * @return the recorder of this thread, null if none is started.
+   */
+  static AccessRecorder current() {
+    return ACTIVE.get() == 0 ? null : CURRENT.get();
+  }
+
+  /**
+   * Stop recording and return the recorder to the pool.
+   *
+   * @return the keys read and written since {@link #start}.
+   */
+  public AccessSet stop() {
+    if (CURRENT.get() != this) {
+      throw new IllegalStateException("access recorder not started on this thread");
+    }
+    CURRENT.remove();
+    ACTIVE.decrementAndGet();
+
+    int count = reads.size + writes.size;
+    String[] stores = new String[count];
+    byte[][] keys = new byte[count][];
+    System.arraycopy(reads.stores, 0, stores, 0, reads.size);
+    System.arraycopy(reads.keys, 0, keys, 0, reads.size);
+    System.arraycopy(writes.stores, 0, stores, reads.size, writes.size);
+    System.arraycopy(writes.keys, 0, keys, reads.size, writes.size);
+    AccessSet accessSet = new AccessSet(readSet.sorted(), writeSet.sorted(), stores, keys);
+    clear();
+    return accessSet;
+  }
+
+  void read(String store, byte[] key) {
+    if (key != null && readSet.add(AccessSet.fingerprint(store, key))) {
+      reads.add(store, key.clone());
+    }
+  }
+
+  void write(String store, byte[] key) {
+    if (key != null && writeSet.add(AccessSet.fingerprint(store, key))) {
+      writes.add(store, key.clone());
+    }
+  }
+
+  private void clear() {
+    readSet.clear();
+    writeSet.clear();
+    reads.clear();
+    writes.clear();
+  }
+
+  private static class LongSet {
+
+    // 0 marks a free slot, fingerprints are never 0
+    private long[] table = new long[INITIAL_CAPACITY];
+    private int size;
+
+    boolean add(long value) {
+      if ((size + 1) * 2 > table.length) {
+        grow();
+      }
+      int mask = table.length - 1;
+      int i = (int) (value ^ (value >>> 32)) & mask;
+      while (table[i] != 0) {
+        if (table[i] == value) {
+          return false;
+        }
+        i = (i + 1) & mask;
+      }
+      table[i] = value;
+      size++;
+      return true;
+    }
+
+    private void grow() {
+      long[] old = table;
+      table = new long[old.length * 2];
+      size = 0;
+      for (long value : old) {
+        if (value != 0) {
+          add(value);
+        }
+      }
+    }
+
+    long[] sorted() {
+      long[] values = new long[size];
+      int n = 0;
+      for (long value : table) {
+        if (value != 0) {
+          values[n++] = value;
+        }
+      }
+      Arrays.sort(values);
+      return values;
+    }
+
+    void clear() {
+      if (table.length > MAX_POOLED_CAPACITY) {
+        table = new long[INITIAL_CAPACITY];
+      } else if (size > 0) {
+        Arrays.fill(table, 0);
+      }
+      size = 0;
+    }
+  }
+
+  private static class Accesses {
+
+    private String[] stores = new String[INITIAL_CAPACITY];
+    private byte[][] keys = new byte[INITIAL_CAPACITY][];
+    private int size;
+
+    void add(String store, byte[] key) {
+      if (size == stores.length) {
+        stores = Arrays.copyOf(stores, size * 2);
+        keys = Arrays.copyOf(keys, size * 2);
+      }
+      stores[size] = store;
+      keys[size] = key;
+      size++;
+    }
+
+    void clear() {
+      if (stores.length > MAX_POOLED_CAPACITY) {
+        stores = new String[INITIAL_CAPACITY];
+        keys = new byte[INITIAL_CAPACITY][];
+      } else {
+        Arrays.fill(stores, 0, size, null);
+        Arrays.fill(keys, 0, size, null);
+      }
+      size = 0;
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package org.tron.core.db2.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The keys one transaction read and wrote, per store, see {@link AccessRecorder}. A key read and
+ * then written is in both sets.
+ *
+ * Each access is also kept as a 64 bit fingerprint of the store and the key, sorted, so two sets
+ * are compared by merging two primitive arrays. Fingerprints of different keys may collide,
+ * {@link #conflictsWith} then reports a conflict that is not there, never the other way round.
+ */
+public class AccessSet {
+
+  // sorted, without duplicates
+  private final long[] reads;
+  private final long[] writes;
+  // in the order of the first access, the reads first
+  private final String[] stores;
+  private final byte[][] keys;
+
+  AccessSet(long[] reads, long[] writes, String[] stores, byte[][] keys) {
+    this.reads = reads;
+    this.writes = writes;
+    this.stores = stores;
+    this.keys = keys;
+  }
+
+  static long fingerprint(String store, byte[] key) {
+    // FNV-1a over the key, seeded by the store, then the murmur3 finalizer
+    long h = 0xcbf29ce484222325L ^ store.hashCode();
+    for (byte b : key) {
+      h = (h ^ (b & 0xff)) * 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    // 0 marks a free slot of the recorder
+    return h == 0 ? 1 : h;
+  }
+
+  public int getReadCount() {
+    return reads.length;
+  }
+
+  public int getWriteCount() {
+    return writes.length;
+  }
+
+  public boolean isRead(String store, byte[] key) {
+    return Arrays.binarySearch(reads, fingerprint(store, key)) >= 0;
+  }
+
+  public boolean isWritten(String store, byte[] key) {
+    return Arrays.binarySearch(writes, fingerprint(store, key)) >= 0;
+  }
+
+  /**
+   * @return the stores accessed, in the order they were first accessed.
+   */
+  public Set<String> getStores() {
+    return new LinkedHashSet<>(Arrays.asList(stores));
+  }
+
+  /**
+   * @return the keys of {@code store} read, in the order they were first read.
+   */
+  public List<byte[]> getReadKeys(String store) {
+    return keys(store, 0, reads.length);
+  }
+
+  /**
+   * @return the keys of {@code store} written, in the order they were first written.
+   */
+  public List<byte[]> getWriteKeys(String store) {
+    return keys(store, reads.length, stores.length);
+  }
+
+  private List<byte[]> keys(String store, int from, int to) {
+    List<byte[]> result = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      if (stores[i].equals(store)) {
+        result.add(keys[i]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return true if either transaction wrote a key the other one read or wrote, as then their
+   *     order matters.
+   */
+  public boolean conflictsWith(AccessSet other) {
+    return intersects(writes, other.writes) || intersects(writes, other.reads)
+        || intersects(reads, other.writes);
+  }
+
+  /**
+   * @return true if this transaction read a key whose fingerprint {@code writers} maps to a
+   *     writer other than {@code writer}.
+   */
+  public boolean readsWrittenByOthers(Map<Long, Integer> writers, int writer) {
+    for (long read : reads) {
+      Integer last = writers.get(read);
+      if (last != null && last != writer) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Map the fingerprints of the keys written to {@code writer} in {@code writers}.
+   */
+  public void collectWrites(Map<Long, Integer> writers, int writer) {
+    for (long write : writes) {
+      writers.put(write, writer);
+    }
+  }
+
+  private static boolean intersects(long[] a, long[] b) {
+    int i = 0;
+    int j = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] == b[j]) {
+        return true;
+      }
+      if (a[i] < b[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,120 @@
+package org.tron.core.db2.core;
+
+import lombok.Getter;
+
+/**
+ * Chooses how many snapshots are flushed at once from what flushes cost and how fast snapshots
+ * arrive. A flush costs a fixed part, the checkpoint and the synced write, plus a part per byte;
+ * both are estimated from the latency and the bytes of the past flushes. The count is chosen so
+ * that the fixed part takes at most MAX_FLUSH_SHARE of the time between snapshots: a node
+ * catching up gets snapshots every few milliseconds and flushes many at once, a node at the head
+ * gets one per block interval and flushes each one.
+ *
+ * A flush is forced whenever the snapshots hold more than maxBytes or replaying the pending ones
+ * after a crash is estimated to take longer than maxReplayMillis.
+ */
+public class AdaptiveFlushController {
+
+  // weight of the latest sample in the estimations
+  private static final double ALPHA = 0.2;
+  // the share of the time between snapshots the fixed cost of flushing may take
+  private static final double MAX_FLUSH_SHARE = 0.1;
+
+  private final long maxBytes;
+  private final long maxReplayMillis;
+
+  @Getter
+  private int flushCount = SnapshotManager.DEFAULT_MIN_FLUSH_COUNT;
+
+  // estimated milliseconds to write one pending byte, replaying costs about the same
+  @Getter
+  private double millisPerByte = 0;
+
+  // estimated milliseconds a flush costs whatever it writes
+  @Getter
+  private double fixedMillis = 0;
+
+  // estimated milliseconds between two snapshots becoming flushable
+  @Getter
+  private double snapshotIntervalMillis = 0;
+  private long lastSnapshotMillis = -1;
+
+  // moving averages of the bytes and the cost of the flushes, for the least squares fit
+  private int flushes = 0;
+  private double meanBytes;
+  private double meanCost;
+  private double meanBytesSquared;
+  private double meanBytesCost;
+
+  public AdaptiveFlushController(long maxBytes, long maxReplayMillis) {
+    this.maxBytes = maxBytes;
+    this.maxReplayMillis = maxReplayMillis;
+  }
+
+  /**
+   * Record that {@code count} snapshots became flushable at {@code nowMillis}.
+   */
+  public synchronized void onSnapshot(int count, long nowMillis) {
+    if (count <= 0) {
+      return;
+    }
+    if (lastSnapshotMillis >= 0) {
+      double interval = (double) Math.max(0, nowMillis - lastSnapshotMillis) / count;
+      snapshotIntervalMillis = snapshotIntervalMillis == 0
+          ? interval : ALPHA * interval + (1 - ALPHA) * snapshotIntervalMillis;
+    }
+    lastSnapshotMillis = nowMillis;
+  }
+
+  /**
+   * @return the number of snapshots to flush at once.
+   */
+  public synchronized int next() {
+    int target = SnapshotManager.DEFAULT_MIN_FLUSH_COUNT;
+    if (fixedMillis > 0) {
+      double budget = snapshotIntervalMillis * MAX_FLUSH_SHARE;
+      target = budget <= 0 ? SnapshotManager.DEFAULT_MAX_FLUSH_COUNT
+          : (int) Math.min(SnapshotManager.DEFAULT_MAX_FLUSH_COUNT,
+              Math.ceil(fixedMillis / budget));
+    }
+    flushCount = Math.max(SnapshotManager.DEFAULT_MIN_FLUSH_COUNT, target);
+    return flushCount;
+  }
+
+  /**
+   * Whether the pending snapshots must be flushed now regardless of the flush count.
+   */
+  public synchronized boolean mustFlush(long pendingBytes, long heldBytes) {
+    if (maxBytes > 0 && heldBytes >= maxBytes) {
+      return true;
+    }
+
+    return maxReplayMillis > 0 && pendingBytes * millisPerByte >= maxReplayMillis;
+  }
+
+  /**
+   * Record a flush of {@code bytes} that took {@code costMillis}, and fit the cost as a fixed
+   * part plus a part per byte.
+   */
+  public synchronized void onFlush(long bytes, long costMillis) {
+    if (bytes <= 0) {
+      return;
+    }
+
+    double alpha = flushes == 0 ? 1 : ALPHA;
+    flushes++;
+    meanBytes = alpha * bytes + (1 - alpha) * meanBytes;
+    meanCost = alpha * costMillis + (1 - alpha) * meanCost;
+    meanBytesSquared = alpha * bytes * bytes + (1 - alpha) * meanBytesSquared;
+    meanBytesCost = alpha * bytes * costMillis + (1 - alpha) * meanBytesCost;
+
+    double variance = meanBytesSquared - meanBytes * meanBytes;
+    if (variance > 0) {
+      millisPerByte = Math.max(0, (meanBytesCost - meanBytes * meanCost) / variance);
+      fixedMillis = Math.max(0, meanCost - millisPerByte * meanBytes);
+    } else {
+      // flushes of one size so far, the cost can not be split yet
+      millisPerByte = meanCost / meanBytes;
+    }
+  }
+}
@@ -1,24 +1,21 @@
 package org.tron.core.db2.core;
 
-import com.google.common.collect.Maps;
-import com.google.common.collect.Streams;
+import com.google.common.primitives.UnsignedBytes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import org.tron.common.utils.ByteUtil;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import org.tron.core.capsule.utils.MarketUtils;
 import org.tron.core.db2.common.IRevokingDB;
-import org.tron.core.db2.common.LevelDB;
-import org.tron.core.db2.common.RocksDB;
+import org.tron.core.db2.common.Key;
 import org.tron.core.db2.common.Value;
-import org.tron.core.db2.common.Value.Operator;
-import org.tron.core.db2.common.WrappedByteArray;
 import org.tron.core.exception.ItemNotFoundException;
 
 public class Chainbase implements IRevokingDB {
@@ -30,15 +27,33 @@ public class Chainbase implements IRevokingDB {
     PBFT
   }
 
+  // the orders of the root databases, keys of the market price store and of all others
+  private static final Comparator<byte[]> KEY_ORDER = UnsignedBytes.lexicographicalComparator();
+  private static final Comparator<byte[]> PRICE_KEY_ORDER = MarketUtils::comparePriceKey;
+
   //true:fullnode, false:soliditynode
   private ThreadLocal<Cursor> cursor = new ThreadLocal<>();
   private ThreadLocal<Long> offset = new ThreadLocal<>();
-  private Snapshot head;
+  // published for the readers: get, has and iterator walk the snapshot chain from it without
+  // taking the lock, writers still run under the lock and only ever link in complete snapshots
+  private volatile Snapshot head;
+  // optional, newest snapshot holding each unflushed key, only used at the HEAD cursor
+  private volatile LatestValueIndex latestValueIndex;
+  // SlabHashDB layers can not be read while being written, reads then take the lock
+  private final boolean lockFreeRead;
+  // moves on whenever values seen at the head change in a way not told to the change listener
+  private volatile long revision;
+  // optional, primitive values of the keys read through it, only used at the HEAD cursor
+  private volatile LongMirror mirror;
+  // optional, told the keys whose values at the head changed other than through put and delete,
+  // by a committed speculation or a revoked snapshot, for the caches above the chainbase
+  private volatile Consumer<byte[]> changeListener;
 
   public Chainbase(Snapshot head) {
     this.head = head;
     cursor.set(Cursor.HEAD);
     offset.set(0L);
+    lockFreeRead = !SnapshotImpl.isSlabDb();
   }
 
   public String getDbName() {
@@ -57,23 +72,31 @@ public class Chainbase implements IRevokingDB {
   }
 
   private Snapshot head() {
-    if (cursor.get() == null) {
+    return head(cursor.get(), offset.get());
+  }
+
+  /**
+   * The snapshot seen at {@code cursor}, {@code offset} is the distance of PBFT from the head.
+   */
+  Snapshot head(Cursor cursor, Long offset) {
+    Snapshot head = this.head;
+    if (cursor == null) {
       return head;
     }
 
-    switch (cursor.get()) {
+    switch (cursor) {
       case HEAD:
         return head;
       case SOLIDITY:
         return head.getSolidity();
       case PBFT:
-        if (offset.get() == null) {
+        if (offset == null) {
           return head.getSolidity();
         }
 
-        if (offset.get() >= 0) {
+        if (offset >= 0) {
           Snapshot tmp = head;
-          for (int i = 0; i < offset.get() && tmp != tmp.getRoot(); i++) {
+          for (int i = 0; i < offset && tmp != tmp.getRoot(); i++) {
             tmp = tmp.getPrevious();
           }
           return tmp;
@@ -85,6 +108,43 @@ public class Chainbase implements IRevokingDB {
     }
   }
 
+  /**
+   * The snapshot the reads start from, pinned by the read view of this thread if there is one.
+   */
+  private Snapshot readHead() {
+    ReadView view = ReadView.current();
+    Snapshot snapshot = view == null ? null : view.getHead(this);
+    return snapshot == null ? head() : snapshot;
+  }
+
+  boolean isLockFreeRead() {
+    return lockFreeRead;
+  }
+
+  /**
+   * Moves on when the chainbase is reset, a value read at the head stays valid for the same
+   * revision until its key is put or deleted or told to the change listener.
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * Whether reads of this thread see the head, rather than another cursor or a read view.
+   */
+  public boolean isHeadRead() {
+    // the caches of the head do not see the writes of a speculation
+    if (Speculation.current() != null) {
+      return false;
+    }
+    Cursor current = cursor.get();
+    if (current != null && current != Cursor.HEAD) {
+      return false;
+    }
+    ReadView view = ReadView.current();
+    return view == null || !view.contains(this);
+  }
+
   public synchronized Snapshot getHead() {
     return head();
   }
@@ -93,6 +153,80 @@ public class Chainbase implements IRevokingDB {
     this.head = head;
   }
 
+  public synchronized void enableLatestValueIndex() {
+    if (latestValueIndex == null) {
+      latestValueIndex = new LatestValueIndex();
+      latestValueIndex.rebuild(head);
+    }
+  }
+
+  synchronized void setMirror(LongMirror mirror) {
+    this.mirror = mirror;
+  }
+
+  public void setChangeListener(Consumer<byte[]> changeListener) {
+    this.changeListener = changeListener;
+  }
+
+  public synchronized boolean isLatestValueIndexEnabled() {
+    return latestValueIndex != null;
+  }
+
+  /**
+   * The head snapshot {@code from} was merged into its previous snapshot.
+   */
+  synchronized void onMerge(Snapshot from) {
+    if (latestValueIndex != null && Snapshot.isImpl(from.getPrevious())) {
+      latestValueIndex.merge((SnapshotImpl) from, (SnapshotImpl) from.getPrevious());
+    }
+  }
+
+  /**
+   * The snapshot {@code popped} was dropped, the current head is its previous snapshot.
+   *
+   * @param revoked false if {@code popped} was merged into the current head first.
+   */
+  synchronized void onRetreat(Snapshot popped, boolean revoked) {
+    if (latestValueIndex != null && Snapshot.isImpl(popped)) {
+      latestValueIndex.retreat((SnapshotImpl) popped, head);
+    }
+    if (revoked) {
+      if (Snapshot.isImpl(popped)) {
+        onRevoke((SnapshotImpl) popped);
+      } else {
+        ++revision;
+      }
+    }
+  }
+
+  /**
+   * Only the keys written in {@code revoked} have other values at the head now.
+   */
+  private void onRevoke(SnapshotImpl revoked) {
+    if (mirror != null) {
+      mirror.onRevoke(revoked);
+    }
+    Consumer<byte[]> listener = changeListener;
+    if (listener != null) {
+      for (Map.Entry<Key, Value> e : revoked.db) {
+        listener.accept(e.getKey().getBytes());
+      }
+    }
+  }
+
+  /**
+   * The snapshots {@code flushed} were merged into the root.
+   */
+  synchronized void onFlush(List<Snapshot> flushed) {
+    if (latestValueIndex != null) {
+      if (Snapshot.isRoot(head)) {
+        latestValueIndex.clear();
+      } else {
+        latestValueIndex.flush(flushed);
+      }
+    }
+  }
+
   /**
    * close the database.
    */
@@ -106,20 +240,101 @@ public class Chainbase implements IRevokingDB {
     head().reset();
     head().close();
     head = head.getRoot().newInstance();
+    if (latestValueIndex != null) {
+      latestValueIndex.clear();
+    }
+    if (mirror != null) {
+      mirror.onReset();
+    }
+    ++revision;
   }
 
   @Override
-  public synchronized void put(byte[] key, byte[] value) {
-    head().put(key, value);
+  public void put(byte[] key, byte[] value) {
+    recordWrite(key);
+    Speculation speculation = Speculation.current();
+    if (speculation != null) {
+      speculation.put(this, key, value);
+      return;
+    }
+    putLocked(key, value);
+  }
+
+  private synchronized void putLocked(byte[] key, byte[] value) {
+    Snapshot snapshot = head();
+    snapshot.put(key, value);
+    updateLatestValueIndex(snapshot, key);
+    updateMirror(snapshot, key, value);
   }
 
   @Override
-  public synchronized void delete(byte[] key) {
-    head().remove(key);
+  public void delete(byte[] key) {
+    recordWrite(key);
+    Speculation speculation = Speculation.current();
+    if (speculation != null) {
+      speculation.put(this, key, null);
+      return;
+    }
+    deleteLocked(key);
+  }
+
+  private synchronized void deleteLocked(byte[] key) {
+    Snapshot snapshot = head();
+    snapshot.remove(key);
+    updateLatestValueIndex(snapshot, key);
+    updateMirror(snapshot, key, null);
+  }
+
+  /**
+   * Apply the writes of a committed speculation, null values are deletes. The values of the
+   * keys written that the caches above the chainbase read ahead of them are dropped.
+   */
+  synchronized void commit(Map<Key, byte[]> writes) {
+    Consumer<byte[]> listener = changeListener;
+    writes.forEach((key, value) -> {
+      if (value == null) {
+        deleteLocked(key.getBytes());
+      } else {
+        putLocked(key.getBytes(), value);
+      }
+      if (listener != null) {
+        listener.accept(key.getBytes());
+      }
+    });
+  }
+
+  /**
+   * @return true if the snapshot at the head holds a value of {@code key} other than the one
+   *     below it, false if the head is the root.
+   */
+  synchronized boolean isChangedAtHead(byte[] key) {
+    Snapshot snapshot = head;
+    if (!Snapshot.isImpl(snapshot)) {
+      return false;
+    }
+    Value value = ((SnapshotImpl) snapshot).db.get(Key.of(key));
+    return value != null && !Arrays.equals(value.getBytes(), snapshot.getPrevious().get(key));
+  }
+
+  private void updateLatestValueIndex(Snapshot snapshot, byte[] key) {
+    if (latestValueIndex != null && snapshot == head && Snapshot.isImpl(snapshot)) {
+      latestValueIndex.put(key, (SnapshotImpl) snapshot);
+    }
+  }
+
+  private void updateMirror(Snapshot snapshot, byte[] key, byte[] value) {
+    if (mirror == null) {
+      return;
+    }
+    if (snapshot == head) {
+      mirror.onPut(key, value);
+    } else {
+      mirror.onStale(key);
+    }
   }
 
   @Override
-  public synchronized byte[] get(byte[] key) throws ItemNotFoundException {
+  public byte[] get(byte[] key) throws ItemNotFoundException {
     byte[] value = getUnchecked(key);
     if (value == null) {
       throw new ItemNotFoundException();
@@ -128,24 +343,95 @@ public class Chainbase implements IRevokingDB {
     return value;
   }
 
+  /**
+   * Report a read of {@code key} to the access recorder of this thread, for the reads served
+   * above the chainbase, like those of the capsule cache.
+   */
+  public void recordRead(byte[] key) {
+    AccessRecorder recorder = AccessRecorder.current();
+    if (recorder != null) {
+      recorder.read(getDbName(), key);
+    }
+  }
+
+  private void recordWrite(byte[] key) {
+    AccessRecorder recorder = AccessRecorder.current();
+    if (recorder != null) {
+      recorder.write(getDbName(), key);
+    }
+  }
+
   @Override
-  public synchronized byte[] getUnchecked(byte[] key) {
-    return head().get(key);
+  public byte[] getUnchecked(byte[] key) {
+    recordRead(key);
+    Speculation speculation = Speculation.current();
+    if (speculation != null && speculation.contains(this, key)) {
+      return speculation.get(this, key);
+    }
+    ReadView view = ReadView.current();
+    if (view != null && view.contains(this)) {
+      return view.get(this, key);
+    }
+
+    if (lockFreeRead) {
+      Snapshot snapshot = head();
+      // the latest value index is a plain map owned by the writer
+      if (latestValueIndex == null || snapshot != head) {
+        return snapshot.get(key);
+      }
+    }
+    return getUncheckedLocked(key);
+  }
+
+  private synchronized byte[] getUncheckedLocked(byte[] key) {
+    Snapshot snapshot = head();
+    if (latestValueIndex != null && snapshot == head) {
+      return latestValueIndex.get(snapshot, key);
+    }
+    return snapshot.get(key);
+  }
+
+  @Override
+  public List<byte[]> getMany(List<byte[]> keys) {
+    if (Speculation.current() != null) {
+      List<byte[]> values = new ArrayList<>(keys.size());
+      keys.forEach(key -> values.add(getUnchecked(key)));
+      return values;
+    }
+    keys.forEach(this::recordRead);
+    ReadView view = ReadView.current();
+    if (view != null && view.contains(this)) {
+      return view.getMany(this, keys);
+    }
+
+    if (lockFreeRead) {
+      return SnapshotImpl.getMany(head(), keys);
+    }
+    synchronized (this) {
+      return SnapshotImpl.getMany(head(), keys);
+    }
   }
 
   @Override
-  public synchronized boolean has(byte[] key) {
+  public boolean has(byte[] key) {
     return getUnchecked(key) != null;
   }
 
   @Override
-  public synchronized Iterator<Map.Entry<byte[], byte[]>> iterator() {
-    return head().iterator();
+  public Iterator<Map.Entry<byte[], byte[]>> iterator() {
+    Speculation.markUnsafe("iterator of " + getDbName());
+    if (lockFreeRead) {
+      return readHead().iterator();
+    }
+    synchronized (this) {
+      return readHead().iterator();
+    }
   }
 
   @Override
   public Set<byte[]> getValuesNext(byte[] key, long limit) {
-    return getValuesNext(head(), key, limit);
+    Speculation.markUnsafe("range read of " + getDbName());
+    return getValuesNext(readHead(), key, limit);
   }
 
   // for blockstore
@@ -154,45 +440,27 @@ public class Chainbase implements IRevokingDB {
       return Collections.emptySet();
     }
 
-    Map<WrappedByteArray, WrappedByteArray> collection = new HashMap<>();
-    if (head.getPrevious() != null) {
-      ((SnapshotImpl) head).collect(collection);
-    }
-
-    Map<WrappedByteArray, WrappedByteArray> levelDBMap = new HashMap<>();
-
-    if (((SnapshotRoot) head.getRoot()).db.getClass() == LevelDB.class) {
-      ((LevelDB) ((SnapshotRoot) head.getRoot()).db).getDb().getNext(key, limit).entrySet().stream()
-          .map(e -> Maps
-              .immutableEntry(WrappedByteArray.of(e.getKey()), WrappedByteArray.of(e.getValue())))
-          .forEach(e -> levelDBMap.put(e.getKey(), e.getValue()));
-    } else if (((SnapshotRoot) head.getRoot()).db.getClass() == RocksDB.class) {
-      ((RocksDB) ((SnapshotRoot) head.getRoot()).db).getDb().getNext(key, limit).entrySet().stream()
-          .map(e -> Maps
-              .immutableEntry(WrappedByteArray.of(e.getKey()), WrappedByteArray.of(e.getValue())))
-          .forEach(e -> levelDBMap.put(e.getKey(), e.getValue()));
-    }
-
-    levelDBMap.putAll(collection);
-
-    return levelDBMap.entrySet().stream()
-        .sorted((e1, e2) -> ByteUtil.compare(e1.getKey().getBytes(), e2.getKey().getBytes()))
-        .filter(e -> ByteUtil.greaterOrEquals(e.getKey().getBytes(), key))
-        .limit(limit)
-        .map(Map.Entry::getValue)
-        .map(WrappedByteArray::getBytes)
-        .collect(Collectors.toSet());
+    return readRange(() -> {
+      Set<byte[]> result = new LinkedHashSet<>();
+      try (MergeIterator iterator = MergeIterator.forward(head, key, KEY_ORDER)) {
+        while (result.size() < limit && iterator.hasNext()) {
+          result.add(iterator.next().getValue());
+        }
+      }
+      return result;
+    });
   }
 
   @Override
   public List<byte[]> getKeysNext(byte[] key, long limit) {
-    return getKeysNext(head(), key, limit);
+    Speculation.markUnsafe("range read of " + getDbName());
+    return getKeysNext(readHead(), key, limit);
   }
 
   /**
    * Notes: For now, this function is just used for Market, because it should use
    * MarketUtils.comparePriceKey as its comparator. It need to use MarketUtils.createPairPriceKey to
-   * create the key.
+   * create the key. Only the keys of the same token pair are returned.
    */
   // for market
   private List<byte[]> getKeysNext(Snapshot head, byte[] key, long limit) {
@@ -200,86 +468,54 @@ public class Chainbase implements IRevokingDB {
       return Collections.emptyList();
     }
 
-    Map<WrappedByteArray, Operator> collectionList = new HashMap<>();
-    if (head.getPrevious() != null) {
-      ((SnapshotImpl) head).collectUnique(collectionList);
-    }
-
-    // just get the same token pair
-    List<WrappedByteArray> snapshotList = new ArrayList<>();
-    if (!collectionList.isEmpty()) {
-      snapshotList = collectionList.keySet().stream()
-          .filter(e -> MarketUtils.pairKeyIsEqual(e.getBytes(), key))
-          .collect(Collectors.toList());
-    }
-
-    // for delete operation
-    long limitLevelDB = limit + collectionList.size();
-
-    List<WrappedByteArray> levelDBList = new ArrayList<>();
-    if (((SnapshotRoot) head.getRoot()).db.getClass() == LevelDB.class) {
-      ((LevelDB) ((SnapshotRoot) head.getRoot()).db).getDb().getKeysNext(key, limitLevelDB)
-          .forEach(e -> levelDBList.add(WrappedByteArray.of(e)));
-    } else if (((SnapshotRoot) head.getRoot()).db.getClass() == RocksDB.class) {
-      ((RocksDB) ((SnapshotRoot) head.getRoot()).db).getDb().getKeysNext(key, limitLevelDB)
-          .forEach(e -> levelDBList.add(WrappedByteArray.of(e)));
-    }
-
-    List<WrappedByteArray> keyList = new ArrayList<>();
-    keyList.addAll(levelDBList);
-
-    // snapshot and levelDB will have duplicated key, so need to check it before,
-    // and remove the key which has been deleted
-    snapshotList.forEach(ssKey -> {
-      if (!keyList.contains(ssKey)) {
-        keyList.add(ssKey);
-      }
-      if (collectionList.get(ssKey) == Operator.DELETE) {
-        keyList.remove(ssKey);
+    return readRange(() -> {
+      List<byte[]> result = new ArrayList<>();
+      try (MergeIterator iterator = MergeIterator.forward(head, key, PRICE_KEY_ORDER)) {
+        while (result.size() < limit && iterator.hasNext()) {
+          byte[] next = iterator.next().getKey();
+          if (!MarketUtils.pairKeyIsEqual(next, key)) {
+            break;
+          }
+          result.add(next);
+        }
       }
+      return result;
     });
-
-    return keyList.stream()
-        .filter(e -> MarketUtils.greaterOrEquals(e.getBytes(), key))
-        .sorted((e1, e2) -> MarketUtils.comparePriceKey(e1.getBytes(), e2.getBytes()))
-        .limit(limit)
-        .map(WrappedByteArray::getBytes)
-        .collect(Collectors.toList());
   }
 
   // for blockstore
   @Override
   public Set<byte[]> getlatestValues(long limit) {
-    return getlatestValues(head(), limit);
+    Speculation.markUnsafe("range read of " + getDbName());
+    return getlatestValues(readHead(), limit);
   }
 
   // for blockstore
-  private synchronized Set<byte[]> getlatestValues(Snapshot head, long limit) {
+  private Set<byte[]> getlatestValues(Snapshot head, long limit) {
     if (limit <= 0) {
       return Collections.emptySet();
     }
 
-    Set<byte[]> result = new HashSet<>();
-    Snapshot snapshot = head;
-    long tmp = limit;
-    for (; tmp > 0 && snapshot.getPrevious() != null; snapshot = snapshot.getPrevious()) {
-      if (!((SnapshotImpl) snapshot).db.isEmpty()) {
-        --tmp;
-        Streams.stream(((SnapshotImpl) snapshot).db)
-            .map(Map.Entry::getValue)
-            .map(Value::getBytes)
-            .forEach(result::add);
+    return readRange(() -> {
+      Set<byte[]> result = new LinkedHashSet<>();
+      try (MergeIterator iterator = MergeIterator.backward(head, KEY_ORDER)) {
+        while (result.size() < limit && iterator.hasNext()) {
+          result.add(iterator.next().getValue());
+        }
       }
-    }
+      return result;
+    });
+  }
 
-    if (snapshot.getPrevious() == null && tmp != 0) {
-      if (((SnapshotRoot) head.getRoot()).db.getClass() == LevelDB.class) {
-        result.addAll(((LevelDB) ((SnapshotRoot) snapshot).db).getDb().getlatestValues(tmp));
-      } else if (((SnapshotRoot) head.getRoot()).db.getClass() == RocksDB.class) {
-        result.addAll(((RocksDB) ((SnapshotRoot) snapshot).db).getDb().getlatestValues(tmp));
-      }
+  /**
+   * Range reads walk the layers like get does, SlabHashDB layers are only read under the lock.
+   */
+  private <T> T readRange(Supplier<T> query) {
+    if (lockFreeRead) {
+      return query.get();
+    }
+    synchronized (this) {
+      return query.get();
     }
-
-    return result;
   }
 }
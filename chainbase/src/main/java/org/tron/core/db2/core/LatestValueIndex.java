@@ -0,0 +1,110 @@
+package org.tron.core.db2.core;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.Value;
+
+/**
+ * Maps every key touched in the unflushed snapshots of one chainbase to the newest
+ * SnapshotImpl holding it, so reads at the HEAD cursor cost one map lookup plus one
+ * HashDB lookup, however deep the snapshot stack is.
+ *
+ * Not thread safe, all calls are guarded by the owning Chainbase.
+ */
+class LatestValueIndex {
+
+  private final Map<Key, SnapshotImpl> index = new HashMap<>();
+
+  byte[] get(Snapshot head, byte[] key) {
+    SnapshotImpl holder = index.get(Key.of(key));
+    if (holder == null) {
+      return head.getRoot().get(key);
+    }
+
+    Value value = holder.db.get(Key.of(key));
+    return value == null ? holder.get(key) : value.getBytes();
+  }
+
+  void put(byte[] key, SnapshotImpl holder) {
+    index.put(Key.copyOf(key), holder);
+  }
+
+  /**
+   * All keys of {@code from} were merged into {@code into}.
+   */
+  void merge(SnapshotImpl from, SnapshotImpl into) {
+    for (Map.Entry<Key, Value> e : from.db) {
+      index.put(e.getKey(), into);
+    }
+  }
+
+  /**
+   * {@code popped} has been dropped from the stack and {@code head} is the new head; keys whose
+   * newest value lived in the popped layer are resolved again against the remaining layers.
+   */
+  void retreat(SnapshotImpl popped, Snapshot head) {
+    for (Map.Entry<Key, Value> e : popped.db) {
+      Key key = e.getKey();
+      if (index.get(key) != popped) {
+        continue;
+      }
+
+      SnapshotImpl holder = find(head, key);
+      if (holder == null) {
+        index.remove(key);
+      } else {
+        index.put(key, holder);
+      }
+    }
+  }
+
+  /**
+   * {@code flushed} were merged into the root, their keys are served by the root from now on.
+   */
+  void flush(List<Snapshot> flushed) {
+    for (Snapshot snapshot : flushed) {
+      SnapshotImpl impl = (SnapshotImpl) snapshot;
+      for (Map.Entry<Key, Value> e : impl.db) {
+        index.remove(e.getKey(), impl);
+      }
+    }
+  }
+
+  void rebuild(Snapshot head) {
+    index.clear();
+    Snapshot next = head.getRoot().getNext();
+    while (next != null) {
+      SnapshotImpl impl = (SnapshotImpl) next;
+      for (Map.Entry<Key, Value> e : impl.db) {
+        index.put(e.getKey(), impl);
+      }
+      if (next == head) {
+        break;
+      }
+      next = next.getNext();
+    }
+  }
+
+  void clear() {
+    index.clear();
+  }
+
+  int size() {
+    return index.size();
+  }
+
+  private SnapshotImpl find(Snapshot head, Key key) {
+    Snapshot snapshot = head;
+    byte[] bytes = key.getBytes();
+    while (Snapshot.isImpl(snapshot)) {
+      SnapshotImpl impl = (SnapshotImpl) snapshot;
+      if (impl.mightContain(bytes) && impl.db.get(key) != null) {
+        return impl;
+      }
+      snapshot = snapshot.getPrevious();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,205 @@
+package org.tron.core.db2.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import org.tron.common.utils.ByteArray;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.Value;
+import org.tron.core.db2.common.WrappedByteArray;
+
+/**
+ * A primitive table of the values seen at the head of one chainbase for keys holding numbers, so
+ * a hot read costs an array load instead of a walk of the snapshot layers and a decode. Every key
+ * read through the mirror gets a slot holding its value as ByteArray.toLong reads it, which also
+ * serves ByteArray.toInt by a cast.
+ *
+ * A slot is filled by the first read, written through by puts at the head and dropped again when
+ * a layer holding its key is revoked, so it reverts with the snapshot layers without a copy per
+ * layer; merges and flushes do not change the values at the head. The chainbase stays the only
+ * record, reads at other cursors or through a read view bypass the mirror.
+ *
+ * Reads are lock free, the table is written under the chainbase lock.
+ */
+public class LongMirror {
+
+  private static final byte UNKNOWN = 0;
+  private static final byte PRESENT = 1;
+  private static final byte ABSENT = 2;
+
+  private final Chainbase chainbase;
+  private final StampedLock lock = new StampedLock();
+  // by identity for the reads, callers pass their key constants; copied on write
+  private volatile Map<byte[], Integer> slots = new IdentityHashMap<>();
+  // by content for the writes, guarded by the lock
+  private final Map<WrappedByteArray, Integer> slotsByKey = new HashMap<>();
+  private long[] values = new long[0];
+  private byte[] states = new byte[0];
+  // moves on with every write, a value read concurrently with a write is not filled in
+  private volatile long modCount;
+
+  public LongMirror(Chainbase chainbase) {
+    this.chainbase = chainbase;
+    chainbase.setMirror(this);
+  }
+
+  /**
+   * @return the value of {@code key} at the head.
+   * @throws RuntimeException from {@code notFound} if the key does not exist.
+   */
+  public long get(byte[] key, Supplier<? extends RuntimeException> notFound) {
+    return get(key, 0, notFound);
+  }
+
+  /**
+   * @return the value of {@code key} at the head, or {@code defaultValue}.
+   */
+  public long get(byte[] key, long defaultValue) {
+    return get(key, defaultValue, null);
+  }
+
+  private long get(byte[] key, long defaultValue, Supplier<? extends RuntimeException> notFound) {
+    if (!chainbase.isHeadRead()) {
+      return decode(chainbase.getUnchecked(key), defaultValue, notFound);
+    }
+
+    Integer slot = slots.get(key);
+    if (slot != null) {
+      chainbase.recordRead(key);
+      long stamp = lock.tryOptimisticRead();
+      byte state = states[slot];
+      long value = values[slot];
+      if (lock.validate(stamp)) {
+        if (state == PRESENT) {
+          return value;
+        }
+        if (state == ABSENT) {
+          return decode(null, defaultValue, notFound);
+        }
+      }
+    }
+
+    long expected = modCount;
+    byte[] data = chainbase.getUnchecked(key);
+    fill(key, expected, data);
+    return decode(data, defaultValue, notFound);
+  }
+
+  private static long decode(byte[] data, long defaultValue,
+      Supplier<? extends RuntimeException> notFound) {
+    if (data != null) {
+      return ByteArray.toLong(data);
+    }
+    if (notFound != null) {
+      throw notFound.get();
+    }
+    return defaultValue;
+  }
+
+  private void fill(byte[] key, long expected, byte[] data) {
+    long stamp = lock.writeLock();
+    try {
+      if (modCount == expected) {
+        set(slotOf(key), data);
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  private int slotOf(byte[] key) {
+    Integer slot = slots.get(key);
+    if (slot != null) {
+      return slot;
+    }
+
+    WrappedByteArray wrapped = WrappedByteArray.copyOf(key);
+    slot = slotsByKey.get(wrapped);
+    if (slot == null) {
+      slot = slotsByKey.size();
+      slotsByKey.put(wrapped, slot);
+      if (slot == values.length) {
+        int capacity = Math.max(16, slot * 2);
+        values = Arrays.copyOf(values, capacity);
+        states = Arrays.copyOf(states, capacity);
+      }
+    }
+    // published after the table grew, a reader seeing the slot sees the table
+    Map<byte[], Integer> copy = new IdentityHashMap<>(slots);
+    copy.put(key, slot);
+    slots = copy;
+    return slot;
+  }
+
+  private void set(int slot, byte[] data) {
+    if (data == null) {
+      states[slot] = ABSENT;
+    } else {
+      values[slot] = ByteArray.toLong(data);
+      states[slot] = PRESENT;
+    }
+  }
+
+  /**
+   * {@code key} was written at the head, {@code value} is null if it was deleted.
+   */
+  void onPut(byte[] key, byte[] value) {
+    long stamp = lock.writeLock();
+    try {
+      ++modCount;
+      Integer slot = slotsByKey.get(WrappedByteArray.of(key));
+      if (slot != null) {
+        set(slot, value);
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * {@code key} was written below the head, its value at the head is read again.
+   */
+  void onStale(byte[] key) {
+    long stamp = lock.writeLock();
+    try {
+      ++modCount;
+      Integer slot = slotsByKey.get(WrappedByteArray.of(key));
+      if (slot != null) {
+        states[slot] = UNKNOWN;
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * The layer {@code revoked} was dropped, the keys it held are read again.
+   */
+  void onRevoke(SnapshotImpl revoked) {
+    long stamp = lock.writeLock();
+    try {
+      ++modCount;
+      for (Map.Entry<Key, Value> e : revoked.db) {
+        Integer slot = slotsByKey.get(WrappedByteArray.of(e.getKey().getRawBytes()));
+        if (slot != null) {
+          states[slot] = UNKNOWN;
+        }
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  void onReset() {
+    long stamp = lock.writeLock();
+    try {
+      ++modCount;
+      Arrays.fill(states, UNKNOWN);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package org.tron.core.db2.core;
+
+import com.google.common.collect.Maps;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.tron.core.db.common.iterator.DBIterator;
+import org.tron.core.db2.common.DB;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.LevelDB;
+import org.tron.core.db2.common.RocksDB;
+import org.tron.core.db2.common.TieredDB;
+import org.tron.core.db2.common.Value;
+
+/**
+ * An ordered iterator over the snapshot layers of a chainbase and its root database. Every
+ * layer and the root are read in order from the start key and merged in a heap, so reading n
+ * entries costs O(n log layers) once the layers have indexed their keys.
+ *
+ * The newest layer holding a key wins and a DELETE hides the key. Keys the comparator finds
+ * equal are one key, as they are in the root database, so the comparator must be the one the
+ * root database was opened with. Roots other than LevelDB and RocksDB are not read.
+ */
+@Slf4j(topic = "DB")
+final class MergeIterator implements Iterator<Map.Entry<byte[], byte[]>>, AutoCloseable {
+
+  private final Comparator<byte[]> comparator;
+  private final PriorityQueue<Source> queue;
+  private final List<Source> sources = new ArrayList<>();
+  private Map.Entry<byte[], byte[]> next;
+
+  private MergeIterator(Snapshot head, byte[] start, Comparator<byte[]> comparator,
+      boolean reverse) {
+    this.comparator = reverse ? comparator.reversed() : comparator;
+    queue = new PriorityQueue<>((s1, s2) -> {
+      int result = this.comparator.compare(s1.key, s2.key);
+      return result != 0 ? result : Integer.compare(s1.rank, s2.rank);
+    });
+
+    // the layers before the root, a flush in between is then read twice rather than lost
+    Snapshot snapshot = head;
+    while (Snapshot.isImpl(snapshot)) {
+      sources.add(new LayerSource((SnapshotImpl) snapshot, sources.size(), start, comparator,
+          reverse));
+      snapshot = snapshot.getPrevious();
+    }
+    SnapshotRoot root = (SnapshotRoot) head.getRoot();
+    DBIterator rootIterator = rootIterator(root.db, start, reverse);
+    if (rootIterator != null) {
+      sources.add(new RootSource(root, rootIterator, sources.size()));
+    }
+    sources.stream().filter(Source::advance).forEach(queue::add);
+  }
+
+  /**
+   * Iterate from the first key not less than {@code start}.
+   */
+  static MergeIterator forward(Snapshot head, byte[] start, Comparator<byte[]> comparator) {
+    return new MergeIterator(head, start, comparator, false);
+  }
+
+  /**
+   * Iterate from the last key to the first.
+   */
+  static MergeIterator backward(Snapshot head, Comparator<byte[]> comparator) {
+    return new MergeIterator(head, null, comparator, true);
+  }
+
+  /**
+   * @return an iterator over the values of {@code db} as they are stored, null if the db is
+   *     neither LevelDB nor RocksDB nor tiered.
+   */
+  static DBIterator rootIterator(DB<byte[], byte[]> db, byte[] start, boolean reverse) {
+    if (db.getClass() == TieredDB.class) {
+      return ((TieredDB) db).iterator(start, reverse);
+    }
+    if (db.getClass() == LevelDB.class) {
+      return reverse ? ((LevelDB) db).getDb().reverseIterator()
+          : ((LevelDB) db).getDb().iterator(start);
+    }
+    if (db.getClass() == RocksDB.class) {
+      return reverse ? ((RocksDB) db).getDb().reverseIterator()
+          : ((RocksDB) db).getDb().iterator(start);
+    }
+    return null;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next == null && !queue.isEmpty()) {
+      Source top = queue.poll();
+      byte[] key = top.key;
+      Value value = top.value;
+      // the same key in older sources is shadowed
+      while (!queue.isEmpty() && comparator.compare(queue.peek().key, key) == 0) {
+        Source shadowed = queue.poll();
+        if (shadowed.advance()) {
+          queue.add(shadowed);
+        }
+      }
+      if (top.advance()) {
+        queue.add(top);
+      }
+
+      if (value.getOperator() != Value.Operator.DELETE && value.getBytes() != null) {
+        // the keys of the layers are cached, callers get a copy
+        next = Maps.immutableEntry(Arrays.copyOf(key, key.length), value.getBytes());
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public Map.Entry<byte[], byte[]> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Map.Entry<byte[], byte[]> entry = next;
+    next = null;
+    return entry;
+  }
+
+  @Override
+  public void close() {
+    queue.clear();
+    sources.forEach(Source::close);
+  }
+
+  private abstract static class Source {
+
+    // newer sources rank lower
+    private final int rank;
+    protected byte[] key;
+    protected Value value;
+
+    Source(int rank) {
+      this.rank = rank;
+    }
+
+    /**
+     * Move to the next entry.
+     *
+     * @return false once the source is exhausted.
+     */
+    abstract boolean advance();
+
+    void close() {
+    }
+  }
+
+  private static class LayerSource extends Source {
+
+    private final SnapshotImpl layer;
+    private final Iterator<byte[]> keys;
+
+    LayerSource(SnapshotImpl layer, int rank, byte[] start, Comparator<byte[]> comparator,
+        boolean reverse) {
+      super(rank);
+      this.layer = layer;
+      NavigableSet<byte[]> sorted = layer.sortedKeys(comparator);
+      if (reverse) {
+        keys = sorted.descendingIterator();
+      } else if (start == null) {
+        keys = sorted.iterator();
+      } else {
+        // from the first key not less than start
+        keys = sorted.tailSet(start, true).iterator();
+      }
+    }
+
+    @Override
+    boolean advance() {
+      while (keys.hasNext()) {
+        // the keys written concurrently may or may not be seen
+        byte[] k = keys.next();
+        Value v = layer.db.get(Key.of(k));
+        if (v != null) {
+          key = k;
+          value = v;
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static class RootSource extends Source {
+
+    private final SnapshotRoot root;
+    private final DBIterator iterator;
+
+    RootSource(SnapshotRoot root, DBIterator iterator, int rank) {
+      super(rank);
+      this.root = root;
+      this.iterator = iterator;
+    }
+
+    @Override
+    boolean advance() {
+      if (!iterator.hasNext()) {
+        return false;
+      }
+      Map.Entry<byte[], byte[]> entry = iterator.next();
+      key = entry.getKey();
+      value = Value.of(Value.Operator.PUT, root.decode(entry.getValue()));
+      return true;
+    }
+
+    @Override
+    void close() {
+      try {
+        iterator.close();
+      } catch (IOException e) {
+        logger.warn("close root iterator failed", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package org.tron.core.db2.core;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.Getter;
+import org.tron.core.db2.common.Key;
+
+/**
+ * The values one pending transaction wrote, taken at the keys of its {@link AccessSet} right
+ * after it was executed into the pending session; null values are deletes. After a block the
+ * transaction is put into the new pending session by applying them again instead of executing
+ * it, see node.incrementalPending, as long as the block changed nothing it read or wrote.
+ */
+public class PendingWrites {
+
+  @Getter
+  private final AccessSet accessSet;
+  private final Map<Chainbase, List<byte[]>> reads = new IdentityHashMap<>();
+  // in the order of the first write per chainbase
+  private final Map<Chainbase, Map<Key, byte[]>> writes = new LinkedHashMap<>();
+
+  private PendingWrites(AccessSet accessSet) {
+    this.accessSet = accessSet;
+  }
+
+  /**
+   * Read the values written by the transaction of {@code accessSet} at the heads of the
+   * chainbases of {@code manager}.
+   *
+   * @return the writes, null if the transaction accessed a store that is not a chainbase.
+   */
+  public static PendingWrites capture(SnapshotManager manager, AccessSet accessSet) {
+    PendingWrites pending = new PendingWrites(accessSet);
+    for (String store : accessSet.getStores()) {
+      Chainbase db = manager.getDb(store);
+      if (db == null) {
+        return null;
+      }
+      List<byte[]> read = accessSet.getReadKeys(store);
+      if (!read.isEmpty()) {
+        pending.reads.put(db, read);
+      }
+      List<byte[]> written = accessSet.getWriteKeys(store);
+      if (!written.isEmpty()) {
+        Map<Key, byte[]> values = new LinkedHashMap<>();
+        for (byte[] key : written) {
+          values.put(Key.copyOf(key), db.getUnchecked(key));
+        }
+        pending.writes.put(db, values);
+      }
+    }
+    return pending;
+  }
+
+  /**
+   * @return true if the snapshot at the head of a chainbase changed a key written or a key read,
+   *     the reads of {@code unchecked} stores aside.
+   */
+  public boolean isChangedAtHead(Set<String> unchecked) {
+    for (Map.Entry<Chainbase, List<byte[]>> e : reads.entrySet()) {
+      if (unchecked.contains(e.getKey().getDbName())) {
+        continue;
+      }
+      for (byte[] key : e.getValue()) {
+        if (e.getKey().isChangedAtHead(key)) {
+          return true;
+        }
+      }
+    }
+    for (Map.Entry<Chainbase, Map<Key, byte[]>> e : writes.entrySet()) {
+      for (Key key : e.getValue().keySet()) {
+        if (e.getKey().isChangedAtHead(key.getBytes())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Apply the writes at the heads of the chainbases, the caches above them drop the keys.
+   */
+  public void apply() {
+    writes.forEach(Chainbase::commit);
+  }
+}
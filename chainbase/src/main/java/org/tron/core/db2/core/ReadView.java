@@ -0,0 +1,209 @@
+package org.tron.core.db2.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import lombok.Getter;
+import org.tron.common.storage.DbSnapshot;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.Value;
+import org.tron.core.exception.ReadViewStaleException;
+
+/**
+ * An immutable point-in-time view of the chainbases at one cursor. It pins every chainbase when
+ * created, from the heads the {@link SnapshotManager} published last and without taking its
+ * lock: the snapshot layers visible at the cursor together with a native snapshot of the root,
+ * so blocks, merges and flushes applied later do not change what it reads. It never touches the
+ * cursor of the chainbases. Any number of views can be read concurrently.
+ *
+ * If the layers newer than the cursor were flushed into the root before a chainbase was pinned,
+ * it can not be pinned as it was and the creation throws a {@link ReadViewStaleException}.
+ *
+ * While {@link #call} or {@link #run} executes, the point reads made by the stores on that
+ * thread go through the view; iterators and range queries use the pinned layers over the live
+ * root. A view over HEAD pins the layer of the block in progress, which is still being written.
+ *
+ * The view must be closed to release the native snapshots.
+ */
+public class ReadView implements AutoCloseable {
+
+  private static final ThreadLocal<ReadView> CURRENT = new ThreadLocal<>();
+
+  @Getter
+  private final Chainbase.Cursor cursor;
+  private final Map<Chainbase, Pinned> pinned;
+  private volatile boolean closed;
+
+  ReadView(Chainbase.Cursor cursor, long offset, Map<Chainbase, Heads> heads) {
+    this.cursor = cursor;
+    Map<Chainbase, Pinned> pins = new IdentityHashMap<>();
+    try {
+      heads.forEach((db, h) -> pins.put(db, new Pinned(db.getDbName(), h, cursor, offset)));
+    } catch (RuntimeException e) {
+      pins.values().forEach(p -> p.root.close());
+      throw e;
+    }
+    this.pinned = pins;
+  }
+
+  static ReadView current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Run {@code task} with the reads of this thread served by the view.
+   */
+  public <T> T call(Supplier<T> task) {
+    ReadView previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      return task.get();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  public void run(Runnable task) {
+    call(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  /**
+   * @return the pinned head snapshot of {@code db}, or null if the view does not cover it.
+   */
+  Snapshot getHead(Chainbase db) {
+    Pinned p = pinned(db);
+    return p == null ? null : p.head;
+  }
+
+  boolean contains(Chainbase db) {
+    return pinned.containsKey(db);
+  }
+
+  public byte[] get(Chainbase db, byte[] key) {
+    Pinned p = pinned(db);
+    if (p == null) {
+      throw new IllegalArgumentException("read view does not cover " + db.getDbName());
+    }
+
+    if (db.isLockFreeRead()) {
+      return p.get(key);
+    }
+    synchronized (db) {
+      return p.get(key);
+    }
+  }
+
+  public List<byte[]> getMany(Chainbase db, List<byte[]> keys) {
+    List<byte[]> values = new ArrayList<>(keys.size());
+    keys.forEach(key -> values.add(get(db, key)));
+    return values;
+  }
+
+  private Pinned pinned(Chainbase db) {
+    if (closed) {
+      throw new IllegalStateException("read view is closed");
+    }
+    return pinned.get(db);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    pinned.values().forEach(p -> p.root.close());
+  }
+
+  /**
+   * The head and the solidity of one chainbase, published by the {@link SnapshotManager} every
+   * time it moves them.
+   */
+  static class Heads {
+
+    private final Snapshot head;
+    private final Snapshot solidity;
+    // the oldest layer when the solidity is the root, tells whether the root moved on since
+    private final Snapshot aboveSolidity;
+
+    Heads(Snapshot head) {
+      this.head = head;
+      this.solidity = head.getSolidity();
+      this.aboveSolidity = solidity.getNext();
+    }
+  }
+
+  private static class Pinned {
+
+    private final Snapshot head;
+    // newest first, the live links change when the layers are flushed
+    private final List<SnapshotImpl> layers;
+    private final DbSnapshot root;
+
+    Pinned(String dbName, Heads heads, Chainbase.Cursor cursor, long offset) {
+      Snapshot above = null;
+      Snapshot snapshot;
+      switch (cursor) {
+        case SOLIDITY:
+          snapshot = heads.solidity;
+          above = heads.aboveSolidity;
+          break;
+        case PBFT:
+          if (offset < 0) {
+            snapshot = heads.solidity;
+            above = heads.aboveSolidity;
+            break;
+          }
+          snapshot = heads.head;
+          for (int i = 0; i < offset && snapshot != snapshot.getRoot(); i++) {
+            above = snapshot;
+            snapshot = snapshot.getPrevious();
+          }
+          break;
+        default:
+          snapshot = heads.head;
+          break;
+      }
+      head = snapshot;
+
+      List<SnapshotImpl> list = new ArrayList<>();
+      while (Snapshot.isImpl(snapshot)) {
+        list.add((SnapshotImpl) snapshot);
+        snapshot = snapshot.getPrevious();
+      }
+      layers = Collections.unmodifiableList(list);
+      // pinned after the layers, a flush in between is then seen twice rather than lost
+      root = ((SnapshotRoot) head.getRoot()).pin();
+
+      // the root holds the newer layers once they are flushed, even those unlinked before
+      if (Snapshot.isImpl(head)) {
+        above = head.getNext();
+      }
+      if (above != null && ((SnapshotImpl) above).isFlushed()) {
+        root.close();
+        throw new ReadViewStaleException("read view of " + dbName + " is stale");
+      }
+    }
+
+    byte[] get(byte[] key) {
+      Value value;
+      for (SnapshotImpl layer : layers) {
+        if (layer.mightContain(key) && (value = layer.db.get(Key.of(key))) != null) {
+          return value.getBytes();
+        }
+      }
+      return root.get(key);
+    }
+  }
+}
@@ -100,6 +100,13 @@ public class RevokingDBWithCachingOldValue implements IRevokingDB {
     }
   }
 
+  @Override
+  public List<byte[]> getMany(List<byte[]> keys) {
+    List<byte[]> values = dbSource.getMany(keys);
+    values.replaceAll(value -> ArrayUtils.isEmpty(value) ? null : value);
+    return values;
+  }
+
   @Override
   public void close() {
     dbSource.closeDB();
@@ -4,31 +4,93 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Streams;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
 import lombok.Getter;
+import org.tron.common.parameter.CommonParameter;
+import org.tron.core.config.args.Storage;
+import org.tron.core.db2.common.DB;
 import org.tron.core.db2.common.HashDB;
 import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.SlabHashDB;
 import org.tron.core.db2.common.Value;
-import org.tron.core.db2.common.Value.Operator;
 import org.tron.core.db2.common.WrappedByteArray;
+import org.tron.core.metrics.MetricsKey;
+import org.tron.core.metrics.MetricsUtil;
 
 public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
 
+  private static final int BLOOM_INITIAL_CAPACITY = 256;
+  private static final int BLOOM_GROWTH_FACTOR = 4;
+  private static final double BLOOM_FPP = 0.01;
+
   @Getter
   protected Snapshot root;
 
+  // keys are never physically removed from a snapshot layer (remove() writes a DELETE marker),
+  // so a plain bloom filter is enough to answer "this layer can not contain the key".
+  // volatile for the readers outside the chainbase lock, the filter itself is thread safe
+  private volatile BloomFilter<byte[]> bloomFilter = newBloomFilter(BLOOM_INITIAL_CAPACITY);
+  private int bloomCapacity = BLOOM_INITIAL_CAPACITY;
+  private volatile int bloomCount = 0;
+
+  // whether the layers count their bytes, see AdaptiveFlushController
+  private static volatile boolean accounting = false;
+
+  // approximate bytes of keys and values held by this layer, 0 unless accounting
+  @Getter
+  private long bytes = 0;
+
+  // the keys in the order of the range reads of the layer, built by the first one and then kept
+  // up to date by the writes rather than sorted again, see MergeIterator
+  private volatile KeyIndex keyIndex;
+
+  // set before the layer is written to the root, see ReadView
+  @Getter
+  private volatile boolean flushed = false;
+
   SnapshotImpl(Snapshot snapshot) {
     root = snapshot.getRoot();
+    synchronized (this) {
+      db = newDb();
+    }
     previous = snapshot;
     snapshot.setNext(this);
-    synchronized (this) {
-      db = new HashDB(SnapshotImpl.class.getSimpleName());
+  }
+
+  void markFlushed() {
+    flushed = true;
+  }
+
+  static void setAccounting(boolean enabled) {
+    accounting = enabled;
+  }
+
+  private static DB<Key, Value> newDb() {
+    if (isSlabDb()) {
+      return new SlabHashDB(SnapshotImpl.class.getSimpleName());
     }
+    return new HashDB(SnapshotImpl.class.getSimpleName());
+  }
+
+  /**
+   * Whether the layers are SlabHashDB, which unlike HashDB can not be read while being written.
+   */
+  static boolean isSlabDb() {
+    Storage storage = CommonParameter.getInstance().getStorage();
+    return storage != null
+        && Storage.SNAPSHOT_DB_TYPE_SLAB.equals(storage.getSnapshotDbType());
   }
 
   @Override
@@ -39,29 +101,145 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
   private byte[] get(Snapshot head, byte[] key) {
     Snapshot snapshot = head;
     Value value;
-    while (Snapshot.isImpl(snapshot)) {
-      if ((value = ((SnapshotImpl) snapshot).db.get(Key.of(key))) != null) {
-        return value.getBytes();
-      }
+    long skipped = 0;
+    long falsePositive = 0;
+    try {
+      while (Snapshot.isImpl(snapshot)) {
+        SnapshotImpl impl = (SnapshotImpl) snapshot;
+        if (!impl.mightContain(key)) {
+          ++skipped;
+        } else if ((value = impl.db.get(Key.of(key))) != null) {
+          MetricsUtil.meterMark(MetricsKey.DB_SNAPSHOT_BLOOM_HIT);
+          return value.getBytes();
+        } else {
+          ++falsePositive;
+        }
 
-      snapshot = snapshot.getPrevious();
+        snapshot = snapshot.getPrevious();
+      }
+    } finally {
+      if (skipped > 0) {
+        MetricsUtil.meterMark(MetricsKey.DB_SNAPSHOT_BLOOM_SKIP, skipped);
+      }
+      if (falsePositive > 0) {
+        MetricsUtil.meterMark(MetricsKey.DB_SNAPSHOT_BLOOM_FALSE_POSITIVE, falsePositive);
+      }
     }
 
     return snapshot == null ? null : snapshot.get(key);
   }
 
+  /**
+   * @return the values of {@code keys} read at {@code head}, in the same order. The layers are
+   *     resolved first, the keys none of them holds are read from the root in one call.
+   */
+  static List<byte[]> getMany(Snapshot head, List<byte[]> keys) {
+    List<byte[]> values = new ArrayList<>(Collections.nCopies(keys.size(), null));
+    List<Integer> missing = new ArrayList<>();
+    List<byte[]> rootKeys = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      byte[] key = keys.get(i);
+      Value value = null;
+      for (Snapshot snapshot = head; Snapshot.isImpl(snapshot) && value == null;
+          snapshot = snapshot.getPrevious()) {
+        SnapshotImpl impl = (SnapshotImpl) snapshot;
+        if (impl.mightContain(key)) {
+          value = impl.db.get(Key.of(key));
+        }
+      }
+      if (value != null) {
+        values.set(i, value.getBytes());
+      } else {
+        missing.add(i);
+        rootKeys.add(key);
+      }
+    }
+
+    if (!rootKeys.isEmpty()) {
+      List<byte[]> found = ((SnapshotRoot) head.getRoot()).getMany(rootKeys);
+      for (int i = 0; i < missing.size(); i++) {
+        values.set(missing.get(i), found.get(i));
+      }
+    }
+    return values;
+  }
+
+  boolean mightContain(byte[] key) {
+    return bloomCount > 0 && bloomFilter.mightContain(key);
+  }
+
+  private static BloomFilter<byte[]> newBloomFilter(int capacity) {
+    return BloomFilter.create(Funnels.byteArrayFunnel(), capacity, BLOOM_FPP);
+  }
+
+  /**
+   * Record the key in the bloom filter. The filter is rebuilt with a larger capacity from the
+   * keys of this layer once it is full, so that merged layers keep their false positive rate.
+   *
+   * @param isNew whether the layer did not hold the key before, only new keys fill the filter.
+   */
+  private void addToBloom(byte[] key, boolean isNew) {
+    if (isNew && ++bloomCount > bloomCapacity) {
+      bloomCapacity = bloomCapacity * BLOOM_GROWTH_FACTOR;
+      BloomFilter<byte[]> filter = newBloomFilter(bloomCapacity);
+      for (Map.Entry<Key, Value> e : db) {
+        filter.put(e.getKey().getBytes());
+      }
+      bloomFilter = filter;
+    }
+    bloomFilter.put(key);
+  }
+
   @Override
   public void put(byte[] key, byte[] value) {
     Preconditions.checkNotNull(key, "key in db is not null.");
     Preconditions.checkNotNull(value, "value in db is not null.");
 
-    db.put(Key.copyOf(key), Value.copyOf(Value.Operator.PUT, value));
+    // SlabHashDB copies the bytes into its slab itself
+    boolean copy = !(db instanceof SlabHashDB);
+    Key k = copy ? Key.copyOf(key) : Key.of(key);
+    Value v = copy ? Value.copyOf(Value.Operator.PUT, value)
+        : Value.of(Value.Operator.PUT, value);
+    boolean isNew = isNew(k, v);
+    db.put(k, v);
+    addToBloom(key, isNew);
+    addToIndex(k);
   }
 
   @Override
   public void remove(byte[] key) {
     Preconditions.checkNotNull(key, "key in db is not null.");
-    db.put(Key.of(key), Value.of(Value.Operator.DELETE, null));
+    Key k = Key.of(key);
+    Value v = Value.of(Value.Operator.DELETE, null);
+    boolean isNew = isNew(k, v);
+    db.put(k, v);
+    addToBloom(key, isNew);
+    addToIndex(k);
+  }
+
+  /**
+   * @return true if the layer did not hold {@code key} before {@code value} is written. Without
+   *     accounting the bloom filter answers, a false positive then leaves a new key uncounted.
+   */
+  private boolean isNew(Key key, Value value) {
+    if (!accounting) {
+      return !mightContain(key.getBytes());
+    }
+    return account(key, value);
+  }
+
+  /**
+   * @return true if the layer did not hold {@code key} before.
+   */
+  private boolean account(Key key, Value value) {
+    Value old = db.get(key);
+    if (old == null) {
+      bytes += key.getSize();
+    } else {
+      bytes -= old.getSize();
+    }
+    bytes += value.getSize();
+    return old == null;
   }
 
   // we have a 3x3 matrix of all possibilities when merging previous snapshot and current snapshot :
@@ -79,7 +257,37 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
   @Override
   public void merge(Snapshot from) {
     SnapshotImpl fromImpl = (SnapshotImpl) from;
-    Streams.stream(fromImpl.db).forEach(e -> db.put(e.getKey(), e.getValue()));
+    for (Map.Entry<Key, Value> e : fromImpl.db) {
+      boolean isNew = isNew(e.getKey(), e.getValue());
+      db.put(e.getKey(), e.getValue());
+      addToBloom(e.getKey().getBytes(), isNew);
+      addToIndex(e.getKey());
+    }
+  }
+
+  private void addToIndex(Key key) {
+    KeyIndex index = keyIndex;
+    if (index != null) {
+      index.add(key);
+    }
+  }
+
+  /**
+   * @return the keys of this layer, deleted ones included, sorted by {@code comparator}. The
+   *     set is kept up to date by the writes to the layer, it must not be modified.
+   */
+  NavigableSet<byte[]> sortedKeys(Comparator<byte[]> comparator) {
+    KeyIndex index = keyIndex;
+    if (index != null && index.comparator == comparator) {
+      return index.keys;
+    }
+
+    index = new KeyIndex(comparator);
+    index.addAll(db);
+    keyIndex = index;
+    // the writes during the first pass may be missed, the writes after it see the index
+    index.addAll(db);
+    return index.keys;
   }
 
   @Override
@@ -116,31 +324,6 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
     }
   }
 
-  /**
-   * In the snapshot, there may be same keys.
-   * If we use Map to get all the data, the later will overwrite the previous value.
-   * So, if we use list, we need to exclude duplicate keys.
-   * More than that, there will be some item which has been deleted, but just assigned in Operator,
-   * so we need Operator value to determine next step.
-   * */
-  synchronized void collectUnique(Map<WrappedByteArray, Operator> all) {
-    Snapshot next = getRoot().getNext();
-    while (next != null) {
-      Streams.stream(((SnapshotImpl) next).db)
-          .forEach(e -> {
-            WrappedByteArray key = WrappedByteArray.of(e.getKey().getBytes());
-            if (!all.containsKey(key)) {
-              all.put(WrappedByteArray.of(e.getKey().getBytes()),
-                   e.getValue().getOperator());
-            }
-
-          });
-      next = next.getNext();
-    }
-  }
-
-
-
   @Override
   public void close() {
     getRoot().close();
@@ -170,4 +353,28 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
   public Snapshot newInstance() {
     return new SnapshotImpl(this);
   }
+
+  private static class KeyIndex {
+
+    private final Comparator<byte[]> comparator;
+    private final NavigableSet<byte[]> keys;
+
+    KeyIndex(Comparator<byte[]> comparator) {
+      this.comparator = comparator;
+      keys = new ConcurrentSkipListSet<>(comparator);
+    }
+
+    void add(Key key) {
+      // the bytes of the key may be the caller's, the index keeps a copy
+      if (!keys.contains(key.getRawBytes())) {
+        keys.add(key.getBytes());
+      }
+    }
+
+    void addAll(DB<Key, Value> db) {
+      for (Map.Entry<Key, Value> e : db) {
+        add(e.getKey());
+      }
+    }
+  }
 }
@@ -3,16 +3,28 @@ package org.tron.core.db2.core;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Bytes;
 import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -23,6 +35,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.tron.common.parameter.CommonParameter;
 import org.tron.common.storage.WriteOptionsWrapper;
+import org.tron.common.storage.rocksdb.RocksDbColumnFamilies;
 import org.tron.core.db.RevokingDatabase;
 import org.tron.core.db2.ISession;
 import org.tron.core.db2.common.DB;
@@ -30,7 +43,10 @@ import org.tron.core.db2.common.IRevokingDB;
 import org.tron.core.db2.common.Key;
 import org.tron.core.db2.common.Value;
 import org.tron.core.db2.common.WrappedByteArray;
+import org.tron.core.exception.ReadViewStaleException;
 import org.tron.core.exception.RevokingStoreIllegalStateException;
+import org.tron.core.metrics.MetricsKey;
+import org.tron.core.metrics.MetricsUtil;
 import org.tron.core.store.CheckTmpStore;
 
 @Slf4j(topic = "DB")
@@ -38,9 +54,17 @@ public class SnapshotManager implements RevokingDatabase {
 
   public static final int DEFAULT_MAX_FLUSH_COUNT = 500;
   public static final int DEFAULT_MIN_FLUSH_COUNT = 1;
+  public static final int DEFAULT_MAX_FLUSH_BACKLOG = 1000;
+  // checkpoint log records are keyed by this prefix plus their sequence number, legacy
+  // checkpoint keys start with the length of a db name and never with 0xff.
+  public static final byte[] CHECKPOINT_LOG_PREFIX = new byte[]{(byte) 0xff};
   private static final int DEFAULT_STACK_MAX_SIZE = 256;
+  // a view only goes stale if a flush overtakes the heads it read, rare enough that a few do
+  private static final int READ_VIEW_ATTEMPTS = 3;
   @Getter
   private List<Chainbase> dbs = new ArrayList<>();
+  // the heads read views are created from, replaced whenever a head or a solidity moves
+  private volatile Map<Chainbase, ReadView.Heads> heads = Collections.emptyMap();
   @Getter
   private int size = 0;
   private AtomicInteger maxSize = new AtomicInteger(DEFAULT_STACK_MAX_SIZE);
@@ -65,9 +89,80 @@ public class SnapshotManager implements RevokingDatabase {
   @Setter
   private volatile int maxFlushCount = DEFAULT_MIN_FLUSH_COUNT;
 
+  // flush the frozen snapshots on flushExecutor instead of the block processing thread
+  @Setter
+  @Getter
+  private boolean asyncFlush = false;
+
+  // snapshots allowed to pile up behind an in-flight async flush before buildSession waits
+  @Setter
+  @Getter
+  private int maxFlushBacklog = DEFAULT_MAX_FLUSH_BACKLOG;
+
+  private ExecutorService flushExecutor;
+
+  // the merged snapshots per db, unlinked by the block processing thread once done
+  private Future<Map<Chainbase, List<Snapshot>>> flushFuture;
+
+  // the snapshots the in-flight async flush writes
+  private int flushingCount = 0;
+
+  // write the checkpoint as an append-only, sequence-numbered log in CheckTmpStore
+  @Setter
+  @Getter
+  private boolean checkpointLog = false;
+
+  private long checkpointSeq = 0;
+
+  // the oldest checkpoint log record that may still be in CheckTmpStore, the record of a failed
+  // flush is only removed with the one of the flush writing its snapshots again
+  private long checkpointLogStart = 0;
+
+  // when set, it chooses the flush count and maxFlushCount is ignored
+  @Getter
+  private AdaptiveFlushController flushController;
+
   public SnapshotManager(String checkpointPath) {
   }
 
+  public void setFlushController(AdaptiveFlushController flushController) {
+    this.flushController = flushController;
+    // the layers only count their bytes for the controller
+    SnapshotImpl.setAccounting(flushController != null);
+  }
+
+  public static boolean isCheckpointLogKey(byte[] key) {
+    return key.length == CHECKPOINT_LOG_PREFIX.length + Longs.BYTES
+        && key[0] == CHECKPOINT_LOG_PREFIX[0];
+  }
+
+  /**
+   * Decode one checkpoint log record, {@code value} is null for a deleted key.
+   */
+  public static void readCheckpointLog(byte[] record, CheckpointLogConsumer consumer) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+      while (in.available() > 0) {
+        byte[] name = new byte[in.readInt()];
+        in.readFully(name);
+        String dbName = new String(name);
+        int entries = in.readInt();
+        for (int i = 0; i < entries; i++) {
+          byte[] key = new byte[in.readInt()];
+          in.readFully(key);
+          int length = in.readInt();
+          byte[] value = null;
+          if (length >= 0) {
+            value = new byte[length];
+            in.readFully(value);
+          }
+          consumer.accept(dbName, key, value);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("broken checkpoint log record.", e);
+    }
+  }
+
   public static String simpleDecode(byte[] bytes) {
     byte[] lengthBytes = Arrays.copyOf(bytes, 4);
     int length = Ints.fromByteArray(lengthBytes);
@@ -90,6 +185,9 @@ public class SnapshotManager implements RevokingDatabase {
     }
 
     if (size > maxSize.get()) {
+      if (flushController != null) {
+        flushController.onSnapshot(size - maxSize.get(), System.currentTimeMillis());
+      }
       flushCount = flushCount + (size - maxSize.get());
       updateSolidity(size - maxSize.get());
       size = maxSize.get();
@@ -111,22 +209,76 @@ public class SnapshotManager implements RevokingDatabase {
     dbs.forEach(db -> db.setCursor(cursor, offset));
   }
 
+  /**
+   * Lock free, the view pins the heads published last. The heads are published before the
+   * snapshots are flushed, so if a flush overtook the heads read the view pins those published
+   * since.
+   */
+  @Override
+  public ReadView createReadView(Chainbase.Cursor cursor, long offset) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return new ReadView(cursor, offset, heads);
+      } catch (ReadViewStaleException e) {
+        if (attempt >= READ_VIEW_ATTEMPTS) {
+          throw e;
+        }
+      }
+    }
+  }
+
   @Override
   public void add(IRevokingDB db) {
     Chainbase revokingDB = (Chainbase) db;
     dbs.add(revokingDB);
     flushServices.put(revokingDB.getDbName(),
         MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor()));
+    publish();
+  }
+
+  /**
+   * @return the chainbase of {@code dbName}, null if none.
+   */
+  public Chainbase getDb(String dbName) {
+    for (Chainbase db : dbs) {
+      if (db.getDbName().equals(dbName)) {
+        return db;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Publish the heads of the dbs to the read views, after every move of a head or a solidity.
+   */
+  private void publish() {
+    Map<Chainbase, ReadView.Heads> published = new IdentityHashMap<>();
+    dbs.forEach(db -> published.put(db, new ReadView.Heads(db.getHead())));
+    heads = Collections.unmodifiableMap(published);
   }
 
   private void advance() {
     dbs.forEach(db -> db.setHead(db.getHead().advance()));
     ++size;
+    publish();
   }
 
   private void retreat() {
-    dbs.forEach(db -> db.setHead(db.getHead().retreat()));
+    retreat(true);
+  }
+
+  /**
+   * @param revoked false when the head snapshots were merged into their previous ones and the
+   *     values seen at the head do not change.
+   */
+  private void retreat(boolean revoked) {
+    dbs.forEach(db -> {
+      Snapshot popped = db.getHead();
+      db.setHead(popped.retreat());
+      db.onRetreat(popped, revoked);
+    });
     --size;
+    publish();
   }
 
   public void merge() {
@@ -138,8 +290,12 @@ public class SnapshotManager implements RevokingDatabase {
       return;
     }
 
-    dbs.forEach(db -> db.getHead().getPrevious().merge(db.getHead()));
-    retreat();
+    dbs.forEach(db -> {
+      Snapshot head = db.getHead();
+      head.getPrevious().merge(head);
+      db.onMerge(head);
+    });
+    retreat(false);
     --activeSession;
   }
 
@@ -223,6 +379,10 @@ public class SnapshotManager implements RevokingDatabase {
   public void shutdown() {
     System.err.println("******** begin to pop revokingDb ********");
     System.err.println("******** before revokingDb size:" + size);
+    waitForFlush();
+    if (flushExecutor != null) {
+      flushExecutor.shutdown();
+    }
     checkTmpStore.close();
     System.err.println("******** end to pop revokingDb ********");
   }
@@ -233,73 +393,259 @@ public class SnapshotManager implements RevokingDatabase {
         db.getHead().updateSolidity();
       }
     }
+    publish();
   }
 
   private boolean shouldBeRefreshed() {
-    return flushCount >= maxFlushCount;
+    if (flushController == null) {
+      return flushCount >= maxFlushCount;
+    }
+
+    int count = flushController.next();
+    long[] bytes = snapshotBytes(flushCount);
+    MetricsUtil.histogramUpdate(MetricsKey.DB_SNAPSHOT_FLUSH_COUNT, count);
+    MetricsUtil.histogramUpdate(MetricsKey.DB_SNAPSHOT_BYTES_HELD, bytes[1]);
+    return flushCount > 0
+        && (flushCount >= count || flushController.mustFlush(bytes[0], bytes[1]));
+  }
+
+  /**
+   * Bytes held by the oldest {@code count} snapshots and by all snapshots, over all dbs.
+   */
+  private long[] snapshotBytes(int count) {
+    long pending = 0;
+    long held = 0;
+    for (Chainbase db : dbs) {
+      Snapshot head = db.getHead();
+      Snapshot next = head.getRoot().getNext();
+      for (int i = 0; Snapshot.isImpl(next); i++) {
+        long bytes = ((SnapshotImpl) next).getBytes();
+        held += bytes;
+        if (i < count) {
+          pending += bytes;
+        }
+        if (next == head) {
+          break;
+        }
+        next = next.getNext();
+      }
+    }
+    return new long[]{pending, held};
   }
 
-  private void refresh() {
+  /**
+   * Merge the oldest {@code count} snapshots into the roots. The dbs kept as column families of
+   * one database are written in one atomic batch, the others on their flush services. The
+   * snapshots stay linked, see {@link #unlink}.
+   *
+   * @return the merged snapshots per db.
+   * @throws IllegalStateException if a db could not be written, the snapshots merged so far
+   *     are then merged again by the next flush.
+   */
+  private Map<Chainbase, List<Snapshot>> refresh(int count) {
+    Map<Chainbase, List<Snapshot>> merged = Collections.synchronizedMap(new LinkedHashMap<>());
     List<ListenableFuture<?>> futures = new ArrayList<>(dbs.size());
+    Map<RocksDbColumnFamilies, List<Chainbase>> shared = new IdentityHashMap<>();
     for (Chainbase db : dbs) {
-      futures.add(flushServices.get(db.getDbName()).submit(() -> refreshOne(db)));
+      RocksDbColumnFamilies families = ((SnapshotRoot) db.getHead().getRoot())
+          .getColumnFamilies();
+      if (families == null) {
+        futures.add(flushServices.get(db.getDbName())
+            .submit(() -> refreshOne(db, count, merged)));
+      } else {
+        shared.computeIfAbsent(families, k -> new ArrayList<>()).add(db);
+      }
     }
     Future<?> future = Futures.allAsList(futures);
+    RuntimeException failure = null;
+    for (Map.Entry<RocksDbColumnFamilies, List<Chainbase>> e : shared.entrySet()) {
+      try {
+        refreshShared(e.getKey(), e.getValue(), count, merged);
+      } catch (RuntimeException ex) {
+        failure = ex;
+      }
+    }
     try {
       future.get();
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
+      throw new IllegalStateException("flush interrupted", e);
     } catch (ExecutionException e) {
-      logger.error(e.getMessage(), e);
+      throw new IllegalStateException("flush failed", e.getCause());
+    }
+    if (failure != null) {
+      throw new IllegalStateException("flush failed", failure);
     }
+    return merged;
   }
 
-  private void refreshOne(Chainbase db) {
-    if (Snapshot.isRoot(db.getHead())) {
+  private void refreshOne(Chainbase db, int count, Map<Chainbase, List<Snapshot>> merged) {
+    List<Snapshot> snapshots = oldest(db, count);
+    if (snapshots.isEmpty()) {
       return;
     }
 
-    List<Snapshot> snapshots = new ArrayList<>();
-
     SnapshotRoot root = (SnapshotRoot) db.getHead().getRoot();
-    Snapshot next = root;
-    for (int i = 0; i < flushCount; ++i) {
-      next = next.getNext();
-      snapshots.add(next);
+    root.merge(snapshots);
+    merged.put(db, snapshots);
+  }
+
+  private void refreshShared(RocksDbColumnFamilies families, List<Chainbase> shared, int count,
+      Map<Chainbase, List<Snapshot>> merged) {
+    Map<Chainbase, List<Snapshot>> written = new LinkedHashMap<>();
+    try (RocksDbColumnFamilies.Batch batch = families.newBatch()) {
+      for (Chainbase db : shared) {
+        List<Snapshot> snapshots = oldest(db, count);
+        if (!snapshots.isEmpty()) {
+          ((SnapshotRoot) db.getHead().getRoot()).merge(snapshots, batch);
+          written.put(db, snapshots);
+        }
+      }
+      batch.write(WriteOptionsWrapper.getInstance()
+          .sync(CommonParameter.getInstance().getStorage().isDbSync()));
     }
+    merged.putAll(written);
+  }
 
-    root.merge(snapshots);
+  private static List<Snapshot> oldest(Chainbase db, int count) {
+    if (Snapshot.isRoot(db.getHead())) {
+      return Collections.emptyList();
+    }
 
-    root.resetSolidity();
-    if (db.getHead() == next) {
-      db.setHead(root);
-    } else {
-      next.getNext().setPrevious(root);
-      root.setNext(next.getNext());
+    List<Snapshot> snapshots = new ArrayList<>();
+    Snapshot next = db.getHead().getRoot();
+    for (int i = 0; i < count; ++i) {
+      next = next.getNext();
+      snapshots.add(next);
     }
+    return snapshots;
   }
 
-  public void flush() {
+  /**
+   * Drop the merged snapshots from the chains of their dbs. Only the block processing thread
+   * moves the heads, and it does so under this lock, so the head checked here stays the head.
+   */
+  private synchronized void unlink(Map<Chainbase, List<Snapshot>> merged) {
+    merged.forEach((db, snapshots) -> {
+      SnapshotRoot root = (SnapshotRoot) db.getHead().getRoot();
+      Snapshot next = snapshots.get(snapshots.size() - 1);
+      root.resetSolidity(snapshots);
+      if (db.getHead() == next) {
+        db.setHead(root);
+      } else {
+        next.getNext().setPrevious(root);
+        root.setNext(next.getNext());
+      }
+      db.onFlush(snapshots);
+    });
+    publish();
+  }
+
+  public synchronized void flush() {
     if (unChecked) {
       return;
     }
 
     if (shouldBeRefreshed()) {
-      long start = System.currentTimeMillis();
+      if (asyncFlush && maxSize.get() > 0) {
+        flushAsync();
+      } else {
+        // the snapshots of an async flush still in flight must be unlinked first
+        waitForFlush();
+        int count = flushCount;
+        try {
+          unlink(flush(count));
+          flushCount -= count;
+        } catch (RuntimeException e) {
+          logger.error("flush of {} snapshots failed, retried by the next flush", count, e);
+        }
+      }
+    }
+  }
+
+  private Map<Chainbase, List<Snapshot>> flush(int count) {
+    long start = System.currentTimeMillis();
+    long bytes = flushController == null ? 0 : snapshotBytes(count)[0];
+    long seq = -1;
+    if (checkpointLog) {
+      seq = appendCheckpointLog(count);
+    } else {
       deleteCheckpoint();
-      createCheckpoint();
-      long checkPointEnd = System.currentTimeMillis();
-      refresh();
-      flushCount = 0;
-      logger.info("flush cost:{}, create checkpoint cost:{}, refresh cost:{}",
-          System.currentTimeMillis() - start,
-          checkPointEnd - start,
-          System.currentTimeMillis() - checkPointEnd
-      );
+      createCheckpoint(count);
+    }
+    long checkPointEnd = System.currentTimeMillis();
+    Map<Chainbase, List<Snapshot>> merged = refresh(count);
+    if (checkpointLog) {
+      truncateCheckpointLog(seq);
+    }
+    if (flushController != null) {
+      long cost = System.currentTimeMillis() - start;
+      flushController.onFlush(bytes, cost);
+      MetricsUtil.histogramUpdate(MetricsKey.DB_SNAPSHOT_FLUSH_LATENCY, cost);
+    }
+    logger.info("flush cost:{}, create checkpoint cost:{}, refresh cost:{}",
+        System.currentTimeMillis() - start,
+        checkPointEnd - start,
+        System.currentTimeMillis() - checkPointEnd
+    );
+    return merged;
+  }
+
+  /**
+   * Freeze the oldest flushCount snapshots and write them on the flush executor. The frozen
+   * snapshots stay linked below the head until the flush is done and this thread unlinks them,
+   * so readers see them as a normal layer meanwhile; the checkpoint is written before the merge
+   * as in the synchronous path. Only one flush is in flight at a time: while it runs, new
+   * snapshots keep accumulating and the caller only waits once more than maxFlushBacklog are
+   * pending.
+   */
+  private void flushAsync() {
+    if (flushFuture != null && !flushFuture.isDone() && flushCount < maxFlushBacklog) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    boolean waited = flushFuture != null && !flushFuture.isDone();
+    waitForFlush();
+    if (waited) {
+      logger.info("flush backlog {} reached, wait cost:{}", flushCount,
+          System.currentTimeMillis() - start);
     }
+
+    if (flushExecutor == null) {
+      flushExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    int count = flushCount;
+    flushCount = 0;
+    flushingCount = count;
+    flushFuture = flushExecutor.submit(() -> flush(count));
+  }
+
+  /**
+   * Wait for the async flush in flight and unlink its snapshots. If it failed, its snapshots
+   * are still linked and are taken again by the next flush.
+   */
+  private synchronized void waitForFlush() {
+    if (flushFuture == null) {
+      return;
+    }
+
+    try {
+      unlink(flushFuture.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    } catch (ExecutionException e) {
+      logger.error("flush of {} snapshots failed, retried by the next flush", flushingCount,
+          e.getCause());
+      flushCount += flushingCount;
+    }
+    flushFuture = null;
+    flushingCount = 0;
   }
 
-  private void createCheckpoint() {
+  private void createCheckpoint(int count) {
     Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
     for (Chainbase db : dbs) {
       Snapshot head = db.getHead();
@@ -309,7 +655,7 @@ public class SnapshotManager implements RevokingDatabase {
 
       String dbName = db.getDbName();
       Snapshot next = head.getRoot();
-      for (int i = 0; i < flushCount; ++i) {
+      for (int i = 0; i < count; ++i) {
         next = next.getNext();
         SnapshotImpl snapshot = (SnapshotImpl) next;
         DB<Key, Value> keyValueDB = snapshot.getDb();
@@ -329,6 +675,93 @@ public class SnapshotManager implements RevokingDatabase {
             .getInstance().getStorage().isDbSync()));
   }
 
+  /**
+   * Append the newest value of every key in the oldest {@code count} snapshots as one log
+   * record. Each db section holds its name once followed by (key, value) pairs, deduplicated
+   * by walking the snapshots from newest to oldest.
+   */
+  private long appendCheckpointLog(int count) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      for (Chainbase db : dbs) {
+        Snapshot head = db.getHead();
+        if (Snapshot.isRoot(head)) {
+          continue;
+        }
+
+        List<SnapshotImpl> snapshots = new ArrayList<>(count);
+        Snapshot next = head.getRoot();
+        for (int i = 0; i < count; ++i) {
+          next = next.getNext();
+          snapshots.add((SnapshotImpl) next);
+        }
+        writeCheckpointLog(out, db.getDbName(), snapshots);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    long seq = checkpointSeq++;
+    checkTmpStore.getDbSource().updateByBatch(
+        Collections.singletonMap(checkpointLogKey(seq), bytes.toByteArray()),
+        WriteOptionsWrapper.getInstance().sync(CommonParameter
+            .getInstance().getStorage().isDbSync()));
+    return seq;
+  }
+
+  private void writeCheckpointLog(DataOutputStream out, String dbName,
+      List<SnapshotImpl> snapshots) throws IOException {
+    Set<Key> seen = new HashSet<>();
+    List<Map.Entry<Key, Value>> entries = new ArrayList<>();
+    for (int i = snapshots.size() - 1; i >= 0; i--) {
+      for (Map.Entry<Key, Value> e : snapshots.get(i).getDb()) {
+        if (seen.add(e.getKey())) {
+          entries.add(e);
+        }
+      }
+    }
+
+    if (entries.isEmpty()) {
+      return;
+    }
+
+    byte[] name = dbName.getBytes();
+    out.writeInt(name.length);
+    out.write(name);
+    out.writeInt(entries.size());
+    for (Map.Entry<Key, Value> e : entries) {
+      byte[] key = e.getKey().getBytes();
+      byte[] value = e.getValue().getBytes();
+      out.writeInt(key.length);
+      out.write(key);
+      if (value == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(value.length);
+        out.write(value);
+      }
+    }
+  }
+
+  /**
+   * Remove the checkpoint log records up to {@code seq}, the snapshots of all of them are in the
+   * roots once the flush of {@code seq} is done.
+   */
+  private void truncateCheckpointLog(long seq) {
+    Map<byte[], byte[]> records = new HashMap<>();
+    for (long i = checkpointLogStart; i <= seq; i++) {
+      records.put(checkpointLogKey(i), null);
+    }
+    checkTmpStore.getDbSource().updateByBatch(records,
+        WriteOptionsWrapper.getInstance().sync(CommonParameter
+            .getInstance().getStorage().isDbSync()));
+    checkpointLogStart = seq + 1;
+  }
+
+  private static byte[] checkpointLogKey(long seq) {
+    return Bytes.concat(CHECKPOINT_LOG_PREFIX, Longs.toByteArray(seq));
+  }
+
   private void deleteCheckpoint() {
     Map<byte[], byte[]> hmap = new HashMap<byte[], byte[]>();
     if (!checkTmpStore.getDbSource().allKeys().isEmpty()) {
@@ -354,9 +787,20 @@ public class SnapshotManager implements RevokingDatabase {
           .map(db -> Maps.immutableEntry(db.getDbName(), db))
           .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
       advance();
+      List<byte[]> logRecords = new ArrayList<>();
+      Map<byte[], byte[]> replayed = new HashMap<>();
       for (Map.Entry<byte[], byte[]> e : checkTmpStore.getDbSource()) {
         byte[] key = e.getKey();
         byte[] value = e.getValue();
+        replayed.put(key, null);
+        if (isCheckpointLogKey(key)) {
+          // log keys sort after the legacy keys and by sequence number
+          logRecords.add(value);
+          checkpointSeq = Math.max(checkpointSeq,
+              Longs.fromByteArray(Arrays.copyOfRange(key, 1, key.length)) + 1);
+          continue;
+        }
+
         String db = simpleDecode(key);
         if (dbMap.get(db) == null) {
           continue;
@@ -372,8 +816,26 @@ public class SnapshotManager implements RevokingDatabase {
 
       }
 
+      for (byte[] record : logRecords) {
+        readCheckpointLog(record, (db, key, value) -> {
+          if (dbMap.get(db) == null) {
+            return;
+          }
+          if (value != null) {
+            dbMap.get(db).getHead().put(key, value);
+          } else {
+            dbMap.get(db).getHead().remove(key);
+          }
+        });
+      }
+
       dbs.forEach(db -> db.getHead().getRoot().merge(db.getHead()));
       retreat();
+
+      if (checkpointLog) {
+        checkTmpStore.getDbSource().updateByBatch(replayed);
+        checkpointLogStart = checkpointSeq;
+      }
     }
 
     unChecked = false;
@@ -388,6 +850,11 @@ public class SnapshotManager implements RevokingDatabase {
     return r;
   }
 
+  public interface CheckpointLogConsumer {
+
+    void accept(String dbName, byte[] key, byte[] value);
+  }
+
   @Slf4j(topic = "DB")
   @Getter // only for unit test
   public static class Session implements ISession {
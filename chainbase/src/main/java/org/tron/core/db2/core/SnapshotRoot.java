@@ -1,35 +1,100 @@
 package org.tron.core.db2.core;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Streams;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 import lombok.Getter;
+import org.tron.common.storage.BatchWriter;
+import org.tron.common.storage.DbSnapshot;
+import org.tron.common.storage.ValueCodec;
+import org.tron.common.storage.rocksdb.RocksDbColumnFamilies;
+import org.tron.core.db.common.iterator.DBIterator;
 import org.tron.core.db2.common.DB;
 import org.tron.core.db2.common.Flusher;
-import org.tron.core.db2.common.WrappedByteArray;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.LevelDB;
+import org.tron.core.db2.common.RocksDB;
+import org.tron.core.db2.common.TieredDB;
+import org.tron.core.db2.common.Value;
 
 public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
 
   @Getter
-  private Snapshot solidity;
+  private volatile Snapshot solidity;
+  // optional, values are encoded on the way to the db and decoded on the way back
+  @Getter
+  private final ValueCodec codec;
 
   public SnapshotRoot(DB<byte[], byte[]> db) {
+    this(db, null);
+  }
+
+  public SnapshotRoot(DB<byte[], byte[]> db, ValueCodec codec) {
     this.db = db;
+    this.codec = codec;
     solidity = this;
   }
 
+  /**
+   * @return up to {@code count} values of the db from the last key backwards, as they are
+   *     stored.
+   */
+  public static List<byte[]> newestValues(DB<byte[], byte[]> db, int count) {
+    List<byte[]> values = new ArrayList<>();
+    try (DBIterator iterator = MergeIterator.rootIterator(db, null, true)) {
+      while (iterator != null && values.size() < count && iterator.hasNext()) {
+        values.add(iterator.next().getValue());
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return values;
+  }
+
+  byte[] decode(byte[] stored) {
+    return codec == null ? stored : codec.decode(stored);
+  }
+
+  private byte[] encode(byte[] value) {
+    return codec == null ? value : codec.encode(value);
+  }
+
   @Override
   public byte[] get(byte[] key) {
-    return db.get(key);
+    return decode(db.get(key));
+  }
+
+  /**
+   * @return the values of {@code keys} in the same order, read from disk in one call.
+   */
+  public List<byte[]> getMany(List<byte[]> keys) {
+    List<byte[]> values;
+    if (db.getClass() == LevelDB.class) {
+      values = ((LevelDB) db).getDb().getMany(keys);
+    } else if (db.getClass() == RocksDB.class) {
+      values = ((RocksDB) db).getDb().getMany(keys);
+    } else {
+      values = new ArrayList<>(keys.size());
+      for (byte[] key : keys) {
+        values.add(db.get(key));
+      }
+    }
+    if (codec != null) {
+      values.replaceAll(codec::decode);
+    }
+    return values;
   }
 
   @Override
   public void put(byte[] key, byte[] value) {
-    db.put(key, value);
+    db.put(key, encode(value));
   }
 
   @Override
@@ -39,25 +104,82 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
 
   @Override
   public void merge(Snapshot from) {
-    SnapshotImpl snapshot = (SnapshotImpl) from;
-    Map<WrappedByteArray, WrappedByteArray> batch = Streams.stream(snapshot.db)
-        .map(e -> Maps.immutableEntry(WrappedByteArray.of(e.getKey().getBytes()),
-            WrappedByteArray.of(e.getValue().getBytes())))
-        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-    ((Flusher) db).flush(batch);
+    merge(Collections.singletonList(from));
   }
 
+  /**
+   * Write the newest value of every key in {@code snapshots} to the db in one batch. The
+   * snapshots are walked newest to oldest and a key is written the first time it is seen, so
+   * overwritten values are skipped and nothing is copied on the way to the native WriteBatch.
+   */
   public void merge(List<Snapshot> snapshots) {
-    Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
-    for (Snapshot snapshot : snapshots) {
-      SnapshotImpl from = (SnapshotImpl) snapshot;
-      Streams.stream(from.db)
-          .map(e -> Maps.immutableEntry(WrappedByteArray.of(e.getKey().getBytes()),
-              WrappedByteArray.of(e.getValue().getBytes())))
-          .forEach(e -> batch.put(e.getKey(), e.getValue()));
+    ((Flusher) db).flush(writer -> write(snapshots, encoding(writer)));
+  }
+
+  /**
+   * Add the rows of {@link #merge(List)} to {@code batch} instead of writing them, the db must
+   * be a column family of the database of the batch.
+   */
+  void merge(List<Snapshot> snapshots, RocksDbColumnFamilies.Batch batch) {
+    write(snapshots, encoding(batch.writer(((RocksDB) db).getDb())));
+  }
+
+  private BatchWriter encoding(BatchWriter writer) {
+    return codec == null ? writer : (key, value) -> writer.put(key, codec.encode(value));
+  }
+
+  private static void write(List<Snapshot> snapshots, BatchWriter writer) {
+    snapshots.forEach(snapshot -> ((SnapshotImpl) snapshot).markFlushed());
+    Set<Key> seen = new HashSet<>();
+    for (int i = snapshots.size() - 1; i >= 0; i--) {
+      SnapshotImpl from = (SnapshotImpl) snapshots.get(i);
+      for (Map.Entry<Key, Value> e : from.db) {
+        if (seen.add(e.getKey())) {
+          writer.put(e.getKey().getRawBytes(), e.getValue().getRawBytes());
+        }
+      }
     }
+  }
 
-    ((Flusher) db).flush(batch);
+  /**
+   * @return the shared database the db is a column family of, or null.
+   */
+  RocksDbColumnFamilies getColumnFamilies() {
+    return db.getClass() == RocksDB.class ? ((RocksDB) db).getDb().getColumnFamilies() : null;
+  }
+
+  /**
+   * Pin the current content of the db, later flushes are not visible through the returned
+   * snapshot. Stores without native snapshots are read live.
+   */
+  public DbSnapshot pin() {
+    DbSnapshot pinned;
+    if (db.getClass() == LevelDB.class) {
+      pinned = ((LevelDB) db).getDb().getSnapshot();
+    } else if (db.getClass() == RocksDB.class) {
+      pinned = ((RocksDB) db).getDb().getSnapshot();
+    } else if (db.getClass() == TieredDB.class) {
+      pinned = ((TieredDB) db).pin();
+    } else {
+      pinned = null;
+    }
+    if (pinned != null && codec == null) {
+      return pinned;
+    }
+
+    return new DbSnapshot() {
+      @Override
+      public byte[] get(byte[] key) {
+        return decode(pinned == null ? db.get(key) : pinned.get(key));
+      }
+
+      @Override
+      public void close() {
+        if (pinned != null) {
+          pinned.close();
+        }
+      }
+    };
   }
 
   @Override
@@ -72,7 +194,11 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
 
   @Override
   public Iterator<Map.Entry<byte[], byte[]>> iterator() {
-    return db.iterator();
+    if (codec == null) {
+      return db.iterator();
+    }
+    return Iterators.transform(db.iterator(),
+        e -> Maps.immutableEntry(e.getKey(), codec.decode(e.getValue())));
   }
 
   @Override
@@ -86,12 +212,22 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
   }
 
   @Override
-  public void resetSolidity() {
+  public synchronized void resetSolidity() {
     solidity = this;
   }
 
+  /**
+   * Reset the solidity to the root if it points to one of the {@code flushed} snapshots, it may
+   * already have moved past them when the flush runs asynchronously.
+   */
+  public synchronized void resetSolidity(List<Snapshot> flushed) {
+    if (solidity == this || flushed.contains(solidity)) {
+      solidity = this;
+    }
+  }
+
   @Override
-  public void updateSolidity() {
+  public synchronized void updateSolidity() {
     solidity = solidity.getNext();
   }
 
@@ -102,6 +238,6 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
 
   @Override
   public Snapshot newInstance() {
-    return new SnapshotRoot(db.newInstance());
+    return new SnapshotRoot(db.newInstance(), codec);
   }
 }
@@ -0,0 +1,172 @@
+package org.tron.core.db2.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import lombok.Getter;
+import org.tron.common.utils.ByteArray;
+import org.tron.core.db2.common.Key;
+
+/**
+ * The writes of one transaction executed ahead of its turn. While {@link #call} executes, the
+ * puts and deletes of the chainbases on that thread are kept here instead of in the snapshots,
+ * and the reads of that thread see them over the current state, see Chainbase. They reach the
+ * chainbases only through {@link #commit}.
+ *
+ * The reads a speculation can not account for, like iterators and range queries, mark it
+ * unsafe; its transaction must then be executed again in its turn.
+ */
+public class Speculation {
+
+  private static final ThreadLocal<Speculation> CURRENT = new ThreadLocal<>();
+
+  // the speculation executed before this one on the same thread, whose writes the reads see
+  private final Speculation parent;
+
+  // null values are deletes, in the order of the first write per chainbase
+  private final Map<Chainbase, Map<Key, byte[]>> writes = new IdentityHashMap<>();
+  private final List<Chainbase> order = new ArrayList<>();
+  // the effects outside of the chainbases, applied by commit in order
+  private final List<Runnable> deferred = new ArrayList<>();
+  // why the speculation must not be committed, null if it can be
+  @Getter
+  private volatile String unsafeReason;
+
+  public Speculation() {
+    this(null);
+  }
+
+  /**
+   * @param parent the speculation whose writes the reads of this one see over the current state,
+   *     to be committed before this one, null if none.
+   */
+  public Speculation(Speculation parent) {
+    this.parent = parent;
+  }
+
+  static Speculation current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Run {@code action} now, or when the speculation of this thread is committed.
+   */
+  public static void defer(Runnable action) {
+    Speculation speculation = CURRENT.get();
+    if (speculation == null) {
+      action.run();
+    } else {
+      speculation.deferred.add(action);
+    }
+  }
+
+  /**
+   * Mark the speculation of this thread unsafe, if there is one.
+   */
+  public static void markUnsafe(String reason) {
+    Speculation speculation = CURRENT.get();
+    if (speculation != null && speculation.unsafeReason == null) {
+      speculation.unsafeReason = reason;
+    }
+  }
+
+  public static boolean isSpeculating() {
+    return CURRENT.get() != null;
+  }
+
+  /**
+   * Run {@code task} with the writes of this thread kept by the speculation.
+   */
+  public <T> T call(Callable<T> task) throws Exception {
+    if (CURRENT.get() != null) {
+      throw new IllegalStateException("speculation already running on this thread");
+    }
+    CURRENT.set(this);
+    try {
+      return task.call();
+    } finally {
+      CURRENT.remove();
+    }
+  }
+
+  public boolean isUnsafe() {
+    return unsafeReason != null;
+  }
+
+  boolean contains(Chainbase db, byte[] key) {
+    Key k = Key.of(key);
+    for (Speculation s = this; s != null; s = s.parent) {
+      Map<Key, byte[]> values = s.writes.get(db);
+      if (values != null && values.containsKey(k)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the value written for {@code key} by this speculation or its parents, null if it was
+   *     deleted or not written.
+   */
+  byte[] get(Chainbase db, byte[] key) {
+    Key k = Key.of(key);
+    for (Speculation s = this; s != null; s = s.parent) {
+      Map<Key, byte[]> values = s.writes.get(db);
+      if (values != null && values.containsKey(k)) {
+        byte[] value = values.get(k);
+        return value == null ? null : value.clone();
+      }
+    }
+    return null;
+  }
+
+  void put(Chainbase db, byte[] key, byte[] value) {
+    Map<Key, byte[]> values = writes.get(db);
+    if (values == null) {
+      values = new LinkedHashMap<>();
+      writes.put(db, values);
+      order.add(db);
+    }
+    values.put(Key.copyOf(key), value == null ? null : value.clone());
+  }
+
+  /**
+   * Compare the writes with those of the same transaction executed in its turn, after it.
+   *
+   * @param written the accesses of the transaction executed in its turn.
+   * @return the first key written differently, as store and key, null if the writes match.
+   */
+  public String findMismatch(AccessSet written) {
+    int count = 0;
+    for (Chainbase db : order) {
+      for (Map.Entry<Key, byte[]> entry : writes.get(db).entrySet()) {
+        byte[] key = entry.getKey().getBytes();
+        if (!written.isWritten(db.getDbName(), key)
+            || !Arrays.equals(entry.getValue(), db.getUnchecked(key))) {
+          return db.getDbName() + ":" + ByteArray.toHexString(key);
+        }
+        count++;
+      }
+    }
+    return count == written.getWriteCount() ? null : "written keys " + count + " != "
+        + written.getWriteCount();
+  }
+
+  /**
+   * Apply the writes to the chainbases, then the deferred effects. The writes of the parents
+   * are not applied, they must be committed before.
+   */
+  public void commit() {
+    if (CURRENT.get() != null) {
+      throw new IllegalStateException("speculation committed while speculating");
+    }
+    for (Chainbase db : order) {
+      db.commit(writes.get(db));
+    }
+    deferred.forEach(Runnable::run);
+  }
+}
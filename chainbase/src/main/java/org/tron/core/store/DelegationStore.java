@@ -1,5 +1,7 @@
 package org.tron.core.store;
 
+import java.util.ArrayList;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ArrayUtils;
 import org.spongycastle.util.encoders.Hex;
@@ -91,6 +93,29 @@ public class DelegationStore extends TronStoreWithRevoking<BytesCapsule> {
     }
   }
 
+  /**
+   * @return the reward and the witness vote of every address in {@code cycle}, read in one
+   *     call. As in getReward and getWitnessVote, a missing reward is 0 and a missing vote
+   *     {@link #REMARK}.
+   */
+  public List<long[]> getRewardAndVote(long cycle, List<byte[]> addresses) {
+    List<byte[]> keys = new ArrayList<>(addresses.size() * 2);
+    for (byte[] address : addresses) {
+      keys.add(buildRewardKey(cycle, address));
+      keys.add(buildVoteKey(cycle, address));
+    }
+
+    List<BytesCapsule> values = getMany(keys);
+    List<long[]> result = new ArrayList<>(addresses.size());
+    for (int i = 0; i < addresses.size(); i++) {
+      BytesCapsule reward = values.get(2 * i);
+      BytesCapsule vote = values.get(2 * i + 1);
+      result.add(new long[]{reward == null ? 0L : ByteArray.toLong(reward.getData()),
+          vote == null ? REMARK : ByteArray.toLong(vote.getData())});
+    }
+    return result;
+  }
+
   public void setBeginCycle(byte[] address, long number) {
     put(address, new BytesCapsule(ByteArray.fromLong(number)));
   }
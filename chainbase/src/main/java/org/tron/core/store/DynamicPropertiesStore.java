@@ -3,6 +3,7 @@ package org.tron.core.store;
 import com.google.protobuf.ByteString;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import lombok.Getter;
@@ -18,6 +19,8 @@ import org.tron.core.capsule.BytesCapsule;
 import org.tron.core.config.Parameter;
 import org.tron.core.config.Parameter.ChainConstant;
 import org.tron.core.db.TronStoreWithRevoking;
+import org.tron.core.db2.core.Chainbase;
+import org.tron.core.db2.core.LongMirror;
 import org.tron.protos.contract.Common;
 
 @Slf4j(topic = "DB")
@@ -150,9 +153,13 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   private static final byte[] MARKET_CANCEL_FEE = "MARKET_CANCEL_FEE".getBytes();
   private static final byte[] MARKET_QUANTITY_LIMIT = "MARKET_QUANTITY_LIMIT".getBytes();
 
+  // numeric properties read at the head, null for the old revoking database
+  private final LongMirror mirror;
+
   @Autowired
   private DynamicPropertiesStore(@Value("properties") String dbName) {
     super(dbName);
+    mirror = revokingDB instanceof Chainbase ? new LongMirror((Chainbase) revokingDB) : null;
 
     try {
       this.getTotalSignNum();
@@ -720,11 +727,7 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTokenIdNum() {
-    return Optional.ofNullable(getUnchecked(TOKEN_ID_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOKEN_ID_NUM"));
+    return getLong(TOKEN_ID_NUM, () -> new IllegalArgumentException("not found TOKEN_ID_NUM"));
   }
 
   public void saveTokenUpdateDone(long num) {
@@ -733,11 +736,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTokenUpdateDone() {
-    return Optional.ofNullable(getUnchecked(TOKEN_UPDATE_DONE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOKEN_UPDATE_DONE"));
+    return getLong(TOKEN_UPDATE_DONE,
+        () -> new IllegalArgumentException("not found TOKEN_UPDATE_DONE"));
   }
 
   public void saveBlockFilledSlotsIndex(int blockFilledSlotsIndex) {
@@ -747,11 +747,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public int getBlockFilledSlotsIndex() {
-    return Optional.ofNullable(getUnchecked(BLOCK_FILLED_SLOTS_INDEX))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toInt)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found BLOCK_FILLED_SLOTS_INDEX"));
+    return (int) getLong(BLOCK_FILLED_SLOTS_INDEX,
+        () -> new IllegalArgumentException("not found BLOCK_FILLED_SLOTS_INDEX"));
   }
 
   public void saveMaxFrozenTime(int maxFrozenTime) {
@@ -761,11 +758,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public int getMaxFrozenTime() {
-    return Optional.ofNullable(getUnchecked(MAX_FROZEN_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toInt)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MAX_FROZEN_TIME"));
+    return (int) getLong(MAX_FROZEN_TIME,
+        () -> new IllegalArgumentException("not found MAX_FROZEN_TIME"));
   }
 
   public void saveMinFrozenTime(int minFrozenTime) {
@@ -775,11 +769,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public int getMinFrozenTime() {
-    return Optional.ofNullable(getUnchecked(MIN_FROZEN_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toInt)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MIN_FROZEN_TIME"));
+    return (int) getLong(MIN_FROZEN_TIME,
+        () -> new IllegalArgumentException("not found MIN_FROZEN_TIME"));
   }
 
   public void saveMaxFrozenSupplyNumber(int maxFrozenSupplyNumber) {
@@ -789,11 +780,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public int getMaxFrozenSupplyNumber() {
-    return Optional.ofNullable(getUnchecked(MAX_FROZEN_SUPPLY_NUMBER))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toInt)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MAX_FROZEN_SUPPLY_NUMBER"));
+    return (int) getLong(MAX_FROZEN_SUPPLY_NUMBER,
+        () -> new IllegalArgumentException("not found MAX_FROZEN_SUPPLY_NUMBER"));
   }
 
   public void saveMaxFrozenSupplyTime(int maxFrozenSupplyTime) {
@@ -803,11 +791,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public int getMaxFrozenSupplyTime() {
-    return Optional.ofNullable(getUnchecked(MAX_FROZEN_SUPPLY_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toInt)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MAX_FROZEN_SUPPLY_TIME"));
+    return (int) getLong(MAX_FROZEN_SUPPLY_TIME,
+        () -> new IllegalArgumentException("not found MAX_FROZEN_SUPPLY_TIME"));
   }
 
   public void saveMinFrozenSupplyTime(int minFrozenSupplyTime) {
@@ -817,11 +802,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public int getMinFrozenSupplyTime() {
-    return Optional.ofNullable(getUnchecked(MIN_FROZEN_SUPPLY_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toInt)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MIN_FROZEN_SUPPLY_TIME"));
+    return (int) getLong(MIN_FROZEN_SUPPLY_TIME,
+        () -> new IllegalArgumentException("not found MIN_FROZEN_SUPPLY_TIME"));
   }
 
   public void saveWitnessAllowanceFrozenTime(int witnessAllowanceFrozenTime) {
@@ -831,11 +813,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public int getWitnessAllowanceFrozenTime() {
-    return Optional.ofNullable(getUnchecked(WITNESS_ALLOWANCE_FROZEN_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toInt)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found WITNESS_ALLOWANCE_FROZEN_TIME"));
+    return (int) getLong(WITNESS_ALLOWANCE_FROZEN_TIME,
+        () -> new IllegalArgumentException("not found WITNESS_ALLOWANCE_FROZEN_TIME"));
   }
 
   public void saveMaintenanceTimeInterval(long timeInterval) {
@@ -845,11 +824,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getMaintenanceTimeInterval() {
-    return Optional.ofNullable(getUnchecked(MAINTENANCE_TIME_INTERVAL))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MAINTENANCE_TIME_INTERVAL"));
+    return getLong(MAINTENANCE_TIME_INTERVAL,
+        () -> new IllegalArgumentException("not found MAINTENANCE_TIME_INTERVAL"));
   }
 
   public void saveAccountUpgradeCost(long accountUpgradeCost) {
@@ -859,11 +835,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAccountUpgradeCost() {
-    return Optional.ofNullable(getUnchecked(ACCOUNT_UPGRADE_COST))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ACCOUNT_UPGRADE_COST"));
+    return getLong(ACCOUNT_UPGRADE_COST,
+        () -> new IllegalArgumentException("not found ACCOUNT_UPGRADE_COST"));
   }
 
   public void saveWitnessPayPerBlock(long pay) {
@@ -873,11 +846,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getWitnessPayPerBlock() {
-    return Optional.ofNullable(getUnchecked(WITNESS_PAY_PER_BLOCK))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found WITNESS_PAY_PER_BLOCK"));
+    return getLong(WITNESS_PAY_PER_BLOCK,
+        () -> new IllegalArgumentException("not found WITNESS_PAY_PER_BLOCK"));
   }
 
   public void saveWitness127PayPerBlock(long pay) {
@@ -887,10 +857,7 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getWitness127PayPerBlock() {
-    return Optional.ofNullable(getUnchecked(WITNESS_127_PAY_PER_BLOCK))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElse(16000000L);
+    return getLong(WITNESS_127_PAY_PER_BLOCK, 16000000L);
   }
 
   public void saveWitnessStandbyAllowance(long allowance) {
@@ -900,11 +867,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getWitnessStandbyAllowance() {
-    return Optional.ofNullable(getUnchecked(WITNESS_STANDBY_ALLOWANCE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found WITNESS_STANDBY_ALLOWANCE"));
+    return getLong(WITNESS_STANDBY_ALLOWANCE,
+        () -> new IllegalArgumentException("not found WITNESS_STANDBY_ALLOWANCE"));
   }
 
   public void saveOneDayNetLimit(long oneDayNetLimit) {
@@ -913,11 +877,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getOneDayNetLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.ONE_DAY_NET_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ONE_DAY_NET_LIMIT"));
+    return getLong(DynamicResourceProperties.ONE_DAY_NET_LIMIT,
+        () -> new IllegalArgumentException("not found ONE_DAY_NET_LIMIT"));
   }
 
   public void savePublicNetUsage(long publicNetUsage) {
@@ -926,11 +887,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getPublicNetUsage() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.PUBLIC_NET_USAGE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found PUBLIC_NET_USAGE"));
+    return getLong(DynamicResourceProperties.PUBLIC_NET_USAGE,
+        () -> new IllegalArgumentException("not found PUBLIC_NET_USAGE"));
   }
 
   public void savePublicNetLimit(long publicNetLimit) {
@@ -939,11 +897,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getPublicNetLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.PUBLIC_NET_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found PUBLIC_NET_LIMIT"));
+    return getLong(DynamicResourceProperties.PUBLIC_NET_LIMIT,
+        () -> new IllegalArgumentException("not found PUBLIC_NET_LIMIT"));
   }
 
   public void savePublicNetTime(long publicNetTime) {
@@ -952,11 +907,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getPublicNetTime() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.PUBLIC_NET_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found PUBLIC_NET_TIME"));
+    return getLong(DynamicResourceProperties.PUBLIC_NET_TIME,
+        () -> new IllegalArgumentException("not found PUBLIC_NET_TIME"));
   }
 
   public void saveFreeNetLimit(long freeNetLimit) {
@@ -965,11 +917,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getFreeNetLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.FREE_NET_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found FREE_NET_LIMIT"));
+    return getLong(DynamicResourceProperties.FREE_NET_LIMIT,
+        () -> new IllegalArgumentException("not found FREE_NET_LIMIT"));
   }
 
   public void saveTotalNetWeight(long totalNetWeight) {
@@ -978,11 +927,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalNetWeight() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_NET_WEIGHT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_NET_WEIGHT"));
+    return getLong(DynamicResourceProperties.TOTAL_NET_WEIGHT,
+        () -> new IllegalArgumentException("not found TOTAL_NET_WEIGHT"));
   }
 
   public void saveTotalEnergyWeight(long totalEnergyWeight) {
@@ -991,11 +937,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalEnergyWeight() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_WEIGHT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_ENERGY_WEIGHT"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_WEIGHT,
+        () -> new IllegalArgumentException("not found TOTAL_ENERGY_WEIGHT"));
   }
 
   public void saveTotalNetLimit(long totalNetLimit) {
@@ -1004,11 +947,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalNetLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_NET_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_NET_LIMIT"));
+    return getLong(DynamicResourceProperties.TOTAL_NET_LIMIT,
+        () -> new IllegalArgumentException("not found TOTAL_NET_LIMIT"));
   }
 
   @Deprecated
@@ -1032,11 +972,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalEnergyLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_ENERGY_LIMIT"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_LIMIT,
+        () -> new IllegalArgumentException("not found TOTAL_ENERGY_LIMIT"));
   }
 
   public void saveTotalEnergyCurrentLimit(long totalEnergyCurrentLimit) {
@@ -1045,11 +982,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalEnergyCurrentLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_CURRENT_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_ENERGY_CURRENT_LIMIT"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_CURRENT_LIMIT,
+        () -> new IllegalArgumentException("not found TOTAL_ENERGY_CURRENT_LIMIT"));
   }
 
   public void saveTotalEnergyTargetLimit(long targetTotalEnergyLimit) {
@@ -1058,11 +992,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalEnergyTargetLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_TARGET_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_ENERGY_TARGET_LIMIT"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_TARGET_LIMIT,
+        () -> new IllegalArgumentException("not found TOTAL_ENERGY_TARGET_LIMIT"));
   }
 
   public void saveTotalEnergyAverageUsage(long totalEnergyAverageUsage) {
@@ -1071,11 +1002,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalEnergyAverageUsage() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_AVERAGE_USAGE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_ENERGY_AVERAGE_USAGE"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_AVERAGE_USAGE,
+        () -> new IllegalArgumentException("not found TOTAL_ENERGY_AVERAGE_USAGE"));
   }
 
   public void saveAdaptiveResourceLimitMultiplier(long adaptiveResourceLimitMultiplier) {
@@ -1084,12 +1012,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAdaptiveResourceLimitMultiplier() {
-    return Optional
-        .ofNullable(getUnchecked(DynamicResourceProperties.ADAPTIVE_RESOURCE_LIMIT_MULTIPLIER))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ADAPTIVE_RESOURCE_LIMIT_MULTIPLIER"));
+    return getLong(DynamicResourceProperties.ADAPTIVE_RESOURCE_LIMIT_MULTIPLIER,
+        () -> new IllegalArgumentException("not found ADAPTIVE_RESOURCE_LIMIT_MULTIPLIER"));
   }
 
   public void saveAdaptiveResourceLimitTargetRatio(long adaptiveResourceLimitTargetRatio) {
@@ -1098,12 +1022,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAdaptiveResourceLimitTargetRatio() {
-    return Optional
-        .ofNullable(getUnchecked(DynamicResourceProperties.ADAPTIVE_RESOURCE_LIMIT_TARGET_RATIO))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ADAPTIVE_RESOURCE_LIMIT_TARGET_RATIO"));
+    return getLong(DynamicResourceProperties.ADAPTIVE_RESOURCE_LIMIT_TARGET_RATIO,
+        () -> new IllegalArgumentException("not found ADAPTIVE_RESOURCE_LIMIT_TARGET_RATIO"));
   }
 
   public void saveTotalEnergyAverageTime(long totalEnergyAverageTime) {
@@ -1112,11 +1032,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalEnergyAverageTime() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_AVERAGE_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_NET_AVERAGE_TIME"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_AVERAGE_TIME,
+        () -> new IllegalArgumentException("not found TOTAL_NET_AVERAGE_TIME"));
   }
 
   public void saveBlockEnergyUsage(long blockEnergyUsage) {
@@ -1125,11 +1042,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getBlockEnergyUsage() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.BLOCK_ENERGY_USAGE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found BLOCK_ENERGY_USAGE"));
+    return getLong(DynamicResourceProperties.BLOCK_ENERGY_USAGE,
+        () -> new IllegalArgumentException("not found BLOCK_ENERGY_USAGE"));
   }
 
   public void saveEnergyFee(long totalEnergyFee) {
@@ -1138,11 +1052,7 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getEnergyFee() {
-    return Optional.ofNullable(getUnchecked(ENERGY_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ENERGY_FEE"));
+    return getLong(ENERGY_FEE, () -> new IllegalArgumentException("not found ENERGY_FEE"));
   }
 
   public void saveMaxCpuTimeOfOneTx(long time) {
@@ -1151,11 +1061,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getMaxCpuTimeOfOneTx() {
-    return Optional.ofNullable(getUnchecked(MAX_CPU_TIME_OF_ONE_TX))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MAX_CPU_TIME_OF_ONE_TX"));
+    return getLong(MAX_CPU_TIME_OF_ONE_TX,
+        () -> new IllegalArgumentException("not found MAX_CPU_TIME_OF_ONE_TX"));
   }
 
   public void saveCreateAccountFee(long fee) {
@@ -1164,12 +1071,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getShieldedTransactionCreateAccountFee() {
-    return Optional.ofNullable(getUnchecked(SHIELDED_TRANSACTION_CREATE_ACCOUNT_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException(
-                "not found SHIELDED_TRANSACTION_CREATE_ACCOUNT_FEE"));
+    return getLong(SHIELDED_TRANSACTION_CREATE_ACCOUNT_FEE,
+        () -> new IllegalArgumentException("not found SHIELDED_TRANSACTION_CREATE_ACCOUNT_FEE"));
   }
 
   public void saveShieldedTransactionCreateAccountFee(long fee) {
@@ -1178,11 +1081,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getShieldedTransactionFee() {
-    return Optional.ofNullable(getUnchecked(SHIELDED_TRANSACTION_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found SHIELD_TRANSACTION_FEE"));
+    return getLong(SHIELDED_TRANSACTION_FEE,
+        () -> new IllegalArgumentException("not found SHIELD_TRANSACTION_FEE"));
   }
 
   public void saveShieldedTransactionFee(long fee) {
@@ -1191,11 +1091,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalShieldedPoolValue() {
-    return Optional.ofNullable(getUnchecked(TOTAL_SHIELDED_POOL_VALUE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_SHIELDED_POOL_Value"));
+    return getLong(TOTAL_SHIELDED_POOL_VALUE,
+        () -> new IllegalArgumentException("not found TOTAL_SHIELDED_POOL_Value"));
   }
 
   public void saveTotalShieldedPoolValue(long value) {
@@ -1204,11 +1101,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getCreateAccountFee() {
-    return Optional.ofNullable(getUnchecked(CREATE_ACCOUNT_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found CREATE_ACCOUNT_FEE"));
+    return getLong(CREATE_ACCOUNT_FEE,
+        () -> new IllegalArgumentException("not found CREATE_ACCOUNT_FEE"));
   }
 
   public void saveCreateNewAccountFeeInSystemContract(long fee) {
@@ -1217,12 +1111,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getCreateNewAccountFeeInSystemContract() {
-    return Optional.ofNullable(getUnchecked(CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException(
-                "not found CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT"));
+    return getLong(CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT,
+        () -> new IllegalArgumentException("not found CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT"));
   }
 
   public void saveCreateNewAccountBandwidthRate(long rate) {
@@ -1231,12 +1121,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getCreateNewAccountBandwidthRate() {
-    return Optional.ofNullable(getUnchecked(CREATE_NEW_ACCOUNT_BANDWIDTH_RATE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException(
-                "not found CREATE_NsEW_ACCOUNT_BANDWIDTH_RATE2"));
+    return getLong(CREATE_NEW_ACCOUNT_BANDWIDTH_RATE,
+        () -> new IllegalArgumentException("not found CREATE_NsEW_ACCOUNT_BANDWIDTH_RATE2"));
   }
 
   public void saveTransactionFee(long fee) {
@@ -1245,11 +1131,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTransactionFee() {
-    return Optional.ofNullable(getUnchecked(TRANSACTION_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TRANSACTION_FEE"));
+    return getLong(TRANSACTION_FEE,
+        () -> new IllegalArgumentException("not found TRANSACTION_FEE"));
   }
 
   public void saveAssetIssueFee(long fee) {
@@ -1268,27 +1151,17 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAssetIssueFee() {
-    return Optional.ofNullable(getUnchecked(ASSET_ISSUE_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ASSET_ISSUE_FEE"));
+    return getLong(ASSET_ISSUE_FEE,
+        () -> new IllegalArgumentException("not found ASSET_ISSUE_FEE"));
   }
 
   public long getUpdateAccountPermissionFee() {
-    return Optional.ofNullable(getUnchecked(UPDATE_ACCOUNT_PERMISSION_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found UPDATE_ACCOUNT_PERMISSION_FEE"));
+    return getLong(UPDATE_ACCOUNT_PERMISSION_FEE,
+        () -> new IllegalArgumentException("not found UPDATE_ACCOUNT_PERMISSION_FEE"));
   }
 
   public long getMultiSignFee() {
-    return Optional.ofNullable(getUnchecked(MULTI_SIGN_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MULTI_SIGN_FEE"));
+    return getLong(MULTI_SIGN_FEE, () -> new IllegalArgumentException("not found MULTI_SIGN_FEE"));
   }
 
   public void saveExchangeCreateFee(long fee) {
@@ -1297,11 +1170,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getExchangeCreateFee() {
-    return Optional.ofNullable(getUnchecked(EXCHANGE_CREATE_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found EXCHANGE_CREATE_FEE"));
+    return getLong(EXCHANGE_CREATE_FEE,
+        () -> new IllegalArgumentException("not found EXCHANGE_CREATE_FEE"));
   }
 
   public void saveExchangeBalanceLimit(long limit) {
@@ -1310,11 +1180,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getExchangeBalanceLimit() {
-    return Optional.ofNullable(getUnchecked(EXCHANGE_BALANCE_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found EXCHANGE_BALANCE_LIMIT"));
+    return getLong(EXCHANGE_BALANCE_LIMIT,
+        () -> new IllegalArgumentException("not found EXCHANGE_BALANCE_LIMIT"));
   }
 
   public void saveAllowMarketTransaction(long allowMarketTransaction) {
@@ -1323,11 +1190,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowMarketTransaction() {
-    return Optional.ofNullable(getUnchecked(ALLOW_MARKET_TRANSACTION))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_MARKET_TRANSACTION"));
+    return getLong(ALLOW_MARKET_TRANSACTION,
+        () -> new IllegalArgumentException("not found ALLOW_MARKET_TRANSACTION"));
   }
 
   public boolean supportAllowMarketTransaction() {
@@ -1340,11 +1204,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getMarketSellFee() {
-    return Optional.ofNullable(getUnchecked(MARKET_SELL_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MARKET_SELL_FEE"));
+    return getLong(MARKET_SELL_FEE,
+        () -> new IllegalArgumentException("not found MARKET_SELL_FEE"));
   }
 
   public void saveMarketCancelFee(long fee) {
@@ -1353,11 +1214,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getMarketCancelFee() {
-    return Optional.ofNullable(getUnchecked(MARKET_CANCEL_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MARKET_CANCEL_FEE"));
+    return getLong(MARKET_CANCEL_FEE,
+        () -> new IllegalArgumentException("not found MARKET_CANCEL_FEE"));
   }
 
   public void saveMarketQuantityLimit(long limit) {
@@ -1366,11 +1224,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getMarketQuantityLimit() {
-    return Optional.ofNullable(getUnchecked(MARKET_QUANTITY_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MARKET_QUANTITY_LIMIT"));
+    return getLong(MARKET_QUANTITY_LIMIT,
+        () -> new IllegalArgumentException("not found MARKET_QUANTITY_LIMIT"));
   }
 
   public void saveTotalTransactionCost(long value) {
@@ -1379,11 +1234,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalTransactionCost() {
-    return Optional.ofNullable(getUnchecked(TOTAL_TRANSACTION_COST))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_TRANSACTION_COST"));
+    return getLong(TOTAL_TRANSACTION_COST,
+        () -> new IllegalArgumentException("not found TOTAL_TRANSACTION_COST"));
   }
 
   public void saveTotalCreateAccountFee(long value) {
@@ -1392,11 +1244,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalCreateAccountCost() {
-    return Optional.ofNullable(getUnchecked(TOTAL_CREATE_ACCOUNT_COST))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_CREATE_ACCOUNT_COST"));
+    return getLong(TOTAL_CREATE_ACCOUNT_COST,
+        () -> new IllegalArgumentException("not found TOTAL_CREATE_ACCOUNT_COST"));
   }
 
   public void saveTotalCreateWitnessFee(long value) {
@@ -1405,11 +1254,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalCreateWitnessCost() {
-    return Optional.ofNullable(getUnchecked(TOTAL_CREATE_WITNESS_COST))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_CREATE_WITNESS_COST"));
+    return getLong(TOTAL_CREATE_WITNESS_COST,
+        () -> new IllegalArgumentException("not found TOTAL_CREATE_WITNESS_COST"));
   }
 
   public void saveTotalStoragePool(long trx) {
@@ -1418,11 +1264,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalStoragePool() {
-    return Optional.ofNullable(getUnchecked(TOTAL_STORAGE_POOL))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_STORAGE_POOL"));
+    return getLong(TOTAL_STORAGE_POOL,
+        () -> new IllegalArgumentException("not found TOTAL_STORAGE_POOL"));
   }
 
   public void saveTotalStorageTax(long trx) {
@@ -1431,11 +1274,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalStorageTax() {
-    return Optional.ofNullable(getUnchecked(TOTAL_STORAGE_TAX))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_STORAGE_TAX"));
+    return getLong(TOTAL_STORAGE_TAX,
+        () -> new IllegalArgumentException("not found TOTAL_STORAGE_TAX"));
   }
 
   public void saveTotalStorageReserved(long bytes) {
@@ -1444,11 +1284,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getTotalStorageReserved() {
-    return Optional.ofNullable(getUnchecked(TOTAL_STORAGE_RESERVED))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_STORAGE_RESERVED"));
+    return getLong(TOTAL_STORAGE_RESERVED,
+        () -> new IllegalArgumentException("not found TOTAL_STORAGE_RESERVED"));
   }
 
   public void saveStorageExchangeTaxRate(long rate) {
@@ -1457,11 +1294,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getStorageExchangeTaxRate() {
-    return Optional.ofNullable(getUnchecked(STORAGE_EXCHANGE_TAX_RATE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found STORAGE_EXCHANGE_TAX_RATE"));
+    return getLong(STORAGE_EXCHANGE_TAX_RATE,
+        () -> new IllegalArgumentException("not found STORAGE_EXCHANGE_TAX_RATE"));
   }
 
   public void saveRemoveThePowerOfTheGr(long rate) {
@@ -1470,11 +1304,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getRemoveThePowerOfTheGr() {
-    return Optional.ofNullable(getUnchecked(REMOVE_THE_POWER_OF_THE_GR))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found REMOVE_THE_POWER_OF_THE_GR"));
+    return getLong(REMOVE_THE_POWER_OF_THE_GR,
+        () -> new IllegalArgumentException("not found REMOVE_THE_POWER_OF_THE_GR"));
   }
 
   public void saveAllowDelegateResource(long value) {
@@ -1483,11 +1314,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowDelegateResource() {
-    return Optional.ofNullable(getUnchecked(ALLOW_DELEGATE_RESOURCE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_DELEGATE_RESOURCE"));
+    return getLong(ALLOW_DELEGATE_RESOURCE,
+        () -> new IllegalArgumentException("not found ALLOW_DELEGATE_RESOURCE"));
   }
 
   public void saveAllowAdaptiveEnergy(long value) {
@@ -1496,11 +1324,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowAdaptiveEnergy() {
-    return Optional.ofNullable(getUnchecked(ALLOW_ADAPTIVE_ENERGY))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_ADAPTIVE_ENERGY"));
+    return getLong(ALLOW_ADAPTIVE_ENERGY,
+        () -> new IllegalArgumentException("not found ALLOW_ADAPTIVE_ENERGY"));
   }
 
   public void saveAllowTvmTransferTrc10(long value) {
@@ -1509,11 +1334,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowTvmTransferTrc10() {
-    return Optional.ofNullable(getUnchecked(ALLOW_TVM_TRANSFER_TRC10))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_TVM_TRANSFER_TRC10"));
+    return getLong(ALLOW_TVM_TRANSFER_TRC10,
+        () -> new IllegalArgumentException("not found ALLOW_TVM_TRANSFER_TRC10"));
   }
 
   public void saveAllowTvmConstantinople(long value) {
@@ -1522,11 +1344,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowTvmConstantinople() {
-    return Optional.ofNullable(getUnchecked(ALLOW_TVM_CONSTANTINOPLE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_TVM_CONSTANTINOPLE"));
+    return getLong(ALLOW_TVM_CONSTANTINOPLE,
+        () -> new IllegalArgumentException("not found ALLOW_TVM_CONSTANTINOPLE"));
   }
 
   public void saveAllowTvmSolidity059(long value) {
@@ -1535,10 +1354,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowTvmSolidity059() {
-    return Optional.ofNullable(getUnchecked(ALLOW_TVM_SOLIDITY_059))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(() -> new IllegalArgumentException("not found ALLOW_TVM_SOLIDITY_059"));
+    return getLong(ALLOW_TVM_SOLIDITY_059,
+        () -> new IllegalArgumentException("not found ALLOW_TVM_SOLIDITY_059"));
   }
 
   public void saveForbidTransferToContract(long value) {
@@ -1547,10 +1364,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getForbidTransferToContract() {
-    return Optional.ofNullable(getUnchecked(FORBID_TRANSFER_TO_CONTRACT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(() -> new IllegalArgumentException("not found FORBID_TRANSFER_TO_CONTRACT"));
+    return getLong(FORBID_TRANSFER_TO_CONTRACT,
+        () -> new IllegalArgumentException("not found FORBID_TRANSFER_TO_CONTRACT"));
   }
 
   public void saveAvailableContractType(byte[] value) {
@@ -1606,11 +1421,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowUpdateAccountName() {
-    return Optional.ofNullable(getUnchecked(ALLOW_UPDATE_ACCOUNT_NAME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_UPDATE_ACCOUNT_NAME"));
+    return getLong(ALLOW_UPDATE_ACCOUNT_NAME,
+        () -> new IllegalArgumentException("not found ALLOW_UPDATE_ACCOUNT_NAME"));
   }
 
   public void saveAllowSameTokenName(long rate) {
@@ -1619,11 +1431,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowSameTokenName() {
-    return Optional.ofNullable(getUnchecked(ALLOW_SAME_TOKEN_NAME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_SAME_TOKEN_NAME"));
+    return getLong(ALLOW_SAME_TOKEN_NAME,
+        () -> new IllegalArgumentException("not found ALLOW_SAME_TOKEN_NAME"));
   }
 
   public void saveAllowCreationOfContracts(long allowCreationOfContracts) {
@@ -1637,11 +1446,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public int getTotalSignNum() {
-    return Optional.ofNullable(getUnchecked(TOTAL_SIGN_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toInt)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_SIGN_NUM"));
+    return (int) getLong(TOTAL_SIGN_NUM,
+        () -> new IllegalArgumentException("not found TOTAL_SIGN_NUM"));
   }
 
   public void saveAllowMultiSign(long allowMultiSing) {
@@ -1650,19 +1456,13 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowMultiSign() {
-    return Optional.ofNullable(getUnchecked(ALLOW_MULTI_SIGN))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_MULTI_SIGN"));
+    return getLong(ALLOW_MULTI_SIGN,
+        () -> new IllegalArgumentException("not found ALLOW_MULTI_SIGN"));
   }
 
   public long getAllowCreationOfContracts() {
-    return Optional.ofNullable(getUnchecked(ALLOW_CREATION_OF_CONTRACTS))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_CREATION_OF_CONTRACTS"));
+    return getLong(ALLOW_CREATION_OF_CONTRACTS,
+        () -> new IllegalArgumentException("not found ALLOW_CREATION_OF_CONTRACTS"));
   }
 
   public boolean supportVM() {
@@ -1676,11 +1476,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowShieldedTransaction() {
-    return Optional.ofNullable(getUnchecked(ALLOW_SHIELDED_TRANSACTION))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_SHIELDED_TRANSACTION"));
+    return getLong(ALLOW_SHIELDED_TRANSACTION,
+        () -> new IllegalArgumentException("not found ALLOW_SHIELDED_TRANSACTION"));
   }
 
   public void saveAllowShieldedTRC20Transaction(long allowShieldedTRC20Transaction) {
@@ -1689,12 +1486,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowShieldedTRC20Transaction() {
-    String msg = "not found ALLOW_SHIELDED_TRC20_TRANSACTION";
-    return Optional.ofNullable(getUnchecked(ALLOW_SHIELDED_TRC20_TRANSACTION))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException(msg));
+    return getLong(ALLOW_SHIELDED_TRC20_TRANSACTION,
+        () -> new IllegalArgumentException("not found ALLOW_SHIELDED_TRC20_TRANSACTION"));
   }
 
   public void saveAllowTvmIstanbul(long allowTVMIstanbul) {
@@ -1703,12 +1496,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowTvmIstanbul() {
-    String msg = "not found ALLOW_TVM_ISTANBUL";
-    return Optional.ofNullable(getUnchecked(ALLOW_TVM_ISTANBUL))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException(msg));
+    return getLong(ALLOW_TVM_ISTANBUL,
+        () -> new IllegalArgumentException("not found ALLOW_TVM_ISTANBUL"));
   }
 
   public void saveAllowTvmStake(long allowTvmStake) {
@@ -1722,21 +1511,13 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowTvmStake() {
-    String msg = "not found ALLOW_TVM_STAKE";
-    return Optional.ofNullable(getUnchecked(ALLOW_TVM_STAKE))
-            .map(BytesCapsule::getData)
-            .map(ByteArray::toLong)
-            .orElseThrow(
-                    () -> new IllegalArgumentException(msg));
+    return getLong(ALLOW_TVM_STAKE,
+        () -> new IllegalArgumentException("not found ALLOW_TVM_STAKE"));
   }
 
   public long getAllowTvmAssetIssue() {
-    String msg = "not found ALLOW_TVM_ASSETISSUE";
-    return Optional.ofNullable(getUnchecked(ALLOW_TVM_ASSET_ISSUE))
-            .map(BytesCapsule::getData)
-            .map(ByteArray::toLong)
-            .orElseThrow(
-                    () -> new IllegalArgumentException(msg));
+    return getLong(ALLOW_TVM_ASSET_ISSUE,
+        () -> new IllegalArgumentException("not found ALLOW_TVM_ASSETISSUE"));
   }
 
   public boolean supportShieldedTransaction() {
@@ -1785,11 +1566,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getLatestSolidifiedBlockNum() {
-    return Optional.ofNullable(getUnchecked(LATEST_SOLIDIFIED_BLOCK_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found latest SOLIDIFIED_BLOCK_NUM"));
+    return getLong(LATEST_SOLIDIFIED_BLOCK_NUM,
+        () -> new IllegalArgumentException("not found latest SOLIDIFIED_BLOCK_NUM"));
   }
 
   public void saveLatestProposalNum(long number) {
@@ -1797,11 +1575,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getLatestProposalNum() {
-    return Optional.ofNullable(getUnchecked(LATEST_PROPOSAL_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found latest PROPOSAL_NUM"));
+    return getLong(LATEST_PROPOSAL_NUM,
+        () -> new IllegalArgumentException("not found latest PROPOSAL_NUM"));
   }
 
   public void saveLatestExchangeNum(long number) {
@@ -1809,40 +1584,29 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getLatestExchangeNum() {
-    return Optional.ofNullable(getUnchecked(LATEST_EXCHANGE_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found latest EXCHANGE_NUM"));
+    return getLong(LATEST_EXCHANGE_NUM,
+        () -> new IllegalArgumentException("not found latest EXCHANGE_NUM"));
   }
 
   /**
    * get timestamp of creating global latest block.
    */
   public long getLatestBlockHeaderTimestamp() {
-    return Optional.ofNullable(getUnchecked(LATEST_BLOCK_HEADER_TIMESTAMP))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found latest block header timestamp"));
+    return getLong(LATEST_BLOCK_HEADER_TIMESTAMP,
+        () -> new IllegalArgumentException("not found latest block header timestamp"));
   }
 
   /**
    * get number of global latest block.
    */
   public long getLatestBlockHeaderNumber() {
-    return Optional.ofNullable(getUnchecked(LATEST_BLOCK_HEADER_NUMBER))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found latest block header number"));
+    return getLong(LATEST_BLOCK_HEADER_NUMBER,
+        () -> new IllegalArgumentException("not found latest block header number"));
   }
 
   public int getStateFlag() {
-    return Optional.ofNullable(getUnchecked(STATE_FLAG))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toInt)
-        .orElseThrow(() -> new IllegalArgumentException("not found maintenance flag"));
+    return (int) getLong(STATE_FLAG,
+        () -> new IllegalArgumentException("not found maintenance flag"));
   }
 
   /**
@@ -1886,11 +1650,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getNextMaintenanceTime() {
-    return Optional.ofNullable(getUnchecked(NEXT_MAINTENANCE_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found NEXT_MAINTENANCE_TIME"));
+    return getLong(NEXT_MAINTENANCE_TIME,
+        () -> new IllegalArgumentException("not found NEXT_MAINTENANCE_TIME"));
   }
 
   public long getMaintenanceSkipSlots() {
@@ -1972,10 +1733,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
    * get allow protobuf number.
    */
   public long getAllowProtoFilterNum() {
-    return Optional.ofNullable(getUnchecked(ALLOW_PROTO_FILTER_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(() -> new IllegalArgumentException("not found allow protobuf number"));
+    return getLong(ALLOW_PROTO_FILTER_NUM,
+        () -> new IllegalArgumentException("not found allow protobuf number"));
   }
 
   /**
@@ -1992,11 +1751,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowAccountStateRoot() {
-    return Optional.ofNullable(getUnchecked(ALLOW_ACCOUNT_STATE_ROOT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_ACCOUNT_STATE_ROOT"));
+    return getLong(ALLOW_ACCOUNT_STATE_ROOT,
+        () -> new IllegalArgumentException("not found ALLOW_ACCOUNT_STATE_ROOT"));
   }
 
   public void saveCurrentCycleTiimeStamp(long timeStamp) {
@@ -2005,10 +1761,7 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getCurrentCycleTimeStamp() {
-    return Optional.ofNullable(getUnchecked(CURRENT_CYCLE_TIMESTAMP))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElse(0L);
+    return getLong(CURRENT_CYCLE_TIMESTAMP, 0L);
   }
 
   public boolean allowAccountStateRoot() {
@@ -2016,10 +1769,7 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getCurrentCycleNumber() {
-    return Optional.ofNullable(getUnchecked(CURRENT_CYCLE_NUMBER))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElse(0L);
+    return getLong(CURRENT_CYCLE_NUMBER, 0L);
   }
 
   public void saveCurrentCycleNumber(long number) {
@@ -2032,10 +1782,8 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getChangeDelegation() {
-    return Optional.ofNullable(getUnchecked(CHANGE_DELEGATION))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(() -> new IllegalArgumentException("not found CHANGE_DELEGATION"));
+    return getLong(CHANGE_DELEGATION,
+        () -> new IllegalArgumentException("not found CHANGE_DELEGATION"));
   }
 
   public boolean allowChangeDelegation() {
@@ -2048,16 +1796,33 @@ public class DynamicPropertiesStore extends TronStoreWithRevoking<BytesCapsule>
   }
 
   public long getAllowPBFT() {
-    return Optional.ofNullable(getUnchecked(ALLOW_PBFT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(() -> new IllegalArgumentException("not found ALLOW_PBFT"));
+    return getLong(ALLOW_PBFT, () -> new IllegalArgumentException("not found ALLOW_PBFT"));
   }
 
   public boolean allowPBFT() {
     return getAllowPBFT() == 1;
   }
 
+  private long getLong(byte[] key, Supplier<IllegalArgumentException> notFound) {
+    if (mirror != null) {
+      return mirror.get(key, notFound);
+    }
+    return Optional.ofNullable(getUnchecked(key))
+        .map(BytesCapsule::getData)
+        .map(ByteArray::toLong)
+        .orElseThrow(notFound);
+  }
+
+  private long getLong(byte[] key, long defaultValue) {
+    if (mirror != null) {
+      return mirror.get(key, defaultValue);
+    }
+    return Optional.ofNullable(getUnchecked(key))
+        .map(BytesCapsule::getData)
+        .map(ByteArray::toLong)
+        .orElse(defaultValue);
+  }
+
   private static class DynamicResourceProperties {
 
     private static final byte[] ONE_DAY_NET_LIMIT = "ONE_DAY_NET_LIMIT".getBytes();
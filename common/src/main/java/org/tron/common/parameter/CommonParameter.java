@@ -385,6 +385,24 @@ public class CommonParameter {
   public long pendingTransactionTimeout;
   @Getter
   @Setter
+  public boolean incrementalPending;
+  @Getter
+  @Setter
+  public boolean recordAccessSet;
+  @Getter
+  @Setter
+  public boolean parallelExecution;
+  @Getter
+  @Setter
+  public int parallelExecutionThreads;
+  @Getter
+  @Setter
+  public boolean parallelExecutionCheck;
+  @Getter
+  @Setter
+  public boolean parallelExecutionSystemContracts;
+  @Getter
+  @Setter
   public boolean nodeMetricsEnable = false;
 
   @Getter
@@ -17,4 +17,41 @@ public class Property {
   @Getter
   @Setter
   private Options dbOptions;
+
+  @Getter
+  @Setter
+  private boolean latestValueIndex;
+
+  @Getter
+  @Setter
+  private long capsuleCacheSize;
+
+  @Getter
+  @Setter
+  private int valueCompressionLevel;
+
+  @Getter
+  @Setter
+  private int valueDictionarySize;
+
+  // the rocksdb table options, null where the preset or the default applies
+  @Getter
+  @Setter
+  private boolean tablePreset;
+
+  @Getter
+  @Setter
+  private Integer prefixLength;
+
+  @Getter
+  @Setter
+  private Integer bloomBitsPerKey;
+
+  @Getter
+  @Setter
+  private Boolean wholeKeyFiltering;
+
+  @Getter
+  @Setter
+  private Boolean pointLookup;
 }
@@ -162,6 +162,19 @@ public class Constant {
 
   public static final String NODE_PENDING_TRANSACTION_TIMEOUT = "node.pendingTransactionTimeout";
 
+  public static final String NODE_INCREMENTAL_PENDING = "node.incrementalPending";
+
+  public static final String NODE_RECORD_ACCESS_SET = "node.recordAccessSet";
+
+  public static final String NODE_PARALLEL_EXECUTION_ENABLE = "node.parallelExecution.enable";
+
+  public static final String NODE_PARALLEL_EXECUTION_THREADS = "node.parallelExecution.threads";
+
+  public static final String NODE_PARALLEL_EXECUTION_CHECK = "node.parallelExecution.check";
+
+  public static final String NODE_PARALLEL_EXECUTION_SYSTEM_CONTRACTS =
+      "node.parallelExecution.systemContracts";
+
   public static final String STORAGE_NEEDTO_UPDATE_ASSET = "storage.needToUpdateAsset";
 
   public static final String TRX_REFERENCE_BLOCK = "trx.reference.block";
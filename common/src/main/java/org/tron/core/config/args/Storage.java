@@ -39,6 +39,9 @@ import org.tron.common.utils.Property;
 
 public class Storage {
 
+  public static final String SNAPSHOT_DB_TYPE_HASH = "hash";
+  public static final String SNAPSHOT_DB_TYPE_SLAB = "slab";
+
   /**
    * Keys (names) of database config
    */
@@ -46,10 +49,28 @@ public class Storage {
   private static final String DB_VERSION_CONFIG_KEY = "storage.db.version";
   private static final String DB_ENGINE_CONFIG_KEY = "storage.db.engine";
   private static final String DB_SYNC_CONFIG_KEY = "storage.db.sync";
+  private static final String DB_COLUMN_FAMILIES_CONFIG_KEY = "storage.db.columnFamilies";
   private static final String INDEX_DIRECTORY_CONFIG_KEY = "storage.index.directory";
   private static final String INDEX_SWITCH_CONFIG_KEY = "storage.index.switch";
   private static final String TRANSACTIONHISTORY_SWITCH_CONFIG_KEY = "storage.transHistory.switch";
   private static final String PROPERTIES_CONFIG_KEY = "storage.properties";
+  private static final String SNAPSHOT_ASYNC_FLUSH_CONFIG_KEY = "storage.snapshot.asyncFlush";
+  private static final String SNAPSHOT_MAX_FLUSH_BACKLOG_CONFIG_KEY =
+      "storage.snapshot.maxFlushBacklog";
+  private static final String SNAPSHOT_CHECKPOINT_LOG_CONFIG_KEY = "storage.snapshot.checkpointLog";
+  private static final String SNAPSHOT_DB_TYPE_CONFIG_KEY = "storage.snapshot.dbType";
+  private static final String SNAPSHOT_ADAPTIVE_FLUSH_CONFIG_KEY =
+      "storage.snapshot.adaptiveFlush.enable";
+  private static final String SNAPSHOT_ADAPTIVE_FLUSH_MAX_BYTES_CONFIG_KEY =
+      "storage.snapshot.adaptiveFlush.maxBytes";
+  private static final String SNAPSHOT_ADAPTIVE_FLUSH_MAX_REPLAY_CONFIG_KEY =
+      "storage.snapshot.adaptiveFlush.maxReplayMillis";
+  private static final String TX_CACHE_WARM_UP_THREADS_CONFIG_KEY =
+      "storage.txCache.warmUpThreads";
+  private static final String TIERED_ENABLE_CONFIG_KEY = "storage.tiered.enable";
+  private static final String MEMORY_BUDGET_CONFIG_KEY = "storage.memoryBudget";
+  private static final String TIERED_HOT_BLOCKS_CONFIG_KEY = "storage.tiered.hotBlocks";
+  private static final String TIERED_SEGMENT_BLOCKS_CONFIG_KEY = "storage.tiered.segmentBlocks";
   private static final String DEFAULT_TRANSACTIONHISTORY_SWITCH = "on";
 
   private static final String NAME_CONFIG_KEY = "name";
@@ -62,6 +83,15 @@ public class Storage {
   private static final String WRITE_BUFFER_SIZE_CONFIG_KEY = "writeBufferSize";
   private static final String CACHE_SIZE_CONFIG_KEY = "cacheSize";
   private static final String MAX_OPEN_FILES_CONFIG_KEY = "maxOpenFiles";
+  private static final String LATEST_VALUE_INDEX_CONFIG_KEY = "latestValueIndex";
+  private static final String CAPSULE_CACHE_SIZE_CONFIG_KEY = "capsuleCacheSize";
+  private static final String VALUE_COMPRESSION_LEVEL_CONFIG_KEY = "valueCompressionLevel";
+  private static final String VALUE_DICTIONARY_SIZE_CONFIG_KEY = "valueDictionarySize";
+  private static final String TABLE_PRESET_CONFIG_KEY = "tablePreset";
+  private static final String PREFIX_LENGTH_CONFIG_KEY = "prefixLength";
+  private static final String BLOOM_BITS_PER_KEY_CONFIG_KEY = "bloomBitsPerKey";
+  private static final String WHOLE_KEY_FILTERING_CONFIG_KEY = "wholeKeyFiltering";
+  private static final String POINT_LOOKUP_CONFIG_KEY = "pointLookup";
   private static final String EVENT_SUBSCRIBE_CONTRACT_PARSE = "event.subscribe.contractParse";
 
   /**
@@ -74,6 +104,19 @@ public class Storage {
   private static final String DEFAULT_DB_DIRECTORY = "database";
   private static final String DEFAULT_INDEX_DIRECTORY = "index";
   private static final String DEFAULT_INDEX_SWITCH = "on";
+  private static final boolean DEFAULT_SNAPSHOT_ASYNC_FLUSH = false;
+  private static final int DEFAULT_SNAPSHOT_MAX_FLUSH_BACKLOG = 1000;
+  private static final boolean DEFAULT_SNAPSHOT_CHECKPOINT_LOG = false;
+  private static final boolean DEFAULT_SNAPSHOT_ADAPTIVE_FLUSH = false;
+  private static final String DEFAULT_SNAPSHOT_DB_TYPE = SNAPSHOT_DB_TYPE_HASH;
+  private static final long DEFAULT_SNAPSHOT_ADAPTIVE_FLUSH_MAX_BYTES = 1024L * 1024 * 1024;
+  private static final long DEFAULT_SNAPSHOT_ADAPTIVE_FLUSH_MAX_REPLAY = 30_000L;
+  private static final int DEFAULT_TX_CACHE_WARM_UP_THREADS = 0;
+  private static final boolean DEFAULT_DB_COLUMN_FAMILIES = false;
+  private static final boolean DEFAULT_TIERED_ENABLE = false;
+  private static final long DEFAULT_MEMORY_BUDGET = 0;
+  private static final long DEFAULT_TIERED_HOT_BLOCKS = 100_000L;
+  private static final long DEFAULT_TIERED_SEGMENT_BLOCKS = 10_000L;
 
   /**
    * Database storage directory: /path/to/{dbDirectory}
@@ -94,6 +137,13 @@ public class Storage {
   @Setter
   private boolean dbSync;
 
+  /**
+   * Keep all rocksdb stores as column families of one database, flushed in one batch
+   */
+  @Getter
+  @Setter
+  private boolean dbColumnFamilies;
+
   /**
    * Index storage directory: /path/to/{indexDirectory}
    */
@@ -113,6 +163,77 @@ public class Storage {
   @Setter
   private String transactionHistorySwitch;
 
+  /**
+   * Flush the snapshots into the databases on a background thread
+   */
+  @Getter
+  @Setter
+  private boolean snapshotAsyncFlush;
+
+  @Getter
+  @Setter
+  private int snapshotMaxFlushBacklog;
+
+  /**
+   * Write checkpoints as an append-only log instead of rewriting the whole checkpoint
+   */
+  @Getter
+  @Setter
+  private boolean snapshotCheckpointLog;
+
+  /**
+   * In-memory map of the snapshot layers: "hash" (HashDB) or "slab" (SlabHashDB)
+   */
+  @Getter
+  @Setter
+  private String snapshotDbType = DEFAULT_SNAPSHOT_DB_TYPE;
+
+  /**
+   * Adapt the number of snapshots flushed at once, bounded by memory and crash replay time
+   */
+  @Getter
+  @Setter
+  private boolean snapshotAdaptiveFlush;
+
+  @Getter
+  @Setter
+  private long snapshotAdaptiveFlushMaxBytes;
+
+  @Getter
+  @Setter
+  private long snapshotAdaptiveFlushMaxReplayMillis;
+
+  /**
+   * Threads loading the transaction cache in the background at startup, 0 loads it up front
+   */
+  @Getter
+  @Setter
+  private int txCacheWarmUpThreads;
+
+  /**
+   * Move the rows of blocks older than tieredHotBlocks of the block-keyed stores into segment
+   * files of tieredSegmentBlocks blocks
+   */
+  @Getter
+  @Setter
+  private boolean tieredEnable;
+
+  @Getter
+  @Setter
+  private long tieredHotBlocks;
+
+  @Getter
+  @Setter
+  private long tieredSegmentBlocks;
+
+  /**
+   * Bytes of native memory the block caches and write buffers of all stores may take, 0 lets
+   * every store size its own
+   */
+  @Getter
+  @Setter
+  private long memoryBudget;
+
   /**
    * Key: dbName, Value: Property object of that database
    */
@@ -162,6 +283,92 @@ public class Storage {
         : DEFAULT_TRANSACTIONHISTORY_SWITCH;
   }
 
+  public static boolean getSnapshotAsyncFlushFromConfig(final Config config) {
+    return config.hasPath(SNAPSHOT_ASYNC_FLUSH_CONFIG_KEY)
+        ? config.getBoolean(SNAPSHOT_ASYNC_FLUSH_CONFIG_KEY) : DEFAULT_SNAPSHOT_ASYNC_FLUSH;
+  }
+
+  public static int getSnapshotMaxFlushBacklogFromConfig(final Config config) {
+    return config.hasPath(SNAPSHOT_MAX_FLUSH_BACKLOG_CONFIG_KEY)
+        ? config.getInt(SNAPSHOT_MAX_FLUSH_BACKLOG_CONFIG_KEY)
+        : DEFAULT_SNAPSHOT_MAX_FLUSH_BACKLOG;
+  }
+
+  public static boolean getSnapshotCheckpointLogFromConfig(final Config config) {
+    return config.hasPath(SNAPSHOT_CHECKPOINT_LOG_CONFIG_KEY)
+        ? config.getBoolean(SNAPSHOT_CHECKPOINT_LOG_CONFIG_KEY) : DEFAULT_SNAPSHOT_CHECKPOINT_LOG;
+  }
+
+  public static String getSnapshotDbTypeFromConfig(final Config config) {
+    String type = config.hasPath(SNAPSHOT_DB_TYPE_CONFIG_KEY)
+        ? config.getString(SNAPSHOT_DB_TYPE_CONFIG_KEY) : DEFAULT_SNAPSHOT_DB_TYPE;
+    if (!SNAPSHOT_DB_TYPE_HASH.equals(type) && !SNAPSHOT_DB_TYPE_SLAB.equals(type)) {
+      throw new IllegalArgumentException(
+          "[storage.snapshot.dbType] must be " + SNAPSHOT_DB_TYPE_HASH + " or "
+              + SNAPSHOT_DB_TYPE_SLAB + ".");
+    }
+    return type;
+  }
+
+  public static boolean getSnapshotAdaptiveFlushFromConfig(final Config config) {
+    return config.hasPath(SNAPSHOT_ADAPTIVE_FLUSH_CONFIG_KEY)
+        ? config.getBoolean(SNAPSHOT_ADAPTIVE_FLUSH_CONFIG_KEY) : DEFAULT_SNAPSHOT_ADAPTIVE_FLUSH;
+  }
+
+  public static long getSnapshotAdaptiveFlushMaxBytesFromConfig(final Config config) {
+    return config.hasPath(SNAPSHOT_ADAPTIVE_FLUSH_MAX_BYTES_CONFIG_KEY)
+        ? config.getLong(SNAPSHOT_ADAPTIVE_FLUSH_MAX_BYTES_CONFIG_KEY)
+        : DEFAULT_SNAPSHOT_ADAPTIVE_FLUSH_MAX_BYTES;
+  }
+
+  public static long getSnapshotAdaptiveFlushMaxReplayMillisFromConfig(final Config config) {
+    return config.hasPath(SNAPSHOT_ADAPTIVE_FLUSH_MAX_REPLAY_CONFIG_KEY)
+        ? config.getLong(SNAPSHOT_ADAPTIVE_FLUSH_MAX_REPLAY_CONFIG_KEY)
+        : DEFAULT_SNAPSHOT_ADAPTIVE_FLUSH_MAX_REPLAY;
+  }
+
+  public static boolean getDbColumnFamiliesFromConfig(final Config config) {
+    return config.hasPath(DB_COLUMN_FAMILIES_CONFIG_KEY)
+        ? config.getBoolean(DB_COLUMN_FAMILIES_CONFIG_KEY) : DEFAULT_DB_COLUMN_FAMILIES;
+  }
+
+  public static int getTxCacheWarmUpThreadsFromConfig(final Config config) {
+    return config.hasPath(TX_CACHE_WARM_UP_THREADS_CONFIG_KEY)
+        ? config.getInt(TX_CACHE_WARM_UP_THREADS_CONFIG_KEY) : DEFAULT_TX_CACHE_WARM_UP_THREADS;
+  }
+
+  public static long getMemoryBudgetFromConfig(final Config config) {
+    long budget = config.hasPath(MEMORY_BUDGET_CONFIG_KEY)
+        ? config.getBytes(MEMORY_BUDGET_CONFIG_KEY) : DEFAULT_MEMORY_BUDGET;
+    if (budget < 0) {
+      throw new IllegalArgumentException("[storage] memoryBudget must not be negative.");
+    }
+    return budget;
+  }
+
+  public static boolean getTieredEnableFromConfig(final Config config) {
+    return config.hasPath(TIERED_ENABLE_CONFIG_KEY)
+        ? config.getBoolean(TIERED_ENABLE_CONFIG_KEY) : DEFAULT_TIERED_ENABLE;
+  }
+
+  public static long getTieredHotBlocksFromConfig(final Config config) {
+    long hotBlocks = config.hasPath(TIERED_HOT_BLOCKS_CONFIG_KEY)
+        ? config.getLong(TIERED_HOT_BLOCKS_CONFIG_KEY) : DEFAULT_TIERED_HOT_BLOCKS;
+    if (hotBlocks <= 0) {
+      throw new IllegalArgumentException("[storage.tiered] hotBlocks must be positive.");
+    }
+    return hotBlocks;
+  }
+
+  public static long getTieredSegmentBlocksFromConfig(final Config config) {
+    long segmentBlocks = config.hasPath(TIERED_SEGMENT_BLOCKS_CONFIG_KEY)
+        ? config.getLong(TIERED_SEGMENT_BLOCKS_CONFIG_KEY) : DEFAULT_TIERED_SEGMENT_BLOCKS;
+    if (segmentBlocks <= 0) {
+      throw new IllegalArgumentException("[storage.tiered] segmentBlocks must be positive.");
+    }
+    return segmentBlocks;
+  }
+
   private static Property createProperty(final ConfigObject conf) {
 
     Property property = new Property();
@@ -283,9 +490,98 @@ public class Storage {
     }
 
     property.setDbOptions(dbOptions);
+
+    if (conf.containsKey(LATEST_VALUE_INDEX_CONFIG_KEY)) {
+      property.setLatestValueIndex(
+          Boolean.parseBoolean(
+              conf.get(LATEST_VALUE_INDEX_CONFIG_KEY).unwrapped().toString()
+          )
+      );
+    }
+
+    if (conf.containsKey(CAPSULE_CACHE_SIZE_CONFIG_KEY)) {
+      try {
+        property.setCapsuleCacheSize(
+            Long.parseLong(
+                conf.get(CAPSULE_CACHE_SIZE_CONFIG_KEY).unwrapped().toString()
+            )
+        );
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            "[storage.properties] capsuleCacheSize must be Long type.");
+      }
+    }
+
+    if (conf.containsKey(VALUE_COMPRESSION_LEVEL_CONFIG_KEY)) {
+      int level;
+      try {
+        level = Integer.parseInt(
+            conf.get(VALUE_COMPRESSION_LEVEL_CONFIG_KEY).unwrapped().toString());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            "[storage.properties] valueCompressionLevel must be Integer type.");
+      }
+      if (level < 0 || level > 9) {
+        throw new IllegalArgumentException(
+            "[storage.properties] valueCompressionLevel must be between 0 and 9.");
+      }
+      property.setValueCompressionLevel(level);
+    }
+
+    if (conf.containsKey(VALUE_DICTIONARY_SIZE_CONFIG_KEY)) {
+      try {
+        property.setValueDictionarySize(
+            Integer.parseInt(
+                conf.get(VALUE_DICTIONARY_SIZE_CONFIG_KEY).unwrapped().toString()
+            )
+        );
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            "[storage.properties] valueDictionarySize must be Integer type.");
+      }
+    }
+
+    if (conf.containsKey(TABLE_PRESET_CONFIG_KEY)) {
+      property.setTablePreset(
+          Boolean.parseBoolean(conf.get(TABLE_PRESET_CONFIG_KEY).unwrapped().toString()));
+    }
+
+    if (conf.containsKey(PREFIX_LENGTH_CONFIG_KEY)) {
+      property.setPrefixLength(parseNonNegative(conf, PREFIX_LENGTH_CONFIG_KEY));
+    }
+
+    if (conf.containsKey(BLOOM_BITS_PER_KEY_CONFIG_KEY)) {
+      property.setBloomBitsPerKey(parseNonNegative(conf, BLOOM_BITS_PER_KEY_CONFIG_KEY));
+    }
+
+    if (conf.containsKey(WHOLE_KEY_FILTERING_CONFIG_KEY)) {
+      property.setWholeKeyFiltering(
+          Boolean.parseBoolean(conf.get(WHOLE_KEY_FILTERING_CONFIG_KEY).unwrapped().toString()));
+    }
+
+    if (conf.containsKey(POINT_LOOKUP_CONFIG_KEY)) {
+      property.setPointLookup(
+          Boolean.parseBoolean(conf.get(POINT_LOOKUP_CONFIG_KEY).unwrapped().toString()));
+    }
+
     return property;
   }
 
+  private static int parseNonNegative(final ConfigObject conf, String key) {
+    int value;
+    try {
+      value = Integer.parseInt(conf.get(key).unwrapped().toString());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          "[storage.properties] " + key + " must be Integer type.");
+    }
+    if (value < 0) {
+      throw new IllegalArgumentException(
+          "[storage.properties] " + key + " must not be negative.");
+    }
+    return value;
+  }
+
   /**
    * Set propertyMap of Storage object from Config
    *
@@ -0,0 +1,14 @@
+package org.tron.core.exception;
+
+/**
+ * Thrown when a read view can not be created because the snapshots newer than the one it reads
+ * were flushed into the root before they were pinned, every time it was tried.
+ */
+public class ReadViewStaleException extends RuntimeException {
+
+  static final long serialVersionUID = 3206394822740415687L;
+
+  public ReadViewStaleException(String message) {
+    super(message);
+  }
+}
@@ -23,5 +23,13 @@ public class MetricsKey {
   public static final String NET_API_DETAIL_QPS = "net.api.detail.qps.";
   public static final String NET_API_DETAIL_FAIL_QPS = "net.api.detail.failQps.";
   public static final String NET_API_DETAIL_OUT_TRAFFIC = "net.api.detail.outTraffic.";
+  public static final String DB_SNAPSHOT_BLOOM_HIT = "db.snapshot.bloom.hit";
+  public static final String DB_SNAPSHOT_BLOOM_SKIP = "db.snapshot.bloom.skip";
+  public static final String DB_SNAPSHOT_BLOOM_FALSE_POSITIVE = "db.snapshot.bloom.falsePositive";
+  public static final String DB_SNAPSHOT_FLUSH_COUNT = "db.snapshot.flush.count";
+  public static final String DB_SNAPSHOT_FLUSH_LATENCY = "db.snapshot.flush.latency";
+  public static final String DB_SNAPSHOT_BYTES_HELD = "db.snapshot.bytesHeld";
+  public static final String DB_CAPSULE_CACHE_HIT = "db.capsuleCache.hit.";
+  public static final String DB_CAPSULE_CACHE_MISS = "db.capsuleCache.miss.";
 
 }
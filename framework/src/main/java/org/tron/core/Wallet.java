@@ -49,6 +49,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ArrayUtils;
@@ -499,6 +500,14 @@ public class Wallet {
         }
       }
 
+      if (!dbManager.isTxCacheWarmedUp()) {
+        logger.warn("Broadcast transaction {} has failed, txs cache is warming up.",
+            trx.getTransactionId());
+        return builder.setResult(false).setCode(response_code.SERVER_BUSY)
+            .setMessage(ByteString.copyFromUtf8("txs cache is warming up"))
+            .build();
+      }
+
       if (dbManager.isTooManyPending()) {
         logger
             .warn("Broadcast transaction {} has failed, too many pending.", trx.getTransactionId());
@@ -2299,22 +2308,21 @@ public class Wallet {
     MarketOrderList.Builder marketOrderListBuilder = MarketOrderList.newBuilder();
     List<ByteString> orderIdList = marketAccountOrderCapsule.getOrdersList();
 
-    orderIdList.forEach(
-        orderId -> {
-          try {
-            MarketOrderCapsule orderCapsule = marketOrderStore.get(orderId.toByteArray());
-            // set prev and next, hide these messages in the print
-            orderCapsule.setPrev(new byte[0]);
-            orderCapsule.setNext(new byte[0]);
-
-            marketOrderListBuilder
-                .addOrders(orderCapsule.getInstance());
-          } catch (ItemNotFoundException e) {
-            logger.error("orderId = " + orderId.toString() + " not found");
-            throw new IllegalStateException("order not found in store");
-          }
-        }
-    );
+    List<MarketOrderCapsule> orders = marketOrderStore.getMany(orderIdList.stream()
+        .map(ByteString::toByteArray).collect(Collectors.toList()));
+    for (int i = 0; i < orders.size(); i++) {
+      MarketOrderCapsule orderCapsule = orders.get(i);
+      if (orderCapsule == null) {
+        logger.error("orderId = " + orderIdList.get(i).toString() + " not found");
+        throw new IllegalStateException("order not found in store");
+      }
+      // set prev and next, hide these messages in the print
+      orderCapsule.setPrev(new byte[0]);
+      orderCapsule.setNext(new byte[0]);
+
+      marketOrderListBuilder
+          .addOrders(orderCapsule.getInstance());
+    }
 
     return marketOrderListBuilder.build();
   }
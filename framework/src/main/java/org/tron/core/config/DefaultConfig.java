@@ -15,6 +15,7 @@ import org.tron.core.db.RevokingStore;
 import org.tron.core.db.TransactionCache;
 import org.tron.core.db.backup.BackupRocksDBAspect;
 import org.tron.core.db.backup.NeedBeanCondition;
+import org.tron.core.db2.core.AdaptiveFlushController;
 import org.tron.core.db2.core.SnapshotManager;
 import org.tron.core.services.interfaceOnPBFT.RpcApiServiceOnPBFT;
 import org.tron.core.services.interfaceOnPBFT.http.PBFT.HttpApiOnPBFTService;
@@ -48,8 +49,19 @@ public class DefaultConfig {
       if (dbVersion == 1) {
         revokingDatabase = RevokingStore.getInstance();
       } else if (dbVersion == 2) {
-        revokingDatabase = new SnapshotManager(
+        SnapshotManager snapshotManager = new SnapshotManager(
             StorageUtils.getOutputDirectoryByDbName("block"));
+        snapshotManager.setAsyncFlush(Args.getInstance().getStorage().isSnapshotAsyncFlush());
+        snapshotManager.setMaxFlushBacklog(
+            Args.getInstance().getStorage().getSnapshotMaxFlushBacklog());
+        snapshotManager.setCheckpointLog(
+            Args.getInstance().getStorage().isSnapshotCheckpointLog());
+        if (Args.getInstance().getStorage().isSnapshotAdaptiveFlush()) {
+          snapshotManager.setFlushController(new AdaptiveFlushController(
+              Args.getInstance().getStorage().getSnapshotAdaptiveFlushMaxBytes(),
+              Args.getInstance().getStorage().getSnapshotAdaptiveFlushMaxReplayMillis()));
+        }
+        revokingDatabase = snapshotManager;
       } else {
         throw new RuntimeException("db version is error.");
       }
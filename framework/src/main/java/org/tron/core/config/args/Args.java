@@ -363,6 +363,26 @@ public class Args extends CommonParameter {
 
     PARAMETER.storage.setPropertyMapFromConfig(config);
 
+    PARAMETER.storage.setSnapshotAsyncFlush(Storage.getSnapshotAsyncFlushFromConfig(config));
+    PARAMETER.storage.setSnapshotMaxFlushBacklog(
+        Storage.getSnapshotMaxFlushBacklogFromConfig(config));
+    PARAMETER.storage.setSnapshotCheckpointLog(
+        Storage.getSnapshotCheckpointLogFromConfig(config));
+    PARAMETER.storage.setSnapshotDbType(Storage.getSnapshotDbTypeFromConfig(config));
+    PARAMETER.storage.setSnapshotAdaptiveFlush(
+        Storage.getSnapshotAdaptiveFlushFromConfig(config));
+    PARAMETER.storage.setSnapshotAdaptiveFlushMaxBytes(
+        Storage.getSnapshotAdaptiveFlushMaxBytesFromConfig(config));
+    PARAMETER.storage.setSnapshotAdaptiveFlushMaxReplayMillis(
+        Storage.getSnapshotAdaptiveFlushMaxReplayMillisFromConfig(config));
+    PARAMETER.storage.setTxCacheWarmUpThreads(
+        Storage.getTxCacheWarmUpThreadsFromConfig(config));
+    PARAMETER.storage.setTieredEnable(Storage.getTieredEnableFromConfig(config));
+    PARAMETER.storage.setMemoryBudget(Storage.getMemoryBudgetFromConfig(config));
+    PARAMETER.storage.setTieredHotBlocks(Storage.getTieredHotBlocksFromConfig(config));
+    PARAMETER.storage.setTieredSegmentBlocks(Storage.getTieredSegmentBlocksFromConfig(config));
+    PARAMETER.storage.setDbColumnFamilies(Storage.getDbColumnFamiliesFromConfig(config));
+
     PARAMETER.seedNode = new SeedNode();
     PARAMETER.seedNode.setIpList(Optional.ofNullable(PARAMETER.seedNodes)
         .filter(seedNode -> 0 != seedNode.size())
@@ -606,6 +626,23 @@ public class Args extends CommonParameter {
     PARAMETER.pendingTransactionTimeout = config.hasPath(Constant.NODE_PENDING_TRANSACTION_TIMEOUT)
         ? config.getLong(Constant.NODE_PENDING_TRANSACTION_TIMEOUT) : 60_000;
 
+    PARAMETER.incrementalPending = config.hasPath(Constant.NODE_INCREMENTAL_PENDING)
+        && config.getBoolean(Constant.NODE_INCREMENTAL_PENDING);
+
+    PARAMETER.recordAccessSet = config.hasPath(Constant.NODE_RECORD_ACCESS_SET)
+        && config.getBoolean(Constant.NODE_RECORD_ACCESS_SET);
+
+    PARAMETER.parallelExecution = config.hasPath(Constant.NODE_PARALLEL_EXECUTION_ENABLE)
+        && config.getBoolean(Constant.NODE_PARALLEL_EXECUTION_ENABLE);
+    PARAMETER.parallelExecutionThreads = config.hasPath(Constant.NODE_PARALLEL_EXECUTION_THREADS)
+        ? config.getInt(Constant.NODE_PARALLEL_EXECUTION_THREADS)
+        : Runtime.getRuntime().availableProcessors();
+    PARAMETER.parallelExecutionCheck = config.hasPath(Constant.NODE_PARALLEL_EXECUTION_CHECK)
+        && config.getBoolean(Constant.NODE_PARALLEL_EXECUTION_CHECK);
+    PARAMETER.parallelExecutionSystemContracts =
+        config.hasPath(Constant.NODE_PARALLEL_EXECUTION_SYSTEM_CONTRACTS)
+        && config.getBoolean(Constant.NODE_PARALLEL_EXECUTION_SYSTEM_CONTRACTS);
+
     PARAMETER.needToUpdateAsset =
         config.hasPath(Constant.STORAGE_NEEDTO_UPDATE_ASSET) ? config
             .getBoolean(Constant.STORAGE_NEEDTO_UPDATE_ASSET)
@@ -5,8 +5,6 @@ import static org.tron.common.utils.Commons.adjustBalance;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.primitives.Longs;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -17,8 +15,10 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -85,9 +85,14 @@ import org.tron.core.db.accountstate.TrieService;
 import org.tron.core.db.accountstate.callback.AccountStateCallBack;
 import org.tron.core.db.api.AssetUpdateHelper;
 import org.tron.core.db2.ISession;
+import org.tron.core.db2.core.AccessRecorder;
+import org.tron.core.db2.core.AccessSet;
 import org.tron.core.db2.core.Chainbase;
 import org.tron.core.db2.core.ITronChainBase;
+import org.tron.core.db2.core.PendingWrites;
+import org.tron.core.db2.core.ReadView;
 import org.tron.core.db2.core.SnapshotManager;
+import org.tron.core.db2.core.Speculation;
 import org.tron.core.exception.AccountResourceInsufficientException;
 import org.tron.core.exception.BadBlockException;
 import org.tron.core.exception.BadItemException;
@@ -182,6 +187,7 @@ public class Manager {
   @Setter
   private MerkleContainer merkleContainer;
   private ExecutorService validateSignService;
+  private ParallelTransactionExecutor parallelExecutor;
   private boolean isRunRePushThread = true;
   private boolean isRunTriggerCapsuleProcessThread = true;
   private BlockingQueue<TransactionCapsule> pushTransactionQueue = new LinkedBlockingQueue<>();
@@ -201,15 +207,15 @@ public class Manager {
   @Autowired
   @Getter
   private ChainBaseManager chainBaseManager;
-  // transactions cache
-  private List<TransactionCapsule> pendingTransactions;
+  // transactions cache, by the fee paid per kilobyte
+  private TransactionPool pendingTransactions;
   @Getter
   private AtomicInteger shieldedTransInPendingCounts = new AtomicInteger(0);
   // transactions popped
   private List<TransactionCapsule> poppedTransactions =
       Collections.synchronizedList(Lists.newArrayList());
   // the capacity is equal to Integer.MAX_VALUE default
-  private BlockingQueue<TransactionCapsule> rePushTransactions;
+  private TransactionPool rePushTransactions;
   private BlockingQueue<TriggerCapsule> triggerCapsuleQueue;
 
   /**
@@ -316,7 +322,7 @@ public class Manager {
     return chainBaseManager.getBlockIndexStore();
   }
 
-  public List<TransactionCapsule> getPendingTransactions() {
+  public TransactionPool getPendingTransactions() {
     return this.pendingTransactions;
   }
 
@@ -324,7 +330,7 @@ public class Manager {
     return this.poppedTransactions;
   }
 
-  public BlockingQueue<TransactionCapsule> getRePushTransactions() {
+  public TransactionPool getRePushTransactions() {
     return rePushTransactions;
   }
 
@@ -338,6 +344,9 @@ public class Manager {
 
   @PostConstruct
   public void init() {
+    // startup cost per phase, in milliseconds
+    Map<String, Long> phases = new LinkedHashMap<>();
+    long phaseStart = System.currentTimeMillis();
     Message.setDynamicPropertiesStore(this.getDynamicPropertiesStore());
     delegationService
         .initStore(chainBaseManager.getWitnessStore(), chainBaseManager.getDelegationStore(),
@@ -350,13 +359,15 @@ public class Manager {
     this.setMerkleContainer(
         merkleContainer.createInstance(chainBaseManager.getMerkleTreeStore(),
             chainBaseManager.getMerkleTreeIndexStore()));
-    this.pendingTransactions = Collections.synchronizedList(Lists.newArrayList());
-    this.rePushTransactions = new LinkedBlockingQueue<>();
+    this.pendingTransactions = new TransactionPool(maxTransactionPendingSize);
+    this.rePushTransactions = new TransactionPool(Integer.MAX_VALUE);
     this.triggerCapsuleQueue = new LinkedBlockingQueue<>();
     chainBaseManager.setMerkleContainer(getMerkleContainer());
     chainBaseManager.setDelegationService(delegationService);
+    phaseStart = endPhase(phases, "stores", phaseStart);
 
     this.initGenesis();
+    phaseStart = endPhase(phases, "genesis", phaseStart);
     try {
       this.khaosDb.start(chainBaseManager.getBlockById(
           getDynamicPropertiesStore().getLatestBlockHeaderHash()));
@@ -377,6 +388,7 @@ public class Manager {
       System.exit(1);
     }
     getChainBaseManager().getForkController().init(this.chainBaseManager);
+    phaseStart = endPhase(phases, "khaosDb", phaseStart);
 
     if (Args.getInstance().isNeedToUpdateAsset() && needToUpdateAsset()) {
       new AssetUpdateHelper(chainBaseManager).doWork();
@@ -384,11 +396,17 @@ public class Manager {
 
     //for test only
     chainBaseManager.getDynamicPropertiesStore().updateDynamicStoreByConfig();
+    phaseStart = endPhase(phases, "assets", phaseStart);
 
     initCacheTxs();
+    phaseStart = endPhase(phases, "txsCache", phaseStart);
     revokingStore.enable();
     validateSignService = Executors
         .newFixedThreadPool(Args.getInstance().getValidateSignThreadNum());
+    if (Args.getInstance().isParallelExecution()) {
+      parallelExecutor = new ParallelTransactionExecutor(this,
+          Args.getInstance().getParallelExecutionThreads());
+    }
     Thread rePushThread = new Thread(rePushLoop);
     rePushThread.start();
     // add contract event listener for subscribing
@@ -403,6 +421,15 @@ public class Manager {
     //initActuatorCreator
     ActuatorCreator.init();
     TransactionRegister.registerActuator();
+    endPhase(phases, "services", phaseStart);
+    logger.info("manager init cost {} ms, phases: {}",
+        phases.values().stream().mapToLong(Long::longValue).sum(), phases);
+  }
+
+  private static long endPhase(Map<String, Long> phases, String phase, long start) {
+    long now = System.currentTimeMillis();
+    phases.put(phase, now - start);
+    return now;
   }
 
   /**
@@ -501,6 +528,17 @@ public class Manager {
     if (dbVersion != 2) {
       return;
     }
+    transactionCache.warmUp(this::replayRecentTxs);
+    if (!transactionCache.isWarmedUp()) {
+      logger.info("txs cache is warming up in the background, transactions are refused until"
+          + " it is done.");
+    }
+  }
+
+  /**
+   * Record the transactions of the recent blocks in the transaction cache.
+   */
+  private void replayRecentTxs() {
     long start = System.currentTimeMillis();
     long headNum = chainBaseManager.getDynamicPropertiesStore().getLatestBlockHeaderNumber();
     logger.info("current headNum is: {}", headNum);
@@ -514,16 +552,16 @@ public class Manager {
         blockNum -> futures.add(service.submit(() -> {
           try {
             blockCount.incrementAndGet();
-            if (chainBaseManager.getBlockByNum(blockNum).getTransactions().isEmpty()) {
+            List<TransactionCapsule> transactions =
+                chainBaseManager.getBlockByNum(blockNum).getTransactions();
+            if (transactions.isEmpty()) {
               emptyBlockCount.incrementAndGet();
               // transactions is null, return
               return;
             }
-            chainBaseManager.getBlockByNum(blockNum).getTransactions().stream()
+            transactionCache.record(blockNum, transactions.stream()
                 .map(tc -> tc.getTransactionId().getBytes())
-                .map(bytes -> Maps.immutableEntry(bytes, Longs.toByteArray(blockNum)))
-                .forEach(e -> transactionCache
-                    .put(e.getKey(), new BytesCapsule(e.getValue())));
+                .collect(Collectors.toList()));
           } catch (ItemNotFoundException e) {
             if (!CommonParameter.getInstance().isLiteFullNode) {
               logger.warn("block not found. num: {}", blockNum);
@@ -551,6 +589,10 @@ public class Manager {
     );
   }
 
+  public boolean isTxCacheWarmedUp() {
+    return transactionCache == null || transactionCache.isWarmedUp();
+  }
+
   public AccountStore getAccountStore() {
     return chainBaseManager.getAccountStore();
   }
@@ -647,13 +689,37 @@ public class Manager {
             && shieldedTransInPendingCounts.get() >= shieldedTransInPendingMaxCounts) {
           return false;
         }
+        // the pending session can not drop a transaction, a full pool takes no more
+        if (pendingTransactions.isFull()) {
+          return false;
+        }
         if (!session.valid()) {
           session.setValue(revokingStore.buildSession());
         }
 
         try (ISession tmpSession = revokingStore.buildSession()) {
-          processTransaction(trx, null);
-          pendingTransactions.add(trx);
+          // the keys it accesses, to take its writes into the next pending session
+          AccessRecorder recorder = Args.getInstance().isIncrementalPending()
+              && revokingStore instanceof SnapshotManager ? AccessRecorder.open() : null;
+          AccessSet accessSet = null;
+          try {
+            processTransaction(trx, null);
+          } finally {
+            if (recorder != null) {
+              accessSet = recorder.stop();
+            }
+          }
+          if (!pendingTransactions.add(trx, getDynamicPropertiesStore())) {
+            // the session reverts this one
+            return false;
+          }
+          if (accessSet != null) {
+            if (CommonParameter.getInstance().isRecordAccessSet()) {
+              trx.getTrxTrace().setAccessSet(accessSet);
+            }
+            trx.getTrxTrace().setPendingWrites(
+                PendingWrites.capture((SnapshotManager) revokingStore, accessSet));
+          }
           tmpSession.merge();
         }
         if (isShieldedTransaction(trx.getInstance())) {
@@ -666,6 +732,31 @@ public class Manager {
     return true;
   }
 
+  /**
+   * Put a transaction of the pending session before the last block into the new one by
+   * applying its writes again, without executing it, see PendingManager.
+   *
+   * @return false if the pending pool is full.
+   */
+  public synchronized boolean replayPendingTransaction(TransactionCapsule trx,
+      PendingWrites writes) {
+    if (pendingTransactions.isFull()) {
+      return false;
+    }
+    if (!session.valid()) {
+      session.setValue(revokingStore.buildSession());
+    }
+
+    try (ISession tmpSession = revokingStore.buildSession()) {
+      writes.apply();
+      if (!pendingTransactions.add(trx, getDynamicPropertiesStore())) {
+        return false;
+      }
+      tmpSession.merge();
+    }
+    return true;
+  }
+
   public void consumeMultiSignFee(TransactionCapsule trx, TransactionTrace trace)
       throws AccountResourceInsufficientException {
     if (trx.getInstance().getSignatureCount() > 1) {
@@ -1055,6 +1146,27 @@ public class Manager {
       return null;
     }
 
+    AccessRecorder recorder = AccessRecorder.start();
+    if (recorder == null) {
+      return executeTransaction(trxCap, blockCap);
+    }
+    TransactionTrace previous = trxCap.getTrxTrace();
+    try {
+      return executeTransaction(trxCap, blockCap);
+    } finally {
+      AccessSet accessSet = recorder.stop();
+      if (trxCap.getTrxTrace() != null && trxCap.getTrxTrace() != previous) {
+        trxCap.getTrxTrace().setAccessSet(accessSet);
+      }
+    }
+  }
+
+  private TransactionInfo executeTransaction(TransactionCapsule trxCap, BlockCapsule blockCap)
+      throws ValidateSignatureException, ContractValidateException, ContractExeException,
+      AccountResourceInsufficientException, TransactionExpirationException,
+      TooBigTransactionException, TooBigTransactionResultException,
+      DupTransactionException, TaposException, ReceiptCheckErrException, VMIllegalException {
+
     validateTapos(trxCap);
     validateCommon(trxCap);
 
@@ -1100,22 +1212,26 @@ public class Manager {
 
     trace.finalization();
     if (Objects.nonNull(blockCap) && getDynamicPropertiesStore().supportVM()) {
-      trxCap.setResult(trace.getTransactionContext());
+      // a speculative execution keeps the result code of the block for the next check
+      Speculation.defer(() -> trxCap.setResult(trace.getTransactionContext()));
     }
     chainBaseManager.getTransactionStore().put(trxCap.getTransactionId().getBytes(), trxCap);
 
+    // the transaction cache and the triggers are not in the chainbases, a speculative
+    // execution leaves them to its commit
     Optional.ofNullable(transactionCache)
-        .ifPresent(t -> t.put(trxCap.getTransactionId().getBytes(),
-            new BytesCapsule(ByteArray.fromLong(trxCap.getBlockNum()))));
+        .ifPresent(t -> Speculation.defer(() -> t.put(trxCap.getTransactionId().getBytes(),
+            new BytesCapsule(ByteArray.fromLong(trxCap.getBlockNum())))));
 
     TransactionInfoCapsule transactionInfo = TransactionUtil
         .buildTransactionInfoInstance(trxCap, blockCap, trace);
 
     // if event subscribe is enabled, post contract triggers to queue
-    postContractTrigger(trace, false);
+    Speculation.defer(() -> postContractTrigger(trace, false));
     Contract contract = trxCap.getInstance().getRawData().getContract(0);
     if (isMultiSignTransaction(trxCap.getInstance())) {
-      ownerAddressSet.add(ByteArray.toHexString(TransactionCapsule.getOwner(contract)));
+      Speculation.defer(() -> ownerAddressSet.add(
+          ByteArray.toHexString(TransactionCapsule.getOwner(contract))));
     }
 
     return transactionInfo.getInstance();
@@ -1151,8 +1267,15 @@ public class Manager {
 
     Set<String> accountSet = new HashSet<>();
     AtomicInteger shieldedTransCounts = new AtomicInteger(0);
+    long headBlockTime = chainBaseManager.getHeadBlockTimeStamp();
+    int expired = pendingTransactions.removeExpired(headBlockTime)
+        + rePushTransactions.removeExpired(headBlockTime);
+    if (expired > 0) {
+      logger.info("Drop {} expired transactions when generating block", expired);
+    }
+    // the highest fee per byte first, every sender in arrival order
     Iterator<TransactionCapsule> iterator = pendingTransactions.iterator();
-    while (iterator.hasNext() || rePushTransactions.size() > 0) {
+    while (iterator.hasNext() || !rePushTransactions.isEmpty()) {
       boolean fromPending = false;
       TransactionCapsule trx;
       if (iterator.hasNext()) {
@@ -1160,6 +1283,9 @@ public class Manager {
         trx = iterator.next();
       } else {
         trx = rePushTransactions.poll();
+        if (trx == null) {
+          break;
+        }
       }
 
       if (System.currentTimeMillis() > timeout) {
@@ -1244,7 +1370,7 @@ public class Manager {
     return false;
   }
 
-  private boolean isShieldedTransaction(Transaction transaction) {
+  boolean isShieldedTransaction(Transaction transaction) {
     Contract contract = transaction.getRawData().getContract(0);
     switch (contract.getType()) {
       case ShieldedTransferContract: {
@@ -1271,6 +1397,21 @@ public class Manager {
     return chainBaseManager.getBlockStore();
   }
 
+  /**
+   * Whether the transactions of {@code block} may be executed by the parallel executor: the
+   * account state root and the event triggers follow each transaction as it executes, and the
+   * speculations are kept over the chainbases of db version 2 only.
+   */
+  private boolean isParallelExecutable(BlockCapsule block) {
+    if (parallelExecutor == null || block.getTransactions().size() < 2 || eventPluginLoaded
+        || getDynamicPropertiesStore().allowAccountStateRoot()
+        || Args.getInstance().getStorage().getDbVersion() != 2) {
+      return false;
+    }
+    Set<Sha256Hash> ids = new HashSet<>();
+    return block.getTransactions().stream().allMatch(trx -> ids.add(trx.getTransactionId()));
+  }
+
   /**
    * process block.
    */
@@ -1303,16 +1444,29 @@ public class Manager {
     try {
       merkleContainer.resetCurrentMerkleTree();
       accountStateCallBack.preExecute(block);
-      for (TransactionCapsule transactionCapsule : block.getTransactions()) {
-        transactionCapsule.setBlockNum(block.getNum());
-        if (block.generatedByMyself) {
-          transactionCapsule.setVerified(true);
+      if (isParallelExecutable(block)) {
+        for (TransactionCapsule transactionCapsule : block.getTransactions()) {
+          transactionCapsule.setBlockNum(block.getNum());
+          if (block.generatedByMyself) {
+            transactionCapsule.setVerified(true);
+          }
         }
-        accountStateCallBack.preExeTrans();
-        TransactionInfo result = processTransaction(transactionCapsule, block);
-        accountStateCallBack.exeTransFinish();
-        if (Objects.nonNull(result)) {
-          transactionRetCapsule.addTransactionInfo(result);
+        List<TransactionInfo> results = Args.getInstance().isParallelExecutionCheck()
+            ? parallelExecutor.check(block) : parallelExecutor.execute(block);
+        results.stream().filter(Objects::nonNull)
+            .forEach(transactionRetCapsule::addTransactionInfo);
+      } else {
+        for (TransactionCapsule transactionCapsule : block.getTransactions()) {
+          transactionCapsule.setBlockNum(block.getNum());
+          if (block.generatedByMyself) {
+            transactionCapsule.setVerified(true);
+          }
+          accountStateCallBack.preExeTrans();
+          TransactionInfo result = processTransaction(transactionCapsule, block);
+          accountStateCallBack.exeTransFinish();
+          if (Objects.nonNull(result)) {
+            transactionRetCapsule.addTransactionInfo(result);
+          }
         }
       }
       accountStateCallBack.executePushFinish();
@@ -1528,6 +1682,25 @@ public class Manager {
     }
   }
 
+  /**
+   * @return false if the stores are not snapshot based, the cursor then has to be set instead.
+   */
+  public boolean isReadViewSupported() {
+    return revokingStore instanceof SnapshotManager;
+  }
+
+  /**
+   * Pin the state seen at {@code cursor} without touching the cursor of the stores.
+   */
+  public ReadView createReadView(Chainbase.Cursor cursor) {
+    if (cursor == Chainbase.Cursor.PBFT) {
+      long headNum = getHeadBlockNum();
+      long pbftNum = chainBaseManager.getCommonDataBase().getLatestPbftBlockNum();
+      return revokingStore.createReadView(cursor, headNum - pbftNum);
+    }
+    return revokingStore.createReadView(cursor, 0L);
+  }
+
   public void resetCursor() {
     revokingStore.setCursor(Chainbase.Cursor.HEAD, 0L);
   }
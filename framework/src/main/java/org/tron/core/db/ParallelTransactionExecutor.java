@@ -0,0 +1,258 @@
+package org.tron.core.db;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+import org.tron.common.parameter.CommonParameter;
+import org.tron.core.capsule.BlockCapsule;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.db2.core.AccessRecorder;
+import org.tron.core.db2.core.AccessSet;
+import org.tron.core.db2.core.Speculation;
+import org.tron.core.exception.AccountResourceInsufficientException;
+import org.tron.core.exception.ContractExeException;
+import org.tron.core.exception.ContractValidateException;
+import org.tron.core.exception.DupTransactionException;
+import org.tron.core.exception.ReceiptCheckErrException;
+import org.tron.core.exception.TaposException;
+import org.tron.core.exception.TooBigTransactionException;
+import org.tron.core.exception.TooBigTransactionResultException;
+import org.tron.core.exception.TransactionExpirationException;
+import org.tron.core.exception.VMIllegalException;
+import org.tron.core.exception.ValidateSignatureException;
+import org.tron.protos.Protocol.TransactionInfo;
+
+/**
+ * Executes the transactions of a block optimistically in parallel, see node.parallelExecution.
+ *
+ * The transactions are split into groups, each executed in block order on a worker against the
+ * state before the block, with the writes of every transaction kept in a {@link Speculation}
+ * over those of the transaction before it in the group and its reads recorded. By default each
+ * transaction is a group of its own; with node.parallelExecution.systemContracts the groups are
+ * those of {@link SystemContractScheduler} and the other transactions are not speculated.
+ *
+ * The speculations are then committed on the calling thread in block order. One that read a key
+ * last written by another group, that failed, that did something a speculation can not account
+ * for or that follows a transaction of its group executed again is dropped, and its transaction
+ * executed again in its turn. The state and the results are then those of executing the block
+ * in sequence.
+ */
+@Slf4j(topic = "DB")
+public class ParallelTransactionExecutor {
+
+  private final Manager manager;
+  private final ExecutorService workers;
+
+  public ParallelTransactionExecutor(Manager manager, int threads) {
+    this.manager = manager;
+    this.workers = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setNameFormat("parallel-execution-%d").setDaemon(true).build());
+  }
+
+  /**
+   * @return the results of the transactions of {@code block}, in block order.
+   */
+  public List<TransactionInfo> execute(BlockCapsule block)
+      throws ValidateSignatureException, ContractValidateException, ContractExeException,
+      AccountResourceInsufficientException, TransactionExpirationException,
+      TooBigTransactionException, TooBigTransactionResultException,
+      DupTransactionException, TaposException, ReceiptCheckErrException, VMIllegalException {
+    List<Attempt> attempts = speculateAll(block);
+    // the fingerprints of the keys written so far, to the group that wrote them last
+    Map<Long, Integer> writers = new HashMap<>();
+    // the groups with a transaction executed again, the speculations after it are stale
+    Set<Integer> broken = new HashSet<>();
+    List<TransactionInfo> results = new ArrayList<>(attempts.size());
+    int reExecuted = 0;
+    for (Attempt attempt : attempts) {
+      if (isValid(attempt, writers, broken)) {
+        attempt.speculation.commit();
+        attempt.accessSet.collectWrites(writers, attempt.group);
+        setAccessSet(attempt.trx, attempt.accessSet);
+        results.add(attempt.result);
+      } else {
+        reExecuted++;
+        broken.add(attempt.group);
+        executeInTurn(attempt, block, results, writers);
+      }
+    }
+    logger.debug("Block {}: {} transactions executed in parallel, {} in sequence",
+        block.getNum(), attempts.size(), reExecuted);
+    return results;
+  }
+
+  /**
+   * Execute the transactions of {@code block} in sequence and compare each one with what
+   * {@link #execute} would have committed for it, see node.parallelExecution.check. The
+   * speculations are never committed, the state is that of the sequential execution.
+   *
+   * @return the results of the sequential execution, in block order.
+   */
+  public List<TransactionInfo> check(BlockCapsule block)
+      throws ValidateSignatureException, ContractValidateException, ContractExeException,
+      AccountResourceInsufficientException, TransactionExpirationException,
+      TooBigTransactionException, TooBigTransactionResultException,
+      DupTransactionException, TaposException, ReceiptCheckErrException, VMIllegalException {
+    List<Attempt> attempts = speculateAll(block);
+    Map<Long, Integer> writers = new HashMap<>();
+    Set<Integer> broken = new HashSet<>();
+    List<TransactionInfo> results = new ArrayList<>(attempts.size());
+    for (Attempt attempt : attempts) {
+      boolean valid = isValid(attempt, writers, broken);
+      // the writes keep the group, as execute would have committed them
+      AccessSet accessSet = executeInTurn(attempt, block, results, writers);
+      if (!valid) {
+        broken.add(attempt.group);
+        continue;
+      }
+      String mismatch = attempt.speculation.findMismatch(accessSet);
+      if (mismatch == null && !Objects.equals(results.get(results.size() - 1), attempt.result)) {
+        mismatch = "result";
+      }
+      if (mismatch != null) {
+        logger.error("Block {}, transaction {}: parallel execution differs from sequential, {}",
+            block.getNum(), attempt.trx.getTransactionId(), mismatch);
+      }
+    }
+    return results;
+  }
+
+  private List<Attempt> speculateAll(BlockCapsule block) {
+    List<TransactionCapsule> transactions = block.getTransactions();
+    List<Attempt> attempts = new ArrayList<>(transactions.size());
+    for (int i = 0; i < transactions.size(); i++) {
+      // not speculated unless in a group, a writer of its own
+      attempts.add(new Attempt(transactions.get(i), -1 - i));
+    }
+    List<List<Integer>> groups;
+    if (CommonParameter.getInstance().isParallelExecutionSystemContracts()) {
+      groups = SystemContractScheduler.schedule(transactions);
+    } else {
+      groups = new ArrayList<>(transactions.size());
+      for (int i = 0; i < transactions.size(); i++) {
+        groups.add(Collections.singletonList(i));
+      }
+    }
+
+    List<Future<?>> futures = new ArrayList<>(groups.size());
+    for (int g = 0; g < groups.size(); g++) {
+      List<Attempt> chain = new ArrayList<>(groups.get(g).size());
+      for (int i : groups.get(g)) {
+        attempts.get(i).group = g;
+        chain.add(attempts.get(i));
+      }
+      futures.add(workers.submit(() -> speculate(chain, block)));
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("parallel execution interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("parallel execution failed", e.getCause());
+    }
+    return attempts;
+  }
+
+  /**
+   * Speculate the transactions of one group in order, each over the writes of the one before.
+   * After one that failed or is unsafe the rest are left to be executed in their turn.
+   */
+  private void speculate(List<Attempt> chain, BlockCapsule block) {
+    Speculation parent = null;
+    for (Attempt attempt : chain) {
+      if (manager.isShieldedTransaction(attempt.trx.getInstance())) {
+        // the merkle tree of the shielded notes is not in the chainbases
+        return;
+      }
+      Speculation speculation = new Speculation(parent);
+      AccessRecorder recorder = AccessRecorder.open();
+      try {
+        attempt.result = speculation.call(() -> manager.processTransaction(attempt.trx, block));
+      } catch (Exception e) {
+        // may be caused by a transaction before it, decided when executed again in its turn
+        attempt.error = e;
+      } finally {
+        attempt.accessSet = recorder.stop();
+      }
+      attempt.speculation = speculation;
+      if (attempt.error != null || speculation.isUnsafe()) {
+        return;
+      }
+      parent = speculation;
+    }
+  }
+
+  /**
+   * @return true if the speculation of {@code attempt} may be committed after the writes of
+   *     {@code writers}.
+   */
+  private static boolean isValid(Attempt attempt, Map<Long, Integer> writers,
+      Set<Integer> broken) {
+    return attempt.speculation != null && attempt.error == null
+        && !attempt.speculation.isUnsafe() && !broken.contains(attempt.group)
+        && !attempt.accessSet.readsWrittenByOthers(writers, attempt.group);
+  }
+
+  /**
+   * Execute the transaction of {@code attempt} on this thread, add its result to
+   * {@code results} and map the keys it wrote to its group in {@code writers}.
+   */
+  private AccessSet executeInTurn(Attempt attempt, BlockCapsule block,
+      List<TransactionInfo> results, Map<Long, Integer> writers)
+      throws ValidateSignatureException, ContractValidateException, ContractExeException,
+      AccountResourceInsufficientException, TransactionExpirationException,
+      TooBigTransactionException, TooBigTransactionResultException,
+      DupTransactionException, TaposException, ReceiptCheckErrException, VMIllegalException {
+    AccessRecorder recorder = AccessRecorder.open();
+    if (recorder == null) {
+      throw new IllegalStateException("parallel execution inside an access recorder");
+    }
+    AccessSet accessSet;
+    try {
+      results.add(manager.processTransaction(attempt.trx, block));
+    } finally {
+      accessSet = recorder.stop();
+    }
+    accessSet.collectWrites(writers, attempt.group);
+    setAccessSet(attempt.trx, accessSet);
+    return accessSet;
+  }
+
+  private static void setAccessSet(TransactionCapsule trx, AccessSet accessSet) {
+    if (CommonParameter.getInstance().isRecordAccessSet() && trx.getTrxTrace() != null) {
+      trx.getTrxTrace().setAccessSet(accessSet);
+    }
+  }
+
+  private static class Attempt {
+
+    private final TransactionCapsule trx;
+    // the index of its group, negative if not speculated
+    private int group;
+    // null if not speculated
+    private Speculation speculation;
+    private TransactionInfo result;
+    private AccessSet accessSet;
+    private Exception error;
+
+    Attempt(TransactionCapsule trx, int group) {
+      this.trx = trx;
+      this.group = group;
+    }
+  }
+}
@@ -1,25 +1,51 @@
 package org.tron.core.db;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.GeneratedMessageV3;
+import com.google.protobuf.InvalidProtocolBufferException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.tron.common.utils.ByteArray;
+import org.tron.common.utils.Sha256Hash;
+import org.tron.core.ChainBaseManager;
+import org.tron.core.actuator.TransactionFactory;
+import org.tron.core.capsule.BlockCapsule;
+import org.tron.core.capsule.BlockCapsule.BlockId;
 import org.tron.core.capsule.TransactionCapsule;
 import org.tron.core.config.args.Args;
 import org.tron.core.db.TransactionTrace.TimeResultType;
+import org.tron.core.db2.core.PendingWrites;
+import org.tron.core.exception.HeaderNotFound;
 import org.tron.core.metrics.MetricsKey;
 import org.tron.core.metrics.MetricsUtil;
+import org.tron.protos.Protocol.Transaction.Contract;
+import org.tron.protos.Protocol.Transaction.Contract.ContractType;
 
 @Slf4j(topic = "DB")
 public class PendingManager implements AutoCloseable {
 
+  // the properties every block moves on, like the head block time, which nearly every
+  // transaction reads; a replayed transaction keeps what it computed from them
+  private static final Set<String> UNCHECKED_STORES = Collections.singleton("properties");
+
   @Getter
   private List<TransactionCapsule> tmpTransactions = new ArrayList<>();
   private Manager dbManager;
   private long timeout = Args.getInstance().getPendingTransactionTimeout();
+  private boolean incremental = Args.getInstance().isIncrementalPending();
+  private BlockId headBlockId;
 
   public PendingManager(Manager db) {
     this.dbManager = db;
+    this.headBlockId = db.getChainBaseManager().getHeadBlockId();
     db.getPendingTransactions().forEach(transactionCapsule -> {
       if (System.currentTimeMillis() - transactionCapsule.getTime() < timeout) {
         tmpTransactions.add(transactionCapsule);
@@ -39,8 +65,29 @@ public class PendingManager implements AutoCloseable {
   @Override
   public void close() {
 
-    for (TransactionCapsule tx : tmpTransactions) {
-      txIteration(tx);
+    BlockChange change = incremental ? blockChange() : null;
+    if (change == null) {
+      for (TransactionCapsule tx : tmpTransactions) {
+        txIteration(tx);
+      }
+    } else {
+      // all are checked against the block before the first replay opens the pending session
+      List<TransactionCapsule> kept = new ArrayList<>();
+      for (TransactionCapsule tx : tmpTransactions) {
+        if (keep(tx, change)) {
+          kept.add(tx);
+        }
+      }
+      int replayed = 0;
+      for (TransactionCapsule tx : kept) {
+        if (dbManager.replayPendingTransaction(tx, tx.getTrxTrace().getPendingWrites())) {
+          replayed++;
+        } else {
+          txIteration(tx);
+        }
+      }
+      logger.debug("pending manager: replay {} of {} pending transactions in place",
+          replayed, tmpTransactions.size());
     }
     tmpTransactions.clear();
 
@@ -50,15 +97,141 @@ public class PendingManager implements AutoCloseable {
     dbManager.getPoppedTransactions().clear();
   }
 
-  private void txIteration(TransactionCapsule tx) {
+  /**
+   * @return what the block applied on top of the head seen before changed, an empty change if
+   *     no block was applied, null if more than one block was or the chain switched to a fork.
+   */
+  private BlockChange blockChange() {
+    ChainBaseManager chainBaseManager = dbManager.getChainBaseManager();
+    if (chainBaseManager.getHeadBlockId().equals(headBlockId)) {
+      return new BlockChange();
+    }
+    BlockCapsule head;
     try {
-      if (tx.getTrxTrace() != null
-          && tx.getTrxTrace().getTimeResultType().equals(TimeResultType.NORMAL)) {
-        dbManager.getRePushTransactions().put(tx);
+      head = chainBaseManager.getHead();
+    } catch (HeaderNotFound e) {
+      return null;
+    }
+    if (!headBlockId.equals(head.getParentHash())) {
+      return null;
+    }
+
+    BlockChange change = new BlockChange();
+    change.applied = true;
+    change.timestamp = head.getTimeStamp();
+    for (TransactionCapsule tx : head.getTransactions()) {
+      Set<String> accounts = accounts(tx);
+      if (accounts == null) {
+        return null;
       }
-    } catch (InterruptedException e) {
-      logger.error(e.getMessage());
-      Thread.currentThread().interrupt();
+      change.transactions.add(tx.getTransactionId());
+      change.accounts.addAll(accounts);
+      change.contractCalls |= isContractCall(tx);
+    }
+    return change;
+  }
+
+  /**
+   * Keep {@code tx} for the new pending session, where its writes are applied again without
+   * executing it, unless the block may have changed its result. A transaction naming an account
+   * the block named, a contract call after a block with contract calls, a shielded transaction,
+   * one that read or wrote a key the block changed and one without recorded writes are queued
+   * for re-push instead, as well as the later transactions naming the same accounts or reading
+   * what the queued ones wrote, to keep their order. Transactions in the block and expired ones
+   * are dropped.
+   *
+   * @return true if the writes of {@code tx} are to be applied to the new pending session.
+   */
+  private boolean keep(TransactionCapsule tx, BlockChange change) {
+    if (tx.getTrxTrace() == null
+        || !tx.getTrxTrace().getTimeResultType().equals(TimeResultType.NORMAL)
+        || change.transactions.contains(tx.getTransactionId())) {
+      return false;
+    }
+    PendingWrites writes = tx.getTrxTrace().getPendingWrites();
+    if (tx.getExpiration() <= change.timestamp) {
+      change.lose(writes);
+      return false;
+    }
+    Set<String> accounts = accounts(tx);
+    if (accounts == null
+        || accounts.stream().anyMatch(change.accounts::contains)
+        || change.contractCalls && isContractCall(tx)
+        || dbManager.isShieldedTransaction(tx.getInstance())
+        || writes == null
+        || change.readsLost(writes)
+        || change.applied && writes.isChangedAtHead(UNCHECKED_STORES)) {
+      if (accounts != null) {
+        change.accounts.addAll(accounts);
+      }
+      change.lose(writes);
+      txIteration(tx);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return the accounts the contract of {@code tx} names in its address fields: the owner,
+   *     the recipient of a transfer, the receiver of a freeze and so on, null if the type of
+   *     the contract is not registered.
+   */
+  private static Set<String> accounts(TransactionCapsule tx) {
+    Contract contract = tx.getInstance().getRawData().getContract(0);
+    Class<? extends GeneratedMessageV3> clazz = TransactionFactory.getContract(contract.getType());
+    if (clazz == null) {
+      return null;
+    }
+    Set<String> accounts = new HashSet<>();
+    accounts.add(ByteArray.toHexString(TransactionCapsule.getOwner(contract)));
+    try {
+      contract.getParameter().unpack(clazz).getAllFields().forEach((field, value) -> {
+        if (!field.isRepeated() && field.getType() == FieldDescriptor.Type.BYTES
+            && field.getName().endsWith("address")) {
+          accounts.add(ByteArray.toHexString(((ByteString) value).toByteArray()));
+        }
+      });
+    } catch (InvalidProtocolBufferException e) {
+      return null;
+    }
+    return accounts;
+  }
+
+  private static boolean isContractCall(TransactionCapsule tx) {
+    ContractType type = tx.getInstance().getRawData().getContract(0).getType();
+    return type == ContractType.TriggerSmartContract
+        || type == ContractType.CreateSmartContract;
+  }
+
+  private void txIteration(TransactionCapsule tx) {
+    if (tx.getTrxTrace() != null
+        && tx.getTrxTrace().getTimeResultType().equals(TimeResultType.NORMAL)) {
+      dbManager.getRePushTransactions().add(tx, dbManager.getDynamicPropertiesStore());
+    }
+  }
+
+  private static class BlockChange {
+
+    // the writer of the keys lost, the readers of them are queued for re-push
+    private static final int LOST = 0;
+
+    private final Set<Sha256Hash> transactions = new HashSet<>();
+    private final Set<String> accounts = new HashSet<>();
+    // the fingerprints of the keys written by the transactions not replayed
+    private final Map<Long, Integer> lost = new HashMap<>();
+    private boolean contractCalls;
+    private long timestamp;
+    // false if no block was applied, the heads are then those the transactions saw
+    private boolean applied;
+
+    private void lose(PendingWrites writes) {
+      if (writes != null) {
+        writes.getAccessSet().collectWrites(lost, LOST);
+      }
+    }
+
+    private boolean readsLost(PendingWrites writes) {
+      return writes.getAccessSet().readsWrittenByOthers(lost, LOST + 1);
     }
   }
 }
@@ -0,0 +1,127 @@
+package org.tron.core.db;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.protos.Protocol.Transaction.Contract;
+import org.tron.protos.contract.AssetIssueContractOuterClass.TransferAssetContract;
+import org.tron.protos.contract.BalanceContract.FreezeBalanceContract;
+import org.tron.protos.contract.BalanceContract.TransferContract;
+import org.tron.protos.contract.WitnessContract.VoteWitnessContract;
+
+/**
+ * Partitions the system contracts of a block into groups that touch disjoint accounts, see
+ * node.parallelExecution.systemContracts. The accounts are those the contract declares: the
+ * owner, the recipient, the token of a transfer and the receiver of a freeze. Freezes also
+ * change the total weights of the dynamic properties, so they all fall into one group.
+ *
+ * The keys a transaction touches besides those, like the public bandwidth or the blackhole
+ * account that collects the fees, are not known before it executes; the executor validates
+ * the keys each one actually read.
+ */
+public class SystemContractScheduler {
+
+  private static final byte ACCOUNT = 0;
+  private static final byte TOKEN = 1;
+  private static final ByteString TOTAL_WEIGHTS = ByteString.copyFrom(new byte[]{2});
+
+  private SystemContractScheduler() {
+  }
+
+  /**
+   * @return the groups of the indexes of the transactions executed concurrently, each in block
+   *     order. The transactions in no group are executed in their turn.
+   */
+  public static List<List<Integer>> schedule(List<TransactionCapsule> transactions) {
+    int[] parents = new int[transactions.size()];
+    // the first transaction that declared a key
+    Map<ByteString, Integer> claims = new HashMap<>();
+    for (int i = 0; i < transactions.size(); i++) {
+      List<ByteString> keys = declaredKeys(transactions.get(i));
+      parents[i] = keys == null ? -1 : i;
+      if (keys == null) {
+        continue;
+      }
+      for (ByteString key : keys) {
+        Integer claim = claims.putIfAbsent(key, i);
+        if (claim != null) {
+          parents[find(parents, i)] = find(parents, claim);
+        }
+      }
+    }
+
+    Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+    for (int i = 0; i < transactions.size(); i++) {
+      if (parents[i] >= 0) {
+        groups.computeIfAbsent(find(parents, i), root -> new ArrayList<>()).add(i);
+      }
+    }
+    return new ArrayList<>(groups.values());
+  }
+
+  private static int find(int[] parents, int i) {
+    while (parents[i] != i) {
+      parents[i] = parents[parents[i]];
+      i = parents[i];
+    }
+    return i;
+  }
+
+  /**
+   * @return the keys {@code trx} declares, null if it is not a system contract executed
+   *     concurrently.
+   */
+  static List<ByteString> declaredKeys(TransactionCapsule trx) {
+    List<Contract> contracts = trx.getInstance().getRawData().getContractList();
+    if (contracts.size() != 1) {
+      return null;
+    }
+    Any parameter = contracts.get(0).getParameter();
+    List<ByteString> keys = new ArrayList<>();
+    try {
+      switch (contracts.get(0).getType()) {
+        case TransferContract: {
+          TransferContract contract = parameter.unpack(TransferContract.class);
+          keys.add(key(ACCOUNT, contract.getOwnerAddress()));
+          keys.add(key(ACCOUNT, contract.getToAddress()));
+          break;
+        }
+        case TransferAssetContract: {
+          TransferAssetContract contract = parameter.unpack(TransferAssetContract.class);
+          keys.add(key(ACCOUNT, contract.getOwnerAddress()));
+          keys.add(key(ACCOUNT, contract.getToAddress()));
+          keys.add(key(TOKEN, contract.getAssetName()));
+          break;
+        }
+        case VoteWitnessContract:
+          // the witnesses voted for are only read until the maintenance
+          keys.add(key(ACCOUNT, parameter.unpack(VoteWitnessContract.class).getOwnerAddress()));
+          break;
+        case FreezeBalanceContract: {
+          FreezeBalanceContract contract = parameter.unpack(FreezeBalanceContract.class);
+          keys.add(key(ACCOUNT, contract.getOwnerAddress()));
+          if (!contract.getReceiverAddress().isEmpty()) {
+            keys.add(key(ACCOUNT, contract.getReceiverAddress()));
+          }
+          keys.add(TOTAL_WEIGHTS);
+          break;
+        }
+        default:
+          return null;
+      }
+    } catch (InvalidProtocolBufferException e) {
+      return null;
+    }
+    return keys;
+  }
+
+  private static ByteString key(byte kind, ByteString value) {
+    return ByteString.copyFrom(new byte[]{kind}).concat(value);
+  }
+}
@@ -1,5 +1,6 @@
 package org.tron.core.db;
 
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,8 +10,33 @@ import org.tron.core.db2.common.TxCacheDB;
 @Slf4j
 public class TransactionCache extends TronStoreWithRevoking<BytesCapsule> {
 
+  private final TxCacheDB txCacheDB;
+
   @Autowired
   public TransactionCache(@Value("trans-cache") String dbName) {
-    super(new TxCacheDB(dbName));
+    this(new TxCacheDB(dbName));
+  }
+
+  private TransactionCache(TxCacheDB txCacheDB) {
+    super(txCacheDB);
+    this.txCacheDB = txCacheDB;
+  }
+
+  /**
+   * see TxCacheDB.warmUp.
+   */
+  public void warmUp(Runnable replay) {
+    txCacheDB.warmUp(replay);
+  }
+
+  public boolean isWarmedUp() {
+    return txCacheDB.isReady();
+  }
+
+  /**
+   * Record the transactions of a recent block while warming up, straight into the cache.
+   */
+  public void record(long blockNum, List<byte[]> ids) {
+    txCacheDB.record(blockNum, ids);
   }
 }
@@ -0,0 +1,253 @@
+package org.tron.core.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import lombok.extern.slf4j.Slf4j;
+import org.tron.common.utils.ByteArray;
+import org.tron.common.utils.Sha256Hash;
+import org.tron.core.capsule.ReceiptCapsule;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.store.DynamicPropertiesStore;
+
+/**
+ * The transactions waiting for a block, ordered by what they paid per kilobyte when they were
+ * applied: the fees burned and the staked bandwidth and energy they used, valued at the prices
+ * the fees are burned at. The transactions of one sender keep their arrival order, as a later
+ * one may depend on an earlier one, so the pool is a set of queues per sender merged by priority.
+ *
+ * Inserts and removals cost O(log n). Once the pool holds {@code capacity} transactions a new
+ * one is refused: the effects of the pending transactions are merged into the pending session,
+ * which can not drop one of them. Expired transactions are dropped through an index by
+ * expiration.
+ *
+ * All methods are synchronized, an iterator walks the transactions as they were when it was
+ * created.
+ */
+@Slf4j(topic = "DB")
+public class TransactionPool implements Iterable<TransactionCapsule> {
+
+  private static final Comparator<Entry> BY_PRIORITY =
+      Comparator.comparingLong((Entry e) -> e.priority).thenComparingLong(e -> -e.seq);
+  private static final Comparator<Entry> BY_EXPIRATION =
+      Comparator.comparingLong((Entry e) -> e.expiration).thenComparingLong(e -> e.seq);
+
+  private final int capacity;
+  private final Map<Sha256Hash, Entry> entries = new HashMap<>();
+  // by arrival
+  private final Map<String, TreeSet<Entry>> senders = new HashMap<>();
+  // the first transaction of every sender, the cheapest first
+  private final TreeSet<Entry> heads = new TreeSet<>(BY_PRIORITY);
+  private final TreeSet<Entry> byExpiration = new TreeSet<>(BY_EXPIRATION);
+  private long seq;
+
+  public TransactionPool(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return the sun {@code trx} paid per kilobyte when it was applied, the staked resources at
+   *     the current burn prices, 0 if it was not applied.
+   */
+  static long priority(TransactionCapsule trx, DynamicPropertiesStore prices) {
+    if (trx.getTrxTrace() == null) {
+      return 0;
+    }
+    ReceiptCapsule receipt = trx.getTrxTrace().getReceipt();
+    long fee = receipt.getNetFee() + receipt.getEnergyFee()
+        + receipt.getNetUsage() * prices.getTransactionFee()
+        + (receipt.getEnergyUsage() + receipt.getOriginEnergyUsage()) * prices.getEnergyFee();
+    return fee * 1024 / Math.max(1, trx.getSerializedSize());
+  }
+
+  private static String sender(TransactionCapsule trx) {
+    return ByteArray.toHexString(TransactionCapsule.getOwner(
+        trx.getInstance().getRawData().getContract(0)));
+  }
+
+  /**
+   * Add {@code trx} behind the earlier transactions of its sender, its staked resources valued
+   * at the burn prices of {@code prices}.
+   *
+   * @return false if the pool is full.
+   */
+  public boolean add(TransactionCapsule trx, DynamicPropertiesStore prices) {
+    return add(trx, priority(trx, prices));
+  }
+
+  synchronized boolean add(TransactionCapsule trx, long priority) {
+    if (entries.containsKey(trx.getTransactionId())) {
+      return true;
+    }
+    if (isFull()) {
+      logger.debug("pool is full, refuse {}", trx.getTransactionId());
+      return false;
+    }
+
+    Entry entry = new Entry(trx, sender(trx), priority, trx.getExpiration(), seq++);
+    TreeSet<Entry> queue = senders.computeIfAbsent(entry.sender,
+        k -> new TreeSet<>(Comparator.comparingLong((Entry e) -> e.seq)));
+    if (queue.isEmpty()) {
+      heads.add(entry);
+    }
+    queue.add(entry);
+    byExpiration.add(entry);
+    entries.put(trx.getTransactionId(), entry);
+    return true;
+  }
+
+  public synchronized boolean remove(TransactionCapsule trx) {
+    Entry entry = entries.get(trx.getTransactionId());
+    if (entry == null) {
+      return false;
+    }
+    remove(entry);
+    return true;
+  }
+
+  private void remove(Entry entry) {
+    entries.remove(entry.trx.getTransactionId());
+    byExpiration.remove(entry);
+    TreeSet<Entry> queue = senders.get(entry.sender);
+    boolean head = queue.first() == entry;
+    if (head) {
+      heads.remove(entry);
+    }
+    queue.remove(entry);
+    if (queue.isEmpty()) {
+      senders.remove(entry.sender);
+      return;
+    }
+    if (head) {
+      heads.add(queue.first());
+    }
+  }
+
+  /**
+   * Drop the transactions expiring at or before {@code time}.
+   *
+   * @return the number of transactions dropped.
+   */
+  public synchronized int removeExpired(long time) {
+    int removed = 0;
+    while (!byExpiration.isEmpty() && byExpiration.first().expiration <= time) {
+      remove(byExpiration.first());
+      removed++;
+    }
+    return removed;
+  }
+
+  /**
+   * @return the transaction that would be returned first by the iterator, or null.
+   */
+  public synchronized TransactionCapsule peek() {
+    return heads.isEmpty() ? null : heads.last().trx;
+  }
+
+  /**
+   * @return the first transaction by priority, removed from the pool, or null.
+   */
+  public synchronized TransactionCapsule poll() {
+    TransactionCapsule trx = peek();
+    if (trx != null) {
+      remove(trx);
+    }
+    return trx;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized boolean isFull() {
+    return entries.size() >= capacity;
+  }
+
+  public synchronized boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  public synchronized boolean contains(TransactionCapsule trx) {
+    return entries.containsKey(trx.getTransactionId());
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    senders.clear();
+    heads.clear();
+    byExpiration.clear();
+  }
+
+  /**
+   * @return the transactions by priority, every sender in arrival order, as they were when
+   *     called. {@code remove} drops the last transaction returned from the pool.
+   */
+  @Override
+  public synchronized Iterator<TransactionCapsule> iterator() {
+    // merges the queues of the senders, a queue is represented by its next transaction
+    List<Entry> ordered = new ArrayList<>(entries.size());
+    PriorityQueue<Entry> next = new PriorityQueue<>(BY_PRIORITY.reversed());
+    next.addAll(heads);
+    while (!next.isEmpty()) {
+      Entry entry = next.poll();
+      ordered.add(entry);
+      Entry behind = senders.get(entry.sender).higher(entry);
+      if (behind != null) {
+        next.add(behind);
+      }
+    }
+    return new SnapshotIterator(ordered.iterator());
+  }
+
+  private static class Entry {
+
+    private final TransactionCapsule trx;
+    private final String sender;
+    private final long priority;
+    private final long expiration;
+    private final long seq;
+
+    Entry(TransactionCapsule trx, String sender, long priority, long expiration, long seq) {
+      this.trx = trx;
+      this.sender = sender;
+      this.priority = priority;
+      this.expiration = expiration;
+      this.seq = seq;
+    }
+  }
+
+  private class SnapshotIterator implements Iterator<TransactionCapsule> {
+
+    private final Iterator<Entry> entries;
+    private Entry last;
+
+    SnapshotIterator(Iterator<Entry> entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return entries.hasNext();
+    }
+
+    @Override
+    public TransactionCapsule next() {
+      last = entries.next();
+      return last.trx;
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      TransactionPool.this.remove(last.trx);
+      last = null;
+    }
+  }
+}
@@ -1,5 +1,9 @@
 package org.tron.core.db.backup;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -7,10 +11,15 @@ import org.rocksdb.RocksDBException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.tron.common.parameter.CommonParameter;
+import org.tron.common.storage.ValueCodec;
+import org.tron.common.utils.FileUtil;
 import org.tron.common.utils.PropUtil;
 import org.tron.core.capsule.BlockCapsule;
 import org.tron.core.config.args.Args;
 import org.tron.core.db.RevokingDatabase;
+import org.tron.core.db2.common.DB;
+import org.tron.core.db2.common.RocksDB;
+import org.tron.core.db2.common.TieredDB;
 import org.tron.core.db2.core.Chainbase;
 import org.tron.core.db2.core.SnapshotManager;
 import org.tron.core.db2.core.SnapshotRoot;
@@ -97,7 +106,7 @@ public class BackupDbUtil {
         default:
           logger.warn("invalid backup state");
       }
-    } catch (RocksDBException | SecurityException e) {
+    } catch (RocksDBException | IOException | SecurityException e) {
       logger.warn("backup db error:" + e);
     }
     long timeUsed = System.currentTimeMillis() - t1;
@@ -108,7 +117,28 @@ public class BackupDbUtil {
     }
   }
 
-  private void backup(int i) throws RocksDBException {
+  /**
+   * @return the db of the root of {@code store}, the LSM tier of a tiered store.
+   */
+  private static DB<byte[], byte[]> rootDb(Chainbase store) {
+    DB<byte[], byte[]> root = ((SnapshotRoot) (store.getHead().getRoot())).getDb();
+    return root instanceof TieredDB ? ((TieredDB) root).getHot() : root;
+  }
+
+  private static TieredDB tieredDb(Chainbase store) {
+    DB<byte[], byte[]> root = ((SnapshotRoot) (store.getHead().getRoot())).getDb();
+    return root instanceof TieredDB ? (TieredDB) root : null;
+  }
+
+  /**
+   * @return the dictionary of {@code store} in the backup at {@code path}, where the store
+   *     restored from it is opened with it.
+   */
+  private static Path dictionaryPath(String path, Chainbase store) {
+    return Paths.get(path + store.getDbName() + ValueCodec.DICTIONARY_SUFFIX);
+  }
+
+  private void backup(int i) throws RocksDBException, IOException {
     String path = "";
     if (i == DB_BACKUP_INDEX1) {
       path = parameter.getDbBackupConfig().getBak1path();
@@ -119,10 +149,19 @@ public class BackupDbUtil {
     }
     List<Chainbase> stores = ((SnapshotManager) db).getDbs();
     for (Chainbase store : stores) {
-      if (((SnapshotRoot) (store.getHead().getRoot())).getDb().getClass()
-          == org.tron.core.db2.common.RocksDB.class) {
-        ((org.tron.core.db2.common.RocksDB) ((SnapshotRoot) (store.getHead().getRoot())).getDb())
-            .getDb().backup(path);
+      if (rootDb(store).getClass() == RocksDB.class) {
+        ((RocksDB) rootDb(store)).getDb().backup(path);
+        // after the LSM, the rows moved in between are then in both
+        TieredDB tiered = tieredDb(store);
+        if (tiered != null) {
+          tiered.backupSegments(
+              Paths.get(path + store.getDbName() + TieredDB.DIRECTORY_SUFFIX));
+        }
+        // the compressed values can not be read without the dictionary
+        ValueCodec codec = ((SnapshotRoot) (store.getHead().getRoot())).getCodec();
+        if (codec != null) {
+          codec.saveDictionary(dictionaryPath(path, store));
+        }
       }
     }
   }
@@ -138,10 +177,12 @@ public class BackupDbUtil {
     }
     List<Chainbase> stores = ((SnapshotManager) db).getDbs();
     for (Chainbase store : stores) {
-      if (((SnapshotRoot) (store.getHead().getRoot())).getDb().getClass()
-          == org.tron.core.db2.common.RocksDB.class) {
-        ((org.tron.core.db2.common.RocksDB) (((SnapshotRoot) (store.getHead().getRoot())).getDb()))
-            .getDb().deleteDbBakPath(path);
+      if (rootDb(store).getClass() == RocksDB.class) {
+        ((RocksDB) rootDb(store)).getDb().deleteDbBakPath(path);
+        if (tieredDb(store) != null) {
+          FileUtil.deleteDir(new File(path + store.getDbName() + TieredDB.DIRECTORY_SUFFIX));
+        }
+        FileUtil.deleteDir(dictionaryPath(path, store).toFile());
       }
     }
   }
@@ -9,6 +9,7 @@ import org.tron.core.metrics.net.NetInfo;
 import org.tron.core.metrics.net.NetMetricManager;
 import org.tron.core.metrics.node.NodeInfo;
 import org.tron.core.metrics.node.NodeMetricManager;
+import org.tron.core.metrics.storage.StorageMetricManager;
 import org.tron.protos.Protocol;
 
 @Slf4j(topic = "metrics")
@@ -26,6 +27,9 @@ public class MetricsApiService {
   @Autowired
   private NodeMetricManager nodeMetricManager;
 
+  @Autowired
+  private StorageMetricManager storageMetricManager;
+
   /**
    * get metrics info.
    *
@@ -46,6 +50,8 @@ public class MetricsApiService {
     NetInfo netInfo = netMetricManager.getNetInfo();
     metricsInfo.setNet(netInfo);
 
+    metricsInfo.setStorage(storageMetricManager.getStorageInfo());
+
     return metricsInfo;
   }
 
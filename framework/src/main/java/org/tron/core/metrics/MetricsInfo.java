@@ -3,6 +3,7 @@ package org.tron.core.metrics;
 import org.tron.core.metrics.blockchain.BlockChainInfo;
 import org.tron.core.metrics.net.NetInfo;
 import org.tron.core.metrics.node.NodeInfo;
+import org.tron.core.metrics.storage.StorageInfo;
 
 public class MetricsInfo {
 
@@ -14,6 +15,8 @@ public class MetricsInfo {
 
   private NetInfo net;
 
+  private StorageInfo storage;
+
   public long getInterval() {
     return interval;
   }
@@ -45,4 +48,12 @@ public class MetricsInfo {
   public void setNet(NetInfo net) {
     this.net = net;
   }
+
+  public StorageInfo getStorage() {
+    return storage;
+  }
+
+  public void setStorage(StorageInfo storage) {
+    this.storage = storage;
+  }
 }
@@ -0,0 +1,75 @@
+package org.tron.core.metrics.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StorageInfo {
+
+  private long memoryBudget;
+  private long reserved;
+  private List<StoreMemoryInfo> stores = new ArrayList<>();
+
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  public void setMemoryBudget(long memoryBudget) {
+    this.memoryBudget = memoryBudget;
+  }
+
+  public long getReserved() {
+    return reserved;
+  }
+
+  public void setReserved(long reserved) {
+    this.reserved = reserved;
+  }
+
+  public List<StoreMemoryInfo> getStores() {
+    return stores;
+  }
+
+  public void setStores(List<StoreMemoryInfo> stores) {
+    this.stores = stores;
+  }
+
+  public static class StoreMemoryInfo {
+
+    private String name;
+    private long blockCacheSize;
+    private long writeBufferSize;
+    private long usage;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public long getBlockCacheSize() {
+      return blockCacheSize;
+    }
+
+    public void setBlockCacheSize(long blockCacheSize) {
+      this.blockCacheSize = blockCacheSize;
+    }
+
+    public long getWriteBufferSize() {
+      return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(long writeBufferSize) {
+      this.writeBufferSize = writeBufferSize;
+    }
+
+    public long getUsage() {
+      return usage;
+    }
+
+    public void setUsage(long usage) {
+      this.usage = usage;
+    }
+  }
+}
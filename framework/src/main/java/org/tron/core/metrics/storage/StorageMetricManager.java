@@ -0,0 +1,32 @@
+package org.tron.core.metrics.storage;
+
+import java.util.Comparator;
+import org.springframework.stereotype.Component;
+import org.tron.common.storage.MemoryBudget;
+
+@Component
+public class StorageMetricManager {
+
+  /**
+   * get the native memory of the stores, see storage.memoryBudget.
+   *
+   * @return StorageInfo
+   */
+  public StorageInfo getStorageInfo() {
+    StorageInfo storageInfo = new StorageInfo();
+    storageInfo.setMemoryBudget(MemoryBudget.getBudget());
+    long reserved = 0;
+    for (MemoryBudget.Share share : MemoryBudget.getShares()) {
+      StorageInfo.StoreMemoryInfo store = new StorageInfo.StoreMemoryInfo();
+      store.setName(share.getName());
+      store.setBlockCacheSize(share.getBlockCacheSize());
+      store.setWriteBufferSize(share.getWriteBufferSize());
+      store.setUsage(share.getUsage());
+      storageInfo.getStores().add(store);
+      reserved += share.getBlockCacheSize() + share.getWriteBufferSize();
+    }
+    storageInfo.getStores().sort(Comparator.comparing(StorageInfo.StoreMemoryInfo::getName));
+    storageInfo.setReserved(reserved);
+    return storageInfo;
+  }
+}
@@ -159,6 +159,10 @@ public class TronNetDelegate {
     }
   }
 
+  public boolean isTxCacheWarmedUp() {
+    return dbManager.isTxCacheWarmedUp();
+  }
+
   public boolean canChainRevoke(long num) {
     return num >= dbManager.getSyncBeginNumber();
   }
@@ -61,6 +61,12 @@ public class InventoryMsgHandler implements TronMsgHandler {
         return false;
       }
 
+      if (!tronNetDelegate.isTxCacheWarmedUp()) {
+        logger.warn("Drop inv: {} size: {} from Peer {}, txs cache is warming up.",
+            type, size, peer.getInetAddress());
+        return false;
+      }
+
       if (transactionsMsgHandler.isBusy()) {
         logger.warn("Drop inv: {} size: {} from Peer {}, transactionsMsgHandler is busy.",
             type, size, peer.getInetAddress());
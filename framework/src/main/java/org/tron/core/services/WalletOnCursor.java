@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.tron.core.db.Manager;
 import org.tron.core.db2.core.Chainbase;
+import org.tron.core.db2.core.ReadView;
 
 @Slf4j(topic = "API")
 public abstract class WalletOnCursor {
@@ -14,21 +15,25 @@ public abstract class WalletOnCursor {
   private Manager dbManager;
 
   public <T> T futureGet(TronCallable<T> callable) {
-    try {
-      dbManager.setCursor(cursor);
-      return callable.call();
-    } finally {
-      dbManager.resetCursor();
+    if (!dbManager.isReadViewSupported()) {
+      try {
+        dbManager.setCursor(cursor);
+        return callable.call();
+      } finally {
+        dbManager.resetCursor();
+      }
+    }
+
+    try (ReadView view = dbManager.createReadView(cursor)) {
+      return view.call(callable::call);
     }
   }
 
   public void futureGet(Runnable runnable) {
-    try {
-      dbManager.setCursor(cursor);
+    futureGet(() -> {
       runnable.run();
-    } finally {
-      dbManager.resetCursor();
-    }
+      return null;
+    });
   }
 
   public interface TronCallable<T> extends Callable<T> {
@@ -13,6 +13,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
@@ -23,6 +24,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.rocksdb.RocksDBException;
 import org.tron.common.parameter.CommonParameter;
+import org.tron.common.storage.ValueCodec;
 import org.tron.common.utils.ByteArray;
 import org.tron.common.utils.FileUtil;
 import org.tron.common.utils.PropUtil;
@@ -218,17 +220,15 @@ public class LiteFullNodeTool {
         for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
           byte[] key = iterator.getKey();
           byte[] value = iterator.getValue();
+          if (SnapshotManager.isCheckpointLogKey(key)) {
+            SnapshotManager.readCheckpointLog(value, (dbName, realKey, realValue) ->
+                mergeCheckpointEntry(destDir, destDbs, dbName, realKey, realValue));
+            continue;
+          }
           String dbName = SnapshotManager.simpleDecode(key);
           byte[] realKey = Arrays.copyOfRange(key, dbName.getBytes().length + 4, key.length);
           byte[] realValue = value.length == 1 ? null : Arrays.copyOfRange(value, 1, value.length);
-          if (destDbs != null && destDbs.contains(dbName)) {
-            DBInterface destDb = DbTool.getDB(destDir, dbName);
-            if (realValue != null) {
-              destDb.put(realKey, realValue);
-            } else {
-              destDb.delete(realKey);
-            }
-          }
+          mergeCheckpointEntry(destDir, destDbs, dbName, realKey, realValue);
         }
       }
     } catch (IOException | RocksDBException e) {
@@ -236,6 +236,46 @@ public class LiteFullNodeTool {
     }
   }
 
+  private void mergeCheckpointEntry(String destDir, List<String> destDbs, String dbName,
+      byte[] realKey, byte[] realValue) {
+    if (destDbs == null || !destDbs.contains(dbName)) {
+      return;
+    }
+    try {
+      DBInterface destDb = DbTool.getDB(destDir, dbName);
+      if (realValue != null) {
+        destDb.put(realKey, realValue);
+      } else {
+        destDb.delete(realKey);
+      }
+    } catch (IOException | RocksDBException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Look up the newest value of a key in the checkpoint log records, null if absent or deleted.
+   */
+  private byte[] getFromCheckpointLog(String databaseDir, String dbName, byte[] key)
+          throws IOException, RocksDBException {
+    byte[][] found = new byte[1][];
+    DBInterface tmpDb = DbTool.getDB(databaseDir, CHECKPOINT_DB);
+    try (DBIterator iterator = tmpDb.iterator()) {
+      for (iterator.seek(SnapshotManager.CHECKPOINT_LOG_PREFIX); iterator.hasNext();
+          iterator.next()) {
+        if (!SnapshotManager.isCheckpointLogKey(iterator.getKey())) {
+          continue;
+        }
+        SnapshotManager.readCheckpointLog(iterator.getValue(), (name, k, v) -> {
+          if (name.equals(dbName) && Arrays.equals(k, key)) {
+            found[0] = v;
+          }
+        });
+      }
+    }
+    return found[0];
+  }
+
   private void generateInfoProperties(String propertyfile, String databaseDir)
           throws IOException, RocksDBException {
     logger.info("-- create {} for dataset", INFO_FILE_NAME);
@@ -251,6 +291,11 @@ public class LiteFullNodeTool {
   private long getLatestBlockHeaderNum(String databaseDir) throws IOException, RocksDBException {
     // query latest_block_header_number from checkpoint first
     final String latestBlockHeaderNumber = "latest_block_header_number";
+    byte[] logValue = getFromCheckpointLog(databaseDir, "properties",
+            latestBlockHeaderNumber.getBytes());
+    if (logValue != null) {
+      return ByteArray.toLong(logValue);
+    }
     byte[] value = DbTool.getDB(databaseDir, CHECKPOINT_DB).get(
             Bytes.concat(simpleEncode(CHECKPOINT_DB), latestBlockHeaderNumber.getBytes()));
     if (value != null && value.length > 1) {
@@ -279,7 +324,9 @@ public class LiteFullNodeTool {
     long genesisBlockNum = 0L;
     byte[] genesisBlockID = sourceBlockIndexDb.get(ByteArray.fromLong(genesisBlockNum));
     destBlockIndexDb.put(ByteArray.fromLong(genesisBlockNum), genesisBlockID);
-    destBlockDb.put(genesisBlockID, sourceBlockDb.get(genesisBlockID));
+    // the blocks are copied raw, the snapshot may not get the dictionary of the source
+    destBlockDb.put(genesisBlockID,
+        decodeValue(sourceDir, BLOCK_DB_NAME, sourceBlockDb.get(genesisBlockID)));
 
     long latestBlockNum = getLatestBlockHeaderNum(sourceDir);
     long startIndex = latestBlockNum > VM_NEED_RECENT_BLKS
@@ -292,7 +339,8 @@ public class LiteFullNodeTool {
           try {
             blockId = getDataFromSourceDB(sourceDir, BLOCK_INDEX_DB_NAME,
                     Longs.toByteArray(blockNum));
-            block = getDataFromSourceDB(sourceDir, BLOCK_DB_NAME, blockId);
+            block = decodeValue(sourceDir, BLOCK_DB_NAME,
+                getDataFromSourceDB(sourceDir, BLOCK_DB_NAME, blockId));
           } catch (IOException | RocksDBException e) {
             throw new RuntimeException(e.getMessage());
           }
@@ -323,7 +371,8 @@ public class LiteFullNodeTool {
           try {
             blockId = getDataFromSourceDB(sourceDir, BLOCK_INDEX_DB_NAME,
                     Longs.toByteArray(blockNum));
-            block = getDataFromSourceDB(sourceDir, BLOCK_DB_NAME, blockId);
+            block = decodeValue(sourceDir, BLOCK_DB_NAME,
+                getDataFromSourceDB(sourceDir, BLOCK_DB_NAME, blockId));
           } catch (IOException | RocksDBException e) {
             throw new RuntimeException(e.getMessage());
           }
@@ -417,7 +466,8 @@ public class LiteFullNodeTool {
     DBInterface tranRetDb = DbTool.getDB(databaseDir, "transactionRetStore");
     for (long n = blockNumInfo.getHistoryBlkNum(); n > blockNumInfo.getSnapshotBlkNum(); n--) {
       byte[] blockIdHash = blockIndexDb.get(ByteArray.fromLong(n));
-      BlockCapsule block = new BlockCapsule(blockDb.get(blockIdHash));
+      BlockCapsule block = new BlockCapsule(
+          decodeValue(databaseDir, BLOCK_DB_NAME, blockDb.get(blockIdHash)));
       // delete transactions
       for (TransactionCapsule e : block.getTransactions()) {
         transDb.delete(e.getTransactionId().getBytes());
@@ -451,9 +501,12 @@ public class LiteFullNodeTool {
     DBInterface sourceDb = DbTool.getDB(sourceDir, dbName);
     DBInterface checkpointDb = DbTool.getDB(sourceDir, "tmp");
     byte[] value = sourceDb.get(key);
+    if (isEmptyBytes(value)) {
+      value = getFromCheckpointLog(sourceDir, dbName, key);
+    }
     if (isEmptyBytes(value)) {
       byte[] valueFromTmp = checkpointDb.get(Bytes.concat(simpleEncode(dbName), key));
-      value = valueFromTmp.length == 1
+      value = valueFromTmp == null || valueFromTmp.length == 1
               ? null : Arrays.copyOfRange(valueFromTmp, 1, valueFromTmp.length);
     }
     if (isEmptyBytes(value)) {
@@ -463,6 +516,15 @@ public class LiteFullNodeTool {
     return value;
   }
 
+  /**
+   * @return {@code value} of the db as the node reads it, values may be stored compressed.
+   */
+  private static byte[] decodeValue(String dir, String dbName, byte[] value) throws IOException {
+    Path dictionary = Paths.get(dir, dbName + ValueCodec.DICTIONARY_SUFFIX);
+    return new ValueCodec(0, Files.exists(dictionary) ? Files.readAllBytes(dictionary) : null)
+        .decode(value);
+  }
+
   /**
    * return true if byte array is null or length is 0.
    * @param b bytes
@@ -8,7 +8,10 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
+import org.tron.common.storage.BlockSegment;
+import org.tron.common.storage.ValueCodec;
 import org.tron.common.utils.FileUtil;
+import org.tron.core.db2.common.TieredDB;
 
 @Slf4j(topic = "tool")
 public class Util {
@@ -33,6 +36,17 @@ public class Util {
         try {
           Files.walk(Paths.get(src.toString(), dir))
                   .forEach(source -> copy(source, dest.resolve(src.relativize(source))));
+          // the values of the db may be compressed with a dictionary next to it
+          Path dictionary = Paths.get(src.toString(), dir + ValueCodec.DICTIONARY_SUFFIX);
+          if (Files.exists(dictionary)) {
+            copy(dictionary, dest.resolve(src.relativize(dictionary)));
+          }
+          // and its old rows may be archived into segments
+          Path archive = Paths.get(src.toString(), dir + TieredDB.DIRECTORY_SUFFIX);
+          if (Files.exists(archive)) {
+            Files.walk(archive)
+                    .forEach(source -> copy(source, dest.resolve(src.relativize(source))));
+          }
         } catch (IOException e) {
           logger.error("copy database failed, src: {}, dest: {}, error: {}",
                   Paths.get(src.toString(), dir), Paths.get(dest.toString(), dir), e.getMessage());
@@ -44,8 +58,9 @@ public class Util {
 
   private static void copy(Path source, Path dest) {
     try {
-      // create hard link when file is .sst
-      if (source.toString().endsWith(".sst")) {
+      // create hard link when file is .sst or .seg, both are immutable
+      if (source.toString().endsWith(".sst")
+          || source.toString().endsWith(BlockSegment.SUFFIX)) {
         try {
           Files.createLink(dest, source);
         } catch (FileSystemException e) {
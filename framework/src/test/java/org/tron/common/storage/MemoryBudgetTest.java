@@ -0,0 +1,91 @@
+package org.tron.common.storage;
+
+import java.io.File;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tron.common.storage.leveldb.LevelDbDataSourceImpl;
+import org.tron.common.storage.rocksdb.RocksDbDataSourceImpl;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.Constant;
+import org.tron.core.config.args.Args;
+
+public class MemoryBudgetTest {
+
+  private static final String OUTPUT_DIR = "output-memory-budget-test";
+  private static final long BUDGET = 256L * 1024 * 1024;
+
+  @Before
+  public void init() {
+    Args.setParam(new String[]{"--output-directory", OUTPUT_DIR}, Constant.TEST_CONF);
+    Args.getInstance().getStorage().setMemoryBudget(BUDGET);
+  }
+
+  @After
+  public void destroy() {
+    Args.clearParam();
+    FileUtil.deleteDir(new File(OUTPUT_DIR));
+  }
+
+  private static long reserved() {
+    return MemoryBudget.getShares().stream()
+        .mapToLong(s -> s.getBlockCacheSize() + s.getWriteBufferSize()).sum();
+  }
+
+  @Test
+  public void testReserveAndRelease() {
+    LevelDbDataSourceImpl account = new LevelDbDataSourceImpl(OUTPUT_DIR, "account");
+    account.initDB();
+    LevelDbDataSourceImpl votes = new LevelDbDataSourceImpl(OUTPUT_DIR, "votes");
+    votes.initDB();
+    RocksDbDataSourceImpl code = new RocksDbDataSourceImpl(OUTPUT_DIR, "code");
+    code.initDB();
+
+    Assert.assertEquals(3, MemoryBudget.getShares().size());
+    Assert.assertTrue(reserved() <= BUDGET);
+    MemoryBudget.Share accountShare = MemoryBudget.getShares().stream()
+        .filter(s -> s.getName().equals("account")).findFirst().get();
+    MemoryBudget.Share votesShare = MemoryBudget.getShares().stream()
+        .filter(s -> s.getName().equals("votes")).findFirst().get();
+    // weighted towards the stores read the most
+    Assert.assertTrue(accountShare.getBlockCacheSize() > votesShare.getBlockCacheSize());
+    MemoryBudget.Share codeShare = MemoryBudget.getShares().stream()
+        .filter(s -> s.getName().equals("code")).findFirst().get();
+    Assert.assertTrue(codeShare.getUsage() >= 0);
+
+    // a reset reserves again rather than twice
+    votes.resetDb();
+    Assert.assertEquals(3, MemoryBudget.getShares().size());
+
+    account.closeDB();
+    votes.closeDB();
+    code.closeDB();
+    Assert.assertTrue(MemoryBudget.getShares().isEmpty());
+  }
+
+  @Test
+  public void testSpentBudget() {
+    Args.getInstance().getStorage().setMemoryBudget(4L * 1024 * 1024);
+    LevelDbDataSourceImpl first = new LevelDbDataSourceImpl(OUTPUT_DIR, "account");
+    first.initDB();
+    LevelDbDataSourceImpl second = new LevelDbDataSourceImpl(OUTPUT_DIR, "storage-row");
+    second.initDB();
+    // never less than the minimum sizes, even once the budget is spent
+    MemoryBudget.Share share = MemoryBudget.getShares().stream()
+        .filter(s -> s.getName().equals("storage-row")).findFirst().get();
+    Assert.assertEquals(1024 * 1024, share.getBlockCacheSize());
+    Assert.assertEquals(1024 * 1024, share.getWriteBufferSize());
+    first.closeDB();
+    second.closeDB();
+  }
+
+  @Test
+  public void testNoBudget() {
+    Args.getInstance().getStorage().setMemoryBudget(0);
+    LevelDbDataSourceImpl store = new LevelDbDataSourceImpl(OUTPUT_DIR, "account");
+    store.initDB();
+    Assert.assertTrue(MemoryBudget.getShares().isEmpty());
+    store.closeDB();
+  }
+}
@@ -0,0 +1,148 @@
+package org.tron.common.storage;
+
+import com.google.protobuf.ByteString;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tron.common.utils.FileUtil;
+import org.tron.protos.Protocol.ResourceReceipt;
+import org.tron.protos.Protocol.Transaction;
+import org.tron.protos.Protocol.TransactionInfo;
+
+@Slf4j
+public class ValueCodecTest {
+
+  private static final String OUTPUT_DIR = "output-value-codec-test";
+
+  @After
+  public void destroy() {
+    FileUtil.deleteDir(new File(OUTPUT_DIR));
+  }
+
+  private static List<byte[]> transactionInfos(int count) {
+    Random random = new Random(0);
+    List<byte[]> values = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      byte[] id = new byte[32];
+      random.nextBytes(id);
+      byte[] address = new byte[21];
+      random.nextBytes(address);
+      address[0] = 0x41;
+      values.add(TransactionInfo.newBuilder()
+          .setId(ByteString.copyFrom(id))
+          .setBlockNumber(1_000_000 + i)
+          .setBlockTimeStamp(1_600_000_000_000L + i * 3000L)
+          .setContractAddress(ByteString.copyFrom(address))
+          .setFee(random.nextInt(1_000_000))
+          .setReceipt(ResourceReceipt.newBuilder()
+              .setEnergyUsageTotal(random.nextInt(100_000))
+              .setNetUsage(265)
+              .setResult(Transaction.Result.contractResult.REVERT))
+          .setResMessage(ByteString.copyFromUtf8("REVERT opcode executed"))
+          .build().toByteArray());
+    }
+    return values;
+  }
+
+  @Test
+  public void testRoundTrip() {
+    ValueCodec codec = new ValueCodec(6, null);
+    Assert.assertNull(codec.encode(null));
+    Assert.assertNull(codec.decode(null));
+    Assert.assertArrayEquals(new byte[0], codec.decode(codec.encode(new byte[0])));
+
+    // values written before the codec are read as they are
+    byte[] raw = transactionInfos(1).get(0);
+    Assert.assertArrayEquals(raw, codec.decode(raw));
+
+    byte[] repeated = new byte[1000];
+    repeated[0] = 0x0a;
+    byte[] encoded = codec.encode(repeated);
+    Assert.assertEquals(0, encoded[0]);
+    Assert.assertTrue(encoded.length < repeated.length);
+    Assert.assertArrayEquals(repeated, codec.decode(encoded));
+
+    // a value starting like an encoded one is always encoded
+    byte[] marked = new byte[]{0, 1, 2};
+    Assert.assertArrayEquals(marked, codec.decode(codec.encode(marked)));
+  }
+
+  @Test
+  public void testDictionary() {
+    List<byte[]> values = transactionInfos(2000);
+    Path path = Paths.get(OUTPUT_DIR, "transactionRetStore" + ValueCodec.DICTIONARY_SUFFIX);
+    ValueCodec trained = ValueCodec.open(6, 4096, path,
+        () -> values.subList(0, 1000));
+    Assert.assertTrue(trained.getDictionarySize() > 0);
+    Assert.assertTrue(path.toFile().exists());
+    // loaded rather than trained again
+    ValueCodec loaded = ValueCodec.open(6, 4096, path,
+        Collections::emptyList);
+    Assert.assertEquals(trained.getDictionarySize(), loaded.getDictionarySize());
+
+    ValueCodec plain = new ValueCodec(6, null);
+    long raw = 0;
+    long withoutDictionary = 0;
+    long withDictionary = 0;
+    List<byte[]> encoded = new ArrayList<>();
+    for (byte[] value : values.subList(1000, 2000)) {
+      raw += value.length;
+      withoutDictionary += plain.encode(value).length;
+      byte[] e = trained.encode(value);
+      withDictionary += e.length;
+      encoded.add(e);
+    }
+    Assert.assertTrue(withDictionary < withoutDictionary);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < encoded.size(); i++) {
+      Assert.assertArrayEquals(values.get(1000 + i), loaded.decode(encoded.get(i)));
+    }
+    logger.info("raw {} bytes, deflated {} bytes, with dictionary {} bytes, decode {} ns/value",
+        raw, withoutDictionary, withDictionary,
+        (System.nanoTime() - start) / encoded.size());
+
+    try {
+      plain.decode(encoded.stream().filter(e -> e[0] == 0).findFirst().get());
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      Assert.assertTrue(e.getMessage().contains("dictionary"));
+    }
+  }
+
+  @Test
+  public void testSaveDictionary() throws Exception {
+    List<byte[]> values = transactionInfos(1000);
+    ValueCodec trained = ValueCodec.open(6, 4096,
+        Paths.get(OUTPUT_DIR, "transactionRetStore" + ValueCodec.DICTIONARY_SUFFIX),
+        () -> values);
+    byte[] encoded = trained.encode(values.get(0));
+
+    // as next to a backup, the store restored from it is opened with the copy
+    Path copy = Paths.get(OUTPUT_DIR, "bak", "transactionRetStore"
+        + ValueCodec.DICTIONARY_SUFFIX);
+    Assert.assertTrue(trained.saveDictionary(copy));
+    ValueCodec restored = ValueCodec.open(6, 4096, copy, Collections::emptyList);
+    Assert.assertArrayEquals(values.get(0), restored.decode(encoded));
+
+    Assert.assertFalse(new ValueCodec(6, null).saveDictionary(
+        Paths.get(OUTPUT_DIR, "plain" + ValueCodec.DICTIONARY_SUFFIX)));
+  }
+
+  @Test
+  public void testTooFewSamples() {
+    Path path = Paths.get(OUTPUT_DIR, "block" + ValueCodec.DICTIONARY_SUFFIX);
+    ValueCodec codec = ValueCodec.open(1, ValueCodec.MAX_DICTIONARY_SIZE, path,
+        () -> transactionInfos(10));
+    Assert.assertEquals(0, codec.getDictionarySize());
+    Assert.assertFalse(path.toFile().exists());
+  }
+}
@@ -37,6 +37,7 @@ import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.tron.common.storage.WriteOptionsWrapper;
 import org.tron.common.utils.ByteArray;
 import org.tron.common.utils.FileUtil;
 import org.tron.core.Constant;
@@ -130,6 +131,27 @@ public class LevelDbDataSourceImplTest {
     dataSource.closeDB();
   }
 
+  @Test
+  public void testUpdateByBatchWriter() {
+    LevelDbDataSourceImpl dataSource = new LevelDbDataSourceImpl(
+        Args.getInstance().getOutputDirectory(), "test_updateByBatchWriter");
+    dataSource.initDB();
+    dataSource.resetDb();
+    dataSource.putData(key3, value3);
+
+    dataSource.updateByBatch(writer -> {
+      writer.put(key1, value1);
+      writer.put(key2, value2);
+      writer.put(key3, null);
+    }, WriteOptionsWrapper.getInstance());
+
+    assertEquals("10000", ByteArray.toStr(dataSource.getData(key1)));
+    assertEquals("20000", ByteArray.toStr(dataSource.getData(key2)));
+    assertNull(dataSource.getData(key3));
+    assertEquals(2, dataSource.allKeys().size());
+    dataSource.closeDB();
+  }
+
   @Test
   public void testdeleteData() {
     LevelDbDataSourceImpl dataSource = new LevelDbDataSourceImpl(
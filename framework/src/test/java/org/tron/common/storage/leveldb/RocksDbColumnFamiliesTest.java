@@ -0,0 +1,74 @@
+package org.tron.common.storage.leveldb;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tron.common.setting.RocksDbSettings;
+import org.tron.common.storage.WriteOptionsWrapper;
+import org.tron.common.storage.rocksdb.RocksDbColumnFamilies;
+import org.tron.common.storage.rocksdb.RocksDbDataSourceImpl;
+import org.tron.common.utils.ByteArray;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.config.args.Args;
+
+public class RocksDbColumnFamiliesTest {
+
+  private static final String dbPath = "output-Rocks-cf-test";
+  private static final String parentPath = dbPath + File.separator + "database";
+
+  @Before
+  public void init() {
+    Args.setParam(new String[]{"--output-directory", dbPath}, "config-test-dbbackup.conf");
+  }
+
+  @After
+  public void destroy() {
+    Args.clearParam();
+    FileUtil.deleteDir(new File(dbPath));
+  }
+
+  private static RocksDbDataSourceImpl open(String name) {
+    return new RocksDbDataSourceImpl(
+        RocksDbColumnFamilies.open(parentPath, RocksDbSettings.getSettings()), parentPath, name);
+  }
+
+  @Test
+  public void testMigrateAndBatch() {
+    RocksDbDataSourceImpl legacy = new RocksDbDataSourceImpl(parentPath, "account",
+        RocksDbSettings.getSettings());
+    legacy.putData(ByteArray.fromString("a"), ByteArray.fromString("1"));
+    legacy.putData(ByteArray.fromString("b"), ByteArray.fromString("2"));
+    legacy.closeDB();
+
+    RocksDbDataSourceImpl account = open("account");
+    RocksDbDataSourceImpl witness = open("witness");
+    Assert.assertSame(account.getColumnFamilies(), witness.getColumnFamilies());
+    Assert.assertEquals("1", ByteArray.toStr(account.getData(ByteArray.fromString("a"))));
+    Assert.assertEquals(2, account.allKeys().size());
+    Assert.assertFalse(Files.exists(Paths.get(parentPath, "account")));
+    Assert.assertTrue(Files.exists(Paths.get(parentPath, "account.migrated")));
+
+    try (RocksDbColumnFamilies.Batch batch = account.getColumnFamilies().newBatch()) {
+      batch.writer(account).put(ByteArray.fromString("a"), null);
+      batch.writer(witness).put(ByteArray.fromString("a"), ByteArray.fromString("3"));
+      batch.write(WriteOptionsWrapper.getInstance());
+    }
+    Assert.assertNull(account.getData(ByteArray.fromString("a")));
+    Assert.assertEquals("3", ByteArray.toStr(witness.getData(ByteArray.fromString("a"))));
+
+    witness.resetDb();
+    Assert.assertNull(witness.getData(ByteArray.fromString("a")));
+    Assert.assertEquals("2", ByteArray.toStr(account.getData(ByteArray.fromString("b"))));
+    account.closeDB();
+    witness.closeDB();
+
+    // reopened with the families on disk
+    account = open("account");
+    Assert.assertEquals(1, account.allKeys().size());
+    account.closeDB();
+  }
+}
@@ -7,6 +7,7 @@ import static org.junit.Assert.assertNull;
 
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.typesafe.config.ConfigFactory;
 import java.io.File;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -20,6 +21,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.tron.common.storage.rocksdb.RocksDbDataSourceImpl;
+import org.tron.common.storage.rocksdb.RocksDbTableOptions;
 import org.tron.common.utils.ByteArray;
 import org.tron.common.utils.FileUtil;
 import org.tron.common.utils.PropUtil;
@@ -352,4 +354,30 @@ public class RocksDbDataSourceImplTest {
     dataSource.resetDb();
     dataSource.closeDB();
   }
+
+  @Test
+  public void testPrefixTableOptions() {
+    Args.getInstance().getStorage().setPropertyMapFromConfig(ConfigFactory.parseString(
+        "storage.properties = [{name = \"test_prefix\", tablePreset = true, prefixLength = 8,"
+            + " pointLookup = true}]"));
+    RocksDbTableOptions options = RocksDbTableOptions.of("test_prefix");
+    Assert.assertEquals(8, options.getPrefixLength());
+    Assert.assertTrue(options.isPointLookup());
+
+    RocksDbDataSourceImpl dataSource = new RocksDbDataSourceImpl(
+        Args.getInstance().getOutputDirectory(), "test_prefix");
+    dataSource.initDB();
+    dataSource.resetDb();
+    putSomeKeyValue(dataSource);
+
+    Assert.assertArrayEquals(value4, dataSource.getData(key4));
+    Assert.assertNull(dataSource.getData("00000004ab".getBytes()));
+    // the iterators cross the prefixes
+    List<byte[]> keys = dataSource.getKeysNext("0000000300".getBytes(), 3);
+    Assert.assertEquals(3, keys.size());
+    Assert.assertArrayEquals(key5, keys.get(2));
+    Assert.assertEquals(6, dataSource.allKeys().size());
+    dataSource.resetDb();
+    dataSource.closeDB();
+  }
 }
@@ -0,0 +1,39 @@
+package org.tron.core.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CapsuleCacheTest {
+
+  private byte[] key = "key".getBytes();
+
+  @Test
+  public void testRevision() {
+    CapsuleCache cache = new CapsuleCache("test", 10);
+    cache.put(key, 1, cache.getModCount(), "value");
+    Assert.assertEquals("value", cache.get(key, 1));
+    Assert.assertNull(cache.get(key, 2));
+  }
+
+  @Test
+  public void testInvalidate() {
+    CapsuleCache cache = new CapsuleCache("test", 10);
+    cache.put(key, 1, cache.getModCount(), "value");
+    cache.invalidate(key);
+    Assert.assertNull(cache.get(key, 1));
+
+    cache.put(key, 1, cache.getModCount(), "value");
+    cache.invalidateAll();
+    Assert.assertNull(cache.get(key, 1));
+  }
+
+  @Test
+  public void testConcurrentWrite() {
+    CapsuleCache cache = new CapsuleCache("test", 10);
+    long modCount = cache.getModCount();
+    // a write drops the key between the read of the value and its insertion
+    cache.invalidate(key);
+    cache.put(key, 1, modCount, "stale");
+    Assert.assertNull(cache.get(key, 1));
+  }
+}
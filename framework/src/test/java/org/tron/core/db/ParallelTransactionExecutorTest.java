@@ -0,0 +1,184 @@
+package org.tron.core.db;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.protobuf.ByteString;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tron.common.application.TronApplicationContext;
+import org.tron.common.utils.FileUtil;
+import org.tron.common.utils.Sha256Hash;
+import org.tron.core.ChainBaseManager;
+import org.tron.core.Constant;
+import org.tron.core.Wallet;
+import org.tron.core.capsule.AccountCapsule;
+import org.tron.core.capsule.BlockCapsule;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.capsule.TransactionRetCapsule;
+import org.tron.core.config.DefaultConfig;
+import org.tron.core.config.args.Args;
+import org.tron.core.db2.ISession;
+import org.tron.protos.Protocol.Account;
+import org.tron.protos.Protocol.AccountType;
+import org.tron.protos.Protocol.Transaction.Contract.ContractType;
+import org.tron.protos.Protocol.TransactionInfo;
+import org.tron.protos.contract.BalanceContract.TransferContract;
+
+public class ParallelTransactionExecutorTest {
+
+  private static final String DB_PATH = "output-parallel-executor-test";
+  private static final int ACCOUNTS = 8;
+  private static final long BALANCE = 1_000_000_000L;
+  private static final long FROZEN = 1_000_000_000L;
+
+  private TronApplicationContext context;
+  private Manager dbManager;
+  private ChainBaseManager chainManager;
+  private BlockCapsule head;
+  private BlockCapsule block;
+
+  @Before
+  public void init() throws Exception {
+    Args.setParam(new String[]{"-d", DB_PATH, "-w"}, Constant.TEST_CONF);
+    context = new TronApplicationContext(DefaultConfig.class);
+    dbManager = context.getBean(Manager.class);
+    chainManager = dbManager.getChainBaseManager();
+
+    for (int i = 1; i <= ACCOUNTS; i++) {
+      // 2 only has what 1 sends it in the block
+      AccountCapsule account = new AccountCapsule(ByteString.copyFromUtf8("account" + i),
+          ByteString.copyFrom(address(i)), AccountType.Normal, i == 2 ? 0 : BALANCE);
+      // bandwidth of its own, the free bandwidth is shared by all the accounts
+      account.setFrozenForBandwidth(FROZEN, Long.MAX_VALUE);
+      chainManager.getAccountStore().put(account.createDbKey(), account);
+    }
+    chainManager.getDynamicPropertiesStore()
+        .saveTotalNetWeight(ACCOUNTS * FROZEN / 1_000_000L);
+
+    head = chainManager.getHead();
+    dbManager.updateRecentBlock(head);
+    block = new BlockCapsule(head.getNum() + 1, head.getBlockId(), head.getTimeStamp() + 3000,
+        ByteString.copyFrom(address(0)));
+    block.addTransaction(transfer(1, 2, 2_000_000));
+    block.addTransaction(transfer(3, 4, 1_000));
+    // fails before the transfer of 1 is committed
+    block.addTransaction(transfer(2, 5, 1_000_000));
+    // reads the account of 1 written by the first transfer
+    block.addTransaction(transfer(1, 6, 1_000));
+    block.addTransaction(transfer(7, 8, 1_000));
+    block.addTransaction(transfer(8, 3, 1_000));
+  }
+
+  @After
+  public void destroy() {
+    Args.clearParam();
+    context.destroy();
+    FileUtil.deleteDir(new File(DB_PATH));
+  }
+
+  private static byte[] address(int i) {
+    byte[] address = new byte[21];
+    address[0] = Wallet.getAddressPreFixByte();
+    address[20] = (byte) i;
+    return address;
+  }
+
+  private TransactionCapsule transfer(int from, int to, long amount) {
+    TransactionCapsule trx = new TransactionCapsule(TransferContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFrom(address(from)))
+        .setToAddress(ByteString.copyFrom(address(to))).setAmount(amount).build(),
+        ContractType.TransferContract);
+    trx.setReference(head.getNum(), head.getBlockId().getBytes());
+    trx.setExpiration(head.getTimeStamp() + 60_000);
+    return trx;
+  }
+
+  private Sha256Hash transactionId(int i) {
+    return block.getTransactions().get(i).getTransactionId();
+  }
+
+  /**
+   * Execute a copy of the block in a session revoked after, so every execution starts from the
+   * same state.
+   *
+   * @return the result of the block, and the accounts it touched in {@code accounts}.
+   */
+  private TransactionRetCapsule execute(Execution execution, Map<ByteString, Account> accounts)
+      throws Exception {
+    BlockCapsule copy = new BlockCapsule(block.getInstance());
+    for (TransactionCapsule trx : copy.getTransactions()) {
+      trx.setBlockNum(copy.getNum());
+      trx.setVerified(true);
+    }
+    try (ISession session = dbManager.getRevokingStore().buildSession()) {
+      TransactionRetCapsule ret = new TransactionRetCapsule(copy);
+      execution.run(copy).forEach(ret::addTransactionInfo);
+      for (int i = 1; i <= ACCOUNTS; i++) {
+        AccountCapsule account = chainManager.getAccountStore().get(address(i));
+        accounts.put(account.getAddress(), account.getInstance());
+      }
+      AccountCapsule blackhole = chainManager.getAccountStore().getBlackhole();
+      accounts.put(blackhole.getAddress(), blackhole.getInstance());
+      return ret;
+    }
+  }
+
+  private List<TransactionInfo> sequential(BlockCapsule block) throws Exception {
+    List<TransactionInfo> results = new ArrayList<>();
+    for (TransactionCapsule trx : block.getTransactions()) {
+      results.add(dbManager.processTransaction(trx, block));
+    }
+    return results;
+  }
+
+  @Test
+  public void testExecute() throws Exception {
+    Map<ByteString, Account> expected = new HashMap<>();
+    TransactionRetCapsule expectedRet = execute(this::sequential, expected);
+
+    Manager manager = spy(dbManager);
+    ParallelTransactionExecutor executor = new ParallelTransactionExecutor(manager, 4);
+    Map<ByteString, Account> actual = new HashMap<>();
+    TransactionRetCapsule actualRet = execute(executor::execute, actual);
+
+    Assert.assertEquals(expectedRet.getInstance(), actualRet.getInstance());
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(2_000_000 - 1_000_000,
+        expected.get(ByteString.copyFrom(address(2))).getBalance());
+    // speculated, then executed again in their turn
+    for (int i : new int[]{2, 3}) {
+      Sha256Hash id = transactionId(i);
+      verify(manager, times(2))
+          .processTransaction(argThat(trx -> id.equals(trx.getTransactionId())), any());
+    }
+  }
+
+  @Test
+  public void testCheck() throws Exception {
+    Map<ByteString, Account> expected = new HashMap<>();
+    TransactionRetCapsule expectedRet = execute(this::sequential, expected);
+
+    ParallelTransactionExecutor executor = new ParallelTransactionExecutor(dbManager, 4);
+    Map<ByteString, Account> actual = new HashMap<>();
+    TransactionRetCapsule actualRet = execute(executor::check, actual);
+
+    Assert.assertEquals(expectedRet.getInstance(), actualRet.getInstance());
+    Assert.assertEquals(expected, actual);
+  }
+
+  private interface Execution {
+
+    List<TransactionInfo> run(BlockCapsule block) throws Exception;
+  }
+}
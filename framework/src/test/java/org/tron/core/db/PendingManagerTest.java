@@ -0,0 +1,177 @@
+package org.tron.core.db;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.protobuf.ByteString;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.tron.common.utils.FileUtil;
+import org.tron.common.utils.Sha256Hash;
+import org.tron.common.utils.SessionOptional;
+import org.tron.core.ChainBaseManager;
+import org.tron.core.Constant;
+import org.tron.core.actuator.TransactionFactory;
+import org.tron.core.capsule.BlockCapsule;
+import org.tron.core.capsule.BlockCapsule.BlockId;
+import org.tron.core.capsule.ReceiptCapsule;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.config.args.Args;
+import org.tron.core.db2.core.AccessSet;
+import org.tron.core.db2.core.PendingWrites;
+import org.tron.core.store.DynamicPropertiesStore;
+import org.tron.protos.Protocol.Transaction.Contract.ContractType;
+import org.tron.protos.contract.BalanceContract.FreezeBalanceContract;
+import org.tron.protos.contract.BalanceContract.TransferContract;
+
+public class PendingManagerTest {
+
+  private static final String OUTPUT_DIR = "output-pending-manager-test";
+  private static final long BLOCK_TIME = 3000;
+
+  private Manager manager;
+  private ChainBaseManager chainBaseManager;
+  private TransactionPool pending;
+  private TransactionPool rePush;
+
+  @Before
+  public void init() {
+    Args.setParam(new String[]{"--output-directory", OUTPUT_DIR}, Constant.TEST_CONF);
+    Args.getInstance().setIncrementalPending(true);
+    Args.getInstance().setPendingTransactionTimeout(60_000);
+    TransactionFactory.register(ContractType.TransferContract, null, TransferContract.class);
+    TransactionFactory.register(ContractType.FreezeBalanceContract, null,
+        FreezeBalanceContract.class);
+
+    pending = new TransactionPool(100);
+    rePush = new TransactionPool(Integer.MAX_VALUE);
+    chainBaseManager = mock(ChainBaseManager.class);
+    manager = mock(Manager.class);
+    when(manager.getChainBaseManager()).thenReturn(chainBaseManager);
+    when(manager.getPendingTransactions()).thenReturn(pending);
+    when(manager.getRePushTransactions()).thenReturn(rePush);
+    when(manager.getSession()).thenReturn(SessionOptional.instance());
+    when(manager.getShieldedTransInPendingCounts()).thenReturn(new AtomicInteger());
+    when(manager.getPoppedTransactions()).thenReturn(new ArrayList<>());
+    when(manager.getDynamicPropertiesStore()).thenReturn(mock(DynamicPropertiesStore.class));
+  }
+
+  @After
+  public void destroy() {
+    Args.clearParam();
+    FileUtil.deleteDir(new File(OUTPUT_DIR));
+  }
+
+  private static ByteString address(int i) {
+    return ByteString.copyFrom(new byte[]{0x41, (byte) i});
+  }
+
+  private static TransactionCapsule applied(TransactionCapsule trx, long expiration) {
+    trx.setExpiration(expiration);
+    trx.setTime(System.currentTimeMillis());
+    TransactionTrace trace = mock(TransactionTrace.class);
+    when(trace.getTimeResultType()).thenReturn(TransactionTrace.TimeResultType.NORMAL);
+    when(trace.getReceipt()).thenReturn(new ReceiptCapsule(Sha256Hash.ZERO_HASH));
+    PendingWrites writes = mock(PendingWrites.class);
+    when(writes.getAccessSet()).thenReturn(mock(AccessSet.class));
+    when(trace.getPendingWrites()).thenReturn(writes);
+    trx.setTrxTrace(trace);
+    return trx;
+  }
+
+  private static TransactionCapsule transfer(int from, int to) {
+    return applied(new TransactionCapsule(TransferContract.newBuilder()
+        .setOwnerAddress(address(from)).setToAddress(address(to)).setAmount(1).build(),
+        ContractType.TransferContract), BLOCK_TIME + 60_000);
+  }
+
+  @Test
+  public void testIncremental() throws Exception {
+    TransactionCapsule inBlock = transfer(1, 2);
+    TransactionCapsule expired = applied(new TransactionCapsule(TransferContract.newBuilder()
+        .setOwnerAddress(address(3)).setToAddress(address(4)).setAmount(1).build(),
+        ContractType.TransferContract), BLOCK_TIME);
+    // the block names 1 as the owner and 2 as the recipient
+    TransactionCapsule sameOwner = transfer(1, 5);
+    TransactionCapsule recipient = transfer(2, 6);
+    TransactionCapsule freezeReceiver = applied(new TransactionCapsule(
+        FreezeBalanceContract.newBuilder().setOwnerAddress(address(7))
+            .setReceiverAddress(address(2)).setFrozenBalance(1_000_000).setFrozenDuration(3)
+            .build(), ContractType.FreezeBalanceContract), BLOCK_TIME + 60_000);
+    // names 6, which the transaction of 2 queued for re-push named before it
+    TransactionCapsule laterSameSender = transfer(6, 8);
+    // read or wrote a key the block changed
+    TransactionCapsule changed = transfer(12, 13);
+    when(changed.getTrxTrace().getPendingWrites().isChangedAtHead(any())).thenReturn(true);
+    TransactionCapsule kept = transfer(9, 10);
+    TransactionCapsule keptAfter = transfer(9, 11);
+    for (TransactionCapsule trx : new TransactionCapsule[]{inBlock, expired, sameOwner,
+        recipient, freezeReceiver, laterSameSender, changed, kept, keptAfter}) {
+      Assert.assertTrue(pending.add(trx, 0));
+    }
+
+    BlockId parent = new BlockId(Sha256Hash.ZERO_HASH, 0);
+    BlockCapsule block = new BlockCapsule(1, Sha256Hash.ZERO_HASH, BLOCK_TIME, address(0));
+    block.addTransaction(inBlock);
+    when(chainBaseManager.getHeadBlockId()).thenReturn(parent, block.getBlockId());
+    when(chainBaseManager.getHead()).thenReturn(block);
+    // the replay applies the writes of the transaction into the pending pool
+    when(manager.replayPendingTransaction(any(), any())).thenAnswer(
+        invocation -> pending.add(invocation.getArgument(0), 0));
+
+    PendingManager pendingManager = new PendingManager(manager);
+    Assert.assertTrue(pending.isEmpty());
+    pendingManager.close();
+
+    // replayed into the new pending session in their order, none executed again
+    InOrder replays = inOrder(manager);
+    replays.verify(manager)
+        .replayPendingTransaction(kept, kept.getTrxTrace().getPendingWrites());
+    replays.verify(manager)
+        .replayPendingTransaction(keptAfter, keptAfter.getTrxTrace().getPendingWrites());
+    verify(manager, never()).pushTransaction(any());
+    verify(manager, never()).processTransaction(any(), any());
+    Assert.assertEquals(2, pending.size());
+    Assert.assertTrue(pending.contains(kept));
+    Assert.assertTrue(pending.contains(keptAfter));
+
+    // executed again through the re-push pool
+    Assert.assertEquals(5, rePush.size());
+    Assert.assertTrue(rePush.contains(sameOwner));
+    Assert.assertTrue(rePush.contains(recipient));
+    Assert.assertTrue(rePush.contains(freezeReceiver));
+    Assert.assertTrue(rePush.contains(laterSameSender));
+    Assert.assertTrue(rePush.contains(changed));
+
+    // dropped
+    Assert.assertFalse(pending.contains(inBlock) || rePush.contains(inBlock));
+    Assert.assertFalse(pending.contains(expired) || rePush.contains(expired));
+  }
+
+  @Test
+  public void testFork() throws Exception {
+    TransactionCapsule trx = transfer(1, 2);
+    pending.add(trx, 0);
+    BlockCapsule block = new BlockCapsule(2, Sha256Hash.of(true, new byte[]{1}), BLOCK_TIME,
+        address(0));
+    when(chainBaseManager.getHeadBlockId())
+        .thenReturn(new BlockId(Sha256Hash.ZERO_HASH, 0), block.getBlockId());
+    when(chainBaseManager.getHead()).thenReturn(block);
+
+    // not on top of the head seen before, everything is executed again
+    new PendingManager(manager).close();
+    verify(manager, never()).replayPendingTransaction(any(), any());
+    Assert.assertTrue(pending.isEmpty());
+    Assert.assertTrue(rePush.contains(trx));
+  }
+}
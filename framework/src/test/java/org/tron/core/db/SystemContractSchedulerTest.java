@@ -0,0 +1,70 @@
+package org.tron.core.db;
+
+import com.google.protobuf.ByteString;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.protos.Protocol.Transaction.Contract.ContractType;
+import org.tron.protos.contract.BalanceContract.FreezeBalanceContract;
+import org.tron.protos.contract.BalanceContract.TransferContract;
+import org.tron.protos.contract.SmartContractOuterClass.TriggerSmartContract;
+import org.tron.protos.contract.WitnessContract.VoteWitnessContract;
+
+public class SystemContractSchedulerTest {
+
+  private static ByteString address(int i) {
+    return ByteString.copyFrom(new byte[]{0x41, (byte) i});
+  }
+
+  private static TransactionCapsule transfer(int from, int to) {
+    TransferContract contract = TransferContract.newBuilder()
+        .setOwnerAddress(address(from)).setToAddress(address(to)).setAmount(1).build();
+    return new TransactionCapsule(contract, ContractType.TransferContract);
+  }
+
+  private static TransactionCapsule freeze(int owner) {
+    FreezeBalanceContract contract = FreezeBalanceContract.newBuilder()
+        .setOwnerAddress(address(owner)).setFrozenBalance(1_000_000).setFrozenDuration(3)
+        .build();
+    return new TransactionCapsule(contract, ContractType.FreezeBalanceContract);
+  }
+
+  @Test
+  public void testSchedule() {
+    List<TransactionCapsule> transactions = Arrays.asList(
+        transfer(1, 2),
+        transfer(3, 4),
+        // joins the first through account 2
+        transfer(2, 5),
+        new TransactionCapsule(TriggerSmartContract.newBuilder()
+            .setOwnerAddress(address(6)).setContractAddress(address(7)).build(),
+            ContractType.TriggerSmartContract),
+        new TransactionCapsule(VoteWitnessContract.newBuilder()
+            .setOwnerAddress(address(8)).build()),
+        // all freezes change the total weights
+        freeze(9),
+        freeze(10));
+
+    List<List<Integer>> groups = SystemContractScheduler.schedule(transactions);
+    Assert.assertEquals(4, groups.size());
+    Assert.assertEquals(Arrays.asList(0, 2), groups.get(0));
+    Assert.assertEquals(Collections.singletonList(1), groups.get(1));
+    Assert.assertEquals(Collections.singletonList(4), groups.get(2));
+    Assert.assertEquals(Arrays.asList(5, 6), groups.get(3));
+    // the contract call is left to be executed in its turn
+    Assert.assertNull(SystemContractScheduler.declaredKeys(transactions.get(3)));
+  }
+
+  @Test
+  public void testMergedGroups() {
+    // 3 links the groups of 0 and 1, which keep their block order
+    List<List<Integer>> groups = SystemContractScheduler.schedule(Arrays.asList(
+        transfer(1, 2), transfer(3, 4), transfer(5, 6), transfer(2, 4)));
+    Assert.assertEquals(2, groups.size());
+    Assert.assertEquals(Arrays.asList(0, 1, 3), groups.get(0));
+    Assert.assertEquals(Collections.singletonList(2), groups.get(1));
+  }
+}
@@ -0,0 +1,155 @@
+package org.tron.core.db;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tron.core.capsule.ReceiptCapsule;
+import org.tron.core.capsule.TransactionCapsule;
+import org.tron.core.store.DynamicPropertiesStore;
+import org.tron.protos.Protocol.Transaction.Contract.ContractType;
+import org.tron.protos.contract.BalanceContract.TransferContract;
+
+public class TransactionPoolTest {
+
+  private static TransactionCapsule trx(int sender, long amount, long expiration) {
+    TransferContract contract = TransferContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFrom(new byte[]{0x41, (byte) sender}))
+        .setToAddress(ByteString.copyFrom(new byte[]{0x41, 0x7f}))
+        .setAmount(amount)
+        .build();
+    TransactionCapsule trx = new TransactionCapsule(contract, ContractType.TransferContract);
+    trx.setExpiration(expiration);
+    return trx;
+  }
+
+  private static List<TransactionCapsule> drain(TransactionPool pool) {
+    List<TransactionCapsule> ordered = new ArrayList<>();
+    pool.forEach(ordered::add);
+    return ordered;
+  }
+
+  @Test
+  public void testPriorityOrder() {
+    TransactionPool pool = new TransactionPool(100);
+    TransactionCapsule cheap = trx(1, 1, 1000);
+    TransactionCapsule dear = trx(2, 1, 1000);
+    TransactionCapsule middle = trx(3, 1, 1000);
+    pool.add(cheap, 10);
+    pool.add(dear, 30);
+    pool.add(middle, 20);
+    Assert.assertEquals(3, pool.size());
+    Assert.assertSame(dear, pool.peek());
+
+    List<TransactionCapsule> ordered = drain(pool);
+    Assert.assertSame(dear, ordered.get(0));
+    Assert.assertSame(middle, ordered.get(1));
+    Assert.assertSame(cheap, ordered.get(2));
+
+    Assert.assertSame(dear, pool.poll());
+    Assert.assertSame(middle, pool.poll());
+    Assert.assertSame(cheap, pool.poll());
+    Assert.assertNull(pool.poll());
+    Assert.assertTrue(pool.isEmpty());
+  }
+
+  @Test
+  public void testSenderOrder() {
+    TransactionPool pool = new TransactionPool(100);
+    TransactionCapsule first = trx(1, 1, 1000);
+    TransactionCapsule second = trx(1, 2, 1000);
+    TransactionCapsule other = trx(2, 1, 1000);
+    pool.add(first, 10);
+    // paying more does not overtake an earlier transaction of the same sender
+    pool.add(second, 50);
+    pool.add(other, 20);
+
+    List<TransactionCapsule> ordered = drain(pool);
+    Assert.assertSame(other, ordered.get(0));
+    Assert.assertSame(first, ordered.get(1));
+    Assert.assertSame(second, ordered.get(2));
+
+    // the same transaction twice is kept once
+    Assert.assertTrue(pool.add(first, 10));
+    Assert.assertEquals(3, pool.size());
+
+    Iterator<TransactionCapsule> iterator = pool.iterator();
+    iterator.next();
+    iterator.remove();
+    Assert.assertFalse(pool.contains(other));
+    Assert.assertSame(first, pool.peek());
+  }
+
+  @Test
+  public void testStakedPriority() {
+    DynamicPropertiesStore prices = mock(DynamicPropertiesStore.class);
+    when(prices.getTransactionFee()).thenReturn(1000L);
+    when(prices.getEnergyFee()).thenReturn(420L);
+    TransactionCapsule burned = trx(1, 1, 1000);
+    TransactionCapsule staked = trx(2, 1, 1000);
+    ReceiptCapsule fee = new ReceiptCapsule(burned.getTransactionId());
+    fee.setNetFee(1000L * burned.getSerializedSize());
+    fee.setEnergyFee(420L * 10);
+    ReceiptCapsule stake = new ReceiptCapsule(staked.getTransactionId());
+    stake.setNetUsage(staked.getSerializedSize());
+    stake.setEnergyUsage(10);
+    setReceipt(burned, fee);
+    setReceipt(staked, stake);
+
+    // the resources are worth what burning them costs
+    Assert.assertEquals(TransactionPool.priority(burned, prices),
+        TransactionPool.priority(staked, prices));
+    Assert.assertTrue(TransactionPool.priority(staked, prices) > 0);
+    Assert.assertEquals(0, TransactionPool.priority(trx(3, 1, 1000), prices));
+  }
+
+  private static void setReceipt(TransactionCapsule trx, ReceiptCapsule receipt) {
+    TransactionTrace trace = mock(TransactionTrace.class);
+    when(trace.getReceipt()).thenReturn(receipt);
+    trx.setTrxTrace(trace);
+  }
+
+  @Test
+  public void testCapacity() {
+    TransactionPool pool = new TransactionPool(2);
+    TransactionCapsule head = trx(1, 1, 1000);
+    TransactionCapsule tail = trx(1, 2, 1000);
+    Assert.assertTrue(pool.add(head, 5));
+    Assert.assertTrue(pool.add(tail, 8));
+    Assert.assertTrue(pool.isFull());
+
+    // nothing is evicted, whatever the new one pays
+    TransactionCapsule better = trx(2, 1, 1000);
+    Assert.assertFalse(pool.add(better, 10));
+    Assert.assertFalse(pool.contains(better));
+    Assert.assertTrue(pool.contains(head));
+    Assert.assertTrue(pool.contains(tail));
+
+    Assert.assertSame(head, pool.poll());
+    Assert.assertTrue(pool.add(better, 10));
+    Assert.assertEquals(2, pool.size());
+  }
+
+  @Test
+  public void testRemoveExpired() {
+    TransactionPool pool = new TransactionPool(100);
+    TransactionCapsule early = trx(1, 1, 1000);
+    TransactionCapsule late = trx(1, 2, 3000);
+    TransactionCapsule other = trx(2, 1, 2000);
+    pool.add(early, 10);
+    pool.add(late, 10);
+    pool.add(other, 10);
+
+    Assert.assertEquals(2, pool.removeExpired(2000));
+    Assert.assertEquals(1, pool.size());
+    Assert.assertSame(late, pool.peek());
+    Assert.assertEquals(0, pool.removeExpired(2000));
+    pool.clear();
+    Assert.assertNull(pool.peek());
+  }
+}
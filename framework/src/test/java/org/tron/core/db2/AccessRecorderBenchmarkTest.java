@@ -0,0 +1,94 @@
+package org.tron.core.db2;
+
+import java.io.File;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.Constant;
+import org.tron.core.config.args.Args;
+import org.tron.core.db2.RevokingDbWithCacheNewValueTest.TestRevokingTronStore;
+import org.tron.core.db2.SnapshotRootTest.ProtoCapsuleTest;
+import org.tron.core.db2.core.AccessRecorder;
+
+/**
+ * Measures what recording the access sets adds to the store accesses of a transaction: every
+ * round reads and writes a transaction's worth of account-sized entries, once without a
+ * recorder and once with one started, as processTransaction does with node.recordAccessSet.
+ */
+@Slf4j
+@Ignore
+public class AccessRecorderBenchmarkTest {
+
+  private static final String OUTPUT_DIR = "output-access-recorder-benchmark";
+  private static final int KEYS = 10_000;
+  private static final int READS_PER_TRANSACTION = 40;
+  private static final int WRITES_PER_TRANSACTION = 10;
+  private static final int KEY_SIZE = 21;
+  private static final int VALUE_SIZE = 200;
+  private static final int WARM_UP_ROUNDS = 20_000;
+  private static final int ROUNDS = 100_000;
+
+  private byte[][] keys;
+  private byte[] value;
+  private TestRevokingTronStore store;
+
+  @Test
+  public void benchmark() {
+    Args.setParam(new String[]{"--output-directory", OUTPUT_DIR}, Constant.TEST_CONF);
+    store = new TestRevokingTronStore("accessRecorder-benchmark");
+    try {
+      Random random = new Random(0);
+      keys = new byte[KEYS][KEY_SIZE];
+      value = new byte[VALUE_SIZE];
+      random.nextBytes(value);
+      for (int i = 0; i < KEYS; i++) {
+        random.nextBytes(keys[i]);
+        store.put(keys[i], new ProtoCapsuleTest(value));
+      }
+
+      Args.getInstance().setRecordAccessSet(false);
+      run("off");
+      Args.getInstance().setRecordAccessSet(true);
+      run("on");
+    } finally {
+      store.close();
+      Args.clearParam();
+      FileUtil.deleteDir(new File(OUTPUT_DIR));
+    }
+  }
+
+  private void run(String name) {
+    Random random = new Random(1);
+    for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+      round(random);
+    }
+
+    System.gc();
+    long start = System.nanoTime();
+    long checksum = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      checksum += round(random);
+    }
+    long cost = System.nanoTime() - start;
+    logger.info("recording {}: {} ns per transaction, {} ns per access, checksum {}", name,
+        cost / ROUNDS, cost / ROUNDS / (READS_PER_TRANSACTION + WRITES_PER_TRANSACTION),
+        checksum);
+  }
+
+  private long round(Random random) {
+    AccessRecorder recorder = AccessRecorder.start();
+    long checksum = 0;
+    for (int i = 0; i < READS_PER_TRANSACTION; i++) {
+      checksum += store.get(keys[random.nextInt(KEYS)]).getData().length;
+    }
+    for (int i = 0; i < WRITES_PER_TRANSACTION; i++) {
+      store.put(keys[random.nextInt(KEYS)], new ProtoCapsuleTest(value));
+    }
+    if (recorder != null) {
+      checksum += recorder.stop().getWriteCount();
+    }
+    return checksum;
+  }
+}
@@ -0,0 +1,90 @@
+package org.tron.core.db2;
+
+import java.io.File;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.Constant;
+import org.tron.core.config.args.Args;
+import org.tron.core.db2.RevokingDbWithCacheNewValueTest.TestRevokingTronStore;
+import org.tron.core.db2.SnapshotRootTest.ProtoCapsuleTest;
+import org.tron.core.db2.core.AccessRecorder;
+import org.tron.core.db2.core.AccessSet;
+
+public class AccessRecorderTest {
+
+  private static final String OUTPUT_DIR = "output-access-recorder-test";
+  private static final String DB_NAME = "accessRecorder-test";
+
+  private TestRevokingTronStore store;
+
+  @Before
+  public void init() {
+    Args.setParam(new String[]{"--output-directory", OUTPUT_DIR}, Constant.TEST_CONF);
+    Args.getInstance().setRecordAccessSet(true);
+    store = new TestRevokingTronStore(DB_NAME);
+  }
+
+  @After
+  public void destroy() {
+    store.close();
+    Args.clearParam();
+    FileUtil.deleteDir(new File(OUTPUT_DIR));
+  }
+
+  @Test
+  public void testRecord() {
+    byte[] first = "first".getBytes();
+    byte[] second = "second".getBytes();
+    byte[] third = "third".getBytes();
+    // not recorded, no recorder is started
+    store.put(first, new ProtoCapsuleTest(first));
+
+    AccessRecorder recorder = AccessRecorder.start();
+    Assert.assertNotNull(recorder);
+    store.get(first);
+    store.get(first);
+    store.has(second);
+    store.put(third, new ProtoCapsuleTest(third));
+    store.delete(first);
+    AccessSet accessSet = recorder.stop();
+
+    Assert.assertEquals(2, accessSet.getReadCount());
+    Assert.assertEquals(2, accessSet.getWriteCount());
+    Assert.assertTrue(accessSet.isRead(DB_NAME, first));
+    Assert.assertTrue(accessSet.isRead(DB_NAME, second));
+    Assert.assertFalse(accessSet.isWritten(DB_NAME, second));
+    Assert.assertTrue(accessSet.isWritten(DB_NAME, third));
+    Assert.assertTrue(accessSet.isWritten(DB_NAME, first));
+    Assert.assertFalse(accessSet.isRead("other", first));
+    List<byte[]> reads = accessSet.getReadKeys(DB_NAME);
+    Assert.assertArrayEquals(first, reads.get(0));
+    Assert.assertArrayEquals(second, reads.get(1));
+    Assert.assertTrue(accessSet.getWriteKeys("other").isEmpty());
+
+    // the pooled recorder starts empty again
+    recorder = AccessRecorder.start();
+    store.get(third);
+    AccessSet reader = recorder.stop();
+    Assert.assertEquals(1, reader.getReadCount());
+    Assert.assertEquals(0, reader.getWriteCount());
+    Assert.assertTrue(reader.conflictsWith(accessSet));
+    Assert.assertTrue(accessSet.conflictsWith(reader));
+
+    recorder = AccessRecorder.start();
+    store.has(second);
+    AccessSet other = recorder.stop();
+    // both only read the key
+    Assert.assertFalse(other.conflictsWith(accessSet));
+    Assert.assertFalse(other.conflictsWith(reader));
+  }
+
+  @Test
+  public void testDisabled() {
+    Args.getInstance().setRecordAccessSet(false);
+    Assert.assertNull(AccessRecorder.start());
+  }
+}
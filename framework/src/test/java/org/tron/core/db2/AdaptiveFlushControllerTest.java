@@ -0,0 +1,58 @@
+package org.tron.core.db2;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tron.core.db2.core.AdaptiveFlushController;
+import org.tron.core.db2.core.SnapshotManager;
+
+public class AdaptiveFlushControllerTest {
+
+  private static void flushes(AdaptiveFlushController controller) {
+    // 20 ms whatever is written, plus 1 ms per 1000 bytes
+    for (int i = 1; i <= 10; i++) {
+      controller.onFlush(i * 10_000L, 20 + i * 10);
+    }
+  }
+
+  @Test
+  public void testCostFit() {
+    AdaptiveFlushController controller = new AdaptiveFlushController(0, 0);
+    flushes(controller);
+    Assert.assertEquals(20, controller.getFixedMillis(), 1);
+    Assert.assertEquals(0.001, controller.getMillisPerByte(), 0.0001);
+  }
+
+  @Test
+  public void testCatchUpAndHead() {
+    AdaptiveFlushController controller = new AdaptiveFlushController(0, 0);
+    // nothing measured yet
+    Assert.assertEquals(SnapshotManager.DEFAULT_MIN_FLUSH_COUNT, controller.next());
+    flushes(controller);
+
+    // catching up, a snapshot every 2 ms
+    long now = 0;
+    for (int i = 0; i < 50; i++) {
+      controller.onSnapshot(1, now += 2);
+    }
+    int syncing = controller.next();
+    Assert.assertTrue(syncing >= 50);
+    Assert.assertTrue(syncing <= SnapshotManager.DEFAULT_MAX_FLUSH_COUNT);
+
+    // at the head, a snapshot every 3 s
+    for (int i = 0; i < 50; i++) {
+      controller.onSnapshot(1, now += 3000);
+    }
+    Assert.assertEquals(SnapshotManager.DEFAULT_MIN_FLUSH_COUNT, controller.next());
+  }
+
+  @Test
+  public void testBounds() {
+    AdaptiveFlushController controller = new AdaptiveFlushController(1000, 100);
+    Assert.assertFalse(controller.mustFlush(10, 100));
+    Assert.assertTrue(controller.mustFlush(10, 1000));
+
+    controller.onFlush(1000, 10);
+    Assert.assertFalse(controller.mustFlush(9_000, 900));
+    Assert.assertTrue(controller.mustFlush(10_000, 900));
+  }
+}
@@ -1,6 +1,7 @@
 package org.tron.core.db2;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
@@ -23,6 +24,8 @@ import org.tron.core.config.DefaultConfig;
 import org.tron.core.config.args.Args;
 import org.tron.core.db.TronStoreWithRevoking;
 import org.tron.core.db2.SnapshotRootTest.ProtoCapsuleTest;
+import org.tron.core.db2.core.Chainbase;
+import org.tron.core.db2.core.LongMirror;
 import org.tron.core.db2.core.SnapshotManager;
 import org.tron.core.exception.RevokingStoreIllegalStateException;
 
@@ -227,6 +230,116 @@ public class RevokingDbWithCacheNewValueTest {
     }
   }
 
+  @Test
+  public synchronized void testGetValuesNextMergesLayers() {
+    revokingDatabase = context.getBean(SnapshotManager.class);
+    revokingDatabase.enable();
+    tronDatabase = new TestRevokingTronStore("testSnapshotManager-testGetValuesNextMerge");
+    revokingDatabase.add(tronDatabase.getRevokingDB());
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    for (int i = 1; i < 10; i++) {
+      ProtoCapsuleTest testProtoCapsule = new ProtoCapsuleTest(("getValuesNext" + i).getBytes());
+      try (ISession tmpSession = revokingDatabase.buildSession()) {
+        tronDatabase.put(testProtoCapsule.getData(), testProtoCapsule);
+        tmpSession.commit();
+      }
+    }
+
+    // a newer layer deletes one key and overwrites another
+    ProtoCapsuleTest updated = new ProtoCapsuleTest("updated".getBytes());
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.delete("getValuesNext3".getBytes());
+      tronDatabase.put("getValuesNext4".getBytes(), updated);
+      tmpSession.commit();
+    }
+
+    List<ProtoCapsuleTest> result = new ArrayList<>();
+    tronDatabase.getRevokingDB().getValuesNext("getValuesNext2".getBytes(), 3)
+        .forEach(bytes -> result.add(new ProtoCapsuleTest(bytes)));
+
+    Assert.assertEquals(Arrays.asList(new ProtoCapsuleTest("getValuesNext2".getBytes()),
+        updated, new ProtoCapsuleTest("getValuesNext5".getBytes())), result);
+
+    // the keys written to a layer after it was read in order are in the next reads
+    ProtoCapsuleTest inserted = new ProtoCapsuleTest("getValuesNext21".getBytes());
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      Assert.assertEquals(3,
+          tronDatabase.getRevokingDB().getValuesNext("getValuesNext2".getBytes(), 3).size());
+      tronDatabase.put(inserted.getData(), inserted);
+      result.clear();
+      tronDatabase.getRevokingDB().getValuesNext("getValuesNext2".getBytes(), 3)
+          .forEach(bytes -> result.add(new ProtoCapsuleTest(bytes)));
+      Assert.assertEquals(Arrays.asList(new ProtoCapsuleTest("getValuesNext2".getBytes()),
+          inserted, updated), result);
+    }
+  }
+
+  @Test
+  public synchronized void testGetManyResolvesLayersAndRoot() {
+    revokingDatabase = context.getBean(SnapshotManager.class);
+    revokingDatabase.enable();
+    tronDatabase = new TestRevokingTronStore("testSnapshotManager-testGetMany");
+    revokingDatabase.add(tronDatabase.getRevokingDB());
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    Chainbase chainbase = (Chainbase) tronDatabase.getRevokingDB();
+    chainbase.getHead().getRoot().put("root1".getBytes(), "root1".getBytes());
+    chainbase.getHead().getRoot().put("root2".getBytes(), "root2".getBytes());
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put("layer".getBytes(), new ProtoCapsuleTest("layer".getBytes()));
+      tronDatabase.delete("root2".getBytes());
+      tmpSession.commit();
+    }
+
+    List<byte[]> values = chainbase.getMany(Arrays.asList("layer".getBytes(),
+        "root1".getBytes(), "root2".getBytes(), "missing".getBytes()));
+    Assert.assertArrayEquals("layer".getBytes(), values.get(0));
+    Assert.assertArrayEquals("root1".getBytes(), values.get(1));
+    Assert.assertNull(values.get(2));
+    Assert.assertNull(values.get(3));
+  }
+
+  @Test
+  public synchronized void testLongMirrorRevertsWithSnapshots() {
+    revokingDatabase = context.getBean(SnapshotManager.class);
+    revokingDatabase.enable();
+    tronDatabase = new TestRevokingTronStore("testSnapshotManager-testLongMirror");
+    revokingDatabase.add(tronDatabase.getRevokingDB());
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    Chainbase chainbase = (Chainbase) tronDatabase.getRevokingDB();
+    LongMirror mirror = new LongMirror(chainbase);
+    byte[] key = "number".getBytes();
+    chainbase.getHead().getRoot().put(key, ByteArray.fromLong(1));
+    Assert.assertEquals(1, mirror.get(key, -1));
+    Assert.assertEquals(-1, mirror.get("missing".getBytes(), -1));
+
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put(key, new ProtoCapsuleTest(ByteArray.fromLong(2)));
+      Assert.assertEquals(2, mirror.get(key, -1));
+      try (ISession inner = revokingDatabase.buildSession()) {
+        tronDatabase.delete(key);
+        Assert.assertEquals(-1, mirror.get(key, -1));
+      }
+      // the inner session is revoked
+      Assert.assertEquals(2, mirror.get(key, -1));
+    }
+    Assert.assertEquals(1, mirror.get(key, -1));
+    try {
+      mirror.get("missing".getBytes(), () -> new IllegalArgumentException("missing"));
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("missing", e.getMessage());
+    }
+  }
+
   @Test
   public synchronized void testGetKeysNext() {
     revokingDatabase = context.getBean(SnapshotManager.class);
@@ -0,0 +1,95 @@
+package org.tron.core.db2;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.SlabHashDB;
+import org.tron.core.db2.common.Value;
+import org.tron.core.db2.common.Value.Operator;
+
+public class SlabHashDBTest {
+
+  @Test
+  public void testPutAndGet() {
+    SlabHashDB db = new SlabHashDB("test");
+    for (int i = 0; i < 1000; i++) {
+      db.put(Key.of(("key" + i).getBytes()), Value.of(Operator.PUT, ("value" + i).getBytes()));
+    }
+
+    Assert.assertEquals(1000, db.size());
+    for (int i = 0; i < 1000; i++) {
+      Value value = db.get(Key.of(("key" + i).getBytes()));
+      Assert.assertArrayEquals(("value" + i).getBytes(), value.getBytes());
+      Assert.assertEquals(Operator.PUT, value.getOperator());
+    }
+    Assert.assertNull(db.get(Key.of("missing".getBytes())));
+  }
+
+  @Test
+  public void testOverwriteAndRemove() {
+    SlabHashDB db = new SlabHashDB("test");
+    Key key = Key.of("key".getBytes());
+    db.put(key, Value.of(Operator.PUT, "a long value".getBytes()));
+    db.put(key, Value.of(Operator.PUT, "short".getBytes()));
+    Assert.assertArrayEquals("short".getBytes(), db.get(key).getBytes());
+    db.put(key, Value.of(Operator.PUT, "a much longer value than before".getBytes()));
+    Assert.assertArrayEquals("a much longer value than before".getBytes(), db.get(key).getBytes());
+
+    db.put(key, Value.of(Operator.DELETE, null));
+    Assert.assertEquals(Operator.DELETE, db.get(key).getOperator());
+    Assert.assertNull(db.get(key).getBytes());
+
+    db.remove(key);
+    Assert.assertNull(db.get(key));
+    Assert.assertTrue(db.isEmpty());
+
+    db.put(key, Value.of(Operator.PUT, "back".getBytes()));
+    Assert.assertArrayEquals("back".getBytes(), db.get(key).getBytes());
+    Assert.assertEquals(1, db.size());
+  }
+
+  @Test
+  public void testRewriteDoesNotGrow() {
+    SlabHashDB db = new SlabHashDB("test");
+    for (int i = 0; i < 10; i++) {
+      db.put(Key.of(("cold" + i).getBytes()), Value.of(Operator.PUT, ("value" + i).getBytes()));
+    }
+    Key hot = Key.of("hot".getBytes());
+    byte[] last = null;
+    for (int i = 0; i < 10_000; i++) {
+      // a little longer every time, so it never fits in place
+      last = new byte[i % 500 + 1];
+      Arrays.fill(last, (byte) i);
+      db.put(hot, Value.of(Operator.PUT, last));
+    }
+
+    Assert.assertTrue(db.getSlabCapacity() <= 4096);
+    Assert.assertArrayEquals(last, db.get(hot).getBytes());
+    for (int i = 0; i < 10; i++) {
+      Assert.assertArrayEquals(("value" + i).getBytes(),
+          db.get(Key.of(("cold" + i).getBytes())).getBytes());
+    }
+    Assert.assertEquals(11, db.size());
+  }
+
+  @Test
+  public void testIterator() {
+    SlabHashDB db = new SlabHashDB("test");
+    Map<String, String> expected = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      db.put(Key.of(("key" + i).getBytes()), Value.of(Operator.PUT, ("value" + i).getBytes()));
+      expected.put("key" + i, "value" + i);
+    }
+    db.remove(Key.of("key7".getBytes()));
+    expected.remove("key7");
+
+    Map<String, String> actual = new HashMap<>();
+    for (Map.Entry<Key, Value> e : db) {
+      actual.put(new String(e.getKey().getBytes()), new String(e.getValue().getBytes()));
+    }
+    Assert.assertEquals(expected, actual);
+  }
+}
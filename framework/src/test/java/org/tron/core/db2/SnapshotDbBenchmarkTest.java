@@ -0,0 +1,84 @@
+package org.tron.core.db2;
+
+import java.util.Map;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.tron.core.db2.common.DB;
+import org.tron.core.db2.common.HashDB;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.SlabHashDB;
+import org.tron.core.db2.common.Value;
+import org.tron.core.db2.common.Value.Operator;
+
+/**
+ * Compares the snapshot layer maps on block-sized write sets: every round fills a fresh layer
+ * with a block's worth of account-sized entries, reads them back and merges the layer into an
+ * older one, as SnapshotManager does for every block.
+ */
+@Slf4j
+@Ignore
+public class SnapshotDbBenchmarkTest {
+
+  private static final int WRITES_PER_BLOCK = 5_000;
+  private static final int KEY_SIZE = 21;
+  private static final int VALUE_SIZE = 200;
+  private static final int WARM_UP_ROUNDS = 200;
+  private static final int ROUNDS = 1_000;
+
+  private byte[][] keys;
+  private byte[][] values;
+
+  @Test
+  public void benchmark() {
+    Random random = new Random(0);
+    keys = new byte[WRITES_PER_BLOCK][KEY_SIZE];
+    values = new byte[WRITES_PER_BLOCK][VALUE_SIZE];
+    for (int i = 0; i < WRITES_PER_BLOCK; i++) {
+      random.nextBytes(keys[i]);
+      random.nextBytes(values[i]);
+    }
+
+    run("HashDB", true);
+    run("SlabHashDB", false);
+  }
+
+  private void run(String name, boolean hash) {
+    for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+      round(hash);
+    }
+
+    System.gc();
+    long start = System.nanoTime();
+    long checksum = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      checksum += round(hash);
+    }
+    long cost = System.nanoTime() - start;
+    logger.info("{}: {} ns per block, {} ns per write, checksum {}", name, cost / ROUNDS,
+        cost / ROUNDS / WRITES_PER_BLOCK, checksum);
+  }
+
+  private long round(boolean hash) {
+    DB<Key, Value> layer = hash ? new HashDB("layer") : new SlabHashDB("layer");
+    DB<Key, Value> previous = hash ? new HashDB("previous") : new SlabHashDB("previous");
+    for (int i = 0; i < WRITES_PER_BLOCK; i++) {
+      if (hash) {
+        layer.put(Key.copyOf(keys[i]), Value.copyOf(Operator.PUT, values[i]));
+      } else {
+        layer.put(Key.of(keys[i]), Value.of(Operator.PUT, values[i]));
+      }
+    }
+
+    long checksum = 0;
+    for (int i = 0; i < WRITES_PER_BLOCK; i++) {
+      checksum += layer.get(Key.of(keys[i])).getBytes()[0];
+    }
+
+    for (Map.Entry<Key, Value> e : layer) {
+      previous.put(e.getKey(), e.getValue());
+    }
+    return checksum + previous.size();
+  }
+}
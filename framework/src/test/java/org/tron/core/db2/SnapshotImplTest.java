@@ -0,0 +1,98 @@
+package org.tron.core.db2;
+
+import java.io.File;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tron.common.application.Application;
+import org.tron.common.application.ApplicationFactory;
+import org.tron.common.application.TronApplicationContext;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.Constant;
+import org.tron.core.config.DefaultConfig;
+import org.tron.core.config.args.Args;
+import org.tron.core.db2.RevokingDbWithCacheNewValueTest.TestRevokingTronStore;
+import org.tron.core.db2.SnapshotRootTest.ProtoCapsuleTest;
+import org.tron.core.db2.core.SnapshotManager;
+
+public class SnapshotImplTest {
+
+  private TestRevokingTronStore tronDatabase;
+  private TronApplicationContext context;
+  private Application appT;
+  private SnapshotManager revokingDatabase;
+
+  @Before
+  public void init() {
+    Args.setParam(new String[]{"-d", "output_SnapshotImpl_test"}, Constant.TEST_CONF);
+    context = new TronApplicationContext(DefaultConfig.class);
+    appT = ApplicationFactory.create(context);
+    revokingDatabase = context.getBean(SnapshotManager.class);
+    revokingDatabase.enable();
+    tronDatabase = new TestRevokingTronStore("testSnapshotImpl-test");
+    revokingDatabase.add(tronDatabase.getRevokingDB());
+  }
+
+  @After
+  public void removeDb() {
+    Args.clearParam();
+    context.destroy();
+    tronDatabase.close();
+    FileUtil.deleteDir(new File("output_SnapshotImpl_test"));
+  }
+
+  @Test
+  public synchronized void testGetAcrossLayers() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    for (int i = 0; i < 10; i++) {
+      try (ISession tmpSession = revokingDatabase.buildSession()) {
+        ProtoCapsuleTest capsule = new ProtoCapsuleTest(("layer" + i).getBytes());
+        tronDatabase.put(capsule.getData(), capsule);
+        tmpSession.commit();
+      }
+    }
+
+    for (int i = 0; i < 10; i++) {
+      ProtoCapsuleTest capsule = new ProtoCapsuleTest(("layer" + i).getBytes());
+      Assert.assertEquals(capsule, tronDatabase.get(capsule.getData()));
+    }
+    Assert.assertNull(tronDatabase.get("missing".getBytes()));
+
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.delete("layer3".getBytes());
+      tmpSession.commit();
+    }
+    Assert.assertNull(tronDatabase.get("layer3".getBytes()));
+  }
+
+  @Test
+  public synchronized void testGetAfterBloomGrowth() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      for (int i = 0; i < 5000; i++) {
+        ProtoCapsuleTest capsule = new ProtoCapsuleTest(("grow" + i).getBytes());
+        tronDatabase.put(capsule.getData(), capsule);
+      }
+      tmpSession.commit();
+    }
+
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put("top".getBytes(), new ProtoCapsuleTest("top".getBytes()));
+      tmpSession.commit();
+    }
+
+    for (int i = 0; i < 5000; i++) {
+      ProtoCapsuleTest capsule = new ProtoCapsuleTest(("grow" + i).getBytes());
+      Assert.assertEquals(capsule, tronDatabase.get(capsule.getData()));
+    }
+    Assert.assertEquals(new ProtoCapsuleTest("top".getBytes()),
+        tronDatabase.get("top".getBytes()));
+  }
+}
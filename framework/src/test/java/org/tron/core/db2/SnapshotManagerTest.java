@@ -1,6 +1,13 @@
 package org.tron.core.db2;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.After;
 import org.junit.Assert;
@@ -9,13 +16,22 @@ import org.junit.Test;
 import org.tron.common.application.Application;
 import org.tron.common.application.ApplicationFactory;
 import org.tron.common.application.TronApplicationContext;
+import org.tron.common.storage.BatchWriter;
+import org.tron.common.storage.leveldb.LevelDbDataSourceImpl;
+import org.tron.common.utils.ByteArray;
 import org.tron.common.utils.FileUtil;
 import org.tron.core.Constant;
 import org.tron.core.config.DefaultConfig;
 import org.tron.core.config.args.Args;
 import org.tron.core.db2.RevokingDbWithCacheNewValueTest.TestRevokingTronStore;
+import org.tron.core.db2.common.LevelDB;
 import org.tron.core.db2.SnapshotRootTest.ProtoCapsuleTest;
+import org.tron.core.db2.core.AccessRecorder;
+import org.tron.core.db2.core.Chainbase;
+import org.tron.core.db2.core.PendingWrites;
+import org.tron.core.db2.core.ReadView;
 import org.tron.core.db2.core.SnapshotManager;
+import org.tron.core.db2.core.SnapshotRoot;
 import org.tron.core.exception.BadItemException;
 import org.tron.core.exception.ItemNotFoundException;
 
@@ -73,6 +89,327 @@ public class SnapshotManagerTest {
         tronDatabase.get(protoCapsule.getData()));
   }
 
+  @Test
+  public synchronized void testCheckpointLog()
+      throws BadItemException, ItemNotFoundException {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    revokingDatabase.setCheckpointLog(true);
+    revokingDatabase.setMaxFlushCount(0);
+    revokingDatabase.setUnChecked(false);
+    revokingDatabase.setMaxSize(5);
+    ProtoCapsuleTest protoCapsule = new ProtoCapsuleTest("log".getBytes());
+    for (int i = 1; i < 11; i++) {
+      ProtoCapsuleTest testProtoCapsule = new ProtoCapsuleTest(("log" + i).getBytes());
+      try (ISession tmpSession = revokingDatabase.buildSession()) {
+        tronDatabase.put(protoCapsule.getData(), testProtoCapsule);
+        tmpSession.commit();
+      }
+    }
+
+    revokingDatabase.flush();
+    Assert.assertEquals(new ProtoCapsuleTest("log10".getBytes()),
+        tronDatabase.get(protoCapsule.getData()));
+    for (byte[] key : revokingDatabase.getCheckTmpStore().getDbSource().allKeys()) {
+      Assert.assertFalse(SnapshotManager.isCheckpointLogKey(key));
+    }
+    revokingDatabase.setCheckpointLog(false);
+  }
+
+  @Test
+  public synchronized void testCheckpointLogAfterFailedFlush() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    // a db the first flush fails to write, after the other one was written
+    LevelDbDataSourceImpl source = new LevelDbDataSourceImpl("output_SnapshotManager_test",
+        "failedFlush-test");
+    source.initDB();
+    AtomicBoolean fail = new AtomicBoolean(true);
+    Chainbase failing = new Chainbase(new SnapshotRoot(new LevelDB(source) {
+      @Override
+      public void flush(Consumer<BatchWriter> rows) {
+        if (fail.getAndSet(false)) {
+          throw new IllegalStateException("failed flush");
+        }
+        super.flush(rows);
+      }
+    }));
+    revokingDatabase.add(failing);
+
+    revokingDatabase.setCheckpointLog(true);
+    revokingDatabase.setMaxFlushCount(0);
+    revokingDatabase.setUnChecked(false);
+    revokingDatabase.setMaxSize(5);
+    byte[] key = "failedFlush".getBytes();
+    for (int i = 1; i < 11; i++) {
+      try (ISession tmpSession = revokingDatabase.buildSession()) {
+        tronDatabase.put(key, new ProtoCapsuleTest(("failedFlush" + i).getBytes()));
+        failing.put(key, ("failedFlush" + i).getBytes());
+        tmpSession.commit();
+      }
+    }
+    Assert.assertFalse(fail.get());
+
+    // the record of the failed flush went with the one of its retry
+    for (byte[] logKey : revokingDatabase.getCheckTmpStore().getDbSource().allKeys()) {
+      Assert.assertFalse(SnapshotManager.isCheckpointLogKey(logKey));
+    }
+    Chainbase chainbase = (Chainbase) tronDatabase.getRevokingDB();
+    byte[] flushed = chainbase.getHead().getRoot().get(key);
+    Assert.assertNotNull(flushed);
+
+    // a restart drops the snapshots and replays the checkpoint
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+    revokingDatabase.check();
+    Assert.assertArrayEquals(flushed, chainbase.getUnchecked(key));
+    Assert.assertArrayEquals(failing.getHead().getRoot().get(key), failing.getUnchecked(key));
+    revokingDatabase.setCheckpointLog(false);
+  }
+
+  @Test
+  public synchronized void testAsyncFlush()
+      throws BadItemException, ItemNotFoundException {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    revokingDatabase.setAsyncFlush(true);
+    revokingDatabase.setMaxFlushBacklog(2);
+    revokingDatabase.setMaxFlushCount(0);
+    revokingDatabase.setUnChecked(false);
+    revokingDatabase.setMaxSize(5);
+    ProtoCapsuleTest protoCapsule = new ProtoCapsuleTest("async".getBytes());
+    for (int i = 1; i < 21; i++) {
+      ProtoCapsuleTest testProtoCapsule = new ProtoCapsuleTest(("async" + i).getBytes());
+      try (ISession tmpSession = revokingDatabase.buildSession()) {
+        tronDatabase.put(protoCapsule.getData(), testProtoCapsule);
+        tmpSession.commit();
+      }
+      Assert.assertEquals(testProtoCapsule, tronDatabase.get(protoCapsule.getData()));
+    }
+
+    // a synchronous flush first waits for the one in flight
+    revokingDatabase.setAsyncFlush(false);
+    for (int i = 21; i < 31; i++) {
+      ProtoCapsuleTest testProtoCapsule = new ProtoCapsuleTest(("async" + i).getBytes());
+      try (ISession tmpSession = revokingDatabase.buildSession()) {
+        tronDatabase.put(protoCapsule.getData(), testProtoCapsule);
+        tmpSession.commit();
+      }
+      Assert.assertEquals(testProtoCapsule, tronDatabase.get(protoCapsule.getData()));
+    }
+    Assert.assertEquals(5, revokingDatabase.size());
+  }
+
+  @Test
+  public synchronized void testLockFreeRead() throws InterruptedException {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    revokingDatabase.setMaxFlushCount(0);
+    revokingDatabase.setUnChecked(false);
+    revokingDatabase.setMaxSize(5);
+    ProtoCapsuleTest stable = new ProtoCapsuleTest("stable".getBytes());
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put(stable.getData(), stable);
+      tmpSession.commit();
+    }
+
+    Chainbase chainbase = (Chainbase) tronDatabase.getRevokingDB();
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicInteger misses = new AtomicInteger();
+    Thread reader = new Thread(() -> {
+      while (running.get()) {
+        if (chainbase.getUnchecked(stable.getData()) == null) {
+          misses.incrementAndGet();
+        }
+      }
+    });
+    reader.start();
+
+    // commits merge and flush layers under the reader
+    for (int i = 1; i < 101; i++) {
+      ProtoCapsuleTest capsule = new ProtoCapsuleTest(("lockFree" + i).getBytes());
+      try (ISession tmpSession = revokingDatabase.buildSession()) {
+        tronDatabase.put(capsule.getData(), capsule);
+        tmpSession.commit();
+      }
+    }
+
+    running.set(false);
+    reader.join();
+    Assert.assertEquals(0, misses.get());
+  }
+
+  @Test
+  public synchronized void testReadView() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    revokingDatabase.setMaxFlushCount(0);
+    revokingDatabase.setUnChecked(false);
+    revokingDatabase.setMaxSize(5);
+    ProtoCapsuleTest protoCapsule = new ProtoCapsuleTest("view".getBytes());
+    ProtoCapsuleTest pinned = new ProtoCapsuleTest("view0".getBytes());
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put(protoCapsule.getData(), pinned);
+      tmpSession.commit();
+    }
+
+    Chainbase chainbase = (Chainbase) tronDatabase.getRevokingDB();
+    ReadView untouched = revokingDatabase.createReadView(Chainbase.Cursor.HEAD, 0);
+    try (ReadView view = revokingDatabase.createReadView(Chainbase.Cursor.HEAD, 0)) {
+      Assert.assertArrayEquals(pinned.getData(), view.get(chainbase, protoCapsule.getData()));
+      // enough blocks to flush the pinned layer into the root
+      for (int i = 1; i < 11; i++) {
+        try (ISession tmpSession = revokingDatabase.buildSession()) {
+          tronDatabase.put(protoCapsule.getData(),
+              new ProtoCapsuleTest(("view" + i).getBytes()));
+          tmpSession.commit();
+        }
+      }
+
+      Assert.assertArrayEquals(pinned.getData(), view.get(chainbase, protoCapsule.getData()));
+      Assert.assertEquals(pinned, view.call(() -> tronDatabase.get(protoCapsule.getData())));
+    }
+
+    // pinned every db when created, whatever was read since
+    try (ReadView view = untouched) {
+      Assert.assertArrayEquals(pinned.getData(), view.get(chainbase, protoCapsule.getData()));
+    }
+    try (ReadView view = revokingDatabase.createReadView(Chainbase.Cursor.HEAD, 0)) {
+      Assert.assertArrayEquals(new ProtoCapsuleTest("view10".getBytes()).getData(),
+          view.get(chainbase, protoCapsule.getData()));
+    }
+    Assert.assertEquals(new ProtoCapsuleTest("view10".getBytes()),
+        tronDatabase.get(protoCapsule.getData()));
+  }
+
+  @Test
+  public synchronized void testPendingWrites() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    revokingDatabase.setMaxFlushCount(0);
+    revokingDatabase.setUnChecked(false);
+    revokingDatabase.setMaxSize(5);
+    byte[] key = "pending".getBytes();
+    ProtoCapsuleTest pending = new ProtoCapsuleTest("pending1".getBytes());
+    PendingWrites writes;
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      AccessRecorder recorder = AccessRecorder.open();
+      tronDatabase.put(key, pending);
+      writes = PendingWrites.capture(revokingDatabase, recorder.stop());
+    }
+    Assert.assertNull(tronDatabase.get(key));
+
+    // a block writing other keys
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put("block".getBytes(), new ProtoCapsuleTest("block".getBytes()));
+      tmpSession.commit();
+    }
+    Assert.assertFalse(writes.isChangedAtHead(Collections.emptySet()));
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      writes.apply();
+      Assert.assertEquals(pending, tronDatabase.get(key));
+    }
+
+    // a block writing the key
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put(key, new ProtoCapsuleTest("block".getBytes()));
+      tmpSession.commit();
+    }
+    Assert.assertTrue(writes.isChangedAtHead(Collections.emptySet()));
+  }
+
+  @Test
+  public synchronized void testChangeListenerOnRevoke() {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    revokingDatabase.setMaxFlushCount(0);
+    revokingDatabase.setUnChecked(false);
+    revokingDatabase.setMaxSize(5);
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put("kept".getBytes(), new ProtoCapsuleTest("kept".getBytes()));
+      tmpSession.commit();
+    }
+
+    Chainbase chainbase = (Chainbase) tronDatabase.getRevokingDB();
+    List<String> changed = new ArrayList<>();
+    chainbase.setChangeListener(key -> changed.add(ByteArray.toStr(key)));
+    long revision = chainbase.getRevision();
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put("revoked".getBytes(), new ProtoCapsuleTest("revoked".getBytes()));
+      tronDatabase.delete("kept".getBytes());
+    }
+
+    // only the keys of the revoked snapshot are dropped from the caches
+    changed.sort(String::compareTo);
+    Assert.assertEquals(Arrays.asList("kept", "revoked"), changed);
+    Assert.assertEquals(revision, chainbase.getRevision());
+    Assert.assertEquals(new ProtoCapsuleTest("kept".getBytes()),
+        tronDatabase.get("kept".getBytes()));
+
+    changed.clear();
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put("merged".getBytes(), new ProtoCapsuleTest("merged".getBytes()));
+      tmpSession.merge();
+    }
+    Assert.assertTrue(changed.isEmpty());
+  }
+
+  @Test
+  public synchronized void testLatestValueIndex()
+      throws BadItemException, ItemNotFoundException {
+    while (revokingDatabase.size() != 0) {
+      revokingDatabase.pop();
+    }
+
+    ((Chainbase) tronDatabase.getRevokingDB()).enableLatestValueIndex();
+    revokingDatabase.setMaxFlushCount(0);
+    revokingDatabase.setUnChecked(false);
+    revokingDatabase.setMaxSize(5);
+    ProtoCapsuleTest protoCapsule = new ProtoCapsuleTest("index".getBytes());
+    for (int i = 1; i < 11; i++) {
+      ProtoCapsuleTest testProtoCapsule = new ProtoCapsuleTest(("index" + i).getBytes());
+      try (ISession tmpSession = revokingDatabase.buildSession()) {
+        tronDatabase.put(protoCapsule.getData(), testProtoCapsule);
+        tmpSession.commit();
+      }
+    }
+    Assert.assertEquals(new ProtoCapsuleTest("index10".getBytes()),
+        tronDatabase.get(protoCapsule.getData()));
+
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put(protoCapsule.getData(), new ProtoCapsuleTest("revoked".getBytes()));
+      tronDatabase.delete("index".getBytes());
+    }
+    Assert.assertEquals(new ProtoCapsuleTest("index10".getBytes()),
+        tronDatabase.get(protoCapsule.getData()));
+
+    try (ISession tmpSession = revokingDatabase.buildSession()) {
+      tronDatabase.put(protoCapsule.getData(), new ProtoCapsuleTest("merged".getBytes()));
+      tmpSession.merge();
+    }
+    Assert.assertEquals(new ProtoCapsuleTest("merged".getBytes()),
+        tronDatabase.get(protoCapsule.getData()));
+
+    revokingDatabase.pop();
+    Assert.assertEquals(new ProtoCapsuleTest("index9".getBytes()),
+        tronDatabase.get(protoCapsule.getData()));
+  }
+
   @Test
   public synchronized void testClose() {
     while (revokingDatabase.size() != 0) {
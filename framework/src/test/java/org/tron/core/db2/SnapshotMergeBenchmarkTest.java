@@ -0,0 +1,150 @@
+package org.tron.core.db2;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.tron.common.storage.leveldb.LevelDbDataSourceImpl;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.Constant;
+import org.tron.core.config.args.Args;
+import org.tron.core.db2.common.HashDB;
+import org.tron.core.db2.common.Key;
+import org.tron.core.db2.common.LevelDB;
+import org.tron.core.db2.common.Value;
+import org.tron.core.db2.common.Value.Operator;
+import org.tron.core.db2.common.WrappedByteArray;
+
+/**
+ * Replays a run of block-sized snapshot layers into LevelDB, once through the map based batch
+ * the root used to build and once through the newest-first writer path, and reports the latency
+ * and the GC activity of every flush.
+ */
+@Slf4j
+@Ignore
+public class SnapshotMergeBenchmarkTest {
+
+  private static final String DB_PATH = "output_SnapshotMergeBenchmark_test";
+  private static final int BLOCKS = 500;
+  private static final int WRITES_PER_BLOCK = 2_000;
+  // share of the writes hitting keys that are rewritten in every block
+  private static final int HOT_KEYS = 500;
+  private static final int KEY_SIZE = 21;
+  private static final int VALUE_SIZE = 200;
+  private static final int ROUNDS = 10;
+
+  private List<HashDB> layers;
+  private LevelDB db;
+
+  @Before
+  public void init() {
+    Args.setParam(new String[]{"-d", DB_PATH}, Constant.TEST_CONF);
+    LevelDbDataSourceImpl dataSource = new LevelDbDataSourceImpl(DB_PATH, "merge-benchmark");
+    dataSource.initDB();
+    db = new LevelDB(dataSource);
+
+    Random random = new Random(0);
+    byte[][] hot = new byte[HOT_KEYS][KEY_SIZE];
+    for (byte[] key : hot) {
+      random.nextBytes(key);
+    }
+
+    layers = new ArrayList<>();
+    for (int i = 0; i < BLOCKS; i++) {
+      HashDB layer = new HashDB("layer" + i);
+      for (int j = 0; j < WRITES_PER_BLOCK; j++) {
+        byte[] key = new byte[KEY_SIZE];
+        if (j < HOT_KEYS) {
+          key = hot[j];
+        } else {
+          random.nextBytes(key);
+        }
+        byte[] value = new byte[VALUE_SIZE];
+        random.nextBytes(value);
+        layer.put(Key.copyOf(key), Value.copyOf(Operator.PUT, value));
+      }
+      layers.add(layer);
+    }
+  }
+
+  @After
+  public void destroy() {
+    db.close();
+    Args.clearParam();
+    FileUtil.deleteDir(new File(DB_PATH));
+  }
+
+  @Test
+  public void benchmark() {
+    run("map batch", true);
+    run("writer batch", false);
+  }
+
+  private void run(String name, boolean map) {
+    System.gc();
+    long gcCount = gcCount();
+    long gcTime = gcTime();
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      if (map) {
+        flushMap();
+      } else {
+        flushWriter();
+      }
+    }
+    long cost = (System.nanoTime() - start) / ROUNDS / 1_000_000;
+    logger.info("{}: {} ms per flush of {} blocks, {} gc runs, {} ms in gc", name, cost, BLOCKS,
+        gcCount() - gcCount, gcTime() - gcTime);
+  }
+
+  private void flushMap() {
+    Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
+    for (HashDB layer : layers) {
+      for (Map.Entry<Key, Value> e : layer) {
+        batch.put(WrappedByteArray.of(e.getKey().getBytes()),
+            WrappedByteArray.of(e.getValue().getBytes()));
+      }
+    }
+    db.flush(batch);
+  }
+
+  private void flushWriter() {
+    db.flush(writer -> {
+      Set<Key> seen = new HashSet<>();
+      for (int i = layers.size() - 1; i >= 0; i--) {
+        for (Map.Entry<Key, Value> e : layers.get(i)) {
+          if (seen.add(e.getKey())) {
+            writer.put(e.getKey().getRawBytes(), e.getValue().getRawBytes());
+          }
+        }
+      }
+    });
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, bean.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      time += Math.max(0, bean.getCollectionTime());
+    }
+    return time;
+  }
+}
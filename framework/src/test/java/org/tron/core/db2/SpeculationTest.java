@@ -0,0 +1,159 @@
+package org.tron.core.db2;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tron.common.utils.ByteArray;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.Constant;
+import org.tron.core.config.args.Args;
+import org.tron.core.db2.RevokingDbWithCacheNewValueTest.TestRevokingTronStore;
+import org.tron.core.db2.SnapshotRootTest.ProtoCapsuleTest;
+import org.tron.core.db2.core.AccessRecorder;
+import org.tron.core.db2.core.AccessSet;
+import org.tron.core.db2.core.Chainbase;
+import org.tron.core.db2.core.Speculation;
+
+public class SpeculationTest {
+
+  private static final String OUTPUT_DIR = "output-speculation-test";
+  private static final String DB_NAME = "speculation-test";
+
+  private TestRevokingTronStore store;
+
+  @Before
+  public void init() {
+    Args.setParam(new String[]{"--output-directory", OUTPUT_DIR}, Constant.TEST_CONF);
+    store = new TestRevokingTronStore(DB_NAME);
+  }
+
+  @After
+  public void destroy() {
+    store.close();
+    Args.clearParam();
+    FileUtil.deleteDir(new File(OUTPUT_DIR));
+  }
+
+  @Test
+  public void testCommit() throws Exception {
+    byte[] first = "first".getBytes();
+    byte[] second = "second".getBytes();
+    store.put(first, new ProtoCapsuleTest(first));
+    Assert.assertTrue(store.has(first));
+
+    Speculation speculation = new Speculation();
+    List<String> effects = new ArrayList<>();
+    speculation.call(() -> {
+      store.put(second, new ProtoCapsuleTest(second));
+      store.delete(first);
+      // the speculation sees its own writes
+      Assert.assertTrue(store.has(second));
+      Assert.assertFalse(store.has(first));
+      Speculation.defer(() -> effects.add("deferred"));
+      return null;
+    });
+
+    // nothing reaches the store before the commit
+    Assert.assertFalse(speculation.isUnsafe());
+    Assert.assertFalse(store.has(second));
+    Assert.assertTrue(store.has(first));
+    Assert.assertTrue(effects.isEmpty());
+
+    speculation.commit();
+    Assert.assertTrue(store.has(second));
+    Assert.assertFalse(store.has(first));
+    Assert.assertEquals(1, effects.size());
+
+    // not speculating, the action runs at once
+    Speculation.defer(() -> effects.add("now"));
+    Assert.assertEquals(2, effects.size());
+  }
+
+  @Test
+  public void testChangeListener() throws Exception {
+    byte[] first = "first".getBytes();
+    byte[] second = "second".getBytes();
+    store.put(first, new ProtoCapsuleTest(first));
+    Chainbase chainbase = (Chainbase) store.getRevokingDB();
+    List<String> committed = new ArrayList<>();
+    chainbase.setChangeListener(key -> committed.add(ByteArray.toStr(key)));
+    long revision = chainbase.getRevision();
+
+    Speculation speculation = new Speculation();
+    speculation.call(() -> {
+      store.put(second, new ProtoCapsuleTest(second));
+      store.delete(first);
+      return null;
+    });
+    Assert.assertTrue(committed.isEmpty());
+    speculation.commit();
+
+    // only the keys written are dropped from the caches, the others stay valid
+    committed.sort(String::compareTo);
+    Assert.assertEquals(Arrays.asList("first", "second"), committed);
+    Assert.assertEquals(revision, chainbase.getRevision());
+  }
+
+  @Test
+  public void testParent() throws Exception {
+    byte[] first = "first".getBytes();
+    byte[] second = "second".getBytes();
+    Speculation parent = new Speculation();
+    parent.call(() -> {
+      store.put(first, new ProtoCapsuleTest(first));
+      return null;
+    });
+    Speculation child = new Speculation(parent);
+    child.call(() -> {
+      // the child sees the writes of its parent
+      Assert.assertTrue(store.has(first));
+      store.put(second, new ProtoCapsuleTest(second));
+      return null;
+    });
+
+    // a commit applies the writes of the speculation only
+    child.commit();
+    Assert.assertTrue(store.has(second));
+    Assert.assertFalse(store.has(first));
+    parent.commit();
+    Assert.assertTrue(store.has(first));
+  }
+
+  @Test
+  public void testMismatch() throws Exception {
+    byte[] key = "key".getBytes();
+    Speculation speculation = new Speculation();
+    speculation.call(() -> {
+      store.put(key, new ProtoCapsuleTest(key));
+      return null;
+    });
+
+    AccessRecorder recorder = AccessRecorder.open();
+    store.put(key, new ProtoCapsuleTest(key));
+    AccessSet same = recorder.stop();
+    Assert.assertNull(speculation.findMismatch(same));
+
+    recorder = AccessRecorder.open();
+    store.put(key, new ProtoCapsuleTest("other".getBytes()));
+    AccessSet different = recorder.stop();
+    Assert.assertNotNull(speculation.findMismatch(different));
+  }
+
+  @Test
+  public void testUnsafe() throws Exception {
+    store.put("key".getBytes(), new ProtoCapsuleTest("key".getBytes()));
+    Speculation speculation = new Speculation();
+    speculation.call(() -> store.iterator().hasNext());
+    Assert.assertTrue(speculation.isUnsafe());
+    Assert.assertEquals("iterator of " + DB_NAME, speculation.getUnsafeReason());
+
+    // outside of a speculation there is nothing to mark
+    Speculation.markUnsafe("none");
+    Assert.assertFalse(Speculation.isSpeculating());
+  }
+}
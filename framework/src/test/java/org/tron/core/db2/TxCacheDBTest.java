@@ -0,0 +1,86 @@
+package org.tron.core.db2;
+
+import com.google.common.primitives.Longs;
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.Constant;
+import org.tron.core.config.args.Args;
+import org.tron.core.db2.common.TxCacheDB;
+import org.tron.core.db2.common.WrappedByteArray;
+
+public class TxCacheDBTest {
+
+  private static final String OUTPUT_DIR = "output_txCacheDB_test";
+  private static final String DB_NAME = "trans-cache-test";
+
+  @Before
+  public void init() {
+    Args.setParam(new String[]{"-d", OUTPUT_DIR}, Constant.TEST_CONF);
+  }
+
+  @After
+  public void destroy() {
+    Args.getInstance().getStorage().setTxCacheWarmUpThreads(0);
+    Args.clearParam();
+    FileUtil.deleteDir(new File(OUTPUT_DIR));
+  }
+
+  @Test
+  public void testParallelWarmUp() {
+    TxCacheDB db = new TxCacheDB(DB_NAME);
+    db.warmUp(() -> {
+    });
+    Random random = new Random(0);
+    Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
+    for (int i = 0; i < 10_000; i++) {
+      byte[] key = new byte[32];
+      random.nextBytes(key);
+      batch.put(WrappedByteArray.of(key), WrappedByteArray.of(Longs.toByteArray(i / 100)));
+    }
+    db.flush(batch);
+    db.close();
+
+    Args.getInstance().getStorage().setTxCacheWarmUpThreads(4);
+    TxCacheDB warm = new TxCacheDB(DB_NAME);
+    byte[] replayed = new byte[32];
+    random.nextBytes(replayed);
+    warm.warmUp(() -> warm.record(200, Collections.singletonList(replayed)));
+
+    // reads wait for the warm-up
+    batch.forEach((k, v) -> Assert.assertArrayEquals(v.getBytes(), warm.get(k.getBytes())));
+    Assert.assertTrue(warm.isReady());
+    Assert.assertEquals(200, Longs.fromByteArray(warm.get(replayed)));
+    Assert.assertEquals(batch.size() + 1, warm.size());
+    warm.close();
+  }
+
+  @Test
+  public void testFailedWarmUp() {
+    Args.getInstance().getStorage().setTxCacheWarmUpThreads(2);
+    TxCacheDB db = new TxCacheDB(DB_NAME);
+    byte[] replayed = new byte[32];
+    new Random(0).nextBytes(replayed);
+    AtomicInteger replays = new AtomicInteger();
+    db.warmUp(() -> {
+      if (replays.incrementAndGet() == 1) {
+        throw new IllegalStateException("replay failed");
+      }
+      db.record(100, Collections.singletonList(replayed));
+    });
+
+    // loaded again on the reading thread
+    Assert.assertEquals(100, Longs.fromByteArray(db.get(replayed)));
+    Assert.assertTrue(db.isReady());
+    Assert.assertEquals(2, replays.get());
+    db.close();
+  }
+}
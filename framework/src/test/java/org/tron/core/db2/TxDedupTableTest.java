@@ -0,0 +1,71 @@
+package org.tron.core.db2;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tron.core.db2.common.TxDedupTable;
+import org.tron.core.db2.common.WrappedByteArray;
+
+public class TxDedupTableTest {
+
+  @Test
+  public void testPutGetRemove() {
+    TxDedupTable table = new TxDedupTable();
+    Random random = new Random(0);
+    Map<WrappedByteArray, Long> expected = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      byte[] key = new byte[32];
+      random.nextBytes(key);
+      table.put(key, i);
+      expected.put(WrappedByteArray.of(key), (long) i);
+    }
+    Assert.assertEquals(expected.size(), table.size());
+
+    int removed = 0;
+    for (Map.Entry<WrappedByteArray, Long> e : expected.entrySet()) {
+      Assert.assertEquals((long) e.getValue(), table.get(e.getKey().getBytes()));
+      if (e.getValue() % 3 == 0) {
+        Assert.assertFalse(table.remove(e.getKey().getBytes(), e.getValue() + 1));
+        Assert.assertTrue(table.remove(e.getKey().getBytes(), e.getValue()));
+        ++removed;
+      }
+    }
+    Assert.assertEquals(expected.size() - removed, table.size());
+
+    // backward shifting must keep every remaining key reachable
+    for (Map.Entry<WrappedByteArray, Long> e : expected.entrySet()) {
+      long blockNum = table.get(e.getKey().getBytes());
+      if (e.getValue() % 3 == 0) {
+        Assert.assertEquals(TxDedupTable.ABSENT, blockNum);
+      } else {
+        Assert.assertEquals((long) e.getValue(), blockNum);
+      }
+    }
+  }
+
+  @Test
+  public void testShortKeysAndIterator() {
+    TxDedupTable table = new TxDedupTable();
+    table.put("a".getBytes(), 1);
+    table.put("a\0".getBytes(), 2);
+    Assert.assertEquals(1, table.get("a".getBytes()));
+    Assert.assertEquals(2, table.get("a\0".getBytes()));
+    Assert.assertEquals(1, table.put("a".getBytes(), 3));
+    Assert.assertEquals(TxDedupTable.ABSENT, table.get(new byte[33]));
+
+    Map<WrappedByteArray, Long> all = new HashMap<>();
+    Iterator<Map.Entry<byte[], Long>> iterator = table.iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<byte[], Long> e = iterator.next();
+      all.put(WrappedByteArray.of(e.getKey()), e.getValue());
+    }
+    Assert.assertEquals(2, all.size());
+    Assert.assertEquals(3L, (long) all.get(WrappedByteArray.of("a".getBytes())));
+
+    table.clear();
+    Assert.assertEquals(0, table.size());
+  }
+}
@@ -0,0 +1,183 @@
+package org.tron.core.db2.common;
+
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Longs;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteOptions;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tron.common.storage.DbSnapshot;
+import org.tron.common.storage.leveldb.LevelDbDataSourceImpl;
+import org.tron.common.utils.FileUtil;
+import org.tron.core.Constant;
+import org.tron.core.config.args.Args;
+import org.tron.core.db.common.iterator.DBIterator;
+
+public class TieredDBTest {
+
+  private static final String OUTPUT_DIR = "output-tiered-db-test";
+  private static final int BLOCKS = 30;
+
+  private TieredDB db;
+
+  @Before
+  public void init() {
+    Args.setParam(new String[]{"--output-directory", OUTPUT_DIR}, Constant.TEST_CONF);
+    db = open();
+  }
+
+  @After
+  public void destroy() {
+    db.close();
+    Args.clearParam();
+    FileUtil.deleteDir(new File(OUTPUT_DIR));
+  }
+
+  private static TieredDB open() {
+    Path directory = Paths.get(OUTPUT_DIR, "block" + TieredDB.DIRECTORY_SUFFIX);
+    return new TieredDB(new LevelDB(new LevelDbDataSourceImpl(OUTPUT_DIR, "block",
+        new Options(), new WriteOptions())), directory, 10, 5);
+  }
+
+  // two rows per block, like the block ids of forks
+  private static byte[] key(long number, int fork) {
+    return Bytes.concat(Longs.toByteArray(number), new byte[]{(byte) fork});
+  }
+
+  private static byte[] value(long number, int fork) {
+    return ("block " + number + "-" + fork).getBytes();
+  }
+
+  private void fill() {
+    for (int i = 0; i < BLOCKS; i++) {
+      db.put(key(i, 0), value(i, 0));
+      db.put(key(i, 1), value(i, 1));
+    }
+  }
+
+  private static List<Long> numbers(DBIterator iterator) throws IOException {
+    List<Long> numbers = new ArrayList<>();
+    try (DBIterator rows = iterator) {
+      while (rows.hasNext()) {
+        Map.Entry<byte[], byte[]> row = rows.next();
+        long number = TieredDB.number(row.getKey());
+        Assert.assertArrayEquals(value(number, row.getKey()[8]), row.getValue());
+        numbers.add(number);
+      }
+    }
+    return numbers;
+  }
+
+  @Test
+  public void testMove() throws IOException {
+    fill();
+    int moves = 0;
+    while (db.moveOne()) {
+      moves++;
+    }
+    // until less than hotBlocks + segmentBlocks blocks are left
+    Assert.assertEquals(4, moves);
+    Assert.assertEquals(20, db.getHot().size());
+    Assert.assertEquals(2 * BLOCKS, db.size());
+
+    for (int i = 0; i < BLOCKS; i++) {
+      Assert.assertArrayEquals(value(i, 0), db.get(key(i, 0)));
+      Assert.assertArrayEquals(value(i, 1), db.get(key(i, 1)));
+    }
+    Assert.assertNull(db.get(key(3, 2)));
+    Assert.assertNull(db.get(key(BLOCKS, 0)));
+
+    List<Long> forward = numbers(db.iterator(key(7, 1), false));
+    Assert.assertEquals(2 * BLOCKS - 15, forward.size());
+    Assert.assertEquals(7, (long) forward.get(0));
+    Assert.assertEquals(BLOCKS - 1, (long) forward.get(forward.size() - 1));
+    List<Long> backward = numbers(db.iterator(null, true));
+    Assert.assertEquals(2 * BLOCKS, backward.size());
+    for (int i = 1; i < backward.size(); i++) {
+      Assert.assertTrue(backward.get(i) <= backward.get(i - 1));
+    }
+
+    // the segments are found again after a restart
+    db.close();
+    db = open();
+    Assert.assertEquals(2 * BLOCKS, db.size());
+    Assert.assertArrayEquals(value(12, 1), db.get(key(12, 1)));
+    Assert.assertFalse(db.moveOne());
+  }
+
+  @Test
+  public void testPin() throws IOException {
+    fill();
+    try (DbSnapshot pinned = db.pin()) {
+      Assert.assertTrue(db.moveOne());
+      db.put(key(BLOCKS, 0), value(BLOCKS, 0));
+      Assert.assertArrayEquals(value(2, 0), pinned.get(key(2, 0)));
+      Assert.assertNull(pinned.get(key(BLOCKS, 0)));
+    }
+    Assert.assertArrayEquals(value(2, 0), db.get(key(2, 0)));
+    Assert.assertArrayEquals(value(BLOCKS, 0), db.get(key(BLOCKS, 0)));
+  }
+
+  @Test
+  public void testLeftovers() throws IOException {
+    fill();
+    Assert.assertTrue(db.moveOne());
+    // as if the node stopped between writing a segment and deleting its rows
+    db.put(key(1, 0), value(1, 0));
+    Assert.assertEquals(51, db.getHot().size());
+    Assert.assertTrue(db.moveOne());
+    Assert.assertEquals(40, db.getHot().size());
+    Assert.assertArrayEquals(value(1, 0), db.get(key(1, 0)));
+  }
+
+  @Test
+  public void testRemoveArchived() throws IOException {
+    fill();
+    Assert.assertTrue(db.moveOne());
+    try {
+      db.remove(key(2, 0));
+      Assert.fail();
+    } catch (UnsupportedOperationException e) {
+      Assert.assertArrayEquals(value(2, 0), db.get(key(2, 0)));
+    }
+    try {
+      db.flush(Collections.singletonMap(WrappedByteArray.of(key(3, 0)),
+          WrappedByteArray.of(null)));
+      Assert.fail();
+    } catch (UnsupportedOperationException e) {
+      Assert.assertArrayEquals(value(3, 0), db.get(key(3, 0)));
+    }
+    db.remove(key(BLOCKS - 1, 0));
+    Assert.assertNull(db.get(key(BLOCKS - 1, 0)));
+  }
+
+  @Test
+  public void testBackupSegments() throws IOException {
+    fill();
+    Assert.assertTrue(db.moveOne());
+    Assert.assertTrue(db.moveOne());
+    Path backup = Paths.get(OUTPUT_DIR, "bak", "block" + TieredDB.DIRECTORY_SUFFIX);
+    db.backupSegments(backup);
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(backup)) {
+      int count = 0;
+      for (Path file : files) {
+        Assert.assertEquals(Files.size(Paths.get(OUTPUT_DIR, "block" + TieredDB.DIRECTORY_SUFFIX,
+            file.getFileName().toString())), Files.size(file));
+        count++;
+      }
+      Assert.assertEquals(2, count);
+    }
+  }
+}